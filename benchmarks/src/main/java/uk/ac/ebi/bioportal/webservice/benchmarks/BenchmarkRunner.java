@@ -0,0 +1,29 @@
+package uk.ac.ebi.bioportal.webservice.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler always enabled, since allocation rates are as relevant as times here. 
+ * Accepts the usual JMH command line options, e.g., a regular expression to select the benchmarks.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class BenchmarkRunner
+{
+	public static void main ( String... args ) throws RunnerException, CommandLineOptionException
+	{
+		Options opts = new OptionsBuilder ()
+			.parent ( new CommandLineOptions ( args ) )
+			.addProfiler ( GCProfiler.class )
+			.build ();
+		new Runner ( opts ).run ();
+	}
+}
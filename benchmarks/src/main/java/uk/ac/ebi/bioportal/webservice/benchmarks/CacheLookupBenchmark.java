@@ -0,0 +1,124 @@
+package uk.ac.ebi.bioportal.webservice.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.ebi.bioportal.webservice.cache.CacheEntry;
+import uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter;
+import uk.ac.ebi.bioportal.webservice.client.BioportalClient;
+import uk.ac.ebi.bioportal.webservice.model.LookupResult;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClass;
+
+/**
+ * <p>Benchmarks the class lookups that are served by the client caches, including the bookkeeping around them 
+ * (e.g., the hot key log).</p> 
+ * 
+ * <p>The client is {@link BioportalClient#setOffline(boolean) offline}, so the misses measure the cache lookups 
+ * and return without calling Bioportal.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+@State ( Scope.Benchmark )
+@BenchmarkMode ( Mode.Throughput )
+@OutputTimeUnit ( TimeUnit.MILLISECONDS )
+@Warmup ( iterations = 5, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( 1 )
+public class CacheLookupBenchmark
+{
+	private static final String ONTOLOGY = "EFO";
+	
+	@Param ( { "1000", "100000" } )
+	private int cacheSize;
+	
+	private BioportalClient client;
+	private List<String> iris;
+	
+	/**
+	 * Each thread walks the keys on its own.
+	 */
+	@State ( Scope.Thread )
+	public static class Cursor
+	{
+		int index = 0;
+	}
+
+	@Setup
+	public void setup () throws IOException
+	{
+		iris = new ArrayList<> ( cacheSize );
+		Path snapshot = Files.createTempFile ( "bioportal-benchmark", ".cache" );
+		try
+		{
+			try ( 
+				OutputStream out = Files.newOutputStream ( snapshot );
+				CacheSnapshotWriter writer = new CacheSnapshotWriter ( out ) 
+			)
+			{
+				for ( int i = 0; i < cacheSize; i++ )
+				{
+					String iri = String.format ( "http://www.ebi.ac.uk/efo/EFO_%07d", i );
+					OntologyClass cls = new OntologyClass ( iri );
+					cls.setOntologyAcronym ( ONTOLOGY );
+					cls.setPreferredLabel ( "term " + i );
+					writer.writeClass ( ONTOLOGY + " " + iri, new CacheEntry<> ( cls, TimeUnit.DAYS.toMillis ( 1 ) ) );
+					iris.add ( iri );
+				}
+			}
+			
+			client = new BioportalClient ( "benchmark-key" );
+			client.setOffline ( true );
+			client.importCaches ( snapshot );
+		}
+		finally {
+			Files.deleteIfExists ( snapshot );
+		}
+	}
+	
+	@Benchmark
+	@Threads ( 1 )
+	public LookupResult<OntologyClass> hit ( Cursor cursor )
+	{
+		return client.lookupOntologyClass ( ONTOLOGY, nextIri ( cursor ) );
+	}
+
+	@Benchmark
+	@Threads ( 4 )
+	public LookupResult<OntologyClass> hitConcurrent ( Cursor cursor )
+	{
+		return client.lookupOntologyClass ( ONTOLOGY, nextIri ( cursor ) );
+	}
+
+	@Benchmark
+	@Threads ( 1 )
+	public LookupResult<OntologyClass> miss ( Cursor cursor )
+	{
+		return client.lookupOntologyClass ( ONTOLOGY, nextIri ( cursor ) + "_missing" );
+	}
+	
+	private String nextIri ( Cursor cursor )
+	{
+		if ( cursor.index == iris.size () ) cursor.index = 0;
+		return iris.get ( cursor.index++ );
+	}
+}
@@ -0,0 +1,54 @@
+package uk.ac.ebi.bioportal.webservice.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+/**
+ * Loads the canned Bioportal responses in /fixtures. They're trimmed down from real responses, keeping all the 
+ * fields that Bioportal returns, since skipping them is part of the parsing cost.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class Fixtures
+{
+	public static final String ANNOTATOR = "annotator.json";
+	public static final String CLASS = "class.json";
+	public static final String CLASSES_PAGE = "classes-page.json";
+	public static final String MAPPINGS = "mappings.json";
+
+	private static final ObjectMapper MAPPER = new ObjectMapper ();
+
+	private Fixtures () {}
+
+	public static byte[] load ( String name ) throws IOException
+	{
+		try ( InputStream in = Fixtures.class.getResourceAsStream ( "/fixtures/" + name ) )
+		{
+			if ( in == null ) throw new IOException ( "Benchmark fixture '" + name + "' not found" );
+			ByteArrayOutputStream out = new ByteArrayOutputStream ();
+			byte[] buffer = new byte [ 1 << 16 ];
+			for ( int n; ( n = in.read ( buffer ) ) != -1; ) out.write ( buffer, 0, n );
+			return out.toByteArray ();
+		}
+	}
+
+	/**
+	 * Makes a bigger response out of a fixture that is a JSON array, by repeating its elements.
+	 */
+	public static byte[] loadRepeated ( String name, int copies ) throws IOException
+	{
+		JsonNode items = MAPPER.readTree ( load ( name ) );
+		if ( !items.isArray () ) throw new IllegalArgumentException ( "Benchmark fixture '" + name + "' isn't an array" );
+		
+		ArrayNode result = MAPPER.createArrayNode ();
+		for ( int i = 0; i < copies; i++ ) result.addAll ( (ArrayNode) items );
+		return MAPPER.writeValueAsBytes ( result );
+	}
+}
@@ -0,0 +1,415 @@
+package uk.ac.ebi.bioportal.webservice.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import uk.ac.ebi.bioportal.webservice.client.BioportalClient;
+import uk.ac.ebi.bioportal.webservice.model.ClassRef;
+import uk.ac.ebi.bioportal.webservice.model.TextAnnotation;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubServer;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubServer.Latency;
+import uk.ac.ebi.bioportal.webservice.utils.ApiKeyPool;
+import uk.ac.ebi.bioportal.webservice.utils.BioportalInvoker;
+import uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * <p>Drives a {@link BioportalClient} with a realistic load and measures it end-to-end: throughput, latency
+ * percentiles, client cache hit rate and throttling. Each operation annotates a random term from a word list (like
+ * a curation pipeline does) and, with <code>--op annotate_and_lookup</code>, fetches the details of the annotated
+ * classes too, which exercises the client caches.</p>
+ *
+ * <p>The load can be:</p>
+ * <ul>
+ *   <li><b>open-loop</b> (<code>--mode open --rate R</code>): operations start at the target rate, regardless of how
+ *   fast they complete. Latencies are measured from the scheduled start, so that a slow down shows up in the
+ *   percentiles (no coordinated omission), as users would see it.</li>
+ *   <li><b>closed-loop</b> (<code>--mode closed --workers N</code>): N workers issue an operation as soon as the
+ *   previous one completes, which tells the max throughput the client achieves.</li>
+ * </ul>
+ *
+ * <p>The target is Bioportal or any URL given with <code>--base-url</code>, or an embedded
+ * {@link BioportalStubServer} (<code>--stub</code>), whose latency, error rate and rate limit can be set from the
+ * command line. The results are printed and, with <code>--out</code>, saved as JSON, to compare releases.
+ * Run it without arguments for the list of options.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class LoadTester
+{
+	private static final String[][] OPTIONS = {
+		{ "mode", "closed", "open or closed" },
+		{ "rate", "10", "operations/s, open-loop mode only" },
+		{ "workers", "20", "concurrent workers in closed-loop mode, max in-flight operations in open-loop mode" },
+		{ "duration", "60", "measurement duration, in seconds" },
+		{ "warmup", "10", "seconds of load not included in the results" },
+		{ "op", "annotate", "annotate or annotate_and_lookup" },
+		{ "base-url", null, "the Bioportal URL, default is the real Bioportal" },
+		{ "api-keys", null, "comma-separated list of Bioportal API keys, required unless --stub is used" },
+		{ "words", null, "file of terms to annotate, one per line, default is a built-in list" },
+		{ "out", null, "JSON file where the results are saved" },
+		{ "stub", "false", "true to run against an embedded stub server" },
+		{ "stub-latency", "50", "median latency of the stub server, in ms, log-normal" },
+		{ "stub-error-rate", "0", "fraction of stub calls that fail" },
+		{ "stub-rate-limit", "0", "calls/s above which the stub throttles, 0 for none" }
+	};
+
+	/** Up to 1 min, 3 significant digits */
+	private static final long MAX_TRACKED_MICROS = TimeUnit.MINUTES.toMicros ( 1 );
+
+	private final Map<String, String> opts;
+	private final BioportalClient client;
+	private final List<String> words;
+	private final boolean doLookups;
+
+	private final Histogram latencies = new ConcurrentHistogram ( MAX_TRACKED_MICROS, 3 );
+	private final LongAdder completedCount = new LongAdder (), lookupCount = new LongAdder ();
+	private final Map<String, AtomicLong> errorCounts = new ConcurrentHashMap<> ();
+	private volatile long measureStartNanos;
+
+	public LoadTester ( Map<String, String> opts, BioportalClient client, List<String> words )
+	{
+		this.opts = opts;
+		this.client = client;
+		this.words = words;
+		this.doLookups = "annotate_and_lookup".equals ( opts.get ( "op" ) );
+	}
+
+	public static void main ( String... args ) throws Exception
+	{
+		Map<String, String> opts = parseOptions ( args );
+		if ( opts == null ) {
+			printUsage ();
+			System.exit ( 1 );
+		}
+
+		BioportalStubServer stub = null;
+		String baseUrl = opts.get ( "base-url" );
+		if ( Boolean.parseBoolean ( opts.get ( "stub" ) ) )
+		{
+			stub = new BioportalStubServer ();
+			stub.setLatency ( Latency.logNormal ( Double.parseDouble ( opts.get ( "stub-latency" ) ), 0.5 ) );
+			stub.setErrorRate ( Double.parseDouble ( opts.get ( "stub-error-rate" ) ) );
+			stub.setRateLimit ( Double.parseDouble ( opts.get ( "stub-rate-limit" ) ), 1 );
+			baseUrl = stub.getBaseUrl ();
+			if ( opts.get ( "api-keys" ) == null ) opts.put ( "api-keys", "stub-key" );
+		}
+		if ( baseUrl != null ) BioportalWebServiceUtils.bioportalBaseUrl = baseUrl;
+		opts.put ( "base-url", BioportalWebServiceUtils.bioportalBaseUrl );
+
+		if ( opts.get ( "api-keys" ) == null ) {
+			System.err.println ( "\n  --api-keys is required when not using --stub\n" );
+			printUsage ();
+			System.exit ( 1 );
+		}
+
+		try
+		{
+			BioportalClient client = new BioportalClient ( Arrays.asList ( opts.get ( "api-keys" ).split ( "," ) ) );
+			LoadTester tester = new LoadTester ( opts, client, loadWords ( opts.get ( "words" ) ) );
+			ObjectNode results = tester.run ();
+
+			ObjectMapper mapper = new ObjectMapper ();
+			mapper.enable ( SerializationFeature.INDENT_OUTPUT );
+			String out = opts.get ( "out" );
+			if ( out != null )
+				try ( OutputStream os = Files.newOutputStream ( Paths.get ( out ) ) ) {
+					mapper.writeValue ( os, results );
+				}
+			System.out.println ( tester.getSummary ( results ) );
+		}
+		finally {
+			if ( stub != null ) stub.close ();
+		}
+		// Not all the client threads are daemons
+		System.exit ( 0 );
+	}
+
+
+	/**
+	 * Runs the load for warmup + duration and returns the results, in the same format as they're saved.
+	 */
+	public ObjectNode run () throws InterruptedException
+	{
+		long warmupNanos = TimeUnit.SECONDS.toNanos ( Long.parseLong ( opts.get ( "warmup" ) ) );
+		long durationNanos = TimeUnit.SECONDS.toNanos ( Long.parseLong ( opts.get ( "duration" ) ) );
+		int workers = Integer.parseInt ( opts.get ( "workers" ) );
+
+		long start = System.nanoTime ();
+		measureStartNanos = start + warmupNanos;
+		long end = measureStartNanos + durationNanos;
+
+		ExecutorService executor = Executors.newFixedThreadPool ( workers );
+		// The client counters when the measurement starts, see snapshotCounters()
+		Map<String, Long> countersAtStart = null;
+		if ( "open".equals ( opts.get ( "mode" ) ) )
+		{
+			double rate = Double.parseDouble ( opts.get ( "rate" ) );
+			long intervalNanos = (long) ( TimeUnit.SECONDS.toNanos ( 1 ) / rate );
+			for ( long i = 0;; i++ )
+			{
+				final long scheduledNanos = start + i * intervalNanos;
+				if ( scheduledNanos >= end ) break;
+				long waitNanos = scheduledNanos - System.nanoTime ();
+				if ( waitNanos > 0 ) TimeUnit.NANOSECONDS.sleep ( waitNanos );
+				if ( countersAtStart == null && scheduledNanos >= measureStartNanos ) countersAtStart = snapshotCounters ();
+
+				// If all the workers are busy, this is queued, and its latency includes the queueing time
+				executor.execute ( new Runnable ()
+				{
+					@Override
+					public void run () {
+						runOperation ( scheduledNanos );
+					}
+				});
+			}
+		}
+		else if ( "closed".equals ( opts.get ( "mode" ) ) )
+		{
+			final long endNanos = end;
+			for ( int i = 0; i < workers; i++ )
+				executor.execute ( new Runnable ()
+				{
+					@Override
+					public void run () {
+						while ( System.nanoTime () < endNanos ) runOperation ( System.nanoTime () );
+					}
+				});
+			long waitNanos = measureStartNanos - System.nanoTime ();
+			if ( waitNanos > 0 ) TimeUnit.NANOSECONDS.sleep ( waitNanos );
+			countersAtStart = snapshotCounters ();
+		}
+		else
+			throw new IllegalArgumentException ( "Unknown load test mode '" + opts.get ( "mode" ) + "'" );
+
+		executor.shutdown ();
+		// Operations started within the test period are waited for, but not forever
+		executor.awaitTermination ( 5, TimeUnit.MINUTES );
+		long measuredNanos = Math.max ( System.nanoTime (), end ) - measureStartNanos;
+		if ( countersAtStart == null ) countersAtStart = snapshotCounters ();
+
+		return getResults ( measuredNanos, countersAtStart, snapshotCounters () );
+	}
+
+	private void runOperation ( long startNanos )
+	{
+		String word = words.get ( ThreadLocalRandom.current ().nextInt ( words.size () ) );
+		boolean isMeasured = startNanos >= measureStartNanos;
+		try
+		{
+			TextAnnotation[] anns = client.getTextAnnotations ( word, "longest_only", "true" );
+			if ( doLookups )
+				for ( TextAnnotation ann: anns )
+				{
+					ClassRef cref = ann.getAnnotatedClass ();
+					client.getOntologyClass ( cref.getOntologyAcronym (), cref.getClassIri () );
+					if ( isMeasured ) lookupCount.increment ();
+				}
+			if ( !isMeasured ) return;
+			latencies.recordValue ( Math.min ( MAX_TRACKED_MICROS, TimeUnit.NANOSECONDS.toMicros ( System.nanoTime () - startNanos ) ) );
+			completedCount.increment ();
+		}
+		catch ( RuntimeException ex )
+		{
+			if ( !isMeasured ) return;
+			String errorType = ex.getClass ().getSimpleName ();
+			AtomicLong ct = errorCounts.get ( errorType );
+			if ( ct == null ) {
+				errorCounts.putIfAbsent ( errorType, new AtomicLong () );
+				ct = errorCounts.get ( errorType );
+			}
+			ct.incrementAndGet ();
+		}
+	}
+
+	/**
+	 * The client counters are cumulative, results are based on their differences at the start and at the end.
+	 */
+	private Map<String, Long> snapshotCounters ()
+	{
+		Map<String, Long> result = new HashMap<> ();
+		result.put ( "cacheHits", client.getCacheHitCount () );
+		result.put ( "cacheMisses", client.getCacheMissCount () );
+
+		long calls = 0, throttled = 0, retries = 0, failedRetries = 0;
+		for ( ApiKeyPool.KeySlot slot: client.getApiKeyPool ().getSlots () )
+		{
+			BioportalInvoker invoker = slot.getInvoker ();
+			calls += invoker.getCallCount ();
+			throttled += invoker.getThrottledCount ();
+			retries += invoker.getRetryCount ();
+			failedRetries += invoker.getFailedRetryCount ();
+		}
+		result.put ( "httpCalls", calls );
+		result.put ( "throttledResponses", throttled );
+		result.put ( "retries", retries );
+		result.put ( "failedRetries", failedRetries );
+		result.put ( "circuitBreakerOpenings", client.getApiKeyPool ().getCircuitBreaker ().getOpenCount () );
+		return result;
+	}
+
+	private ObjectNode getResults ( long measuredNanos, Map<String, Long> countersAtStart, Map<String, Long> countersAtEnd )
+	{
+		ObjectMapper mapper = new ObjectMapper ();
+		ObjectNode result = mapper.createObjectNode ();
+		result.put ( "timestamp", String.format ( "%tFT%<tT%<tz", new Date () ) );
+
+		ObjectNode jconfig = result.putObject ( "config" );
+		for ( String[] opt: OPTIONS )
+			if ( !"api-keys".equals ( opt [ 0 ] ) && opts.get ( opt [ 0 ] ) != null ) jconfig.put ( opt [ 0 ], opts.get ( opt [ 0 ] ) );
+		jconfig.put ( "apiKeys", client.getApiKeyPool ().getSlots ().size () );
+
+		double measuredSecs = measuredNanos / (double) TimeUnit.SECONDS.toNanos ( 1 );
+		long completed = completedCount.sum ();
+		long errors = 0;
+		ObjectNode jerrors = mapper.createObjectNode ();
+		for ( Map.Entry<String, AtomicLong> e: errorCounts.entrySet () ) {
+			jerrors.put ( e.getKey (), e.getValue ().get () );
+			errors += e.getValue ().get ();
+		}
+
+		ObjectNode jops = result.putObject ( "operations" );
+		jops.put ( "measuredSecs", measuredSecs );
+		jops.put ( "completed", completed );
+		jops.put ( "failed", errors );
+		jops.put ( "throughputPerSec", completed / measuredSecs );
+		jops.put ( "classLookups", lookupCount.sum () );
+		jops.set ( "errors", jerrors );
+
+		ObjectNode jlatency = result.putObject ( "latencyMicros" );
+		jlatency.put ( "mean", latencies.getMean () );
+		jlatency.put ( "p50", latencies.getValueAtPercentile ( 50 ) );
+		jlatency.put ( "p95", latencies.getValueAtPercentile ( 95 ) );
+		jlatency.put ( "p99", latencies.getValueAtPercentile ( 99 ) );
+		jlatency.put ( "p999", latencies.getValueAtPercentile ( 99.9 ) );
+		jlatency.put ( "max", latencies.getMaxValue () );
+		ArrayNode jhistogram = jlatency.putArray ( "histogram" );
+		for ( HistogramIterationValue v: latencies.percentiles ( 5 ) )
+		{
+			ObjectNode jbucket = jhistogram.addObject ();
+			jbucket.put ( "percentile", v.getPercentileLevelIteratedTo () );
+			jbucket.put ( "value", v.getValueIteratedTo () );
+			jbucket.put ( "count", v.getCountAddedInThisIterationStep () );
+		}
+
+		Map<String, Long> counters = new LinkedHashMap<> ();
+		for ( String key: countersAtEnd.keySet () )
+			counters.put ( key, countersAtEnd.get ( key ) - countersAtStart.get ( key ) );
+
+		ObjectNode jcache = result.putObject ( "cache" );
+		long hits = counters.get ( "cacheHits" ), misses = counters.get ( "cacheMisses" );
+		jcache.put ( "hits", hits );
+		jcache.put ( "misses", misses );
+		jcache.put ( "hitRate", hits + misses == 0 ? 0 : hits / (double) ( hits + misses ) );
+
+		ObjectNode jclient = result.putObject ( "client" );
+		for ( String key: new String[] { "httpCalls", "throttledResponses", "retries", "failedRetries", "circuitBreakerOpenings" } )
+			jclient.put ( key, counters.get ( key ) );
+
+		return result;
+	}
+
+	private String getSummary ( ObjectNode results )
+	{
+		ObjectNode jops = (ObjectNode) results.get ( "operations" );
+		ObjectNode jlat = (ObjectNode) results.get ( "latencyMicros" );
+		ObjectNode jclient = (ObjectNode) results.get ( "client" );
+		return String.format (
+			"\n%s-loop load test, %.0fs, op: %s\n"
+			+ "  Completed: %d, failed: %d, throughput: %.2f ops/s\n"
+			+ "  Latency (ms): p50 %.1f, p95 %.1f, p99 %.1f, p99.9 %.1f, max %.1f\n"
+			+ "  Cache hit rate: %.1f%%\n"
+			+ "  HTTP calls: %d, throttled: %d, retries: %d\n"
+			+ "  Errors: %s\n",
+			opts.get ( "mode" ), jops.get ( "measuredSecs" ).asDouble (), opts.get ( "op" ),
+			jops.get ( "completed" ).asLong (), jops.get ( "failed" ).asLong (), jops.get ( "throughputPerSec" ).asDouble (),
+			jlat.get ( "p50" ).asLong () / 1000d, jlat.get ( "p95" ).asLong () / 1000d, jlat.get ( "p99" ).asLong () / 1000d,
+			jlat.get ( "p999" ).asLong () / 1000d, jlat.get ( "max" ).asLong () / 1000d,
+			results.get ( "cache" ).get ( "hitRate" ).asDouble () * 100,
+			jclient.get ( "httpCalls" ).asLong (), jclient.get ( "throttledResponses" ).asLong (), jclient.get ( "retries" ).asLong (),
+			jops.get ( "errors" )
+		);
+	}
+
+
+	/**
+	 * Returns null if the options are invalid.
+	 */
+	private static Map<String, String> parseOptions ( String... args )
+	{
+		Map<String, String> result = new HashMap<> ();
+		for ( String[] opt: OPTIONS )
+			if ( opt [ 1 ] != null ) result.put ( opt [ 0 ], opt [ 1 ] );
+
+		for ( int i = 0; i < args.length; i++ )
+		{
+			if ( !args [ i ].startsWith ( "--" ) ) return null;
+			String name = args [ i ].substring ( 2 );
+			boolean isKnown = false;
+			for ( String[] opt: OPTIONS ) if ( opt [ 0 ].equals ( name ) ) isKnown = true;
+			if ( !isKnown ) return null;
+
+			// Flags without a value
+			if ( i + 1 == args.length || args [ i + 1 ].startsWith ( "--" ) ) result.put ( name, "true" );
+			else result.put ( name, args [ ++i ] );
+		}
+		return result;
+	}
+
+	private static void printUsage ()
+	{
+		StringBuilder sb = new StringBuilder ( "\n  Usage: " + LoadTester.class.getName () + " [options]\n\n" );
+		for ( String[] opt: OPTIONS )
+			sb.append ( String.format ( "    --%-16s %s%s\n", opt [ 0 ], opt [ 2 ], opt [ 1 ] == null ? "" : " (" + opt [ 1 ] + ")" ) );
+		System.err.println ( sb );
+	}
+
+	private static List<String> loadWords ( String path ) throws IOException
+	{
+		List<String> result = new ArrayList<> ();
+		try (
+			InputStream in = path == null
+				? LoadTester.class.getResourceAsStream ( "/text_ann_test_terms.txt" )
+				: Files.newInputStream ( Paths.get ( path ) );
+			Scanner scanner = new Scanner ( in, StandardCharsets.UTF_8.name () )
+		)
+		{
+			while ( scanner.hasNextLine () )
+			{
+				String word = scanner.nextLine ().trim ();
+				if ( !word.isEmpty () ) result.add ( word );
+			}
+		}
+		if ( result.isEmpty () ) throw new IllegalArgumentException ( "No terms to annotate for the load test" );
+		return result;
+	}
+}
@@ -0,0 +1,133 @@
+package uk.ac.ebi.bioportal.webservice.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.ebi.bioportal.webservice.model.OntologyClass;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClassMapping;
+import uk.ac.ebi.bioportal.webservice.model.TextAnnotation;
+import uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * <p>Benchmarks the decoding of the Bioportal responses into our model objects, i.e., what the client does after 
+ * the HTTP call.</p>
+ * 
+ * <p>The decode* benchmarks measure the whole path, from the response bytes to the model, and parse the JSON 
+ * like {@link BioportalWebServiceUtils#invokeBioportal(String, String, String...)} does. The build* benchmarks 
+ * start from the JSON tree, to tell the cost of the model building alone.</p> 
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+@State ( Scope.Benchmark )
+@BenchmarkMode ( Mode.AverageTime )
+@OutputTimeUnit ( TimeUnit.MICROSECONDS )
+@Warmup ( iterations = 5, time = 1 )
+@Measurement ( iterations = 5, time = 1 )
+@Fork ( 1 )
+public class ParsingBenchmark
+{
+	/**
+	 * How many times the annotator fixture is repeated, to get responses of different sizes (6 annotations per copy). 
+	 */
+	@Param ( { "1", "10", "100" } )
+	private int annotatorCopies;
+	
+	private byte[] annotatorBytes, classBytes, classesPageBytes, mappingsBytes;
+	private JsonNode annotatorJson, classJson, classesPageJson, mappingsJson;
+	
+	@Setup
+	public void setup () throws IOException
+	{
+		annotatorBytes = Fixtures.loadRepeated ( Fixtures.ANNOTATOR, annotatorCopies );
+		classBytes = Fixtures.load ( Fixtures.CLASS );
+		classesPageBytes = Fixtures.load ( Fixtures.CLASSES_PAGE );
+		mappingsBytes = Fixtures.load ( Fixtures.MAPPINGS );
+		
+		ObjectMapper mapper = new ObjectMapper ();
+		annotatorJson = mapper.readTree ( annotatorBytes );
+		classJson = mapper.readTree ( classBytes );
+		classesPageJson = mapper.readTree ( classesPageBytes );
+		mappingsJson = mapper.readTree ( mappingsBytes );
+	}
+	
+	
+	@Benchmark
+	public TextAnnotation[] decodeTextAnnotations () throws IOException
+	{
+		return BioportalWebServiceUtils.buildTextAnnotations ( readTree ( annotatorBytes ) );
+	}
+
+	@Benchmark
+	public OntologyClass decodeOntologyClass () throws IOException
+	{
+		return BioportalWebServiceUtils.buildOntologyClass ( "EFO", readTree ( classBytes ) );
+	}
+
+	@Benchmark
+	public Set<OntologyClass> decodeClassesPage () throws IOException
+	{
+		return BioportalWebServiceUtils.buildOntologyClasses ( 
+			null, "EFO", readTree ( classesPageBytes ).get ( "collection" ) 
+		);
+	}
+	
+	@Benchmark
+	public List<OntologyClassMapping> decodeOntologyClassMappings () throws IOException
+	{
+		return BioportalWebServiceUtils.buildOntologyClassMappings ( readTree ( mappingsBytes ) );
+	}
+
+	
+	@Benchmark
+	public TextAnnotation[] buildTextAnnotations ()
+	{
+		return BioportalWebServiceUtils.buildTextAnnotations ( annotatorJson );
+	}
+
+	@Benchmark
+	public OntologyClass buildOntologyClass ()
+	{
+		return BioportalWebServiceUtils.buildOntologyClass ( "EFO", classJson );
+	}
+
+	@Benchmark
+	public Set<OntologyClass> buildClassesPage ()
+	{
+		return BioportalWebServiceUtils.buildOntologyClasses ( null, "EFO", classesPageJson.get ( "collection" ) );
+	}
+	
+	@Benchmark
+	public List<OntologyClassMapping> buildOntologyClassMappings ()
+	{
+		return BioportalWebServiceUtils.buildOntologyClassMappings ( mappingsJson );
+	}
+	
+	
+	/**
+	 * A new mapper per call and a stream, as the client does now.
+	 */
+	private static JsonNode readTree ( byte[] json ) throws IOException
+	{
+		return new ObjectMapper ().readTree ( new ByteArrayInputStream ( json ) );
+	}
+}
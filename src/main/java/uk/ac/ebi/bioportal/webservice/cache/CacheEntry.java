@@ -0,0 +1,119 @@
+package uk.ac.ebi.bioportal.webservice.cache;
+
+/**
+ * A value cached by the Bioportal client, together with the time it was downloaded and the time it expires.
+ *
+ * We keep track of these ourselves, rather than relying on the cache timeouts only, since entries can come from
+ * elsewhere (e.g., {@link CacheSnapshotReader a snapshot}) and need to keep their remaining life time.
+ *
+ * An entry can also have the HTTP validators (ETag, Last-Modified) that Bioportal sent with the value, which 
+ * allow for revalidating it with a conditional GET when it expires, see {@link #renew(long)}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class CacheEntry<V>
+{
+	private final V value;
+	private final long createdAt;
+	private final long expiresAt;
+	private final String eTag;
+	private final String lastModified;
+
+	/**
+	 * @param createdAt and expiresAt are milliseconds, as returned by {@link System#currentTimeMillis()}.
+	 * @param eTag and lastModified are the HTTP validators of the value, as they were received, null if not 
+	 * available.
+	 */
+	public CacheEntry ( V value, long createdAt, long expiresAt, String eTag, String lastModified )
+	{
+		this.value = value;
+		this.createdAt = createdAt;
+		this.expiresAt = expiresAt;
+		this.eTag = eTag;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * An entry without validators.
+	 */
+	public CacheEntry ( V value, long createdAt, long expiresAt )
+	{
+		this ( value, createdAt, expiresAt, null, null );
+	}
+
+	/**
+	 * Creates an entry created now and expiring after ttlMillis
+	 */
+	public CacheEntry ( V value, long ttlMillis )
+	{
+		this ( value, System.currentTimeMillis (), System.currentTimeMillis () + ttlMillis );
+	}
+
+	public V getValue ()
+	{
+		return value;
+	}
+
+	public long getCreatedAt ()
+	{
+		return createdAt;
+	}
+
+	public long getExpiresAt ()
+	{
+		return expiresAt;
+	}
+
+	public String getETag ()
+	{
+		return eTag;
+	}
+
+	public String getLastModified ()
+	{
+		return lastModified;
+	}
+
+	/**
+	 * True if the entry can be revalidated, i.e., it has some validator.
+	 */
+	public boolean hasValidators ()
+	{
+		return eTag != null || lastModified != null;
+	}
+
+	public boolean isExpired ()
+	{
+		return System.currentTimeMillis () >= expiresAt;
+	}
+
+	/**
+	 * True if the entry expired at least millis ago.
+	 */
+	public boolean isExpiredSince ( long millis )
+	{
+		return System.currentTimeMillis () >= expiresAt + millis;
+	}
+
+	/**
+	 * A copy of this entry, with the same value and validators, created now and expiring after ttlMillis. This 
+	 * is used when Bioportal confirms that the value didn't change.
+	 */
+	public CacheEntry<V> renew ( long ttlMillis )
+	{
+		long now = System.currentTimeMillis ();
+		return new CacheEntry<V> ( value, now, now + ttlMillis, eTag, lastModified );
+	}
+
+	@Override
+	public String toString ()
+	{
+		return String.format (
+			"%s { value: %s, createdAt: %d, expiresAt: %d, eTag: %s, lastModified: %s }",
+			this.getClass ().getSimpleName (), this.getValue (), this.getCreatedAt (), this.getExpiresAt (),
+			this.getETag (), this.getLastModified ()
+		);
+	}
+}
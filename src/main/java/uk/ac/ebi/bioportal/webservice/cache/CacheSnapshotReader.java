@@ -0,0 +1,196 @@
+package uk.ac.ebi.bioportal.webservice.cache;
+
+import static uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter.CLASS_COLLECTION_RECORD;
+import static uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter.CLASS_RECORD;
+import static uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter.END_RECORD;
+import static uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter.FORMAT_VERSION;
+import static uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter.MAGIC;
+import static uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter.MAPPINGS_RECORD;
+import static uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter.MIN_FORMAT_VERSION;
+import static uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter.NEGATIVE_RECORD;
+import static uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter.ONTOLOGY_RECORD;
+import static uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter.UTF8;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import uk.ac.ebi.bioportal.webservice.model.ClassRef;
+import uk.ac.ebi.bioportal.webservice.model.Ontology;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClass;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClassMapping;
+
+/**
+ * Reads the cache snapshots produced by {@link CacheSnapshotWriter}. Records are streamed to a {@link Handler}, one
+ * at a time. Entries that are already expired at the time of reading are skipped.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class CacheSnapshotReader implements Closeable
+{
+	/**
+	 * Receives the snapshot entries. Entries have their original creation and expiration times.
+	 */
+	public static interface Handler
+	{
+		public void onClass ( String key, CacheEntry<OntologyClass> entry );
+		public void onOntology ( String key, CacheEntry<Ontology> entry );
+		public void onMappings ( String key, CacheEntry<List<OntologyClassMapping>> entry );
+		public void onClassCollection ( String key, CacheEntry<Set<OntologyClass>> entry );
+	}
+
+	private final DataInputStream in;
+	private final int formatVersion;
+	private final long writtenAt;
+
+	public CacheSnapshotReader ( InputStream in ) throws IOException
+	{
+		this.in = new DataInputStream ( new BufferedInputStream ( new GZIPInputStream ( in ), 1 << 16 ) );
+
+		if ( this.in.readInt () != MAGIC ) throw new IOException ( "The input isn't a Bioportal client cache snapshot" );
+		this.formatVersion = this.in.readUnsignedShort ();
+		if ( formatVersion > FORMAT_VERSION ) throw new IOException (
+			"Unsupported cache snapshot version " + formatVersion + ", max supported is " + FORMAT_VERSION
+		);
+		if ( formatVersion < MIN_FORMAT_VERSION ) throw new IOException (
+			"Cache snapshot version " + formatVersion + " is no longer supported, please export a new snapshot"
+		);
+		this.writtenAt = this.in.readLong ();
+	}
+
+	/**
+	 * Reads all the records and send them to the handler. Misses are sent straight to the negativeCache, if 
+	 * this is not null, they're ignored otherwise.
+	 *
+	 * @return the number of records read, including those that were skipped because expired.
+	 */
+	public long read ( Handler handler, NegativeResultCache negativeCache ) throws IOException
+	{
+		long count = 0;
+		for ( byte recordType; ( recordType = in.readByte () ) != END_RECORD; count++ )
+		{
+			String key = readString ();
+			long createdAt = in.readLong ();
+			long expiresAt = in.readLong ();
+			boolean isExpired = System.currentTimeMillis () >= expiresAt;
+			String eTag = null, lastModified = null;
+			if ( formatVersion >= 4 && recordType != NEGATIVE_RECORD ) {
+				eTag = readString ();
+				lastModified = readString ();
+			}
+
+			switch ( recordType )
+			{
+				case CLASS_RECORD:
+				{
+					OntologyClass cls = readOntologyClass ();
+					if ( !isExpired ) handler.onClass ( 
+						key, new CacheEntry<OntologyClass> ( cls, createdAt, expiresAt, eTag, lastModified ) 
+					);
+					break;
+				}
+				case ONTOLOGY_RECORD:
+				{
+					Ontology onto = new Ontology ( readString () );
+					onto.setName ( readString () );
+					onto.setClassUriPrefix ( readString () );
+					if ( !isExpired ) handler.onOntology ( 
+						key, new CacheEntry<Ontology> ( onto, createdAt, expiresAt, eTag, lastModified ) 
+					);
+					break;
+				}
+				case MAPPINGS_RECORD:
+				{
+					int size = in.readInt ();
+					List<OntologyClassMapping> maps = new ArrayList<> ( size );
+					for ( int i = 0; i < size; i++ )
+					{
+						OntologyClassMapping map = new OntologyClassMapping ();
+						map.setId ( readString () );
+						map.setSource ( readString () );
+						map.setProcess ( readString () );
+						if ( in.readBoolean () ) map.setTargetClassRef ( new ClassRef ( readString (), readString () ) );
+						maps.add ( map );
+					}
+					if ( !isExpired ) handler.onMappings (
+						key, new CacheEntry<List<OntologyClassMapping>> ( maps, createdAt, expiresAt, eTag, lastModified )
+					);
+					break;
+				}
+				case CLASS_COLLECTION_RECORD:
+				{
+					int size = in.readInt ();
+					Set<OntologyClass> classes = new HashSet<> ( size );
+					for ( int i = 0; i < size; i++ ) classes.add ( readOntologyClass () );
+					if ( !isExpired ) handler.onClassCollection ( 
+						key, new CacheEntry<Set<OntologyClass>> ( classes, createdAt, expiresAt, eTag, lastModified ) 
+					);
+					break;
+				}
+				case NEGATIVE_RECORD:
+					if ( !isExpired && negativeCache != null ) negativeCache.putEntry ( key, createdAt );
+					break;
+				default:
+					throw new IOException ( "Corrupted cache snapshot, unknown record type #" + recordType );
+			}
+		}
+		return count;
+	}
+
+	private OntologyClass readOntologyClass () throws IOException
+	{
+		OntologyClass cls = new OntologyClass ( readString () );
+		cls.setOntologyAcronym ( readString () );
+		cls.setPreferredLabel ( readString () );
+		cls.setObsolete ( in.readBoolean () );
+		cls.setSynonyms ( readStrings () );
+		cls.setDefinitions ( readStrings () );
+		return cls;
+	}
+
+	private String readString () throws IOException
+	{
+		int len = in.readInt ();
+		if ( len == -1 ) return null;
+		byte[] bytes = new byte [ len ];
+		in.readFully ( bytes );
+		return new String ( bytes, UTF8 );
+	}
+
+	private Set<String> readStrings () throws IOException
+	{
+		int size = in.readInt ();
+		if ( size == -1 ) return null;
+		Set<String> result = new HashSet<> ();
+		for ( int i = 0; i < size; i++ ) result.add ( readString () );
+		return result;
+	}
+
+	public int getFormatVersion ()
+	{
+		return formatVersion;
+	}
+
+	/**
+	 * When the snapshot was written, as milliseconds from {@link System#currentTimeMillis()}.
+	 */
+	public long getWrittenAt ()
+	{
+		return writtenAt;
+	}
+
+	@Override
+	public void close () throws IOException
+	{
+		in.close ();
+	}
+}
@@ -0,0 +1,194 @@
+package uk.ac.ebi.bioportal.webservice.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import uk.ac.ebi.bioportal.webservice.model.ClassRef;
+import uk.ac.ebi.bioportal.webservice.model.Ontology;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClass;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClassMapping;
+
+/**
+ * <p>Writes the content of the Bioportal client caches onto a stream, in a compact binary format, which can be read
+ * back by {@link CacheSnapshotReader}.</p>
+ *
+ * <p>The format is a gzipped sequence of: a header (magic number, format version, time of writing) and then
+ * one record per cache entry, made of a record type, the entry key, its creation and expiration times, its
+ * HTTP validators (since v4) and its value. Entries are written as they come, so that nothing needs to be held in memory.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class CacheSnapshotWriter implements Closeable
+{
+	static final int MAGIC = 0x42504353; // "BPCS"
+	static final int FORMAT_VERSION = 4; // v4 added the ETag and Last-Modified validators
+	/** v3 changed the class and mapping keys, which now start with the ontology acronym */
+	static final int MIN_FORMAT_VERSION = 3;
+
+	static final byte END_RECORD = 0;
+	static final byte CLASS_RECORD = 1;
+	static final byte ONTOLOGY_RECORD = 2;
+	static final byte MAPPINGS_RECORD = 3;
+	static final byte NEGATIVE_RECORD = 4;
+	static final byte CLASS_COLLECTION_RECORD = 5; // since v2
+
+	static final Charset UTF8 = Charset.forName ( "UTF-8" );
+
+	private final DataOutputStream out;
+	private long count = 0;
+	private boolean isClosed = false;
+
+	public CacheSnapshotWriter ( OutputStream out ) throws IOException
+	{
+		this.out = new DataOutputStream ( new BufferedOutputStream ( new GZIPOutputStream ( out ), 1 << 16 ) );
+		this.out.writeInt ( MAGIC );
+		this.out.writeShort ( FORMAT_VERSION );
+		this.out.writeLong ( System.currentTimeMillis () );
+	}
+
+	public void writeClass ( String key, CacheEntry<OntologyClass> entry ) throws IOException
+	{
+		writeRecordHeader ( CLASS_RECORD, key, entry );
+		writeOntologyClass ( entry.getValue () );
+	}
+
+	/**
+	 * Collections of classes are the results of hierarchy calls, like children or ancestors.
+	 */
+	public void writeClassCollection ( String key, CacheEntry<? extends Collection<OntologyClass>> entry ) throws IOException
+	{
+		writeRecordHeader ( CLASS_COLLECTION_RECORD, key, entry );
+
+		Collection<OntologyClass> classes = entry.getValue ();
+		out.writeInt ( classes.size () );
+		for ( OntologyClass cls: classes ) writeOntologyClass ( cls );
+	}
+
+	public void writeOntology ( String key, CacheEntry<Ontology> entry ) throws IOException
+	{
+		writeRecordHeader ( ONTOLOGY_RECORD, key, entry );
+
+		Ontology onto = entry.getValue ();
+		writeString ( onto.getAcronym () );
+		writeString ( onto.getName () );
+		writeString ( onto.getClassUriPrefix () );
+	}
+
+	public void writeMappings ( String key, CacheEntry<List<OntologyClassMapping>> entry ) throws IOException
+	{
+		writeRecordHeader ( MAPPINGS_RECORD, key, entry );
+
+		List<OntologyClassMapping> maps = entry.getValue ();
+		out.writeInt ( maps.size () );
+		for ( OntologyClassMapping map: maps )
+		{
+			writeString ( map.getId () );
+			writeString ( map.getSource () );
+			writeString ( map.getProcess () );
+			ClassRef target = map.getTargetClassRef ();
+			out.writeBoolean ( target != null );
+			if ( target == null ) continue;
+			writeString ( target.getClassIri () );
+			writeString ( target.getOntologyAcronym () );
+		}
+	}
+
+	/**
+	 * @param cacheKey is the key used internally by {@link NegativeResultCache}
+	 */
+	void writeNegative ( String cacheKey, long createdAt, long expiresAt ) throws IOException
+	{
+		out.writeByte ( NEGATIVE_RECORD );
+		writeString ( cacheKey );
+		out.writeLong ( createdAt );
+		out.writeLong ( expiresAt );
+		count++;
+	}
+
+	/**
+	 * Writes all the current entries in the negative cache.
+	 */
+	public void writeNegatives ( NegativeResultCache negativeCache ) throws IOException
+	{
+		long ttl = negativeCache.getTtlMillis ();
+		for ( Map.Entry<String, Long> e: negativeCache.entries ().entrySet () )
+			writeNegative ( e.getKey (), e.getValue (), e.getValue () + ttl );
+	}
+
+
+	private void writeOntologyClass ( OntologyClass cls ) throws IOException
+	{
+		writeString ( cls.getIri () );
+		writeString ( cls.getOntologyAcronym () );
+		writeString ( cls.getPreferredLabel () );
+		out.writeBoolean ( cls.isObsolete () );
+		writeStrings ( cls.getSynonyms () );
+		writeStrings ( cls.getDefinitions () );
+	}
+
+	private void writeRecordHeader ( byte recordType, String key, CacheEntry<?> entry ) throws IOException
+	{
+		out.writeByte ( recordType );
+		writeString ( key );
+		out.writeLong ( entry.getCreatedAt () );
+		out.writeLong ( entry.getExpiresAt () );
+		writeString ( entry.getETag () );
+		writeString ( entry.getLastModified () );
+		count++;
+	}
+
+	private void writeString ( String s ) throws IOException
+	{
+		if ( s == null ) {
+			out.writeInt ( -1 );
+			return;
+		}
+		byte[] bytes = s.getBytes ( UTF8 );
+		out.writeInt ( bytes.length );
+		out.write ( bytes );
+	}
+
+	private void writeStrings ( Collection<String> strings ) throws IOException
+	{
+		if ( strings == null ) {
+			out.writeInt ( -1 );
+			return;
+		}
+		out.writeInt ( strings.size () );
+		for ( String s: strings ) writeString ( s );
+	}
+
+	/**
+	 * The number of records written so far.
+	 */
+	public long getCount ()
+	{
+		return count;
+	}
+
+	/**
+	 * Writes the end marker and closes the underlining stream.
+	 */
+	@Override
+	public void close () throws IOException
+	{
+		if ( isClosed ) return;
+		isClosed = true;
+		try {
+			out.writeByte ( END_RECORD );
+		}
+		finally {
+			out.close ();
+		}
+	}
+}
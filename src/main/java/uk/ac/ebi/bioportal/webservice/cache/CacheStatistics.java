@@ -0,0 +1,397 @@
+package uk.ac.ebi.bioportal.webservice.cache;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalEvents;
+import uk.ac.ebi.bioportal.webservice.metrics.LatencyHistogram;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>The statistics about one of the caches of {@link uk.ac.ebi.bioportal.webservice.client.BioportalClient}: hits,
+ * misses, lookups answered by the {@link NegativeResultCache negative cache}, stale entries served while Bioportal
+ * is down, the time taken to fetch the missing values (loads), the expired entries that Bioportal confirmed 
+ * as unchanged (revalidations, which aren't loads), removals by cause and size.</p>
+ *
+ * <p>Guava's own stats ({@link CacheBuilder#recordStats()}) aren't used, since the client checks the expiration
+ * of each {@link CacheEntry} on its own and doesn't load the values through the cache, so those stats would be
+ * wrong or missing. Removals are tracked by building the cache via {@link #buildCache(CacheBuilder)}, which
+ * installs this object as removal listener.</p>
+ *
+ * <p>Lookups and loads are also sent to {@link BioportalEvents}.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class CacheStatistics implements CacheStatisticsMXBean, RemovalListener<Object, Object>
+{
+	private static final ScheduledExecutorService LOG_TIMER = Executors.newSingleThreadScheduledExecutor (
+		new ThreadFactoryBuilder ().setDaemon ( true ).setNameFormat ( "bioportal-cache-stats-%d" ).build ()
+	);
+
+	private static final Logger log = LoggerFactory.getLogger ( CacheStatistics.class );
+
+	private final String name;
+	private volatile Cache<?, ?> cache = null;
+	/** Used by snapshots, which don't have the cache */
+	private final long estimatedSize;
+
+	private final AtomicLong hits = new AtomicLong ( 0 );
+	private final AtomicLong misses = new AtomicLong ( 0 );
+	private final AtomicLong expired = new AtomicLong ( 0 );
+	private final AtomicLong negativeHits = new AtomicLong ( 0 );
+	private final AtomicLong staleHits = new AtomicLong ( 0 );
+	private final AtomicLong loadFailures = new AtomicLong ( 0 );
+	private final LatencyHistogram loadTimes;
+	private final LatencyHistogram revalidationTimes;
+	private final Map<RemovalCause, AtomicLong> removals = new EnumMap<> ( RemovalCause.class );
+
+	public CacheStatistics ( String name )
+	{
+		this.name = name;
+		this.estimatedSize = -1;
+		this.loadTimes = new LatencyHistogram ();
+		this.revalidationTimes = new LatencyHistogram ();
+		for ( RemovalCause cause: RemovalCause.values () ) removals.put ( cause, new AtomicLong ( 0 ) );
+	}
+
+	/**
+	 * Used by {@link #snapshot()}.
+	 */
+	private CacheStatistics ( CacheStatistics source )
+	{
+		this.name = source.name;
+		this.estimatedSize = source.getEstimatedSize ();
+		this.hits.set ( source.hits.get () );
+		this.misses.set ( source.misses.get () );
+		this.expired.set ( source.expired.get () );
+		this.negativeHits.set ( source.negativeHits.get () );
+		this.staleHits.set ( source.staleHits.get () );
+		this.loadFailures.set ( source.loadFailures.get () );
+		this.loadTimes = source.loadTimes.copy ();
+		this.revalidationTimes = source.revalidationTimes.copy ();
+		for ( RemovalCause cause: RemovalCause.values () )
+			removals.put ( cause, new AtomicLong ( source.removals.get ( cause ).get () ) );
+	}
+
+
+	/**
+	 * Builds the cache that these statistics are about.
+	 */
+	public <K, V> Cache<K, V> buildCache ( CacheBuilder<Object, Object> builder )
+	{
+		CacheBuilder<K, V> listenedBuilder = builder.removalListener ( this );
+		Cache<K, V> result = listenedBuilder.build ();
+		this.cache = result;
+		return result;
+	}
+
+	@Override
+	public void onRemoval ( RemovalNotification<Object, Object> notification )
+	{
+		removals.get ( notification.getCause () ).incrementAndGet ();
+	}
+
+	public void recordHit ()
+	{
+		hits.incrementAndGet ();
+		BioportalEvents.cacheLookup ( name, true, false );
+	}
+
+	/**
+	 * @param isExpired true if the entry was there, but it was expired.
+	 */
+	public void recordMiss ( boolean isExpired )
+	{
+		misses.incrementAndGet ();
+		if ( isExpired ) expired.incrementAndGet ();
+		BioportalEvents.cacheLookup ( name, false, isExpired );
+	}
+
+	/**
+	 * A {@link #recordMiss(boolean) miss} that was answered by the {@link NegativeResultCache}.
+	 */
+	public void recordNegativeHit ()
+	{
+		negativeHits.incrementAndGet ();
+	}
+
+	/**
+	 * An expired entry returned because Bioportal is down.
+	 */
+	public void recordStaleHit ()
+	{
+		staleHits.incrementAndGet ();
+	}
+
+	/**
+	 * The time taken to fetch a missing value from Bioportal.
+	 */
+	public void recordLoad ( long loadNanos, boolean isFailed )
+	{
+		loadTimes.recordNanos ( loadNanos );
+		if ( isFailed ) loadFailures.incrementAndGet ();
+		BioportalEvents.cacheLoad ( name, loadNanos, isFailed );
+	}
+
+	/**
+	 * The time taken by a conditional GET that Bioportal answered with 304, i.e., an expired entry that was 
+	 * renewed without loading it again.
+	 */
+	public void recordRevalidation ( long revalidationNanos )
+	{
+		revalidationTimes.recordNanos ( revalidationNanos );
+	}
+
+
+	/**
+	 * A copy of the current statistics, which isn't affected by later lookups.
+	 */
+	public CacheStatistics snapshot ()
+	{
+		return new CacheStatistics ( this );
+	}
+
+	@Override
+	public String getName ()
+	{
+		return name;
+	}
+
+	@Override
+	public long getHitCount ()
+	{
+		return hits.get ();
+	}
+
+	/**
+	 * This includes the {@link #getExpiredCount() expired entries} and the {@link #getNegativeHitCount() negative hits}.
+	 */
+	@Override
+	public long getMissCount ()
+	{
+		return misses.get ();
+	}
+
+	/**
+	 * hits / ( hits + misses ), 0 if there were no lookups.
+	 */
+	@Override
+	public double getHitRate ()
+	{
+		long h = hits.get (), total = h + misses.get ();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	@Override
+	public long getExpiredCount ()
+	{
+		return expired.get ();
+	}
+
+	@Override
+	public long getNegativeHitCount ()
+	{
+		return negativeHits.get ();
+	}
+
+	@Override
+	public long getStaleHitCount ()
+	{
+		return staleHits.get ();
+	}
+
+	/**
+	 * The no. of Bioportal fetches done because of misses, including the failed ones.
+	 */
+	@Override
+	public long getLoadCount ()
+	{
+		return loadTimes.getCount ();
+	}
+
+	@Override
+	public long getLoadFailureCount ()
+	{
+		return loadFailures.get ();
+	}
+
+	@Override
+	public double getLoadMeanMillis ()
+	{
+		return loadTimes.getMeanMillis ();
+	}
+
+	@Override
+	public double getLoadP99Millis ()
+	{
+		return loadTimes.getPercentileMillis ( 99 );
+	}
+
+	public LatencyHistogram getLoadTimes ()
+	{
+		return loadTimes;
+	}
+
+	/**
+	 * The no. of expired entries that were renewed by a conditional GET. These aren't counted as loads.
+	 */
+	@Override
+	public long getRevalidationCount ()
+	{
+		return revalidationTimes.getCount ();
+	}
+
+	@Override
+	public double getRevalidationMeanMillis ()
+	{
+		return revalidationTimes.getMeanMillis ();
+	}
+
+	public LatencyHistogram getRevalidationTimes ()
+	{
+		return revalidationTimes;
+	}
+
+	@Override
+	public Map<String, Long> getRemovalCounts ()
+	{
+		Map<String, Long> result = new TreeMap<> ();
+		for ( Map.Entry<RemovalCause, AtomicLong> e: removals.entrySet () )
+			result.put ( e.getKey ().name (), e.getValue ().get () );
+		return Collections.unmodifiableMap ( result );
+	}
+
+	public long getRemovalCount ( RemovalCause cause )
+	{
+		return removals.get ( cause ).get ();
+	}
+
+	/**
+	 * The removals that the cache decided on its own, i.e., due to size, expiration or garbage collection.
+	 */
+	@Override
+	public long getEvictionCount ()
+	{
+		return getRemovalCount ( RemovalCause.SIZE ) + getRemovalCount ( RemovalCause.EXPIRED ) 
+			+ getRemovalCount ( RemovalCause.COLLECTED );
+	}
+
+	/**
+	 * The no. of entries in the cache, including the expired ones that weren't removed yet.
+	 */
+	@Override
+	public long getEstimatedSize ()
+	{
+		Cache<?, ?> cache = this.cache;
+		return cache == null ? estimatedSize : cache.size ();
+	}
+
+
+	/**
+	 * Reports what happened between a previous snapshot and this one, in a format suitable for logging.
+	 */
+	public String toString ( CacheStatistics previous )
+	{
+		long h = hits.get () - previous.hits.get ();
+		long lookups = h + misses.get () - previous.misses.get ();
+		long loads = loadTimes.getCount () - previous.loadTimes.getCount ();
+		double loadMillis = loads == 0 ? 0
+			: ( loadTimes.getMeanMillis () * loadTimes.getCount ()
+					- previous.loadTimes.getMeanMillis () * previous.loadTimes.getCount () ) / loads;
+		long revalidations = revalidationTimes.getCount () - previous.revalidationTimes.getCount ();
+		return String.format (
+			"%s: %d lookups, %.1f%% hits, %d expired, %d negative hits, %d stale hits, " +
+			"%d loads (%d failed, %.1f ms avg), %d revalidations, %d evictions (size: %d, expired: %d), size: %d",
+			name, lookups, lookups == 0 ? 0d : 100d * h / lookups,
+			expired.get () - previous.expired.get (),
+			negativeHits.get () - previous.negativeHits.get (),
+			staleHits.get () - previous.staleHits.get (),
+			loads, loadFailures.get () - previous.loadFailures.get (), loadMillis, revalidations,
+			getEvictionCount () - previous.getEvictionCount (),
+			getRemovalCount ( RemovalCause.SIZE ) - previous.getRemovalCount ( RemovalCause.SIZE ),
+			getRemovalCount ( RemovalCause.EXPIRED ) - previous.getRemovalCount ( RemovalCause.EXPIRED ),
+			getEstimatedSize ()
+		);
+	}
+
+	@Override
+	public String toString ()
+	{
+		return toString ( new CacheStatistics ( name ) );
+	}
+
+
+	/**
+	 * Logs what happened to the caches at every period, if there were lookups. The statistics are weakly
+	 * referenced, logging stops when they're garbage-collected.
+	 *
+	 * @param title the log lines start with this.
+	 */
+	public static void logPeriodically ( String title, Collection<CacheStatistics> statistics, long period, TimeUnit timeUnit )
+	{
+		if ( period <= 0 ) return;
+		PeriodicLogger logger = new PeriodicLogger ( title, statistics );
+		logger.future = LOG_TIMER.scheduleAtFixedRate ( logger, period, period, timeUnit );
+	}
+
+	private static class PeriodicLogger implements Runnable
+	{
+		private final String title;
+		private final List<WeakReference<CacheStatistics>> statistics = new ArrayList<> ();
+		private final List<CacheStatistics> previous = new ArrayList<> ();
+		volatile ScheduledFuture<?> future;
+
+		PeriodicLogger ( String title, Collection<CacheStatistics> statistics )
+		{
+			this.title = title;
+			for ( CacheStatistics stats: statistics )
+			{
+				this.statistics.add ( new WeakReference<> ( stats ) );
+				this.previous.add ( stats.snapshot () );
+			}
+		}
+
+		@Override
+		public void run ()
+		{
+			StringBuilder sb = new StringBuilder ( title );
+			boolean hasLookups = false;
+			for ( int i = 0; i < statistics.size (); i++ )
+			{
+				CacheStatistics stats = statistics.get ( i ).get ();
+				if ( stats == null ) {
+					future.cancel ( false );
+					return;
+				}
+				CacheStatistics current = stats.snapshot (), last = previous.get ( i );
+				if ( current.getHitCount () + current.getMissCount () > last.getHitCount () + last.getMissCount () )
+					hasLookups = true;
+				sb.append ( "\n  " ).append ( current.toString ( last ) );
+				previous.set ( i, current );
+			}
+			if ( hasLookups ) log.info ( sb.toString () );
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package uk.ac.ebi.bioportal.webservice.cache;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link CacheStatistics}. Times are in ms, counts are cumulative since the client was created.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public interface CacheStatisticsMXBean
+{
+	public String getName ();
+
+	public long getHitCount ();
+	public long getMissCount ();
+	public double getHitRate ();
+	public long getExpiredCount ();
+	public long getNegativeHitCount ();
+	public long getStaleHitCount ();
+
+	public long getLoadCount ();
+	public long getLoadFailureCount ();
+	public double getLoadMeanMillis ();
+	public double getLoadP99Millis ();
+
+	public long getRevalidationCount ();
+	public double getRevalidationMeanMillis ();
+
+	/**
+	 * The no. of entries removed from the cache, by cause (SIZE, EXPIRED, EXPLICIT, REPLACED, COLLECTED).
+	 */
+	public Map<String, Long> getRemovalCounts ();
+	public long getEvictionCount ();
+
+	public long getEstimatedSize ();
+}
@@ -0,0 +1,251 @@
+package uk.ac.ebi.bioportal.webservice.cache;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * <p>A sampled log of the keys that are looked up in the Bioportal client caches, together with their (estimated)
+ * access counts.</p>
+ *
+ * <p>Only one access every {@link #getSamplingRate() samplingRate} is recorded, and only the most accessed
+ * {@link #getMaxKeys() maxKeys} are kept, so this is cheap and compact. Since lookup frequencies usually follow
+ * a power law, that's enough to know the working set, which can be saved and then used to warm up a new client.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class HotKeyLog
+{
+	public static enum KeyType { ONTOLOGY, CLASS, MAPPINGS }
+
+	/**
+	 * A key in the log. The IRI is null for {@link KeyType#ONTOLOGY}.
+	 */
+	public static class HotKey
+	{
+		private final KeyType type;
+		private final String ontologyAcronym;
+		private final String iri;
+		private final long count;
+
+		public HotKey ( KeyType type, String ontologyAcronym, String iri, long count )
+		{
+			this.type = type;
+			this.ontologyAcronym = ontologyAcronym;
+			this.iri = iri;
+			this.count = count;
+		}
+
+		public KeyType getType () {
+			return type;
+		}
+
+		public String getOntologyAcronym () {
+			return ontologyAcronym;
+		}
+
+		public String getIri () {
+			return iri;
+		}
+
+		/**
+		 * The no. of recorded accesses, which is an estimate of the real ones, see {@link HotKeyLog#record(KeyType, String, String)}.
+		 */
+		public long getCount () {
+			return count;
+		}
+
+		@Override
+		public String toString ()
+		{
+			return String.format (
+				"%s { type: %s, ontologyAcronym: '%s', iri: <%s>, count: %d }",
+				this.getClass ().getSimpleName (), this.getType (), this.getOntologyAcronym (), this.getIri (), this.getCount ()
+			);
+		}
+	}
+
+	/**
+	 * One access every this is recorded. Default is 16.
+	 */
+	public static final String SAMPLING_RATE_PROP_NAME = "uk.ac.ebi.bioportal.hot_keys_sampling_rate";
+
+	/**
+	 * The max no. of keys that are kept. Default is 20000.
+	 */
+	public static final String MAX_KEYS_PROP_NAME = "uk.ac.ebi.bioportal.hot_keys_max";
+
+	private static final Charset UTF8 = Charset.forName ( "UTF-8" );
+
+	private final int samplingRate;
+	private final int maxKeys;
+	private final ConcurrentHashMap<String, AtomicLong> counts = new ConcurrentHashMap<> ();
+	private final AtomicBoolean isTrimming = new AtomicBoolean ( false );
+
+	/**
+	 * Uses {@link #SAMPLING_RATE_PROP_NAME} and {@link #MAX_KEYS_PROP_NAME}, or their defaults.
+	 */
+	public HotKeyLog ()
+	{
+		this (
+			Integer.parseInt ( System.getProperty ( SAMPLING_RATE_PROP_NAME, "" + 16 ) ),
+			Integer.parseInt ( System.getProperty ( MAX_KEYS_PROP_NAME, "" + 20000 ) )
+		);
+	}
+
+	public HotKeyLog ( int samplingRate, int maxKeys )
+	{
+		if ( samplingRate < 1 ) throw new IllegalArgumentException ( "The hot key sampling rate must be >= 1" );
+		this.samplingRate = samplingRate;
+		this.maxKeys = maxKeys;
+	}
+
+
+	/**
+	 * Records an access, if the sampling says so. Each recorded access counts {@link #getSamplingRate()} accesses.
+	 */
+	public void record ( KeyType type, String ontologyAcronym, String iri )
+	{
+		if ( samplingRate > 1 && ThreadLocalRandom.current ().nextInt ( samplingRate ) != 0 ) return;
+		add ( buildKey ( type, ontologyAcronym, iri ), samplingRate );
+	}
+
+	private void add ( String key, long count )
+	{
+		AtomicLong ct = counts.get ( key );
+		if ( ct == null )
+		{
+			ct = new AtomicLong ( 0 );
+			AtomicLong oldCt = counts.putIfAbsent ( key, ct );
+			if ( oldCt != null ) ct = oldCt;
+		}
+		ct.addAndGet ( count );
+
+		if ( counts.size () > maxKeys ) trim ();
+	}
+
+	/**
+	 * Keeps the top half of the keys, so that trimming isn't needed too often. If a trim is already running,
+	 * this returns immediately.
+	 */
+	private void trim ()
+	{
+		if ( !isTrimming.compareAndSet ( false, true ) ) return;
+		try
+		{
+			List<HotKey> keys = getTop ( Integer.MAX_VALUE );
+			for ( int i = maxKeys / 2; i < keys.size (); i++ )
+			{
+				HotKey k = keys.get ( i );
+				counts.remove ( buildKey ( k.getType (), k.getOntologyAcronym (), k.getIri () ) );
+			}
+		}
+		finally {
+			isTrimming.set ( false );
+		}
+	}
+
+
+	/**
+	 * The n most accessed keys, in descending order of access counts.
+	 */
+	public List<HotKey> getTop ( int n )
+	{
+		List<HotKey> result = new ArrayList<> ( counts.size () );
+		for ( Map.Entry<String, AtomicLong> e: counts.entrySet () )
+			result.add ( parseKey ( e.getKey (), e.getValue ().get () ) );
+
+		Collections.sort ( result, new Comparator<HotKey> ()
+		{
+			@Override
+			public int compare ( HotKey k1, HotKey k2 ) {
+				return Long.compare ( k2.getCount (), k1.getCount () );
+			}
+		});
+
+		return n >= result.size () ? result : new ArrayList<> ( result.subList ( 0, n ) );
+	}
+
+	/**
+	 * Saves the keys onto a file, one key per line, in the format: count TAB type TAB acronym TAB iri.
+	 */
+	public void save ( Path path ) throws IOException
+	{
+		try ( BufferedWriter out = Files.newBufferedWriter ( path, UTF8 ) )
+		{
+			for ( HotKey k: getTop ( Integer.MAX_VALUE ) )
+			{
+				out.write ( k.getCount () + "\t" + k.getType () + "\t" + k.getOntologyAcronym () + "\t" + StringUtils.trimToEmpty ( k.getIri () ) );
+				out.newLine ();
+			}
+		}
+	}
+
+	/**
+	 * Loads keys previously {@link #save(Path) saved}. Their counts are added to the current ones.
+	 */
+	public void load ( Path path ) throws IOException
+	{
+		try ( BufferedReader in = Files.newBufferedReader ( path, UTF8 ) )
+		{
+			for ( String line; ( line = in.readLine () ) != null; )
+			{
+				if ( line.trim ().isEmpty () ) continue;
+				String[] chunks = line.split ( "\t", -1 );
+				if ( chunks.length != 4 ) throw new IOException ( "Bad hot key line: '" + line + "'" );
+				add (
+					buildKey ( KeyType.valueOf ( chunks [ 1 ] ), chunks [ 2 ], StringUtils.trimToNull ( chunks [ 3 ] ) ),
+					Long.parseLong ( chunks [ 0 ] )
+				);
+			}
+		}
+	}
+
+	public void clear ()
+	{
+		counts.clear ();
+	}
+
+	public int size ()
+	{
+		return counts.size ();
+	}
+
+	public int getSamplingRate ()
+	{
+		return samplingRate;
+	}
+
+	public int getMaxKeys ()
+	{
+		return maxKeys;
+	}
+
+
+	private static String buildKey ( KeyType type, String ontologyAcronym, String iri )
+	{
+		return type.name () + '\t' + ontologyAcronym + '\t' + StringUtils.trimToEmpty ( iri );
+	}
+
+	private static HotKey parseKey ( String key, long count )
+	{
+		String[] chunks = key.split ( "\t", -1 );
+		return new HotKey ( KeyType.valueOf ( chunks [ 0 ] ), chunks [ 1 ], StringUtils.trimToNull ( chunks [ 2 ] ), count );
+	}
+}
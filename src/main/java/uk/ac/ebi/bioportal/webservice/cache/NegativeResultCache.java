@@ -0,0 +1,275 @@
+package uk.ac.ebi.bioportal.webservice.cache;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * <p>Keeps track of the lookups that Bioportal answered with nothing (unknown classes, unknown ontologies, classes
+ * without mappings).</p>
+ *
+ * <p>Before this, such misses were stored in the client caches as sentinel values, sharing their size and TTL with
+ * real results, so that a stream of rubbish lookups could evict good entries. Here we have our own size limit
+ * and timeout, which are usually smaller than the main caches' ones.</p>
+ *
+ * <p>Optionally, the cache can be fronted by a {@link BloomFilter}, which allows for rejecting most of the keys that
+ * were never recorded as misses, without touching the cache. The filter is rebuilt from the current cache content
+ * when it's saturated.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class NegativeResultCache
+{
+	/**
+	 * The kind of lookup a miss is about. Keys are scoped by this, so the same string can be used for different
+	 * kinds without clashes.
+	 */
+	public static enum ResultType { CLASS, ONTOLOGY, MAPPINGS }
+
+	/**
+	 * Max no. of misses that are remembered. Default is 50000.
+	 */
+	public static final String SIZE_PROP_NAME = "uk.ac.ebi.bioportal.negative_cache_size";
+
+	/**
+	 * Misses are forgotten after this amount of mins has passed since they were recorded. Default is 30 mins.
+	 */
+	public static final String TIMEOUT_MINS_PROP_NAME = "uk.ac.ebi.bioportal.negative_cache_timeout";
+
+	/**
+	 * If true, a {@link BloomFilter} is used in front of the cache. Default is false.
+	 */
+	public static final String BLOOM_FILTER_PROP_NAME = "uk.ac.ebi.bioportal.negative_cache_bloom_filter";
+
+	private static final double BLOOM_FILTER_FPP = 0.01;
+
+	private final Cache<String, Long> cache;
+	private final long maxSize;
+	private final long ttlMillis;
+	private final boolean useBloomFilter;
+
+	private volatile BloomFilter<CharSequence> bloomFilter;
+	private int bloomFilterInsertions = 0;
+
+	private final AtomicLong hits = new AtomicLong ( 0 );
+	private final AtomicLong misses = new AtomicLong ( 0 );
+	private final AtomicLong bloomFilterRejections = new AtomicLong ( 0 );
+
+
+	/**
+	 * Uses {@link #SIZE_PROP_NAME}, {@link #TIMEOUT_MINS_PROP_NAME}, {@link #BLOOM_FILTER_PROP_NAME} or their defaults.
+	 */
+	public NegativeResultCache ()
+	{
+		this (
+			Long.parseLong ( System.getProperty ( SIZE_PROP_NAME, "" + 50000 ) ),
+			Long.parseLong ( System.getProperty ( TIMEOUT_MINS_PROP_NAME, "" + 30 ) ),
+			TimeUnit.MINUTES,
+			Boolean.parseBoolean ( System.getProperty ( BLOOM_FILTER_PROP_NAME, "false" ) )
+		);
+	}
+
+	public NegativeResultCache ( long maxSize, long ttl, TimeUnit ttlUnit, boolean useBloomFilter )
+	{
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlUnit.toMillis ( ttl );
+		this.useBloomFilter = useBloomFilter;
+
+		this.cache = CacheBuilder.newBuilder ()
+			.maximumSize ( maxSize )
+			.expireAfterWrite ( ttl, ttlUnit )
+			.build ();
+
+		if ( useBloomFilter ) this.bloomFilter = newBloomFilter ();
+	}
+
+
+	/**
+	 * True if the key was recorded as a miss and it's not expired yet.
+	 */
+	public boolean contains ( ResultType type, String key )
+	{
+		String cacheKey = buildKey ( type, key );
+
+		BloomFilter<CharSequence> bf = this.bloomFilter;
+		if ( bf != null && !bf.mightContain ( cacheKey ) )
+		{
+			bloomFilterRejections.incrementAndGet ();
+			misses.incrementAndGet ();
+			return false;
+		}
+
+		// The creation time might be earlier than the insertion, e.g., when coming from a snapshot
+		Long createdAt = cache.getIfPresent ( cacheKey );
+		if ( createdAt == null || System.currentTimeMillis () - createdAt >= ttlMillis )
+		{
+			misses.incrementAndGet ();
+			return false;
+		}
+
+		hits.incrementAndGet ();
+		return true;
+	}
+
+	/**
+	 * Records a miss, which was found now.
+	 */
+	public void put ( ResultType type, String key )
+	{
+		put ( type, key, System.currentTimeMillis () );
+	}
+
+	/**
+	 * Records a miss, which was found at the time specified by the parameter. This is useful when misses are
+	 * reloaded from somewhere else.
+	 */
+	public void put ( ResultType type, String key, long createdAt )
+	{
+		putEntry ( buildKey ( type, key ), createdAt );
+	}
+
+	/**
+	 * Works with the key used internally, ie, the result of {@link #buildKey(ResultType, String)}.
+	 */
+	void putEntry ( String cacheKey, long createdAt )
+	{
+		cache.put ( cacheKey, createdAt );
+
+		if ( !useBloomFilter ) return;
+
+		synchronized ( this )
+		{
+			if ( ++bloomFilterInsertions > maxSize ) rebuildBloomFilter ();
+			bloomFilter.put ( cacheKey );
+		}
+	}
+
+	public void invalidate ( ResultType type, String key )
+	{
+		// The Bloom filter doesn't support removals, it will be cleaned upon the next rebuild
+		cache.invalidate ( buildKey ( type, key ) );
+	}
+
+	/**
+	 * Invalidates the misses about an ontology, i.e., the {@link ResultType#ONTOLOGY} miss having the acronym as key, 
+	 * plus the other misses having keys that start with the acronym followed by a space, which is what 
+	 * {@link uk.ac.ebi.bioportal.webservice.client.BioportalClient} uses for classes and mappings.
+	 * 
+	 * @return the no. of invalidated entries.
+	 */
+	public int invalidateOntology ( String ontologyAcronym )
+	{
+		String ontoKey = buildKey ( ResultType.ONTOLOGY, ontologyAcronym );
+		String prefix = ontologyAcronym.toUpperCase () + " ";
+		
+		int ct = 0;
+		for ( String cacheKey: cache.asMap ().keySet () )
+		{
+			boolean isOntoMiss = cacheKey.equals ( ontoKey );
+			if ( !isOntoMiss && !cacheKey.substring ( cacheKey.indexOf ( ':' ) + 1 ).startsWith ( prefix ) ) continue;
+			cache.invalidate ( cacheKey );
+			ct++;
+		}
+		return ct;
+	}
+
+	public void invalidateAll ()
+	{
+		cache.invalidateAll ();
+		if ( !useBloomFilter ) return;
+		synchronized ( this ) {
+			rebuildBloomFilter ();
+		}
+	}
+
+
+	/**
+	 * Replaces the Bloom filter with a new one containing the currently cached keys only, which is needed, since
+	 * the filter doesn't support removals and it would become useless after many insertions.
+	 */
+	private void rebuildBloomFilter ()
+	{
+		BloomFilter<CharSequence> newBf = newBloomFilter ();
+		int ct = 0;
+		for ( String cacheKey: cache.asMap ().keySet () ) {
+			newBf.put ( cacheKey ); ct++;
+		}
+		this.bloomFilterInsertions = ct;
+		this.bloomFilter = newBf;
+	}
+
+	private BloomFilter<CharSequence> newBloomFilter ()
+	{
+		return BloomFilter.create ( Funnels.unencodedCharsFunnel (), (int) Math.min ( maxSize, Integer.MAX_VALUE ), BLOOM_FILTER_FPP );
+	}
+
+	private static String buildKey ( ResultType type, String key ) {
+		return type.ordinal () + ":" + key;
+	}
+
+	/**
+	 * A view of the current entries, internal keys are associated to the time the misses were found.
+	 */
+	Map<String, Long> entries () {
+		return cache.asMap ();
+	}
+
+
+	/**
+	 * The number of {@link #contains(ResultType, String)} calls that found a miss recorded.
+	 */
+	public long getHitCount () {
+		return hits.get ();
+	}
+
+	/**
+	 * The number of {@link #contains(ResultType, String)} calls that didn't find any recorded miss, including
+	 * {@link #getBloomFilterRejectionCount()}.
+	 */
+	public long getMissCount () {
+		return misses.get ();
+	}
+
+	/**
+	 * The number of {@link #contains(ResultType, String)} calls that were answered by the {@link BloomFilter} alone.
+	 */
+	public long getBloomFilterRejectionCount () {
+		return bloomFilterRejections.get ();
+	}
+
+	/**
+	 * An estimate of the number of misses that are currently recorded.
+	 */
+	public long size () {
+		return cache.size ();
+	}
+
+	public long getMaxSize () {
+		return maxSize;
+	}
+
+	public long getTtlMillis () {
+		return ttlMillis;
+	}
+
+	public boolean usesBloomFilter () {
+		return useBloomFilter;
+	}
+
+	@Override
+	public String toString ()
+	{
+		return String.format (
+			"%s { size: %d, hits: %d, misses: %d, bloomFilterRejections: %d }",
+			this.getClass ().getSimpleName (), this.size (), this.getHitCount (), this.getMissCount (),
+			this.getBloomFilterRejectionCount ()
+		);
+	}
+}
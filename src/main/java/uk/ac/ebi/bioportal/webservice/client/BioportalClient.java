@@ -2,43 +2,86 @@ package uk.ac.ebi.bioportal.webservice.client;
 
 import static java.net.URLEncoder.encode;
 import static uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils.buildOntologyClass;
+import static uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils.buildOntologyClassMappings;
+import static uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils.buildTextAnnotations;
 import static uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils.collectOntoClasses;
-import static uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils.collectOntoClassesFromPagedResult;
-import static uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils.invokeBioportal;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
 import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import uk.ac.ebi.bioportal.webservice.cache.CacheEntry;
+import uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotReader;
+import uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter;
+import uk.ac.ebi.bioportal.webservice.cache.CacheStatistics;
+import uk.ac.ebi.bioportal.webservice.cache.HotKeyLog;
+import uk.ac.ebi.bioportal.webservice.cache.HotKeyLog.HotKey;
+import uk.ac.ebi.bioportal.webservice.cache.HotKeyLog.KeyType;
+import uk.ac.ebi.bioportal.webservice.cache.NegativeResultCache;
+import uk.ac.ebi.bioportal.webservice.cache.NegativeResultCache.ResultType;
 import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceUnavailableException;
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalMetrics;
 import uk.ac.ebi.bioportal.webservice.model.ClassRef;
+import uk.ac.ebi.bioportal.webservice.model.LookupResult;
 import uk.ac.ebi.bioportal.webservice.model.Ontology;
 import uk.ac.ebi.bioportal.webservice.model.OntologyClass;
 import uk.ac.ebi.bioportal.webservice.model.OntologyClassMapping;
 import uk.ac.ebi.bioportal.webservice.model.TextAnnotation;
-import uk.ac.ebi.bioportal.webservice.model.TextAnnotation.Annotation;
-import uk.ac.ebi.bioportal.webservice.model.TextAnnotation.HierarchyEntry;
+import uk.ac.ebi.bioportal.webservice.utils.ApiKeyPool;
 import uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils;
+import uk.ac.ebi.bioportal.webservice.utils.CallScope;
+import uk.ac.ebi.bioportal.webservice.utils.ConditionalGet;
+import uk.ac.ebi.bioportal.webservice.utils.PriorityLane;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * A simple client to access the REST API of Bioportal APIs.
  * Note that every instance of this class caches all the ontologies it fetches via {@link #getOntology(String)}.
+ * Lookups that don't yield anything are cached too, in a {@link #getNegativeResultCache() separate cache}.
  * 
  * All the HTTP calls in this class are based on {@link BioportalWebServiceUtils#bioportalBaseUrl}.
  * 
+ * Calls wait for the rate limiter in the {@link PriorityLane lane} of the current {@link CallScope}, interactive by 
+ * default. Use {@link PriorityLane#BULK} for batch work, so that it doesn't hold up the interactive lookups.
+ * A {@link CallScope#withTimeout(long, java.util.concurrent.TimeUnit) call scope with a timeout} bounds the time
+ * the calls take, including rate limiting waits and retries.
+ * 
  * TODO: it's getting too big, split into components.
  *
  * <dl><dt>date</dt><dd>30 Sep 2014</dd></dl>
@@ -50,9 +93,43 @@ public class BioportalClient
 {	
 	/**
 	 * Items cached from the web service expires after this amount of mins has passed after the first download
-	 * Default is 4h
+	 * Default is 4h. Lookups that return nothing are cached separately, see {@link NegativeResultCache}.
 	 */
 	public static final String CACHE_TIMEOUT_MINS_PROP_NAME = "uk.ac.ebi.bioportal.cache_timeout";
+
+	/**
+	 * When the {@link #startSubmissionWatcher(long, TimeUnit) submission watcher} is active, cached items 
+	 * expire after this amount of mins, since changed ontologies are invalidated by the watcher. Default is 7 days.
+	 */
+	public static final String WATCHED_CACHE_TIMEOUT_MINS_PROP_NAME = "uk.ac.ebi.bioportal.watched_cache_timeout";
+
+	/**
+	 * Expired items are kept for this amount of mins, to be {@link #SERVE_STALE_PROP_NAME served while Bioportal 
+	 * is down} or to be revalidated with conditional GETs, and then they're removed. Default is 1 day.
+	 */
+	public static final String CACHE_MAX_STALE_MINS_PROP_NAME = "uk.ac.ebi.bioportal.cache_max_stale";
+	
+	/**
+	 * If true, new clients start in {@link #setOffline(boolean) offline mode}. Default is false.
+	 */
+	public static final String OFFLINE_PROP_NAME = "uk.ac.ebi.bioportal.offline";
+	
+	/**
+	 * If true, when Bioportal is down (see {@link ApiKeyPool#getCircuitBreaker()}), expired cache entries are 
+	 * returned, if they're still available. Default is true.
+	 */
+	public static final String SERVE_STALE_PROP_NAME = "uk.ac.ebi.bioportal.serve_stale";
+	
+	/**
+	 * If set, {@link #warmUp()} loads the {@link HotKeyLog hot keys} in this file and {@link #prefetchHotKeys(Path, int) 
+	 * prefetches} them in background.
+	 */
+	public static final String HOT_KEYS_FILE_PROP_NAME = "uk.ac.ebi.bioportal.hot_keys_file";
+
+	/**
+	 * How many keys are prefetched from {@link #HOT_KEYS_FILE_PROP_NAME}. Default is 2000.
+	 */
+	public static final String HOT_KEYS_PREFETCH_SIZE_PROP_NAME = "uk.ac.ebi.bioportal.hot_keys_prefetch_size";
 	
 	/**
 	 * With the adoption of OWL/RDF, it has become hard to know which URI prefixes the ontologies use to build their
@@ -72,9 +149,32 @@ public class BioportalClient
 	private static final Map<String, String> uri2OntologyMap;
 		
 	protected final String apiKey; 
-	private Map<String, OntologyClass> classCache;
-	private Map<String, Ontology> ontologyCache;
-	private Map<String, List<OntologyClassMapping>> classMappingsCache;	
+	protected final ApiKeyPool keyPool;
+	private final long cacheTtlMillis;
+	private final long watchedCacheTtlMillis;
+	private final long cacheMaxStaleMillis;
+	/** How long the caches keep the entries, including the max stale time, see {@link #newCache(CacheStatistics, long)} */
+	private final long cacheMaxLifeMillis;
+	private final ConcurrentMap<String, CacheEntry<OntologyClass>> classCache;
+	private final ConcurrentMap<String, CacheEntry<Ontology>> ontologyCache;
+	private final ConcurrentMap<String, CacheEntry<List<OntologyClassMapping>>> classMappingsCache;	
+	private final ConcurrentMap<String, CacheEntry<Set<OntologyClass>>> classCollectionCache;
+	private final NegativeResultCache negativeResultCache;
+	private volatile boolean isOffline;
+	private final boolean serveStale;
+	private final HotKeyLog hotKeyLog;
+	private ExecutorService prefetchExecutor = null;
+	/** Prefetch lookups aren't real demand, so they aren't recorded in the {@link #hotKeyLog} */
+	private final ThreadLocal<Boolean> isPrefetching = new ThreadLocal<Boolean> ();
+	private volatile OntologySubmissionWatcher submissionWatcher = null;
+	private final CacheStatistics classCacheStats = new CacheStatistics ( "classes" );
+	private final CacheStatistics ontologyCacheStats = new CacheStatistics ( "ontologies" );
+	private final CacheStatistics classMappingsCacheStats = new CacheStatistics ( "mappings" );
+	private final CacheStatistics classCollectionCacheStats = new CacheStatistics ( "classCollections" );
+	private final List<CacheStatistics> cacheStatistics = Collections.unmodifiableList ( Arrays.asList ( 
+		ontologyCacheStats, classCacheStats, classCollectionCacheStats, classMappingsCacheStats 
+	));
+	private final List<ObjectName> cacheMBeanNames = new ArrayList<> ();
 	
 	private Logger log = LoggerFactory.getLogger ( this.getClass () );
 	
@@ -137,20 +237,71 @@ public class BioportalClient
 	
 	
 	
-	@SuppressWarnings ( { "rawtypes", "unchecked" } )
 	public BioportalClient ( String bioportalApiKey )
+	{
+		this ( Collections.singletonList ( bioportalApiKey ) );
+	}
+	
+	/**
+	 * Uses an {@link ApiKeyPool} made of these keys, so that the client can issue requests at the rate of all 
+	 * the keys together.
+	 */
+	public BioportalClient ( List<String> bioportalApiKeys )
 	{
 		long ttl = Long.parseLong ( System.getProperty ( CACHE_TIMEOUT_MINS_PROP_NAME, "" + 60 * 4 ) ); 
+		cacheTtlMillis = TimeUnit.MINUTES.toMillis ( ttl );
+		long watchedTtl = Long.parseLong ( System.getProperty ( WATCHED_CACHE_TIMEOUT_MINS_PROP_NAME, "" + 60 * 24 * 7 ) );
+		watchedCacheTtlMillis = TimeUnit.MINUTES.toMillis ( watchedTtl );
+		cacheMaxStaleMillis = TimeUnit.MINUTES.toMillis ( 
+			Long.parseLong ( System.getProperty ( CACHE_MAX_STALE_MINS_PROP_NAME, "" + 60 * 24 ) ) 
+		);
 		
-		CacheBuilder cacheBuilder = CacheBuilder.newBuilder ()
-			.maximumSize ( 300000 )
-			.expireAfterWrite ( ttl, TimeUnit.MINUTES );
-
-		classCache = cacheBuilder.build ().asMap ();
-		ontologyCache = cacheBuilder.build ().asMap ();
-		classMappingsCache = cacheBuilder.build ().asMap ();
+		// The watched TTL is used only when a watcher is started, see startSubmissionWatcher(), but the caches must 
+		// be able to keep the entries for that long anyway, since they can't be replaced without losing the entries 
+		// that are being written concurrently. Entries with the shorter TTL are removed when they're found dead.
+		cacheMaxLifeMillis = Math.max ( cacheTtlMillis, watchedCacheTtlMillis ) + cacheMaxStaleMillis;
+		classCache = newCache ( classCacheStats, cacheMaxLifeMillis );
+		ontologyCache = newCache ( ontologyCacheStats, cacheMaxLifeMillis );
+		classMappingsCache = newCache ( classMappingsCacheStats, cacheMaxLifeMillis );
+		classCollectionCache = newCache ( classCollectionCacheStats, cacheMaxLifeMillis );
+		negativeResultCache = new NegativeResultCache ();
+		CacheStatistics.logPeriodically ( 
+			"Bioportal client cache statistics:", 
+			cacheStatistics,
+			Long.parseLong ( System.getProperty ( BioportalWebServiceUtils.STATS_SAMPLING_TIME_PROP_NAME, "" + 5 * 60 * 1000 ) ),
+			TimeUnit.MILLISECONDS
+		);
+		
+		this.keyPool = new ApiKeyPool ( bioportalApiKeys );
+		this.apiKey = keyPool.getFirstApiKey ();
+		this.isOffline = Boolean.parseBoolean ( System.getProperty ( OFFLINE_PROP_NAME, "false" ) );
+		this.serveStale = Boolean.parseBoolean ( System.getProperty ( SERVE_STALE_PROP_NAME, "true" ) );
 		
-		this.apiKey = bioportalApiKey;
+		hotKeyLog = new HotKeyLog ();
+	}
+
+	/**
+	 * Prefetches the hot keys in {@link #HOT_KEYS_FILE_PROP_NAME}, if it's set, see {@link #prefetchHotKeys(Path, int)}.
+	 * This isn't done by the constructor, so that the prefetch doesn't start on a half-built client, call it 
+	 * when the client is ready.
+	 * 
+	 * @return the future returned by {@link #prefetchHotKeys(Path, int)}, or a future telling 0 if there isn't 
+	 * anything to prefetch.
+	 */
+	public Future<Integer> warmUp ()
+	{
+		String hotKeysPath = System.getProperty ( HOT_KEYS_FILE_PROP_NAME );
+		if ( hotKeysPath == null || !Files.exists ( Paths.get ( hotKeysPath ) ) ) return Futures.immediateFuture ( 0 );
+		try {
+			return prefetchHotKeys ( 
+				Paths.get ( hotKeysPath ), 
+				Integer.parseInt ( System.getProperty ( HOT_KEYS_PREFETCH_SIZE_PROP_NAME, "" + 2000 ) ) 
+			);
+		}
+		catch ( IOException ex ) {
+			log.warn ( "Error while loading hot keys from '{}', not prefetching: {}", hotKeysPath, ex.getMessage () );
+			return Futures.immediateFuture ( 0 );
+		}
 	}
 
 	/**
@@ -163,6 +314,15 @@ public class BioportalClient
 	 * that's a limit of Bioportal and other lookup services.
 	 */
 	public OntologyClass getOntologyClass ( String ontologyAcronym, String accession )
+	{
+		return lookupOntologyClass ( ontologyAcronym, accession ).getValue ();
+	}
+
+	/**
+	 * Like {@link #getOntologyClass(String, String)}, but tells why the class is missing, when that's the case, 
+	 * which is useful in {@link #setOffline(boolean) offline mode}.
+	 */
+	public LookupResult<OntologyClass> lookupOntologyClass ( String ontologyAcronym, String accession )
 	{
 		try
 		{
@@ -193,7 +353,7 @@ public class BioportalClient
 								"Cannot get class details for <{}>, unless you specify the defining ontology, returning null",
 								classUri
 							);
-							return null;
+							return LookupResult.notFound ();
 						}
 					} // brkIdx
 				} // null ontologyAcronym
@@ -213,11 +373,11 @@ public class BioportalClient
 				if ( !"OMIM".equals ( ontologyAcronym ) )
 				{
 					String ontoUriPrefix = null;
-					Ontology onto = getOntology ( ontologyAcronym );
-					if ( onto == null ) return null;
+					LookupResult<Ontology> ontoResult = lookupOntology ( ontologyAcronym );
+					if ( !ontoResult.isFound () ) return ontoResult.asMissing ();
 				
-					ontoUriPrefix = onto.getClassUriPrefix ();
-					if ( ontoUriPrefix == null ) return null;
+					ontoUriPrefix = ontoResult.getValue ().getClassUriPrefix ();
+					if ( ontoUriPrefix == null ) return LookupResult.notFound ();
 
 					classUri = ontoUriPrefix + accession;
 				}
@@ -240,30 +400,57 @@ public class BioportalClient
 				);
 			}
 			
+			recordHotKey ( KeyType.CLASS, ontologyAcronym, classUri );
+			
+			// Keys start with the acronym, so that we can invalidate all the entries about an ontology, see
+			// invalidateOntology()
+			String cacheKey = ontologyAcronym.toUpperCase () + " " + classUri;
+			
 			synchronized ( classUri.intern () )
 			{
-				OntologyClass result = classCache.get ( classUri );
-				if ( result != null )
-				{
-					if ( "".equals ( result.getIri () ) ) return null;
-					return result;
+				OntologyClass result = getCached ( classCache, classCacheStats, cacheKey );
+				if ( result != null ) return LookupResult.found ( result );
+
+				if ( negativeResultCache.contains ( ResultType.CLASS, cacheKey ) ) {
+					classCacheStats.recordNegativeHit ();
+					return LookupResult.notFound ();
 				}
 				
-				JsonNode jclass = invokeBioportal ( 
-					"/ontologies/" + encode ( ontologyAcronym.toUpperCase (), "UTF-8" ) + "/classes/" +	encode ( classUri, "UTF-8" ),
-					this.apiKey
-				);
+				if ( isOffline ) return LookupResult.notAvailableOffline ();
+				
+				CacheEntry<OntologyClass> expiredEntry = classCache.get ( cacheKey );
+				ConditionalGet cget = newConditionalGet ( expiredEntry );
+				JsonNode jclass;
+				long loadStart = System.nanoTime ();
+				try {
+					jclass = keyPool.invoke ( 
+						cget,
+						"/ontologies/" + encode ( ontologyAcronym.toUpperCase (), "UTF-8" ) + "/classes/" +	encode ( classUri, "UTF-8" )
+					);
+					if ( jclass == ConditionalGet.NOT_MODIFIED ) {
+						classCacheStats.recordRevalidation ( System.nanoTime () - loadStart );
+						return LookupResult.found ( renewCached ( classCache, cacheKey, expiredEntry ) );
+					}
+					classCacheStats.recordLoad ( System.nanoTime () - loadStart, false );
+				}
+				catch ( OntologyServiceUnavailableException ex ) {
+					classCacheStats.recordLoad ( System.nanoTime () - loadStart, true );
+					return LookupResult.found ( getStale ( classCache, classCacheStats, cacheKey, ex ) );
+				}
+				catch ( RuntimeException ex ) {
+					classCacheStats.recordLoad ( System.nanoTime () - loadStart, true );
+					throw ex;
+				}
 	
 				result = jclass == null ? null : buildOntologyClass ( ontologyAcronym, jclass );
 				if ( result == null ) {
-					result = new OntologyClass ( "" );
-					classCache.put ( classUri, result );
-					return null;
+					negativeResultCache.put ( ResultType.CLASS, cacheKey );
+					return LookupResult.notFound ();
 				}
 				
-				classCache.put ( classUri, result );
+				putCached ( classCache, cacheKey, result, cget.getETag ( jclass ), cget.getLastModified ( jclass ) );
 
-				return result;
+				return LookupResult.found ( result );
 			} // synchronized ( classUri )
 		} 
 		catch ( UnsupportedEncodingException ex )
@@ -284,9 +471,13 @@ public class BioportalClient
 	 * That's what the isPaged parameter is for. See the implementation of methods below, to get an idea of how this one is
 	 * used.
 	 * 
+	 * The results are cached, as read-only sets.
+	 * 
 	 * @param accession might be either an accession like EFO_0000001, or a full URI (starting with http://)
 	 */
-	private Set<OntologyClass> getClassCollection ( String ontologyAcronym, String accession, String collectionTypeId, boolean isPaged )
+	private LookupResult<Set<OntologyClass>> getClassCollection ( 
+		String ontologyAcronym, String accession, String collectionTypeId, boolean isPaged 
+	)
 	{
 		try
 		{
@@ -295,22 +486,44 @@ public class BioportalClient
 				classUri = accession;
 			else
 			{
-				Ontology onto = getOntology ( ontologyAcronym );
-				if ( onto == null ) return null;
+				LookupResult<Ontology> ontoResult = lookupOntology ( ontologyAcronym );
+				if ( !ontoResult.isFound () ) return ontoResult.asMissing ();
 				
-				String ontoUriPrefix = onto.getClassUriPrefix ();
-				if ( ontoUriPrefix == null ) return null;
+				String ontoUriPrefix = ontoResult.getValue ().getClassUriPrefix ();
+				if ( ontoUriPrefix == null ) return LookupResult.notFound ();
 
 				classUri = ontoUriPrefix + accession;
 			}
 
+			String cacheKey = ontologyAcronym.toUpperCase () + " " + collectionTypeId + " " + classUri;
+			Set<OntologyClass> result = getCached ( classCollectionCache, classCollectionCacheStats, cacheKey );
+			if ( result != null ) return LookupResult.found ( result );
+
+			if ( isOffline ) return LookupResult.notAvailableOffline ();
+
 			String servicePath = 
 				"/ontologies/" + encode ( ontologyAcronym.toUpperCase (), "UTF-8" ) + "/classes/" +	URLEncoder.encode ( classUri, "UTF-8" ) +
 				"/" + collectionTypeId;
 			
-			return isPaged  
-				? collectOntoClassesFromPagedResult ( servicePath, ontologyAcronym, this.apiKey )
-				: collectOntoClasses ( servicePath, ontologyAcronym, this.apiKey );
+			long loadStart = System.nanoTime ();
+			try {
+				result = collectOntoClasses ( 
+					keyPool, CallScope.getCurrentLane (), CallScope.getCurrentDeadlineNanos (), servicePath, ontologyAcronym, isPaged 
+				);
+				classCollectionCacheStats.recordLoad ( System.nanoTime () - loadStart, false );
+			}
+			catch ( OntologyServiceUnavailableException ex ) {
+				classCollectionCacheStats.recordLoad ( System.nanoTime () - loadStart, true );
+				return LookupResult.found ( getStale ( classCollectionCache, classCollectionCacheStats, cacheKey, ex ) );
+			}
+			catch ( RuntimeException ex ) {
+				classCollectionCacheStats.recordLoad ( System.nanoTime () - loadStart, true );
+				throw ex;
+			}
+			
+			result = Collections.unmodifiableSet ( result );
+			putCached ( classCollectionCache, cacheKey, result );
+			return LookupResult.found ( result );
 		} 
 		catch ( UnsupportedEncodingException ex )
 		{
@@ -323,36 +536,76 @@ public class BioportalClient
 	
 	/**
 	 * The children (ie, direct subclasses) of the current parameter (an accession or a URI), as returned by the 
-	 * web service /ontologies/:onto/classes/:classUri/children 
+	 * web service /ontologies/:onto/classes/:classUri/children. 
+	 * 
+	 * The result is shared with the cache and is read-only, copy it if you need to change it.
 	 */
 	public Set<OntologyClass> getClassChildren ( String ontologyAcronym, String accession )
+	{
+		return lookupClassChildren ( ontologyAcronym, accession ).getValue ();
+	}
+
+	/**
+	 * Like {@link #getClassChildren(String, String)}, but tells why the result is missing. 
+	 */
+	public LookupResult<Set<OntologyClass>> lookupClassChildren ( String ontologyAcronym, String accession )
 	{
 		return getClassCollection ( ontologyAcronym, accession, "children", true );
 	}
 	
 	/**
 	 * The descendants (ie, transitively subclasses) of the current parameter (an accession or a URI), as returned by the 
-	 * web service /ontologies/:onto/classes/:classUri/descendants 
+	 * web service /ontologies/:onto/classes/:classUri/descendants. 
+	 * 
+	 * The result is shared with the cache and is read-only, copy it if you need to change it.
 	 */
 	public Set<OntologyClass> getClassDescendants ( String ontologyAcronym, String accession )
+	{
+		return lookupClassDescendants ( ontologyAcronym, accession ).getValue ();
+	}
+
+	/**
+	 * Like {@link #getClassDescendants(String, String)}, but tells why the result is missing. 
+	 */
+	public LookupResult<Set<OntologyClass>> lookupClassDescendants ( String ontologyAcronym, String accession )
 	{
 		return getClassCollection ( ontologyAcronym, accession, "descendants", true );
 	}
 	
 	/**
 	 * The ancestors (ie, transitively super classes) of the current parameter (an accession or a URI), as returned by the 
-	 * web service /ontologies/:onto/classes/:classUri/ancestors 
+	 * web service /ontologies/:onto/classes/:classUri/ancestors. 
+	 * 
+	 * The result is shared with the cache and is read-only, copy it if you need to change it.
 	 */
 	public Set<OntologyClass> getClassAncestors ( String ontologyAcronym, String accession )
+	{
+		return lookupClassAncestors ( ontologyAcronym, accession ).getValue ();
+	}
+
+	/**
+	 * Like {@link #getClassAncestors(String, String)}, but tells why the result is missing. 
+	 */
+	public LookupResult<Set<OntologyClass>> lookupClassAncestors ( String ontologyAcronym, String accession )
 	{
 		return getClassCollection ( ontologyAcronym, accession, "ancestors", false );
 	}
 
 	/**
 	 * The parents (ie, direct super classes) of the current parameter (an accession or a URI), as returned by the 
-	 * web service /ontologies/:onto/classes/:classUri/parents 
+	 * web service /ontologies/:onto/classes/:classUri/parents. 
+	 * 
+	 * The result is shared with the cache and is read-only, copy it if you need to change it.
 	 */
 	public Set<OntologyClass> getClassParents ( String ontologyAcronym, String accession )
+	{
+		return lookupClassParents ( ontologyAcronym, accession ).getValue ();
+	}
+
+	/**
+	 * Like {@link #getClassParents(String, String)}, but tells why the result is missing. 
+	 */
+	public LookupResult<Set<OntologyClass>> lookupClassParents ( String ontologyAcronym, String accession )
 	{
 		return getClassCollection ( ontologyAcronym, accession, "parents", false );
 	}
@@ -372,6 +625,14 @@ public class BioportalClient
 	 * 
 	 */
 	public Ontology getOntology ( String acronym )
+	{
+		return lookupOntology ( acronym ).getValue ();
+	}
+	
+	/**
+	 * Like {@link #getOntology(String)}, but tells why the ontology is missing, when that's the case.
+	 */
+	public LookupResult<Ontology> lookupOntology ( String acronym )
 	{
 		try
 		{
@@ -379,22 +640,50 @@ public class BioportalClient
 			String encodedAcronym = encode ( acronym, "UTF-8" );
 			Ontology result;
 			
+			recordHotKey ( KeyType.ONTOLOGY, acronym, null );
+			
 			synchronized ( acronym.intern () )
 			{
-				result = this.ontologyCache.get ( acronym );
+				result = getCached ( this.ontologyCache, ontologyCacheStats, acronym );
+				if ( result != null ) return LookupResult.found ( result );
 				// We store null results, to avoid further searches
-				if ( result != null ) return "__NULL_ONTO__".equals ( result.getAcronym () ) ? null : result;
+				if ( negativeResultCache.contains ( ResultType.ONTOLOGY, acronym ) ) {
+					ontologyCacheStats.recordNegativeHit ();
+					return LookupResult.notFound ();
+				}
+				
+				if ( isOffline ) return LookupResult.notAvailableOffline ();
 						
-				JsonNode jonto = BioportalWebServiceUtils.invokeBioportal ( "/ontologies/" + encodedAcronym, this.apiKey );
+				CacheEntry<Ontology> expiredEntry = this.ontologyCache.get ( acronym );
+				ConditionalGet cget = newConditionalGet ( expiredEntry );
+				JsonNode jonto;
+				long loadStart = System.nanoTime ();
+				try {
+					jonto = keyPool.invoke ( cget, "/ontologies/" + encodedAcronym );
+					if ( jonto == ConditionalGet.NOT_MODIFIED ) {
+						// Like a hit, the cached ontology already has the URI prefix, if it could be found
+						ontologyCacheStats.recordRevalidation ( System.nanoTime () - loadStart );
+						return LookupResult.found ( renewCached ( this.ontologyCache, acronym, expiredEntry ) );
+					}
+					ontologyCacheStats.recordLoad ( System.nanoTime () - loadStart, false );
+				}
+				catch ( OntologyServiceUnavailableException ex ) {
+					ontologyCacheStats.recordLoad ( System.nanoTime () - loadStart, true );
+					return LookupResult.found ( getStale ( this.ontologyCache, ontologyCacheStats, acronym, ex ) );
+				}
+				catch ( RuntimeException ex ) {
+					ontologyCacheStats.recordLoad ( System.nanoTime () - loadStart, true );
+					throw ex;
+				}
 				if ( jonto == null ) 
 				{
-					this.ontologyCache.put ( acronym, new Ontology ( "__NULL_ONTO__" ) );
-					return null;
+					negativeResultCache.put ( ResultType.ONTOLOGY, acronym );
+					return LookupResult.notFound ();
 				}
 				
 				result = new Ontology ( acronym );
 				result.setName ( jonto.get ( "name" ).asText () );
-				this.ontologyCache.put ( acronym, result );
+				putCached ( this.ontologyCache, acronym, result, cget.getETag ( jonto ), cget.getLastModified ( jonto ) );
 			}
 			
 			// Gets the likely URI prefix for building the URI of ontology terms.
@@ -403,25 +692,32 @@ public class BioportalClient
 			if ( classUriPrefix != null ) 
 			{
 				result.setClassUriPrefix ( classUriPrefix );
-				return result;
+				return LookupResult.found ( result );
 			}
 			// If not, try with the first ontology class
-			JsonNode jclasses = invokeBioportal ( "/ontologies/" + encodedAcronym + "/classes", this.apiKey, "pagesize", "2" );
-			if ( jclasses == null ) return result;
+			JsonNode jclasses;
+			try {
+				jclasses = keyPool.invoke ( "/ontologies/" + encodedAcronym + "/classes", "pagesize", "2" );
+			}
+			catch ( OntologyServiceUnavailableException ex ) {
+				// We have the ontology anyway, without the prefix
+				return LookupResult.found ( result );
+			}
+			if ( jclasses == null ) return LookupResult.found ( result );
 			
 			String classUri = jclasses.at ( "/collection/0/@id" ).asText ();
-			if ( classUri == null ) return result;
+			if ( classUri == null ) return LookupResult.found ( result );
 			
 			// Try to remove the trailing accession, by looking at common splitters 
 			int brkIdx = classUri.lastIndexOf ( '#' );
 			if ( brkIdx == -1 )	brkIdx = classUri.lastIndexOf ( '/' );
-			if ( brkIdx == -1 ) return result;
+			if ( brkIdx == -1 ) return LookupResult.found ( result );
 			
 			// Got it!
 			classUriPrefix = classUri.substring ( 0, brkIdx + 1 );
 			result.setClassUriPrefix ( classUriPrefix );
 
-			return result;
+			return LookupResult.found ( result );
 		} 
 		catch ( UnsupportedEncodingException ex ) 
 		{
@@ -442,10 +738,18 @@ public class BioportalClient
 	 * <a href = 'https://bioportal.bioontology.org/annotator'>human interface</a> and then click on 'JSON format' on 
 	 * the resulting web page. This will show you the selected paramters in the browser URL text box.
 	 * 
+	 * Results from this method aren't cached, so it always returns an empty result in {@link #setOffline(boolean) 
+	 * offline mode}.
+	 * 
 	 */
 	public TextAnnotation[] getTextAnnotations ( String text, String... otherProps )
 	{
-		TextAnnotation result[];
+		if ( isOffline ) 
+		{
+			log.trace ( "Offline mode, returning no annotations for '{}'", text );
+			return new TextAnnotation [ 0 ];
+		}
+		
 		String bpParams[];
 		
 		if ( otherProps != null && otherProps.length > 0 ) 
@@ -464,116 +768,90 @@ public class BioportalClient
 		bpParams [ 0 ] = "text";
 		bpParams [ 1 ] = text;
 		
-		JsonNode jsanns = invokeBioportal ( "/annotator", this.apiKey, bpParams );
+		JsonNode jsanns = keyPool.invoke ( "/annotator", bpParams );
 		if ( jsanns == null ) return new TextAnnotation [ 0 ];
 				
-		result = new TextAnnotation[ jsanns.size () ];
-		
-		int i = 0;
-		for ( JsonNode jsann: jsanns )
-		{
-			{
-				JsonNode annClass = jsann.get ( "annotatedClass" );
-				String clsIri = annClass.get ( "@id" ).asText ();
-				String ontoUri = annClass.get ( "links" ).get ( "ontology" ).asText ();
-				String ontoAcronym = ontoUri.substring ( "http://data.bioontology.org/ontologies/".length () );
-								
-				result [ i ] = new TextAnnotation ( new ClassRef ( clsIri, ontoAcronym ) );
-			}
-			
-			JsonNode jshs = jsann.get ( "hierarchy" );
-			HierarchyEntry[] hes = new HierarchyEntry[ jshs.size () ];
-			int ih = 0;
-			for ( JsonNode jsh: jshs )
-			{
-				JsonNode annClass = jsh.get ( "annotatedClass" );
-				String clsIri = annClass.get ( "@id" ).asText ();
-				String ontoUri = annClass.get ( "links" ).get ( "ontology" ).asText ();
-				String ontoAcronym = ontoUri.substring ( "http://data.bioontology.org/ontologies/".length () );
-				int distance = jsh.get ( "distance" ).asInt ();
-				
-				hes [ ih++ ] = new HierarchyEntry ( new ClassRef ( clsIri, ontoAcronym ), distance );
-			}
-			result [ i ].setHierarchy ( hes );
-
-			JsonNode jstanns = jsann.get ( "annotations" );
-			Annotation [] textAnns = new Annotation [ jstanns.size () ];
-			int ia = 0;
-			for ( JsonNode jsa: jstanns )
-			{
-				textAnns [ ia++ ] = new Annotation (
-					jsa.get ( "from" ).asInt (), 
-					jsa.get ( "to" ).asInt (), 
-					jsa.get ( "matchType" ).asText (),
-					jsa.get ( "text" ).asText () 
-				);
-			}
-			result [ i++ ].setAnnotations ( textAnns ); 
-		}
-		
-		return result;
+		return buildTextAnnotations ( jsanns );
 	}
 	
 	/**
 	 * Wrapper with no preferred ontologies.
-	 * 
-	 * This is the method that contains the API invocation (the other just filters out the results).
 	 */
 	public List<OntologyClassMapping> getOntologyClassMappings ( OntologyClass ontoClass )
+	{
+		return lookupOntologyClassMappings ( ontoClass ).getValue ();
+	}
+	
+	/**
+	 * Like {@link #getOntologyClassMappings(OntologyClass)}, but tells why the mappings are missing.
+	 * 
+	 * This is the method that contains the API invocation (the others just filter out the results).
+	 */
+	public LookupResult<List<OntologyClassMapping>> lookupOntologyClassMappings ( OntologyClass ontoClass )
 	{
 		try
 		{
 			String clsIri = ontoClass.getIri ();
-			List<OntologyClassMapping> result = this.classMappingsCache.get ( clsIri );
-			if ( result != null ) return result.isEmpty () ? null : result;
- 			
 			String ontoId = ontoClass.getOntologyAcronym ().toUpperCase ();
+			recordHotKey ( KeyType.MAPPINGS, ontoId, clsIri );
+
+			String cacheKey = ontoId + " " + clsIri;
+			List<OntologyClassMapping> result = getCached ( this.classMappingsCache, classMappingsCacheStats, cacheKey );
+			if ( result != null ) return LookupResult.found ( result );
+ 			
+			if ( negativeResultCache.contains ( ResultType.MAPPINGS, cacheKey ) ) {
+				classMappingsCacheStats.recordNegativeHit ();
+				return LookupResult.notFound ();
+			}
+			
+			if ( isOffline ) return LookupResult.notAvailableOffline ();
+
 			String servicePath = 
 				"/ontologies/" + ontoId  
 			  + "/classes/" + URLEncoder.encode ( ontoClass.getIri (), "UTF-8" ) 
 			  + "/mappings";
 			
-			JsonNode jsmaps = invokeBioportal ( servicePath, this.apiKey );
+			CacheEntry<List<OntologyClassMapping>> expiredEntry = this.classMappingsCache.get ( cacheKey );
+			ConditionalGet cget = newConditionalGet ( expiredEntry );
+			JsonNode jsmaps;
+			long loadStart = System.nanoTime ();
+			try {
+				jsmaps = keyPool.invoke ( cget, servicePath );
+				if ( jsmaps == ConditionalGet.NOT_MODIFIED ) {
+					classMappingsCacheStats.recordRevalidation ( System.nanoTime () - loadStart );
+					return LookupResult.found ( renewCached ( this.classMappingsCache, cacheKey, expiredEntry ) );
+				}
+				classMappingsCacheStats.recordLoad ( System.nanoTime () - loadStart, false );
+			}
+			catch ( OntologyServiceUnavailableException ex ) {
+				classMappingsCacheStats.recordLoad ( System.nanoTime () - loadStart, true );
+				return LookupResult.found ( getStale ( this.classMappingsCache, classMappingsCacheStats, cacheKey, ex ) );
+			}
+			catch ( RuntimeException ex ) {
+				classMappingsCacheStats.recordLoad ( System.nanoTime () - loadStart, true );
+				throw ex;
+			}
 			
 			// Shouldn't happen, but just in case
 			if ( jsmaps == null  )
 			{
-				result = Collections.emptyList ();
-				this.classMappingsCache.put ( clsIri, result );
-				return null;
+				negativeResultCache.put ( ResultType.MAPPINGS, cacheKey );
+				return LookupResult.notFound ();
 			}
 			
-			// Every item in the JSON result contains data on the source of mapping, plus two class IRIs, the first is always
-			// the input class (in this case), and the second is the meat we're interested in
-			//
-			result = new ArrayList<OntologyClassMapping> ();
-			
-			for ( JsonNode jsmap: jsmaps )
-			{
-				OntologyClassMapping map = new OntologyClassMapping ();
-				
-				map.setId ( jsmap.get ( "id" ).asText () );
-				map.setSource ( jsmap.get ( "source" ).asText () );
-				map.setProcess ( jsmap.get ( "process" ).asText () );
-				
-				JsonNode jsTargetClass = jsmap.get ( "classes" ).get ( 1 );
-
-				String ontoUri = jsTargetClass.get ( "links" ).get ( "ontology" ).asText ();
-				String ontoAcronym = ontoUri.substring ( "http://data.bioontology.org/ontologies/".length () );
-
-				map.setTargetClassRef ( new ClassRef ( 
-					jsTargetClass.get ( "@id" ).asText (),
-					ontoAcronym
-				));
-				result.add ( map );
-			}
+			result = buildOntologyClassMappings ( jsmaps );
 		
 			// Too slow to do it again...
-			// Possibly empty results are saved to tell the cache we've already tried, null is always returned 
+			// Empty results are saved in the negative cache, to tell we've already tried, null is always returned 
 			// for them.
-			this.classMappingsCache.put ( clsIri, result );
-		
-			return result.isEmpty () ? null : result;
+			if ( result.isEmpty () ) 
+			{
+				negativeResultCache.put ( ResultType.MAPPINGS, cacheKey );
+				return LookupResult.notFound ();
+			}
+			
+			putCached ( this.classMappingsCache, cacheKey, result, cget.getETag ( jsmaps ), cget.getLastModified ( jsmaps ) );
+			return LookupResult.found ( result );
 		}
 		catch ( UnsupportedEncodingException ex )
 		{
@@ -619,5 +897,476 @@ public class BioportalClient
 		if ( filteredMaps.isEmpty () ) return usePreferredOntologiesOnly ? null : maps;
 		return filteredMaps;
 	}
+
+	/**
+	 * <p>Writes all the caches of this client to a file, in a compact binary format (see {@link CacheSnapshotWriter}).
+	 * The entries are written together with their expiration time, so that they'll keep their remaining life time 
+	 * when they're {@link #importCaches(Path) imported}.</p>
+	 * 
+	 * <p>This can be used to warm up the client caches, e.g., by letting a job populating them and then passing 
+	 * the snapshot to other client instances.</p>
+	 * 
+	 * @return the number of entries written.
+	 */
+	public long exportCaches ( Path path ) throws IOException
+	{
+		try ( 
+			OutputStream out = Files.newOutputStream ( path );
+			CacheSnapshotWriter writer = new CacheSnapshotWriter ( out ) 
+		)
+		{
+			for ( Map.Entry<String, CacheEntry<Ontology>> e: ontologyCache.entrySet () )
+				writer.writeOntology ( e.getKey (), e.getValue () );
+			for ( Map.Entry<String, CacheEntry<OntologyClass>> e: classCache.entrySet () )
+				writer.writeClass ( e.getKey (), e.getValue () );
+			for ( Map.Entry<String, CacheEntry<List<OntologyClassMapping>>> e: classMappingsCache.entrySet () )
+				writer.writeMappings ( e.getKey (), e.getValue () );
+			for ( Map.Entry<String, CacheEntry<Set<OntologyClass>>> e: classCollectionCache.entrySet () )
+				writer.writeClassCollection ( e.getKey (), e.getValue () );
+			writer.writeNegatives ( negativeResultCache );
+			
+			log.info ( "{} cache entries exported to '{}'", writer.getCount (), path );
+			return writer.getCount ();
+		}
+	}
+	
+	/**
+	 * Loads into this client the caches {@link #exportCaches(Path) previously exported}. The entries already expired
+	 * are skipped, the others keep the expiration time they had when exported. The entries already present in the 
+	 * client caches are replaced only if the imported ones are more recent.
+	 *  
+	 * @return the number of entries read from the file, including the expired ones.
+	 */
+	public long importCaches ( Path path ) throws IOException
+	{
+		try ( 
+			InputStream in = Files.newInputStream ( path );
+			CacheSnapshotReader reader = new CacheSnapshotReader ( in ) 
+		)
+		{
+			long count = reader.read ( 
+				new CacheSnapshotReader.Handler () 
+				{
+					@Override
+					public void onOntology ( String key, CacheEntry<Ontology> entry ) {
+						importCacheEntry ( ontologyCache, key, entry );
+					}
+					
+					@Override
+					public void onClass ( String key, CacheEntry<OntologyClass> entry ) {
+						importCacheEntry ( classCache, key, entry );
+					}
+					
+					@Override
+					public void onMappings ( String key, CacheEntry<List<OntologyClassMapping>> entry ) {
+						importCacheEntry ( classMappingsCache, key, entry );
+					}
+
+					@Override
+					public void onClassCollection ( String key, CacheEntry<Set<OntologyClass>> entry ) {
+						importCacheEntry ( 
+							classCollectionCache, key, 
+							new CacheEntry<> ( 
+								Collections.unmodifiableSet ( entry.getValue () ), entry.getCreatedAt (), entry.getExpiresAt (),
+								entry.getETag (), entry.getLastModified ()
+							)
+						);
+					}
+				}, 
+				negativeResultCache
+			);
+			
+			log.info ( "{} cache entries imported from '{}'", count, path );
+			return count;
+		}
+	}
+	
+
+	/**
+	 * The log of the most accessed classes, ontologies and mappings. This can be {@link HotKeyLog#save(Path) saved}
+	 * and used with {@link #prefetchHotKeys(Path, int)}, to warm up new clients.
+	 */
+	public HotKeyLog getHotKeyLog ()
+	{
+		return hotKeyLog;
+	}
+	
+	/**
+	 * Loads the {@link HotKeyLog hot keys} in the file into {@link #getHotKeyLog()} and then fetches the top 
+	 * topK keys in background, so that they're cached before they're requested. 
+	 * 
+	 * Since the keys are fetched through the regular methods, calls to Bioportal are rate-limited as usually, in the 
+	 * {@link PriorityLane#BULK bulk lane}. 
+	 * 
+	 * @return a future telling the no. of keys that were fetched, which can be used to wait for the prefetch to 
+	 * complete, or to cancel it.
+	 */
+	public Future<Integer> prefetchHotKeys ( Path path, int topK ) throws IOException
+	{
+		hotKeyLog.load ( path );
+		return prefetchHotKeys ( hotKeyLog.getTop ( topK ) );
+	}
+	
+	/**
+	 * Fetches the keys in background. Ontologies are fetched first, since classes might need them. These lookups
+	 * aren't recorded in {@link #getHotKeyLog()}.
+	 */
+	public Future<Integer> prefetchHotKeys ( List<HotKey> keys )
+	{
+		final List<HotKey> sortedKeys = new ArrayList<> ( keys );
+		Collections.sort ( sortedKeys, new Comparator<HotKey> () 
+		{
+			@Override
+			public int compare ( HotKey k1, HotKey k2 ) {
+				return k1.getType ().compareTo ( k2.getType () );
+			}
+		});
+		
+		synchronized ( this ) 
+		{
+			if ( prefetchExecutor == null ) prefetchExecutor = Executors.newSingleThreadExecutor ( 
+				new ThreadFactoryBuilder ().setDaemon ( true ).setNameFormat ( "bioportal-prefetch-%d" ).build () 
+			);
+		}
+		
+		return prefetchExecutor.submit ( new Callable<Integer> () 
+		{
+			@Override
+			public Integer call () 
+			{
+				log.info ( "Prefetching {} Bioportal hot keys", sortedKeys.size () );
+				int ct = 0;
+				isPrefetching.set ( true );
+				try ( CallScope scope = CallScope.open ( PriorityLane.BULK ) ) 
+				{
+					for ( HotKey key: sortedKeys )
+					{
+						if ( Thread.currentThread ().isInterrupted () ) break;
+						try
+						{
+							switch ( key.getType () ) 
+							{
+								case ONTOLOGY:
+									lookupOntology ( key.getOntologyAcronym () ); break;
+								case CLASS:
+									lookupOntologyClass ( key.getOntologyAcronym (), key.getIri () ); break;
+								case MAPPINGS:
+									OntologyClass cls = new OntologyClass ( key.getIri () );
+									cls.setOntologyAcronym ( key.getOntologyAcronym () );
+									lookupOntologyClassMappings ( cls ); 
+									break;
+							}
+							ct++;
+						}
+						catch ( RuntimeException ex ) {
+							log.debug ( "Error while prefetching {}: {}", key, ex.getMessage () );
+						}
+					}
+				}
+				finally {
+					isPrefetching.remove ();
+				}
+				log.info ( "{} Bioportal hot keys prefetched", ct );
+				return ct;
+			}
+		});
+	}
+
+	private void recordHotKey ( KeyType type, String ontologyAcronym, String iri )
+	{
+		if ( isPrefetching.get () == null ) hotKeyLog.record ( type, ontologyAcronym, iri );
+	}
+
+	/**
+	 * Gets a cached value, considering the expiration time it has in its {@link CacheEntry}, which might be 
+	 * earlier than the one set for the cache (e.g., for entries coming from {@link #importCaches(Path)}. 
+	 */
+	private <V> V getCached ( Map<String, CacheEntry<V>> cache, CacheStatistics stats, String key )
+	{
+		CacheEntry<V> entry = cache.get ( key );
+		if ( entry == null ) {
+			stats.recordMiss ( false );
+			return null;
+		}
+		if ( entry.isExpired () ) 
+		{
+			// Else, keep it for getStale() or for revalidating it, until the max stale time
+			if ( !serveStale && !entry.hasValidators () || entry.isExpiredSince ( cacheMaxStaleMillis ) ) 
+				cache.remove ( key, entry );
+			stats.recordMiss ( true );
+			return null;
+		}
+		stats.recordHit ();
+		return entry.getValue ();
+	}
+	
+	/**
+	 * Used when Bioportal is down, returns an expired cache entry, if {@link #SERVE_STALE_PROP_NAME} is set and 
+	 * the entry is still there and not older than {@link #CACHE_MAX_STALE_MINS_PROP_NAME}, else re-throws the 
+	 * exception.  
+	 */
+	private <V> V getStale ( 
+		Map<String, CacheEntry<V>> cache, CacheStatistics stats, String key, OntologyServiceUnavailableException ex 
+	)
+	{
+		CacheEntry<V> entry = serveStale ? cache.get ( key ) : null;
+		if ( entry == null || entry.isExpiredSince ( cacheMaxStaleMillis ) ) throw ex;
+		stats.recordStaleHit ();
+		log.debug ( "Bioportal is down, returning a stale cached value for '{}'", key );
+		return entry.getValue ();
+	}
+
+	/**
+	 * The actual expiration is established by each {@link CacheEntry}, see {@link #getCached(Map, CacheStatistics, String)},
+	 * the one set here is the max life of all the entries, including the time they can be kept after expiring, so
+	 * that dead entries don't take the place of live ones.
+	 */
+	private static <V> ConcurrentMap<String, CacheEntry<V>> newCache ( CacheStatistics stats, long maxLifeMillis )
+	{
+		Cache<String, CacheEntry<V>> cache = stats.buildCache ( 
+			CacheBuilder.newBuilder ()
+				.maximumSize ( 300000 )
+				.expireAfterWrite ( maxLifeMillis, TimeUnit.MILLISECONDS )
+		);
+		return cache.asMap ();
+	}
+
+	private <V> void putCached ( Map<String, CacheEntry<V>> cache, String key, V value )
+	{
+		putCached ( cache, key, value, null, null );
+	}
+
+	/**
+	 * @param eTag and lastModified are the HTTP validators that came with the value, used to revalidate it when 
+	 * it expires.
+	 */
+	private <V> void putCached ( Map<String, CacheEntry<V>> cache, String key, V value, String eTag, String lastModified )
+	{
+		long now = System.currentTimeMillis ();
+		cache.put ( key, new CacheEntry<V> ( value, now, now + getEntryTtlMillis (), eTag, lastModified ) );
+	}
+
+	/**
+	 * Used when Bioportal answers a conditional GET with 304, gives a new life time to the expired entry.
+	 * 
+	 * The entry is replaced only if it's still the expired one, since a concurrent lookup might have stored a newer 
+	 * value meanwhile, in which case the latter is returned.
+	 */
+	private <V> V renewCached ( ConcurrentMap<String, CacheEntry<V>> cache, String key, CacheEntry<V> expiredEntry )
+	{
+		if ( cache.replace ( key, expiredEntry, expiredEntry.renew ( getEntryTtlMillis () ) ) ) 
+			return expiredEntry.getValue ();
+		
+		CacheEntry<V> current = cache.get ( key );
+		return current == null ? expiredEntry.getValue () : current.getValue ();
+	}
+
+	private long getEntryTtlMillis ()
+	{
+		return this.submissionWatcher == null ? this.cacheTtlMillis : this.watchedCacheTtlMillis;
+	}
+
+	/**
+	 * Uses the validators of the expired entry, if any, to revalidate it, else the call is a normal GET.
+	 */
+	private static ConditionalGet newConditionalGet ( CacheEntry<?> expiredEntry )
+	{
+		return expiredEntry == null 
+			? new ConditionalGet ( null, null ) 
+			: new ConditionalGet ( expiredEntry.getETag (), expiredEntry.getLastModified () );
+	}
+	
+	/**
+	 * Removes all the cached entries about an ontology, i.e., the ontology itself, its classes, class collections
+	 * (children, parents, etc), class mappings and the recorded misses about all of them. This is used by 
+	 * {@link OntologySubmissionWatcher}, when an ontology changes.
+	 * 
+	 * @return the no. of removed entries.
+	 */
+	public int invalidateOntology ( String acronym )
+	{
+		String ontoKey = "NCBITaxon".equals ( acronym ) ? acronym : acronym.toUpperCase ();
+		String prefix = acronym.toUpperCase () + " ";
+
+		int ct = 0;
+		if ( ontologyCache.remove ( ontoKey ) != null ) ct++;
+		ct += removeByPrefix ( classCache, prefix );
+		ct += removeByPrefix ( classMappingsCache, prefix );
+		ct += removeByPrefix ( classCollectionCache, prefix );
+		ct += negativeResultCache.invalidateOntology ( ontoKey );
+		
+		log.debug ( "{} cached entries removed for the ontology '{}'", ct, acronym );
+		return ct;
+	}
+	
+	private static int removeByPrefix ( Map<String, ?> cache, String keyPrefix )
+	{
+		int ct = 0;
+		for ( Iterator<String> itr = cache.keySet ().iterator (); itr.hasNext (); ) 
+		{
+			if ( !itr.next ().startsWith ( keyPrefix ) ) continue;
+			itr.remove ();
+			ct++;
+		}
+		return ct;
+	}
+	
+	/**
+	 * The acronyms of the ontologies currently cached. 
+	 */
+	public Set<String> getCachedOntologyAcronyms ()
+	{
+		return new HashSet<> ( ontologyCache.keySet () );
+	}
+	
+	/**
+	 * <p>Starts an {@link OntologySubmissionWatcher}, which checks the latest submissions of the cached ontologies
+	 * at the given period, and {@link #invalidateOntology(String) invalidates} the cached entries of those that 
+	 * changed.</p>
+	 * 
+	 * <p>While the watcher is active, new cache entries expire after {@link #WATCHED_CACHE_TIMEOUT_MINS_PROP_NAME}, 
+	 * instead of {@link #CACHE_TIMEOUT_MINS_PROP_NAME}.</p>
+	 * 
+	 * <p>If a watcher is already active, it's replaced by the new one.</p>
+	 */
+	public synchronized OntologySubmissionWatcher startSubmissionWatcher ( long period, TimeUnit timeUnit )
+	{
+		stopSubmissionWatcher ();
+		return this.submissionWatcher = new OntologySubmissionWatcher ( this, period, timeUnit );
+	}
+
+	/**
+	 * Stops the current {@link #startSubmissionWatcher(long, TimeUnit) submission watcher}, if any. The entries 
+	 * cached while it was active keep their longer expiration time.
+	 */
+	public synchronized void stopSubmissionWatcher ()
+	{
+		if ( this.submissionWatcher == null ) return;
+		this.submissionWatcher.close ();
+		this.submissionWatcher = null;
+	}
+	
+	private static <V> void importCacheEntry ( Map<String, CacheEntry<V>> cache, String key, CacheEntry<V> entry )
+	{
+		CacheEntry<V> current = cache.get ( key );
+		if ( current != null && current.getCreatedAt () >= entry.getCreatedAt () ) return;
+		cache.put ( key, entry );
+	}
+	
+	/**
+	 * <p>If true, the client never invokes Bioportal and answers using the cached data only, e.g., 
+	 * those {@link #importCaches(Path) imported from a snapshot}. This is useful for reproducible processing, 
+	 * benchmarks, or environments without network access.</p>
+	 * 
+	 * <p>In this mode, a value that isn't cached makes the methods that return values directly to return null
+	 * (or empty results), while the lookupXXX() methods return {@link LookupResult.Status#NOT_AVAILABLE_OFFLINE}, 
+	 * which allows for telling missing values apart from values that aren't available locally.</p>
+	 */
+	public boolean isOffline ()
+	{
+		return isOffline;
+	}
+
+	public void setOffline ( boolean isOffline )
+	{
+		this.isOffline = isOffline;
+	}
+	
+	/**
+	 * The cache where lookups without results are recorded. This has its own size and timeout, see 
+	 * {@link NegativeResultCache}. 
+	 */
+	public NegativeResultCache getNegativeResultCache ()
+	{
+		return negativeResultCache;
+	}
+
+	/**
+	 * The statistics of the client caches: ontologies, classes, class collections (children, parents, etc) and
+	 * mappings. These are live objects, use {@link CacheStatistics#snapshot()} to get a fixed copy. They're also
+	 * logged periodically, every {@link BioportalWebServiceUtils#STATS_SAMPLING_TIME_PROP_NAME} ms, and can be 
+	 * exposed via JMX, see {@link #registerCacheMBeans(String)}.
+	 */
+	public List<CacheStatistics> getCacheStatistics ()
+	{
+		return cacheStatistics;
+	}
+
+	/**
+	 * The no. of lookups that found a valid entry in the client caches, summed over the 
+	 * {@link #getCacheStatistics() cache statistics}. Lookups answered by the 
+	 * {@link #getNegativeResultCache() negative cache} are counted as misses.
+	 */
+	public long getCacheHitCount ()
+	{
+		long result = 0;
+		for ( CacheStatistics stats: cacheStatistics ) result += stats.getHitCount ();
+		return result;
+	}
+
+	/**
+	 * @see #getCacheHitCount()
+	 */
+	public long getCacheMissCount ()
+	{
+		long result = 0;
+		for ( CacheStatistics stats: cacheStatistics ) result += stats.getMissCount ();
+		return result;
+	}
+	
+	/**
+	 * Registers the {@link #getCacheStatistics() cache statistics} with the platform JMX server, as 
+	 * <code>uk.ac.ebi.bioportal:type=CacheStatistics,client=&lt;clientName&gt;,cache=&lt;cache name&gt;</code>.
+	 * 
+	 * This isn't done automatically, since the registration keeps the caches in memory until 
+	 * {@link #unregisterCacheMBeans()} is called.
+	 */
+	public synchronized void registerCacheMBeans ( String clientName )
+	{
+		unregisterCacheMBeans ();
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer ();
+		try 
+		{
+			for ( CacheStatistics stats: cacheStatistics )
+			{
+				ObjectName name = new ObjectName ( 
+					BioportalMetrics.JMX_DOMAIN + ":type=CacheStatistics,client=" + ObjectName.quote ( clientName ) 
+					+ ",cache=" + stats.getName () 
+				);
+				mbeanServer.registerMBean ( stats, name );
+				cacheMBeanNames.add ( name );
+			}
+		}
+		catch ( JMException ex ) {
+			unregisterCacheMBeans ();
+			throw new OntologyServiceException ( 
+				"Error while registering the Bioportal cache statistics with JMX: " + ex.getMessage (), ex 
+			);
+		}
+	}
+	
+	public synchronized void unregisterCacheMBeans ()
+	{
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer ();
+		for ( ObjectName name: cacheMBeanNames )
+		{
+			try {
+				mbeanServer.unregisterMBean ( name );
+			}
+			catch ( JMException ex ) {
+				log.warn ( "Error while unregistering the JMX bean '{}': {}", name, ex.getMessage () );
+			}
+		}
+		cacheMBeanNames.clear ();
+	}
+	
+	/**
+	 * The API keys used by this client to send HTTP requests. Each client has its own keys, each with its own rate 
+	 * limit, so that clients with different API keys don't slow down each other.
+	 */
+	public ApiKeyPool getApiKeyPool ()
+	{
+		return keyPool;
+	}
 	
 }
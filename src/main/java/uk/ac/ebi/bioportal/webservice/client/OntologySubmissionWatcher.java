@@ -0,0 +1,136 @@
+package uk.ac.ebi.bioportal.webservice.client;
+
+import static java.net.URLEncoder.encode;
+
+import java.io.Closeable;
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
+import uk.ac.ebi.bioportal.webservice.utils.CallScope;
+import uk.ac.ebi.bioportal.webservice.utils.PriorityLane;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>Periodically checks the latest submission of the ontologies cached by a {@link BioportalClient} and
+ * {@link BioportalClient#invalidateOntology(String) invalidates} the cached entries of those ontologies that
+ * were changed.</p>
+ *
+ * <p>This allows for keeping the cached data for a long time (see {@link BioportalClient#WATCHED_CACHE_TIMEOUT_MINS_PROP_NAME}),
+ * while still seeing ontology changes soon after they happen.</p>
+ *
+ * <p>Instances are created via {@link BioportalClient#startSubmissionWatcher(long, TimeUnit)}.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class OntologySubmissionWatcher implements Closeable
+{
+	private final BioportalClient client;
+	private final ScheduledExecutorService scheduler;
+
+	/** acronym -> submission version, as it was last seen */
+	private final Map<String, String> submissionVersions = new ConcurrentHashMap<> ();
+
+	private Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+	OntologySubmissionWatcher ( BioportalClient client, long period, TimeUnit timeUnit )
+	{
+		this.client = client;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor (
+			new ThreadFactoryBuilder ().setDaemon ( true ).setNameFormat ( "bioportal-submission-watcher-%d" ).build ()
+		);
+		this.scheduler.scheduleWithFixedDelay ( new Runnable ()
+		{
+			@Override
+			public void run () {
+				checkSubmissions ();
+			}
+		}, period, period, timeUnit );
+	}
+
+	/**
+	 * Checks all the ontologies currently cached, invalidates the changed ones. This is invoked periodically, but
+	 * you can call it directly too. The calls it makes go in the {@link PriorityLane#BULK bulk lane}.
+	 *
+	 * @return the no. of ontologies that were found changed.
+	 */
+	public int checkSubmissions ()
+	{
+		if ( client.isOffline () ) return 0;
+
+		int ct = 0;
+		try ( CallScope scope = CallScope.open ( PriorityLane.BULK ) ) 
+		{
+			for ( String acronym: client.getCachedOntologyAcronyms () )
+			{
+				try
+				{
+					String version = getSubmissionVersion ( acronym );
+					if ( version == null ) continue;
+
+					String oldVersion = submissionVersions.put ( acronym, version );
+					if ( oldVersion == null || oldVersion.equals ( version ) ) continue;
+
+					log.info ( "Ontology '{}' has a new submission, invalidating its cached entries", acronym );
+					client.invalidateOntology ( acronym );
+					// The ontology record is cheap, and usually needed by other lookups, so let's refresh it now
+					client.lookupOntology ( acronym );
+					ct++;
+				}
+				catch ( RuntimeException ex )
+				{
+					// Let's just retry next time
+					log.warn ( "Error while checking the submission of '{}': {}", acronym, ex.getMessage () );
+				}
+			}
+		}
+		return ct;
+	}
+
+	/**
+	 * Something that identifies the latest submission of an ontology, null if we cannot get it.
+	 */
+	private String getSubmissionVersion ( String acronym )
+	{
+		try
+		{
+			JsonNode jsub = client.keyPool.invoke (
+				"/ontologies/" + encode ( acronym, "UTF-8" ) + "/latest_submission",
+				"display", "submissionId,creationDate"
+			);
+			if ( jsub == null ) return null;
+
+			JsonNode jid = jsub.get ( "submissionId" );
+			JsonNode jdate = jsub.get ( "creationDate" );
+			if ( jid == null && jdate == null ) return null;
+
+			return ( jid == null ? "" : jid.asText () ) + "/" + ( jdate == null ? "" : jdate.asText () );
+		}
+		catch ( UnsupportedEncodingException ex )
+		{
+			throw new OntologyServiceException (
+				"Error while getting the latest submission of '" + acronym + "': " + ex.getMessage (), ex
+			);
+		}
+	}
+
+	/**
+	 * Stops the periodic checks.
+	 */
+	@Override
+	public void close ()
+	{
+		scheduler.shutdownNow ();
+	}
+}
@@ -0,0 +1,24 @@
+package uk.ac.ebi.bioportal.webservice.exceptions;
+
+/**
+ * Thrown when a call can't be completed within the deadline set by the caller, see 
+ * {@link uk.ac.ebi.bioportal.webservice.utils.CallScope}. Such calls aren't retried.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class OntologyServiceDeadlineException extends OntologyServiceException
+{
+	private static final long serialVersionUID = -2293755064195305826L;
+
+	public OntologyServiceDeadlineException ( String message, Throwable cause )
+	{
+		super ( message, cause );
+	}
+
+	public OntologyServiceDeadlineException ( String message )
+	{
+		super ( message );
+	}
+}
@@ -0,0 +1,33 @@
+package uk.ac.ebi.bioportal.webservice.exceptions;
+
+/**
+ * Thrown when Bioportal answers with an HTTP error status, which is reported by {@link #getStatusCode()}, so that
+ * callers can tell client errors (e.g., a bad API key) from server errors.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class OntologyServiceHttpException extends OntologyServiceException
+{
+	private static final long serialVersionUID = 5328160712349981607L;
+
+	private final int statusCode;
+
+	public OntologyServiceHttpException ( String message, int statusCode, Throwable cause )
+	{
+		super ( message, cause );
+		this.statusCode = statusCode;
+	}
+
+	public OntologyServiceHttpException ( String message, int statusCode )
+	{
+		super ( message );
+		this.statusCode = statusCode;
+	}
+
+	public int getStatusCode ()
+	{
+		return statusCode;
+	}
+}
@@ -0,0 +1,30 @@
+package uk.ac.ebi.bioportal.webservice.exceptions;
+
+/**
+ * Thrown when Bioportal refuses a call because we're going too fast (HTTP 429) or it's overloaded and says when to
+ * come back (HTTP 503 with Retry-After). A 503 without Retry-After is a plain {@link OntologyServiceHttpException}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class OntologyServiceThrottledException extends OntologyServiceHttpException
+{
+	private static final long serialVersionUID = -3207215633651958731L;
+
+	private final long retryAfterMillis;
+
+	public OntologyServiceThrottledException ( String message, int statusCode, long retryAfterMillis )
+	{
+		super ( message, statusCode );
+		this.retryAfterMillis = retryAfterMillis;
+	}
+
+	/**
+	 * How long the server asked to wait, -1 if it didn't say.
+	 */
+	public long getRetryAfterMillis ()
+	{
+		return retryAfterMillis;
+	}
+}
@@ -0,0 +1,19 @@
+package uk.ac.ebi.bioportal.webservice.exceptions;
+
+/**
+ * Thrown when a call isn't even attempted, since Bioportal is known to be down, see 
+ * {@link uk.ac.ebi.bioportal.webservice.utils.CircuitBreaker}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class OntologyServiceUnavailableException extends OntologyServiceException
+{
+	private static final long serialVersionUID = 5812043379020846215L;
+
+	public OntologyServiceUnavailableException ( String message )
+	{
+		super ( message );
+	}
+}
@@ -0,0 +1,78 @@
+package uk.ac.ebi.bioportal.webservice.metrics;
+
+/**
+ * The groups of Bioportal web service paths that {@link BioportalMetrics} keeps separate metrics for.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public enum BioportalEndpoint
+{
+	/** /annotator */
+	ANNOTATOR ( "annotator" ),
+	/** /ontologies/{acronym} */
+	ONTOLOGY ( "ontology" ),
+	/** /ontologies/{acronym}/latest_submission */
+	SUBMISSION ( "submission" ),
+	/** /ontologies/{acronym}/classes, i.e., the paged list of classes */
+	CLASSES ( "classes" ),
+	/** /ontologies/{acronym}/classes/{iri} */
+	CLASS ( "class" ),
+	/** /ontologies/{acronym}/classes/{iri}/mappings */
+	MAPPINGS ( "mappings" ),
+	CHILDREN ( "children" ),
+	DESCENDANTS ( "descendants" ),
+	PARENTS ( "parents" ),
+	ANCESTORS ( "ancestors" ),
+	/** Anything else */
+	OTHER ( "other" );
+
+	private final String id;
+
+	private BioportalEndpoint ( String id )
+	{
+		this.id = id;
+	}
+
+	/**
+	 * A short name, used for JMX and in reports.
+	 */
+	public String getId ()
+	{
+		return id;
+	}
+
+	/**
+	 * The endpoint a service path (as passed to
+	 * {@link uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils#invokeBioportal(String, String, String...)})
+	 * belongs to. Class IRIs are URL-encoded in these paths, so they don't contain slashes.
+	 */
+	public static BioportalEndpoint fromServicePath ( String servicePath )
+	{
+		if ( servicePath == null ) return OTHER;
+		String[] chunks = servicePath.replaceAll ( "^/+|/+$", "" ).split ( "/+" );
+
+		if ( chunks.length == 1 && "annotator".equals ( chunks [ 0 ] ) ) return ANNOTATOR;
+		if ( !"ontologies".equals ( chunks [ 0 ] ) || chunks.length < 2 ) return OTHER;
+
+		if ( chunks.length == 2 ) return ONTOLOGY;
+		if ( chunks.length == 3 )
+			return "latest_submission".equals ( chunks [ 2 ] ) ? SUBMISSION
+				: "classes".equals ( chunks [ 2 ] ) ? CLASSES
+				: OTHER;
+
+		if ( !"classes".equals ( chunks [ 2 ] ) || chunks.length > 5 ) return OTHER;
+		if ( chunks.length == 4 ) return CLASS;
+
+		switch ( chunks [ 4 ] )
+		{
+			case "mappings": return MAPPINGS;
+			case "children": return CHILDREN;
+			case "descendants": return DESCENDANTS;
+			case "parents": return PARENTS;
+			case "ancestors": return ANCESTORS;
+			default: return OTHER;
+		}
+	}
+}
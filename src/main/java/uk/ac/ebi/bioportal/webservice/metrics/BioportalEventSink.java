@@ -0,0 +1,41 @@
+package uk.ac.ebi.bioportal.webservice.metrics;
+
+/**
+ * Receives the low-level events of the client, see {@link BioportalEvents}. Implementations must be cheap, since
+ * they're called on the hot path.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public interface BioportalEventSink
+{
+	/**
+	 * Called just before sending an HTTP request.
+	 *
+	 * @return an object to be passed to {@link #endInvocation(Object, BioportalEndpoint, int, long, long, int)},
+	 * which can be null, e.g., when the sink isn't recording anything.
+	 */
+	public Object beginInvocation ();
+
+	/**
+	 * Called when the HTTP call is over, whatever the outcome.
+	 *
+	 * @param status the HTTP status, 0 if there was no response.
+	 * @param permitWaitNanos how long the call waited for its rate limiting permit.
+	 * @param attempt the attempt no., starting from 1 ({@literal >} 1 means a retry).
+	 */
+	public void endInvocation (
+		Object invocation, BioportalEndpoint endpoint, int status, long bytes, long permitWaitNanos, int attempt
+	);
+
+	/**
+	 * @param isHit if false, the value wasn't there or it was expired.
+	 */
+	public void cacheLookup ( String cacheName, boolean isHit, boolean isExpired );
+
+	/**
+	 * Called when a missing value has been fetched from Bioportal.
+	 */
+	public void cacheLoad ( String cacheName, long loadNanos, boolean isFailed );
+}
@@ -0,0 +1,111 @@
+package uk.ac.ebi.bioportal.webservice.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Dispatches the low-level events of the client (Bioportal invocations, cache lookups and loads) to a
+ * {@link BioportalEventSink}.</p>
+ *
+ * <p>By default, when the client runs on a JVM with Java Flight Recorder (Java 11 or later) and it was built
+ * with the <code>jfr</code> Maven profile (automatically active on such JDKs), the events are emitted as JFR
+ * events (see <code>uk.ac.ebi.bioportal.webservice.metrics.jfr</code>), so that they can be correlated with
+ * GC and thread activity in a recording. The JFR classes are loaded only in that case, on older JVMs, or when
+ * {@link #JFR_ENABLED_PROP_NAME} is false, the events go nowhere.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public final class BioportalEvents
+{
+	/**
+	 * If false, no JFR event is emitted. Default is true.
+	 */
+	public static final String JFR_ENABLED_PROP_NAME = "uk.ac.ebi.bioportal.jfr_enabled";
+
+	private static final String JFR_SINK_CLASS = "uk.ac.ebi.bioportal.webservice.metrics.jfr.JfrEventSink";
+
+	private static final BioportalEventSink NO_OP_SINK = new BioportalEventSink ()
+	{
+		@Override
+		public Object beginInvocation () {
+			return null;
+		}
+
+		@Override
+		public void endInvocation (
+			Object invocation, BioportalEndpoint endpoint, int status, long bytes, long permitWaitNanos, int attempt
+		) {
+		}
+
+		@Override
+		public void cacheLookup ( String cacheName, boolean isHit, boolean isExpired ) {
+		}
+
+		@Override
+		public void cacheLoad ( String cacheName, long loadNanos, boolean isFailed ) {
+		}
+	};
+
+	private static volatile BioportalEventSink sink = loadDefaultSink ();
+
+	private BioportalEvents () {
+	}
+
+	private static BioportalEventSink loadDefaultSink ()
+	{
+		if ( !Boolean.parseBoolean ( System.getProperty ( JFR_ENABLED_PROP_NAME, "true" ) ) ) return NO_OP_SINK;
+
+		Logger log = LoggerFactory.getLogger ( BioportalEvents.class );
+		try
+		{
+			Class.forName ( "jdk.jfr.Event" );
+			BioportalEventSink result = (BioportalEventSink) Class.forName ( JFR_SINK_CLASS ).newInstance ();
+			log.debug ( "Bioportal client events will be sent to Java Flight Recorder" );
+			return result;
+		}
+		catch ( ClassNotFoundException | LinkageError ex ) {
+			log.debug ( "Java Flight Recorder not available, Bioportal client events disabled" );
+		}
+		catch ( InstantiationException | IllegalAccessException ex ) {
+			log.warn ( "Can't initialise the Bioportal JFR events, disabling them: " + ex.getMessage (), ex );
+		}
+		return NO_OP_SINK;
+	}
+
+	public static BioportalEventSink getSink ()
+	{
+		return sink;
+	}
+
+	/**
+	 * Replaces the current sink, e.g., to send the events to another profiler. Null means no events.
+	 */
+	public static void setSink ( BioportalEventSink sink )
+	{
+		BioportalEvents.sink = sink == null ? NO_OP_SINK : sink;
+	}
+
+	public static Object beginInvocation ()
+	{
+		return sink.beginInvocation ();
+	}
+
+	public static void endInvocation (
+		Object invocation, BioportalEndpoint endpoint, int status, long bytes, long permitWaitNanos, int attempt
+	)
+	{
+		sink.endInvocation ( invocation, endpoint, status, bytes, permitWaitNanos, attempt );
+	}
+
+	public static void cacheLookup ( String cacheName, boolean isHit, boolean isExpired )
+	{
+		sink.cacheLookup ( cacheName, isHit, isExpired );
+	}
+
+	public static void cacheLoad ( String cacheName, long loadNanos, boolean isFailed )
+	{
+		sink.cacheLoad ( cacheName, loadNanos, isFailed );
+	}
+}
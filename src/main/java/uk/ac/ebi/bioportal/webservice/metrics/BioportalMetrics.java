@@ -0,0 +1,112 @@
+package uk.ac.ebi.bioportal.webservice.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>JVM-wide metrics about the calls to Bioportal, kept per {@link BioportalEndpoint endpoint}, see
+ * {@link EndpointMetrics}. They cover all the clients and API keys.</p>
+ *
+ * <p>They can be read programmatically, via {@link #getSnapshot()}, or via JMX, where each endpoint is registered
+ * as <code>uk.ac.ebi.bioportal:type=EndpointMetrics,endpoint=&lt;{@link BioportalEndpoint#getId() id}&gt;</code>,
+ * unless {@link #JMX_ENABLED_PROP_NAME} is false.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class BioportalMetrics
+{
+	/**
+	 * Whether the metrics are registered with the platform JMX server. Default is true.
+	 */
+	public static final String JMX_ENABLED_PROP_NAME = "uk.ac.ebi.bioportal.jmx_enabled";
+
+	public static final String JMX_DOMAIN = "uk.ac.ebi.bioportal";
+
+	private static final BioportalMetrics INSTANCE = new BioportalMetrics ();
+
+	private final Map<BioportalEndpoint, EndpointMetrics> endpoints;
+
+	private Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+	private BioportalMetrics ()
+	{
+		Map<BioportalEndpoint, EndpointMetrics> endpoints = new EnumMap<> ( BioportalEndpoint.class );
+		for ( BioportalEndpoint endpoint: BioportalEndpoint.values () )
+			endpoints.put ( endpoint, new EndpointMetrics ( endpoint ) );
+		this.endpoints = Collections.unmodifiableMap ( endpoints );
+
+		if ( Boolean.parseBoolean ( System.getProperty ( JMX_ENABLED_PROP_NAME, "true" ) ) ) registerMBeans ();
+	}
+
+	public static BioportalMetrics getInstance ()
+	{
+		return INSTANCE;
+	}
+
+	private void registerMBeans ()
+	{
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer ();
+		for ( EndpointMetrics metrics: endpoints.values () )
+		{
+			try {
+				mbeanServer.registerMBean ( metrics, getObjectName ( metrics.getEndpoint () ) );
+			}
+			catch ( InstanceAlreadyExistsException ex ) {
+				// e.g., the client is loaded by more class loaders
+				log.debug ( "Bioportal metrics for '{}' already registered with JMX", metrics.getEndpoint ().getId () );
+			}
+			catch ( JMException ex ) {
+				log.warn ( "Can't register the Bioportal metrics with JMX: " + ex.getMessage (), ex );
+				return;
+			}
+		}
+	}
+
+	/**
+	 * The JMX name of the metrics about an endpoint.
+	 */
+	public static ObjectName getObjectName ( BioportalEndpoint endpoint ) throws JMException
+	{
+		return new ObjectName ( JMX_DOMAIN + ":type=EndpointMetrics,endpoint=" + endpoint.getId () );
+	}
+
+
+	/**
+	 * The live metrics for an endpoint, which is where the calls are recorded.
+	 */
+	public EndpointMetrics getEndpointMetrics ( BioportalEndpoint endpoint )
+	{
+		return endpoints.get ( endpoint );
+	}
+
+	/**
+	 * The live metrics for the {@link BioportalEndpoint#fromServicePath(String) endpoint of a service path}.
+	 */
+	public EndpointMetrics getEndpointMetrics ( String servicePath )
+	{
+		return endpoints.get ( BioportalEndpoint.fromServicePath ( servicePath ) );
+	}
+
+	/**
+	 * A copy of the current metrics of each endpoint, e.g., to be compared with a later snapshot.
+	 */
+	public Map<BioportalEndpoint, EndpointMetrics> getSnapshot ()
+	{
+		Map<BioportalEndpoint, EndpointMetrics> result = new EnumMap<> ( BioportalEndpoint.class );
+		for ( EndpointMetrics metrics: endpoints.values () )
+			result.put ( metrics.getEndpoint (), metrics.snapshot () );
+		return result;
+	}
+}
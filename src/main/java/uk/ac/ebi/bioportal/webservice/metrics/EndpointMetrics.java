@@ -0,0 +1,241 @@
+package uk.ac.ebi.bioportal.webservice.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>The metrics about the calls to a {@link BioportalEndpoint}, see {@link BioportalMetrics}.</p>
+ *
+ * <p>The latency is the time from sending the HTTP request to having read the response, i.e., what the server
+ * and the network take. The permit wait is the time a call spends in the client, waiting for the rate limiter
+ * and the concurrency limit, before the request is sent. Comparing the two tells whether slow calls are
+ * due to the server or to our own limits.</p>
+ *
+ * <p>The bytes received are counted as they come from the network, i.e., compressed when the server compresses
+ * the response, and after decompression, so that the two can be compared to see the bandwidth savings.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class EndpointMetrics implements EndpointMetricsMXBean
+{
+	private final BioportalEndpoint endpoint;
+	private final LatencyHistogram latency;
+	private final LatencyHistogram permitWait;
+	private final AtomicInteger inFlightCount;
+	private final AtomicLong bytesReceived;
+	private final AtomicLong uncompressedBytesReceived;
+	private final ConcurrentMap<Integer, AtomicLong> statusCounts;
+
+	EndpointMetrics ( BioportalEndpoint endpoint )
+	{
+		this.endpoint = endpoint;
+		this.latency = new LatencyHistogram ();
+		this.permitWait = new LatencyHistogram ();
+		this.inFlightCount = new AtomicInteger ( 0 );
+		this.bytesReceived = new AtomicLong ( 0 );
+		this.uncompressedBytesReceived = new AtomicLong ( 0 );
+		this.statusCounts = new ConcurrentHashMap<> ();
+	}
+
+	/**
+	 * Used by {@link #snapshot()}.
+	 */
+	private EndpointMetrics ( EndpointMetrics source )
+	{
+		this.endpoint = source.endpoint;
+		this.latency = source.latency.copy ();
+		this.permitWait = source.permitWait.copy ();
+		this.inFlightCount = new AtomicInteger ( source.inFlightCount.get () );
+		this.bytesReceived = new AtomicLong ( source.bytesReceived.get () );
+		this.uncompressedBytesReceived = new AtomicLong ( source.uncompressedBytesReceived.get () );
+		this.statusCounts = new ConcurrentHashMap<> ();
+		for ( Map.Entry<Integer, AtomicLong> e: source.statusCounts.entrySet () )
+			this.statusCounts.put ( e.getKey (), new AtomicLong ( e.getValue ().get () ) );
+	}
+
+
+	/**
+	 * To be called when the HTTP request is about to be sent.
+	 */
+	public void onCallStart ()
+	{
+		inFlightCount.incrementAndGet ();
+	}
+
+	/**
+	 * To be called after {@link #onCallStart()}, when the call is over, whatever the outcome.
+	 *
+	 * @param status the HTTP status, 0 if the call didn't get any response.
+	 */
+	public void onCallEnd ( int status, long latencyNanos )
+	{
+		inFlightCount.decrementAndGet ();
+		latency.recordNanos ( latencyNanos );
+
+		AtomicLong counter = statusCounts.get ( status );
+		if ( counter == null ) {
+			AtomicLong newCounter = new AtomicLong ( 0 );
+			counter = statusCounts.putIfAbsent ( status, newCounter );
+			if ( counter == null ) counter = newCounter;
+		}
+		counter.incrementAndGet ();
+	}
+
+	/**
+	 * @param bytes the bytes read from the network
+	 * @param uncompressedBytes the same bytes after decompression, equal to bytes if the response wasn't compressed
+	 */
+	public void addBytesReceived ( long bytes, long uncompressedBytes )
+	{
+		bytesReceived.addAndGet ( bytes );
+		uncompressedBytesReceived.addAndGet ( uncompressedBytes );
+	}
+
+	public void recordPermitWait ( long waitNanos )
+	{
+		permitWait.recordNanos ( waitNanos );
+	}
+
+
+	/**
+	 * A copy of the current metrics, which isn't affected by later calls.
+	 */
+	public EndpointMetrics snapshot ()
+	{
+		return new EndpointMetrics ( this );
+	}
+
+	public BioportalEndpoint getEndpoint ()
+	{
+		return endpoint;
+	}
+
+	/**
+	 * The latencies of the completed calls, including the failed ones.
+	 */
+	public LatencyHistogram getLatency ()
+	{
+		return latency;
+	}
+
+	/**
+	 * The time that calls waited for their permit. This includes calls that didn't go ahead because of their
+	 * deadline.
+	 */
+	public LatencyHistogram getPermitWait ()
+	{
+		return permitWait;
+	}
+
+	/**
+	 * The no. of completed calls.
+	 */
+	@Override
+	public long getCallCount ()
+	{
+		return latency.getCount ();
+	}
+
+	@Override
+	public int getInFlightCount ()
+	{
+		return inFlightCount.get ();
+	}
+
+	@Override
+	public long getBytesReceived ()
+	{
+		return bytesReceived.get ();
+	}
+
+	@Override
+	public long getUncompressedBytesReceived ()
+	{
+		return uncompressedBytesReceived.get ();
+	}
+
+	@Override
+	public Map<Integer, Long> getStatusCounts ()
+	{
+		Map<Integer, Long> result = new TreeMap<> ();
+		for ( Map.Entry<Integer, AtomicLong> e: statusCounts.entrySet () )
+			result.put ( e.getKey (), e.getValue ().get () );
+		return Collections.unmodifiableMap ( result );
+	}
+
+	/**
+	 * The no. of calls that got the given HTTP status.
+	 */
+	public long getStatusCount ( int status )
+	{
+		AtomicLong counter = statusCounts.get ( status );
+		return counter == null ? 0 : counter.get ();
+	}
+
+	@Override
+	public double getLatencyMeanMillis ()
+	{
+		return latency.getMeanMillis ();
+	}
+
+	@Override
+	public double getLatencyP50Millis ()
+	{
+		return latency.getPercentileMillis ( 50 );
+	}
+
+	@Override
+	public double getLatencyP95Millis ()
+	{
+		return latency.getPercentileMillis ( 95 );
+	}
+
+	@Override
+	public double getLatencyP99Millis ()
+	{
+		return latency.getPercentileMillis ( 99 );
+	}
+
+	@Override
+	public double getLatencyP999Millis ()
+	{
+		return latency.getPercentileMillis ( 99.9 );
+	}
+
+	@Override
+	public double getLatencyMaxMillis ()
+	{
+		return latency.getMaxMillis ();
+	}
+
+	@Override
+	public double getPermitWaitMeanMillis ()
+	{
+		return permitWait.getMeanMillis ();
+	}
+
+	@Override
+	public double getPermitWaitP50Millis ()
+	{
+		return permitWait.getPercentileMillis ( 50 );
+	}
+
+	@Override
+	public double getPermitWaitP99Millis ()
+	{
+		return permitWait.getPercentileMillis ( 99 );
+	}
+
+	@Override
+	public double getPermitWaitMaxMillis ()
+	{
+		return permitWait.getMaxMillis ();
+	}
+}
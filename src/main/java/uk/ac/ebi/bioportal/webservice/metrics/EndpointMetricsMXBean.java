@@ -0,0 +1,42 @@
+package uk.ac.ebi.bioportal.webservice.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link EndpointMetrics}. Times are in ms, all the values are cumulative since the JVM start.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public interface EndpointMetricsMXBean
+{
+	public long getCallCount ();
+	public int getInFlightCount ();
+	/**
+	 * The response bytes read from the network, i.e., compressed, when Bioportal compresses the response.
+	 */
+	public long getBytesReceived ();
+
+	/**
+	 * The response bytes after decompression.
+	 */
+	public long getUncompressedBytesReceived ();
+
+	/**
+	 * No. of calls per HTTP status, status 0 means calls that got no HTTP response (e.g., connection errors).
+	 */
+	public Map<Integer, Long> getStatusCounts ();
+
+	public double getLatencyMeanMillis ();
+	public double getLatencyP50Millis ();
+	public double getLatencyP95Millis ();
+	public double getLatencyP99Millis ();
+	public double getLatencyP999Millis ();
+	public double getLatencyMaxMillis ();
+
+	public double getPermitWaitMeanMillis ();
+	public double getPermitWaitP50Millis ();
+	public double getPermitWaitP99Millis ();
+	public double getPermitWaitMaxMillis ();
+}
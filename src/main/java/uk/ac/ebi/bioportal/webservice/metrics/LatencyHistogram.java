@@ -0,0 +1,122 @@
+package uk.ac.ebi.bioportal.webservice.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A thread-safe, fixed-size latency histogram, in the style of HdrHistogram: values are recorded in 
+ * microseconds, in buckets whose width grows with the value (log-linear), so that percentiles have a relative 
+ * error of at most 1/32 (about 3.1%, since each bucket is 1/16 of its lower bound wide and percentiles report its 
+ * middle), from 1 microsecond up to about 12 days, with a few KB of memory and no allocations when recording.</p>
+ *
+ * <p>The count, mean and max are exact.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class LatencyHistogram
+{
+	/** Each power of 2 is split into this no. of buckets */
+	private static final int SUB_BUCKETS = 16;
+	private static final int SUB_BUCKET_BITS = 4;
+	/** Values up to here have a bucket each */
+	private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+	private static final int MAX_EXPONENT = 39;
+	private static final long MAX_VALUE = ( 1L << ( MAX_EXPONENT + 1 ) ) - 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray (
+		LINEAR_BUCKETS + ( MAX_EXPONENT - SUB_BUCKET_BITS ) * SUB_BUCKETS
+	);
+	private final AtomicLong count = new AtomicLong ( 0 );
+	private final AtomicLong sum = new AtomicLong ( 0 );
+	private final AtomicLong max = new AtomicLong ( 0 );
+
+
+	public void record ( long duration, TimeUnit timeUnit )
+	{
+		long value = Math.min ( MAX_VALUE, Math.max ( 0, timeUnit.toMicros ( duration ) ) );
+		counts.incrementAndGet ( getIndex ( value ) );
+		count.incrementAndGet ();
+		sum.addAndGet ( value );
+		for ( long oldMax = max.get (); value > oldMax && !max.compareAndSet ( oldMax, value ); oldMax = max.get () );
+	}
+
+	public void recordNanos ( long nanos )
+	{
+		record ( nanos, TimeUnit.NANOSECONDS );
+	}
+
+
+	private static int getIndex ( long value )
+	{
+		if ( value < LINEAR_BUCKETS ) return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros ( value );
+		int shift = exponent - SUB_BUCKET_BITS;
+		return LINEAR_BUCKETS + ( exponent - SUB_BUCKET_BITS - 1 ) * SUB_BUCKETS + (int) ( value >> shift ) - SUB_BUCKETS;
+	}
+
+	/**
+	 * The middle of the bucket range, in microseconds.
+	 */
+	private static double getBucketValue ( int index )
+	{
+		if ( index < LINEAR_BUCKETS ) return index;
+		int k = index - LINEAR_BUCKETS;
+		int shift = k / SUB_BUCKETS + 1;
+		long low = (long) ( SUB_BUCKETS + k % SUB_BUCKETS ) << shift;
+		return low + ( ( 1L << shift ) - 1 ) / 2d;
+	}
+
+
+	public long getCount ()
+	{
+		return count.get ();
+	}
+
+	/**
+	 * The value below which the given percentage of the recorded values fall, in ms, 0 if nothing was recorded.
+	 *
+	 * @param percentile between 0 and 100, e.g., 99.9.
+	 */
+	public double getPercentileMillis ( double percentile )
+	{
+		long total = 0;
+		long[] snapshot = new long [ counts.length () ];
+		for ( int i = 0; i < snapshot.length; i++ ) total += snapshot [ i ] = counts.get ( i );
+		if ( total == 0 ) return 0;
+
+		long target = Math.max ( 1, (long) Math.ceil ( Math.min ( 100, percentile ) / 100d * total ) );
+		long seen = 0;
+		for ( int i = 0; i < snapshot.length; i++ )
+			if ( ( seen += snapshot [ i ] ) >= target )
+				return Math.min ( getBucketValue ( i ), max.get () ) / 1000d;
+
+		return max.get () / 1000d;
+	}
+
+	public double getMeanMillis ()
+	{
+		long n = count.get ();
+		return n == 0 ? 0 : sum.get () / 1000d / n;
+	}
+
+	public double getMaxMillis ()
+	{
+		return max.get () / 1000d;
+	}
+
+	/**
+	 * A copy of the current state, which isn't affected by the values recorded afterwards.
+	 */
+	public LatencyHistogram copy ()
+	{
+		LatencyHistogram result = new LatencyHistogram ();
+		for ( int i = 0; i < counts.length (); i++ ) result.counts.set ( i, counts.get ( i ) );
+		result.count.set ( count.get () );
+		result.sum.set ( sum.get () );
+		result.max.set ( max.get () );
+		return result;
+	}
+}
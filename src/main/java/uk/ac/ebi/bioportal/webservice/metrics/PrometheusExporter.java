@@ -0,0 +1,417 @@
+package uk.ac.ebi.bioportal.webservice.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.bioportal.webservice.cache.CacheStatistics;
+import uk.ac.ebi.bioportal.webservice.client.BioportalClient;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
+import uk.ac.ebi.bioportal.webservice.utils.AdaptiveRateController;
+import uk.ac.ebi.bioportal.webservice.utils.ApiKeyPool.KeySlot;
+import uk.ac.ebi.bioportal.webservice.utils.BioportalInvoker;
+import uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils;
+import uk.ac.ebi.bioportal.webservice.utils.CircuitBreaker;
+import uk.ac.ebi.bioportal.webservice.utils.PriorityLane;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>Serves the client metrics in the <a href = "https://prometheus.io/docs/instrumenting/exposition_formats/">Prometheus
+ * text format</a>, at <code>http://&lt;host&gt;:&lt;port&gt;/metrics</code>, using the JDK's built-in HTTP server,
+ * so that long-running services can be scraped by Prometheus without further dependencies.</p>
+ *
+ * <p>This exports the JVM-wide {@link BioportalMetrics} (calls per endpoint and HTTP status, latency and rate
+ * limiter wait summaries, bytes, calls in flight) and, for each client {@link #addClient(String, BioportalClient)
+ * added} to the exporter, the rate limiting state of its API keys (current rate, throttled calls, retries, queued
+ * calls, circuit breaker) and its {@link BioportalClient#getCacheStatistics() cache statistics}. API keys are
+ * identified by their position in the client's {@link BioportalClient#getApiKeyPool() key pool}, never by
+ * their value.</p>
+ *
+ * <p>Latencies are reported as summaries, in seconds, with precomputed quantiles, since that's what
+ * {@link LatencyHistogram} can provide cheaply. All the values are cumulative since the JVM (or client) start, as
+ * Prometheus expects.</p>
+ *
+ * <p>The exporter is started by its constructor and binds to the loopback address unless told otherwise, it's
+ * stopped by {@link #close()}. If {@link #PORT_PROP_NAME} is set, {@link #getDefault()} gives a JVM-wide
+ * exporter listening on that port.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class PrometheusExporter implements AutoCloseable
+{
+	/**
+	 * The port used by the {@link #getDefault() default exporter}, which isn't started if this isn't set.
+	 */
+	public static final String PORT_PROP_NAME = "uk.ac.ebi.bioportal.prometheus_port";
+
+	/**
+	 * The address the {@link #getDefault() default exporter} binds to. Default is the loopback address,
+	 * use 0.0.0.0 to listen on all the interfaces.
+	 */
+	public static final String HOST_PROP_NAME = "uk.ac.ebi.bioportal.prometheus_host";
+
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final double[] QUANTILES = new double[] { 0.5, 0.95, 0.99, 0.999 };
+
+	private static PrometheusExporter defaultExporter = null;
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Map<String, BioportalClient> clients = new ConcurrentHashMap<> ();
+
+	private static final Logger log = LoggerFactory.getLogger ( PrometheusExporter.class );
+
+
+	/**
+	 * A builder for a scrape output. Prometheus requires that all the samples of a metric are listed together,
+	 * after their HELP and TYPE, so we collect them per metric name, and write them at the end.
+	 */
+	private static class MetricsWriter
+	{
+		private final Map<String, StringBuilder> families = new LinkedHashMap<> ();
+
+		public void declare ( String name, String type, String help )
+		{
+			if ( families.containsKey ( name ) ) return;
+			families.put ( name, new StringBuilder ( "# HELP " + name + " " + help + "\n# TYPE " + name + " " + type + "\n" ) );
+		}
+
+		/**
+		 * @param labels name/value pairs
+		 */
+		public void sample ( String family, String suffix, double value, String... labels )
+		{
+			StringBuilder sb = families.get ( family );
+			sb.append ( family ).append ( suffix );
+			if ( labels.length > 0 )
+			{
+				sb.append ( '{' );
+				for ( int i = 0; i < labels.length; i += 2 )
+				{
+					if ( i > 0 ) sb.append ( ',' );
+					sb.append ( labels [ i ] ).append ( "=\"" ).append ( escape ( labels [ i + 1 ] ) ).append ( '"' );
+				}
+				sb.append ( '}' );
+			}
+			sb.append ( ' ' ).append ( format ( value ) ).append ( '\n' );
+		}
+
+		public void sample ( String family, double value, String... labels ) {
+			sample ( family, "", value, labels );
+		}
+
+		/**
+		 * Writes a summary, in seconds, using the percentiles from the histogram.
+		 */
+		public void summary ( String family, LatencyHistogram histogram, String... labels )
+		{
+			String[] qlabels = new String [ labels.length + 2 ];
+			System.arraycopy ( labels, 0, qlabels, 0, labels.length );
+			qlabels [ labels.length ] = "quantile";
+
+			long count = histogram.getCount ();
+			for ( double quantile: QUANTILES )
+			{
+				qlabels [ labels.length + 1 ] = format ( quantile );
+				sample ( family, count == 0 ? Double.NaN : histogram.getPercentileMillis ( quantile * 100 ) / 1000d, qlabels );
+			}
+			sample ( family, "_sum", histogram.getMeanMillis () * count / 1000d, labels );
+			sample ( family, "_count", count, labels );
+		}
+
+		@Override
+		public String toString ()
+		{
+			StringBuilder sb = new StringBuilder ();
+			for ( StringBuilder family: families.values () ) sb.append ( family );
+			return sb.toString ();
+		}
+
+		private static String escape ( String labelValue )
+		{
+			return labelValue.replace ( "\\", "\\\\" ).replace ( "\"", "\\\"" ).replace ( "\n", "\\n" );
+		}
+
+		private static String format ( double value )
+		{
+			if ( Double.isNaN ( value ) ) return "NaN";
+			if ( Double.isInfinite ( value ) ) return value > 0 ? "+Inf" : "-Inf";
+			if ( value == Math.rint ( value ) && Math.abs ( value ) < 1E15 ) return Long.toString ( (long) value );
+			return Double.toString ( value );
+		}
+	}
+
+
+	/**
+	 * Listens on the loopback address.
+	 *
+	 * @param port 0 for a random free port, see {@link #getPort()}.
+	 */
+	public PrometheusExporter ( int port )
+	{
+		this ( new InetSocketAddress ( InetAddress.getLoopbackAddress (), port ) );
+	}
+
+	public PrometheusExporter ( InetSocketAddress address )
+	{
+		try {
+			server = HttpServer.create ( address, 0 );
+		}
+		catch ( IOException ex ) {
+			throw new OntologyServiceException (
+				"Error while starting the Bioportal metrics exporter at " + address + ": " + ex.getMessage (), ex
+			);
+		}
+		// Scrapes are rare and quick, one thread is enough
+		executor = Executors.newSingleThreadExecutor (
+			new ThreadFactoryBuilder ().setDaemon ( true ).setNameFormat ( "bioportal-prometheus-%d" ).build ()
+		);
+		server.setExecutor ( executor );
+		server.createContext ( "/metrics", new HttpHandler ()
+		{
+			@Override
+			public void handle ( HttpExchange exchange ) throws IOException {
+				PrometheusExporter.this.handle ( exchange );
+			}
+		});
+		server.start ();
+		log.info ( "Bioportal metrics exporter started at http://{}:{}/metrics", address.getHostString (), getPort () );
+	}
+
+
+	/**
+	 * A JVM-wide exporter, started on the first invocation, if {@link #PORT_PROP_NAME} is set, null otherwise.
+	 * {@link BioportalClient} doesn't add itself here automatically, use {@link #addClient(String, BioportalClient)}.
+	 */
+	public static synchronized PrometheusExporter getDefault ()
+	{
+		if ( defaultExporter != null ) return defaultExporter;
+
+		String port = System.getProperty ( PORT_PROP_NAME );
+		if ( port == null ) return null;
+		String host = System.getProperty ( HOST_PROP_NAME );
+		InetSocketAddress address = host == null
+			? new InetSocketAddress ( InetAddress.getLoopbackAddress (), Integer.parseInt ( port ) )
+			: new InetSocketAddress ( host, Integer.parseInt ( port ) );
+
+		return defaultExporter = new PrometheusExporter ( address );
+	}
+
+
+	private void handle ( HttpExchange exchange ) throws IOException
+	{
+		try
+		{
+			if ( !"GET".equals ( exchange.getRequestMethod () ) && !"HEAD".equals ( exchange.getRequestMethod () ) ) {
+				exchange.sendResponseHeaders ( 405, -1 );
+				return;
+			}
+
+			byte[] body = scrape ().getBytes ( Charset.forName ( "UTF-8" ) );
+			exchange.getResponseHeaders ().set ( "Content-Type", CONTENT_TYPE );
+			if ( "HEAD".equals ( exchange.getRequestMethod () ) ) {
+				exchange.sendResponseHeaders ( 200, -1 );
+				return;
+			}
+			exchange.sendResponseHeaders ( 200, body.length );
+			try ( OutputStream out = exchange.getResponseBody () ) {
+				out.write ( body );
+			}
+		}
+		catch ( RuntimeException ex )
+		{
+			log.error ( "Error while exporting the Bioportal metrics: " + ex.getMessage (), ex );
+			exchange.sendResponseHeaders ( 500, -1 );
+		}
+		finally {
+			exchange.close ();
+		}
+	}
+
+
+	/**
+	 * The current metrics, in the Prometheus text format. This is what the HTTP endpoint returns, you can use it
+	 * directly if you have your own web server.
+	 */
+	public String scrape ()
+	{
+		MetricsWriter out = new MetricsWriter ();
+		writeEndpointMetrics ( out );
+
+		out.declare ( "bioportal_shared_rate_limit", "gauge",
+			"The current rate limit of the JVM-wide executor used by the static invocations, in calls/s"
+		);
+		out.sample ( "bioportal_shared_rate_limit", BioportalWebServiceUtils.RATE_LIMITING_WRAPPER.getRate () );
+
+		for ( Map.Entry<String, BioportalClient> entry: new TreeMap<> ( clients ).entrySet () )
+		{
+			writeKeyMetrics ( out, entry.getKey (), entry.getValue () );
+			writeCacheMetrics ( out, entry.getKey (), entry.getValue ().getCacheStatistics () );
+		}
+		return out.toString ();
+	}
+
+	private void writeEndpointMetrics ( MetricsWriter out )
+	{
+		out.declare ( "bioportal_calls_total", "counter", "HTTP calls to Bioportal, per endpoint and HTTP status (0 = no response)" );
+		out.declare ( "bioportal_calls_in_flight", "gauge", "HTTP calls to Bioportal that are waiting for the response" );
+		out.declare ( "bioportal_received_bytes_total", "counter", "Bytes received from Bioportal, compressed if the response was" );
+		out.declare ( "bioportal_received_uncompressed_bytes_total", "counter", "Bytes received from Bioportal, after decompression" );
+		out.declare ( "bioportal_call_latency_seconds", "summary", "Latency of the HTTP calls to Bioportal" );
+		out.declare ( "bioportal_permit_wait_seconds", "summary", "Time the calls waited for a rate limiting permit" );
+
+		for ( EndpointMetrics metrics: BioportalMetrics.getInstance ().getSnapshot ().values () )
+		{
+			String endpoint = metrics.getEndpoint ().getId ();
+			for ( Map.Entry<Integer, Long> statusCount: metrics.getStatusCounts ().entrySet () )
+				out.sample ( "bioportal_calls_total", statusCount.getValue (),
+					"endpoint", endpoint, "status", String.valueOf ( statusCount.getKey () )
+				);
+			out.sample ( "bioportal_calls_in_flight", metrics.getInFlightCount (), "endpoint", endpoint );
+			out.sample ( "bioportal_received_bytes_total", metrics.getBytesReceived (), "endpoint", endpoint );
+			out.sample ( "bioportal_received_uncompressed_bytes_total", metrics.getUncompressedBytesReceived (), "endpoint", endpoint );
+			out.summary ( "bioportal_call_latency_seconds", metrics.getLatency (), "endpoint", endpoint );
+			out.summary ( "bioportal_permit_wait_seconds", metrics.getPermitWait (), "endpoint", endpoint );
+		}
+	}
+
+	private void writeKeyMetrics ( MetricsWriter out, String clientName, BioportalClient client )
+	{
+		out.declare ( "bioportal_key_calls_total", "counter", "HTTP calls issued with an API key, including retries" );
+		out.declare ( "bioportal_key_throttled_total", "counter", "Calls that Bioportal throttled (HTTP 429, or 503 with Retry-After)" );
+		out.declare ( "bioportal_key_retries_total", "counter", "Retries of failed calls" );
+		out.declare ( "bioportal_key_failed_retries_total", "counter", "Retries that failed" );
+		out.declare ( "bioportal_key_rate_limit", "gauge", "The current rate limit of an API key, in calls/s" );
+		out.declare ( "bioportal_key_max_rate_limit", "gauge", "The configured max rate of an API key, in calls/s" );
+		out.declare ( "bioportal_key_concurrency_limit", "gauge", "The current limit to the concurrent calls of an API key" );
+		out.declare ( "bioportal_key_in_flight", "gauge", "The calls of an API key that are in flight" );
+		out.declare ( "bioportal_key_queued_calls", "gauge", "Calls waiting for a rate limiting permit, per lane" );
+		out.declare ( "bioportal_key_benched", "gauge", "1 if the API key is out of rotation due to failures" );
+		out.declare ( "bioportal_circuit_breaker_open", "gauge", "1 if the client's circuit breaker isn't closed" );
+		out.declare ( "bioportal_circuit_breaker_opened_total", "counter", "How many times the circuit breaker was opened" );
+		out.declare ( "bioportal_circuit_breaker_rejected_total", "counter", "Calls failed fast by the circuit breaker" );
+
+		List<KeySlot> slots = client.getApiKeyPool ().getSlots ();
+		for ( int i = 0; i < slots.size (); i++ )
+		{
+			KeySlot slot = slots.get ( i );
+			BioportalInvoker invoker = slot.getInvoker ();
+			AdaptiveRateController rateController = invoker.getRateController ();
+			String key = String.valueOf ( i );
+
+			out.sample ( "bioportal_key_calls_total", invoker.getCallCount (), "client", clientName, "key", key );
+			out.sample ( "bioportal_key_throttled_total", invoker.getThrottledCount (), "client", clientName, "key", key );
+			out.sample ( "bioportal_key_retries_total", invoker.getRetryCount (), "client", clientName, "key", key );
+			out.sample ( "bioportal_key_failed_retries_total", invoker.getFailedRetryCount (), "client", clientName, "key", key );
+			out.sample ( "bioportal_key_rate_limit", invoker.getRateLimiter ().getRate (), "client", clientName, "key", key );
+			out.sample ( "bioportal_key_max_rate_limit", invoker.getMaxRate (), "client", clientName, "key", key );
+			out.sample ( "bioportal_key_concurrency_limit", rateController.getConcurrencyLimit (), "client", clientName, "key", key );
+			out.sample ( "bioportal_key_in_flight", rateController.getInFlight (), "client", clientName, "key", key );
+			for ( PriorityLane lane: PriorityLane.values () )
+				out.sample ( "bioportal_key_queued_calls", invoker.getPermitScheduler ().getQueueLength ( lane ),
+					"client", clientName, "key", key, "lane", lane.name ().toLowerCase ()
+				);
+			out.sample ( "bioportal_key_benched", slot.isBenched () ? 1 : 0, "client", clientName, "key", key );
+		}
+
+		CircuitBreaker breaker = client.getApiKeyPool ().getCircuitBreaker ();
+		out.sample ( "bioportal_circuit_breaker_open", breaker.getState () == CircuitBreaker.State.CLOSED ? 0 : 1, "client", clientName );
+		out.sample ( "bioportal_circuit_breaker_opened_total", breaker.getOpenCount (), "client", clientName );
+		out.sample ( "bioportal_circuit_breaker_rejected_total", breaker.getRejectedCount (), "client", clientName );
+	}
+
+	private void writeCacheMetrics ( MetricsWriter out, String clientName, List<CacheStatistics> statistics )
+	{
+		out.declare ( "bioportal_cache_hits_total", "counter", "Cache lookups that found a valid entry" );
+		out.declare ( "bioportal_cache_misses_total", "counter", "Cache lookups that didn't find a valid entry" );
+		out.declare ( "bioportal_cache_expired_total", "counter", "Cache misses due to an expired entry" );
+		out.declare ( "bioportal_cache_negative_hits_total", "counter", "Lookups answered by the negative result cache" );
+		out.declare ( "bioportal_cache_stale_hits_total", "counter", "Stale entries served while Bioportal was unavailable" );
+		out.declare ( "bioportal_cache_load_failures_total", "counter", "Failed fetches of missing cache values" );
+		out.declare ( "bioportal_cache_load_seconds", "summary", "Time taken to fetch the missing cache values" );
+		out.declare ( "bioportal_cache_revalidations_total", "counter", "Expired entries renewed by a conditional GET (HTTP 304)" );
+		out.declare ( "bioportal_cache_removals_total", "counter", "Entries removed from the cache, per cause" );
+		out.declare ( "bioportal_cache_size", "gauge", "Entries in the cache, including expired ones not removed yet" );
+
+		for ( CacheStatistics stats: statistics )
+		{
+			String cache = stats.getName ();
+			out.sample ( "bioportal_cache_hits_total", stats.getHitCount (), "client", clientName, "cache", cache );
+			out.sample ( "bioportal_cache_misses_total", stats.getMissCount (), "client", clientName, "cache", cache );
+			out.sample ( "bioportal_cache_expired_total", stats.getExpiredCount (), "client", clientName, "cache", cache );
+			out.sample ( "bioportal_cache_negative_hits_total", stats.getNegativeHitCount (), "client", clientName, "cache", cache );
+			out.sample ( "bioportal_cache_stale_hits_total", stats.getStaleHitCount (), "client", clientName, "cache", cache );
+			out.sample ( "bioportal_cache_load_failures_total", stats.getLoadFailureCount (), "client", clientName, "cache", cache );
+			out.summary ( "bioportal_cache_load_seconds", stats.getLoadTimes (), "client", clientName, "cache", cache );
+			out.sample ( "bioportal_cache_revalidations_total", stats.getRevalidationCount (), "client", clientName, "cache", cache );
+			for ( Map.Entry<String, Long> removal: stats.getRemovalCounts ().entrySet () )
+				out.sample ( "bioportal_cache_removals_total", removal.getValue (),
+					"client", clientName, "cache", cache, "cause", removal.getKey ().toLowerCase ()
+				);
+			out.sample ( "bioportal_cache_size", stats.getEstimatedSize (), "client", clientName, "cache", cache );
+		}
+	}
+
+
+	/**
+	 * Exports the per-key and the cache metrics of the client, labelled with the client name. A client with the
+	 * same name is replaced. The exporter keeps a reference to the client, until it's {@link #removeClient(String) removed}.
+	 */
+	public void addClient ( String clientName, BioportalClient client )
+	{
+		clients.put ( clientName, client );
+	}
+
+	public BioportalClient removeClient ( String clientName )
+	{
+		return clients.remove ( clientName );
+	}
+
+	/**
+	 * The port the exporter listens to, useful when it was started with port 0.
+	 */
+	public int getPort ()
+	{
+		return server.getAddress ().getPort ();
+	}
+
+	/**
+	 * Stops the HTTP server.
+	 */
+	@Override
+	public void close ()
+	{
+		server.stop ( 0 );
+		executor.shutdownNow ();
+		try {
+			executor.awaitTermination ( 5, TimeUnit.SECONDS );
+		}
+		catch ( InterruptedException ex ) {
+			Thread.currentThread ().interrupt ();
+		}
+		synchronized ( PrometheusExporter.class ) {
+			if ( defaultExporter == this ) defaultExporter = null;
+		}
+		log.info ( "Bioportal metrics exporter stopped" );
+	}
+}
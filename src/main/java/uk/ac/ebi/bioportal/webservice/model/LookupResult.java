@@ -0,0 +1,97 @@
+package uk.ac.ebi.bioportal.webservice.model;
+
+import uk.ac.ebi.bioportal.webservice.client.BioportalClient;
+
+/**
+ * The result of a lookup done through {@link BioportalClient}, which tells why a value is missing, when this is
+ * the case. This is needed mainly with the client {@link BioportalClient#setOffline(boolean) offline mode}, where
+ * a missing value might mean that the value doesn't exist, or that we don't know if it exists, since it wasn't
+ * cached.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class LookupResult<T>
+{
+	public static enum Status
+	{
+		/** The value was found */
+		FOUND,
+		/** Bioportal says there is no such value, or the lookup parameters aren't valid */
+		NOT_FOUND,
+		/** We're offline and the value isn't available locally, so we don't know if it exists */
+		NOT_AVAILABLE_OFFLINE
+	}
+
+	@SuppressWarnings ( "rawtypes" )
+	private static final LookupResult NOT_FOUND_RESULT = new LookupResult<> ( Status.NOT_FOUND, null );
+
+	@SuppressWarnings ( "rawtypes" )
+	private static final LookupResult NOT_AVAILABLE_OFFLINE_RESULT = new LookupResult<> ( Status.NOT_AVAILABLE_OFFLINE, null );
+
+	private final Status status;
+	private final T value;
+
+	private LookupResult ( Status status, T value )
+	{
+		this.status = status;
+		this.value = value;
+	}
+
+	/**
+	 * A {@link Status#FOUND} result if value is non-null, a {@link Status#NOT_FOUND} one otherwise.
+	 */
+	public static <T> LookupResult<T> found ( T value )
+	{
+		if ( value == null ) return notFound ();
+		return new LookupResult<> ( Status.FOUND, value );
+	}
+
+	@SuppressWarnings ( "unchecked" )
+	public static <T> LookupResult<T> notFound () {
+		return NOT_FOUND_RESULT;
+	}
+
+	@SuppressWarnings ( "unchecked" )
+	public static <T> LookupResult<T> notAvailableOffline () {
+		return NOT_AVAILABLE_OFFLINE_RESULT;
+	}
+
+
+	public Status getStatus ()
+	{
+		return status;
+	}
+
+	/**
+	 * The value, which is null if the {@link #getStatus() status} isn't {@link Status#FOUND}.
+	 */
+	public T getValue ()
+	{
+		return value;
+	}
+
+	public boolean isFound () {
+		return status == Status.FOUND;
+	}
+
+	/**
+	 * Returns a missing result with the same status of this one, for a different value type. This is used to 
+	 * propagate the reason why a value is missing, e.g., the class isn't available because its ontology isn't. 
+	 */
+	@SuppressWarnings ( "unchecked" )
+	public <U> LookupResult<U> asMissing ()
+	{
+		if ( this.isFound () ) throw new IllegalStateException ( "Can't convert a found lookup result to a missing one" );
+		return (LookupResult<U>) this;
+	}
+
+	@Override
+	public String toString ()
+	{
+		return String.format (
+			"%s { status: %s, value: %s }", this.getClass ().getSimpleName (), this.getStatus (), this.getValue ()
+		);
+	}
+}
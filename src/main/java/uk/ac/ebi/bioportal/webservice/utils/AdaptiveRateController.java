@@ -0,0 +1,297 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalEndpoint;
+
+/**
+ * <p>Adapts the call rate and the max no. of concurrent calls to the observed Bioportal performance, in the
+ * style of TCP Vegas/AIMD.</p>
+ *
+ * <p>Every completed call is {@link #onCall(BioportalEndpoint, long, boolean) reported} with its endpoint and 
+ * latency. The latency is smoothed with an exponentially weighted moving average and compared with a baseline, 
+ * i.e., the best smoothed latency seen recently. Both are kept per endpoint, since endpoints have very different
+ * latencies (e.g., a class lookup vs. the annotator) and a mix of them would look like congestion. While the 
+ * smoothed latency is close to the baseline, the server has spare capacity and the rate is increased additively. When it grows beyond {@link #LATENCY_TOLERANCE_PROP_NAME the tolerance}, requests
+ * are queueing on the server and the rate is decreased gently. When a call fails, the rate is cut
+ * multiplicatively, at most once per round trip: the calls in flight that fail together (e.g., when the server 
+ * goes down) are one congestion signal, not many, as in TCP. This way the rate converges around the server's real capacity, instead of jumping between
+ * fixed steps.</p>
+ *
+ * <p>The concurrency limit follows from the rate and the latency (Little's law), plus some headroom.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class AdaptiveRateController
+{
+	/**
+	 * The weight of a new latency sample in the moving average, between 0 and 1. Lower values give smoother, but
+	 * slower reactions. Default is 0.2.
+	 */
+	public static final String SMOOTHING_PROP_NAME = "uk.ac.ebi.bioportal.adaptive_smoothing";
+
+	/**
+	 * How much the smoothed latency can exceed the baseline (as a ratio) before the rate is lowered. Default is 1.5.
+	 */
+	public static final String LATENCY_TOLERANCE_PROP_NAME = "uk.ac.ebi.bioportal.adaptive_latency_tolerance";
+
+	/**
+	 * The max no. of concurrent calls. Default is 16.
+	 */
+	public static final String MAX_CONCURRENCY_PROP_NAME = "uk.ac.ebi.bioportal.max_concurrency";
+
+	/** We never go below this, so that we can see when the server recovers */
+	public static final double MIN_RATE = 0.5;
+
+	/** Cut on failures */
+	private static final double FAILURE_DECREASE_FACTOR = 0.7;
+	/** Cut when the latency grows */
+	private static final double CONGESTION_DECREASE_FACTOR = 0.95;
+	/** Each good call adds this fraction of maxRate */
+	private static final double INCREASE_STEP_RATIO = 0.02;
+	/** How fast the baseline follows the current latency, so that old best values are eventually forgotten */
+	private static final double BASELINE_DRIFT = 0.01;
+
+	private final double maxRate;
+	private final int maxConcurrency;
+	private final double smoothing;
+	private final double latencyTolerance;
+
+	private double rate;
+	/** The average of all the calls, used for the concurrency limit */
+	private double ewmaLatencyNanos = -1;
+	private final Map<BioportalEndpoint, LatencySignal> latencySignals = new EnumMap<> ( BioportalEndpoint.class );
+	private int concurrencyLimit;
+	private int inFlight = 0;
+	private double serverRateCap = -1;
+	private long serverRateCapUntil = 0;
+	private boolean hasDecreased = false;
+	private long lastDecreaseNanos = 0;
+
+	private Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+	/**
+	 * The smoothed latency of an endpoint and its baseline.
+	 */
+	private static class LatencySignal
+	{
+		double ewmaLatencyNanos = -1;
+		double baselineLatencyNanos = -1;
+	}
+
+	/**
+	 * Uses {@link #SMOOTHING_PROP_NAME}, {@link #LATENCY_TOLERANCE_PROP_NAME}, {@link #MAX_CONCURRENCY_PROP_NAME},
+	 * or their defaults.
+	 */
+	public AdaptiveRateController ( double maxRate )
+	{
+		this (
+			maxRate,
+			Integer.parseInt ( System.getProperty ( MAX_CONCURRENCY_PROP_NAME, "" + 16 ) ),
+			Double.parseDouble ( System.getProperty ( SMOOTHING_PROP_NAME, "" + 0.2 ) ),
+			Double.parseDouble ( System.getProperty ( LATENCY_TOLERANCE_PROP_NAME, "" + 1.5 ) )
+		);
+	}
+
+	public AdaptiveRateController ( double maxRate, int maxConcurrency, double smoothing, double latencyTolerance )
+	{
+		if ( smoothing <= 0 || smoothing > 1 )
+			throw new IllegalArgumentException ( "The adaptive rate smoothing must be in (0, 1]" );
+		if ( latencyTolerance < 1 )
+			throw new IllegalArgumentException ( "The adaptive rate latency tolerance must be >= 1" );
+
+		this.maxRate = maxRate;
+		this.maxConcurrency = maxConcurrency;
+		this.smoothing = smoothing;
+		this.latencyTolerance = latencyTolerance;
+		this.rate = maxRate;
+		this.concurrencyLimit = maxConcurrency;
+	}
+
+
+	/**
+	 * Reports a call to {@link BioportalEndpoint#OTHER}.
+	 */
+	public void onCall ( long latencyNanos, boolean failed )
+	{
+		onCall ( BioportalEndpoint.OTHER, latencyNanos, failed );
+	}
+
+	/**
+	 * Reports a completed call and updates the rate and the concurrency limit accordingly.
+	 *
+	 * @param endpoint the latency of the call is compared with the baseline of this endpoint.
+	 * @param latencyNanos how long the call took
+	 * @param failed if the call failed. Failures are considered a congestion signal, regardless of their latency.
+	 */
+	public synchronized void onCall ( BioportalEndpoint endpoint, long latencyNanos, boolean failed )
+	{
+		onCall ( endpoint, latencyNanos, failed, System.nanoTime () );
+	}
+
+	/**
+	 * @param nowNanos when the call completed, as a {@link System#nanoTime()} value. 
+	 */
+	synchronized void onCall ( BioportalEndpoint endpoint, long latencyNanos, boolean failed, long nowNanos )
+	{
+		double oldRate = rate;
+
+		if ( failed )
+		{
+			// The calls that started before the last decrease or within the last round trip were issued at the old 
+			// rate, so their failures are already accounted
+			long windowNanos = (long) Math.max ( ewmaLatencyNanos, latencyNanos );
+			if ( !hasDecreased || nowNanos - lastDecreaseNanos >= windowNanos )
+			{
+				rate *= FAILURE_DECREASE_FACTOR;
+				hasDecreased = true;
+				lastDecreaseNanos = nowNanos;
+			}
+		}
+		else
+		{
+			ewmaLatencyNanos = smooth ( ewmaLatencyNanos, latencyNanos );
+
+			LatencySignal signal = latencySignals.get ( endpoint );
+			if ( signal == null ) latencySignals.put ( endpoint, signal = new LatencySignal () );
+			signal.ewmaLatencyNanos = smooth ( signal.ewmaLatencyNanos, latencyNanos );
+
+			// The smoothed latency, not single samples, which are too jittery: a baseline taken from the fastest 
+			// sample would make the typical latency always look congested
+			if ( signal.baselineLatencyNanos < 0 || signal.ewmaLatencyNanos < signal.baselineLatencyNanos )
+				signal.baselineLatencyNanos = signal.ewmaLatencyNanos;
+			else
+				signal.baselineLatencyNanos += BASELINE_DRIFT * ( signal.ewmaLatencyNanos - signal.baselineLatencyNanos );
+
+			if ( signal.ewmaLatencyNanos > signal.baselineLatencyNanos * latencyTolerance )
+				rate *= CONGESTION_DECREASE_FACTOR;
+			else
+				rate += maxRate * INCREASE_STEP_RATIO;
+		}
+		rate = Math.max ( MIN_RATE, Math.min ( getRateCap (), rate ) );
+
+		if ( ewmaLatencyNanos > 0 )
+		{
+			// Little's law: that's the no. of calls in flight needed to sustain this rate with this latency
+			double needed = rate * ewmaLatencyNanos / TimeUnit.SECONDS.toNanos ( 1 );
+			concurrencyLimit = (int) Math.max ( 1, Math.min ( maxConcurrency, Math.ceil ( needed ) + 1 ) );
+		}
+
+		if ( oldRate == maxRate && rate < maxRate && serverRateCap < 0 )
+			log.info ( "Slowing down Bioportal calls to avoid overloading the server, rate is now {} calls/s", String.format ( "%.2f", rate ) );
+		else if ( oldRate < maxRate && rate == maxRate )
+			log.info ( "Bioportal back to good performance, calls are back to {} calls/s", maxRate );
+
+		notifyAll ();
+	}
+
+	private double smooth ( double ewma, long sample )
+	{
+		return ewma < 0 ? sample : smoothing * sample + ( 1 - smoothing ) * ewma;
+	}
+
+	/**
+	 * Limits the rate to what the server says it can accept (e.g., via rate limit headers), until the given 
+	 * time has passed. The cap is applied immediately.
+	 */
+	public synchronized void capRate ( double serverRate, long duration, TimeUnit timeUnit )
+	{
+		this.serverRateCap = Math.max ( MIN_RATE, serverRate );
+		this.serverRateCapUntil = System.nanoTime () + timeUnit.toNanos ( duration );
+		this.rate = Math.min ( rate, serverRateCap );
+	}
+
+	private double getRateCap ()
+	{
+		if ( serverRateCap < 0 ) return maxRate;
+		if ( System.nanoTime () - serverRateCapUntil < 0 ) return Math.min ( maxRate, serverRateCap );
+		serverRateCap = -1;
+		return maxRate;
+	}
+
+	/**
+	 * Waits until the no. of calls in flight is below the {@link #getConcurrencyLimit() current limit}, then
+	 * counts a new call in flight. Every invocation must be followed by {@link #exit()}.
+	 */
+	public synchronized void enter () throws InterruptedException
+	{
+		enter ( CallScope.NO_DEADLINE );
+	}
+
+	/**
+	 * Like {@link #enter()}, but gives up when the deadline has passed.
+	 *
+	 * @param deadlineNanos a {@link System#nanoTime()} value or {@link CallScope#NO_DEADLINE}.
+	 * @return false if the deadline has passed, in which case {@link #exit()} must not be called.
+	 */
+	public synchronized boolean enter ( long deadlineNanos ) throws InterruptedException
+	{
+		while ( inFlight >= concurrencyLimit )
+		{
+			long remaining = CallScope.getRemainingNanos ( deadlineNanos );
+			if ( remaining <= 0 ) return false;
+			if ( deadlineNanos == CallScope.NO_DEADLINE ) wait (); else TimeUnit.NANOSECONDS.timedWait ( this, remaining );
+		}
+		inFlight++;
+		return true;
+	}
+
+	public synchronized void exit ()
+	{
+		inFlight--;
+		notifyAll ();
+	}
+
+	public synchronized double getRate ()
+	{
+		return rate;
+	}
+
+	public double getMaxRate ()
+	{
+		return maxRate;
+	}
+
+	public synchronized int getConcurrencyLimit ()
+	{
+		return concurrencyLimit;
+	}
+
+	public synchronized int getInFlight ()
+	{
+		return inFlight;
+	}
+
+	/**
+	 * The smoothed latency of all the endpoints, -1 if no call was reported yet.
+	 */
+	public synchronized long getLatencyNanos ()
+	{
+		return (long) ewmaLatencyNanos;
+	}
+
+	/**
+	 * The smoothed latency of an endpoint, -1 if no call to it was reported yet.
+	 */
+	public synchronized long getLatencyNanos ( BioportalEndpoint endpoint )
+	{
+		LatencySignal signal = latencySignals.get ( endpoint );
+		return signal == null ? -1 : (long) signal.ewmaLatencyNanos;
+	}
+
+	/**
+	 * The latency considered normal for an endpoint, -1 if no call to it was reported yet.
+	 */
+	public synchronized long getBaselineLatencyNanos ( BioportalEndpoint endpoint )
+	{
+		LatencySignal signal = latencySignals.get ( endpoint );
+		return signal == null ? -1 : (long) signal.baselineLatencyNanos;
+	}
+}
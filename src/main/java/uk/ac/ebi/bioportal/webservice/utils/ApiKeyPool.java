@@ -0,0 +1,633 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceDeadlineException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceHttpException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceThrottledException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceUnavailableException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>A pool of Bioportal API keys, which allows for a throughput higher than the quota of a single key.</p>
+ *
+ * <p>Each key has its own {@link BioportalInvoker}, i.e., its own rate limiter and statistics. Every request is
+ * sent to the key with the most headroom, i.e., the one that can issue a new call soonest (this includes
+ * pauses requested by the server, see {@link BioportalInvoker#onRateLimitHeaders(int, RateLimitHeaders)}). When a key fails
+ * {@link #MAX_CONSECUTIVE_FAILURES_PROP_NAME too many times in a row}, it's likely to be throttled by the server,
+ * so it's taken out of rotation for {@link #BENCH_TIME_SECS_PROP_NAME a while}.</p>
+ *
+ * <p>A pool with a single key is fine, it's what {@link uk.ac.ebi.bioportal.webservice.client.BioportalClient}
+ * uses when it's given one key.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class ApiKeyPool
+{
+	/**
+	 * A key in the pool, with its invoker and its status.
+	 */
+	public static class KeySlot
+	{
+		private final BioportalInvoker invoker;
+		private final AtomicInteger consecutiveFailures = new AtomicInteger ( 0 );
+		private volatile long benchedUntil = 0;
+
+		KeySlot ( BioportalInvoker invoker ) {
+			this.invoker = invoker;
+		}
+
+		public BioportalInvoker getInvoker () {
+			return invoker;
+		}
+
+		/**
+		 * True if the key is out of rotation at the moment.
+		 */
+		public boolean isBenched () {
+			return System.currentTimeMillis () < benchedUntil;
+		}
+
+		public long getBenchedUntil () {
+			return benchedUntil;
+		}
+
+		public int getConsecutiveFailures () {
+			return consecutiveFailures.get ();
+		}
+	}
+
+	/**
+	 * A key failing this no. of times in a row is taken out of rotation. Default is 3.
+	 */
+	public static final String MAX_CONSECUTIVE_FAILURES_PROP_NAME = "uk.ac.ebi.bioportal.key_max_failures";
+
+	/**
+	 * How long a failing key is taken out of rotation. Default is 60.
+	 */
+	public static final String BENCH_TIME_SECS_PROP_NAME = "uk.ac.ebi.bioportal.key_bench_time";
+
+	/**
+	 * The shared state of a call and its hedge, see {@link ApiKeyPool#invokeHedged(long, KeySlot, int, PriorityLane, long, ConditionalGet, String, String...)}.
+	 */
+	private static class HedgedCall
+	{
+		/** Set with the first success, or with the first failure, when all the calls have failed */
+		final SettableFuture<JsonNode> result = SettableFuture.create ();
+		final AtomicInteger pendingCalls = new AtomicInteger ( 1 );
+		final AtomicReference<Throwable> firstFailure = new AtomicReference<> ();
+		
+		void onFailure ( Throwable failure )
+		{
+			firstFailure.compareAndSet ( null, failure );
+			if ( pendingCalls.decrementAndGet () == 0 ) result.setException ( firstFailure.get () );
+		}
+		
+		/**
+		 * Waits for the result, null if it isn't available after the timeout (check result.isDone() to distinguish
+		 * from a null result). A negative timeout means no timeout.
+		 * 
+		 * @throws HedgedCallException if the call failed, or the wait was interrupted.
+		 */
+		JsonNode get ( long timeoutNanos )
+		{
+			try {
+				return timeoutNanos < 0 ? result.get () : result.get ( timeoutNanos, TimeUnit.NANOSECONDS );
+			}
+			catch ( TimeoutException ex ) {
+				return null;
+			}
+			catch ( ExecutionException ex ) {
+				throw new HedgedCallException ( ex.getCause () );
+			}
+			catch ( InterruptedException ex ) 
+			{
+				// The calls account their own outcomes, this isn't a failure of the key or the server
+				Thread.currentThread ().interrupt ();
+				throw new HedgedCallException ( 
+					new OntologyServiceException ( "Interrupted while waiting for a Bioportal call", ex ) 
+				);
+			}
+		}
+	}
+	
+	/**
+	 * Reports the failure of a hedged call, which is already accounted.
+	 */
+	private static class HedgedCallException extends RuntimeException
+	{
+		private static final long serialVersionUID = 5383462357148063563L;
+
+		HedgedCallException ( Throwable failure ) {
+			super ( failure );
+		}
+		
+		RuntimeException getFailure ()
+		{
+			Throwable failure = getCause ();
+			if ( failure instanceof RuntimeException ) return (RuntimeException) failure;
+			return new OntologyServiceException ( "Error while invoking Bioportal: " + failure.getMessage (), failure );
+		}
+	}
+	
+	/** Runs the quick status updates on the thread that completes a call */
+	private static final Executor SAME_THREAD_EXECUTOR = new Executor () 
+	{
+		@Override
+		public void execute ( Runnable command ) {
+			command.run ();
+		}
+	};
+
+	/** Schedules async retries */
+	private static final ScheduledExecutorService RETRY_TIMER = Executors.newSingleThreadScheduledExecutor (
+		new ThreadFactoryBuilder ().setDaemon ( true ).setNameFormat ( "bioportal-retry-%d" ).build ()
+	);
+
+	private final List<KeySlot> slots;
+	private final int maxConsecutiveFailures;
+	private final long benchTimeMillis;
+	private volatile RetryPolicy retryPolicy = new RetryPolicy ();
+	private volatile HedgingPolicy hedgingPolicy = new HedgingPolicy ();
+	private final CircuitBreaker circuitBreaker = new CircuitBreaker ();
+
+	/** Used to spread the requests when more keys have the same headroom */
+	private final AtomicInteger roundRobinIdx = new AtomicInteger ( 0 );
+
+	private Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+	public ApiKeyPool ( String... apiKeys )
+	{
+		this ( Arrays.asList ( apiKeys ) );
+	}
+
+	/**
+	 * Uses {@link #MAX_CONSECUTIVE_FAILURES_PROP_NAME} and {@link #BENCH_TIME_SECS_PROP_NAME}, or their defaults.
+	 */
+	public ApiKeyPool ( List<String> apiKeys )
+	{
+		this (
+			apiKeys,
+			Integer.parseInt ( System.getProperty ( MAX_CONSECUTIVE_FAILURES_PROP_NAME, "" + 3 ) ),
+			Long.parseLong ( System.getProperty ( BENCH_TIME_SECS_PROP_NAME, "" + 60 ) ), TimeUnit.SECONDS
+		);
+	}
+
+	public ApiKeyPool ( List<String> apiKeys, int maxConsecutiveFailures, long benchTime, TimeUnit timeUnit )
+	{
+		if ( apiKeys == null || apiKeys.isEmpty () )
+			throw new IllegalArgumentException ( "A Bioportal API key pool needs at least one key" );
+
+		List<KeySlot> slots = new ArrayList<> ( apiKeys.size () );
+		for ( String apiKey: apiKeys )
+			slots.add ( new KeySlot ( new BioportalInvoker ( apiKey ) ) );
+		this.slots = Collections.unmodifiableList ( slots );
+
+		this.maxConsecutiveFailures = maxConsecutiveFailures;
+		this.benchTimeMillis = timeUnit.toMillis ( benchTime );
+	}
+
+
+	/**
+	 * Selects the key with the most headroom and uses it to invoke Bioportal, as in
+	 * {@link BioportalInvoker#invoke(String, String...)}. Transient failures are retried according to the 
+	 * {@link #getRetryPolicy() retry policy}, each retry selects a key again. Slow calls are hedged according to
+	 * the {@link #getHedgingPolicy() hedging policy}. The calls wait for their permits in the lane of the current
+	 * {@link CallScope} and must complete within its deadline, retries included.
+	 */
+	public JsonNode invoke ( String servicePath, String... paramValPairs )
+	{
+		return invoke ( (ConditionalGet) null, servicePath, paramValPairs );
+	}
+
+	/**
+	 * Like {@link #invoke(String, String...)}, but sends the validators in the conditionalGet, if any, and 
+	 * records the response validators into it. Returns {@link ConditionalGet#NOT_MODIFIED} if Bioportal 
+	 * answers HTTP 304.
+	 */
+	public JsonNode invoke ( ConditionalGet conditionalGet, String servicePath, String... paramValPairs )
+	{
+		return invoke ( 
+			CallScope.getCurrentLane (), CallScope.getCurrentDeadlineNanos (), conditionalGet, servicePath, paramValPairs 
+		);
+	}
+
+	/**
+	 * Like {@link #invoke(ConditionalGet, String, String...)}, but with an explicit lane and deadline, instead of 
+	 * those of the current {@link CallScope}. This is used by multi-call operations (e.g., paged results), which 
+	 * need the same lane and deadline for all their calls.
+	 * 
+	 * @param deadlineNanos is a {@link System#nanoTime()} value, or {@link CallScope#NO_DEADLINE}.
+	 * @param conditionalGet can be null.
+	 */
+	public JsonNode invoke ( 
+		PriorityLane lane, long deadlineNanos, ConditionalGet conditionalGet, String servicePath, String... paramValPairs 
+	)
+	{
+		for ( int attempt = 1;; attempt++ )
+		{
+			CallScope.checkDeadline ( deadlineNanos, servicePath );
+			checkCircuitBreaker ( servicePath );
+			KeySlot slot = select ();
+			try
+			{
+				long hedgeDelay = hedgingPolicy.getHedgeDelay ( TimeUnit.NANOSECONDS );
+				if ( hedgeDelay >= 0 ) 
+					return invokeHedged ( 
+						hedgeDelay, slot, attempt, lane, deadlineNanos, conditionalGet, servicePath, paramValPairs 
+					);
+				
+				AtomicReference<BioportalRequest> requestRef = new AtomicReference<> ();
+				JsonNode result = slot.getInvoker ().invoke ( 
+					attempt, lane, deadlineNanos, conditionalGet, requestRef, servicePath, paramValPairs 
+				);
+				onSuccess ( slot, requestRef );
+				return result;
+			}
+			catch ( HedgedCallException hex ) 
+			{
+				// Already accounted
+				RuntimeException ex = hex.getFailure ();
+				if ( !retryPolicy.shouldRetry ( attempt, ex ) ) throw ex;
+				sleepBeforeRetry ( attempt, deadlineNanos, servicePath, ex );
+			}
+			catch ( RuntimeException ex ) 
+			{
+				onFailure ( slot, ex );
+				if ( !retryPolicy.shouldRetry ( attempt, ex ) ) throw ex;
+				sleepBeforeRetry ( attempt, deadlineNanos, servicePath, ex );
+			}
+		}
+	}
+	
+	private void sleepBeforeRetry ( int attempt, long deadlineNanos, String servicePath, RuntimeException failure )
+	{
+		long delay = getRetryDelayMillis ( attempt, deadlineNanos, servicePath, failure );
+		log.debug ( "Retrying '{}' in {}ms, after: {}", servicePath, delay, failure.getMessage () );
+		try {
+			Thread.sleep ( delay );
+		}
+		catch ( InterruptedException iex ) {
+			Thread.currentThread ().interrupt ();
+			throw failure;
+		}
+	}
+
+	/**
+	 * The retry delay, according to the {@link #getRetryPolicy() retry policy}.
+	 * 
+	 * @throws OntologyServiceDeadlineException if the retry would start after the deadline.
+	 */
+	private long getRetryDelayMillis ( int attempt, long deadlineNanos, String servicePath, RuntimeException failure )
+	{
+		long delay = retryPolicy.getDelayMillis ( attempt );
+		if ( TimeUnit.MILLISECONDS.toNanos ( delay ) < CallScope.getRemainingNanos ( deadlineNanos ) ) return delay;
+		throw new OntologyServiceDeadlineException ( 
+			"Deadline exceeded for the Bioportal call '" + servicePath + "', no time left to retry after: " 
+				+ failure.getMessage (), 
+			failure
+		);
+	}
+
+	/**
+	 * The asynchronous version of {@link #invoke(String, String...)}, based on
+	 * {@link BioportalInvoker#invokeAsync(String, String...)}. Retries are scheduled without blocking any thread and
+	 * stay in the lane and within the deadline of the {@link CallScope} that was current when this was invoked. 
+	 * Cancelling the result cancels the current attempt, which doesn't reach the server if it's still waiting for 
+	 * a permit.
+	 */
+	public ListenableFuture<JsonNode> invokeAsync ( String servicePath, String... paramValPairs )
+	{
+		SettableFuture<JsonNode> result = SettableFuture.create ();
+		invokeAsync ( 
+			result, 1, CallScope.getCurrentLane (), CallScope.getCurrentDeadlineNanos (), servicePath, paramValPairs 
+		);
+		return result;
+	}
+
+	private void invokeAsync ( 
+		final SettableFuture<JsonNode> result, final int attempt, final PriorityLane lane, final long deadlineNanos,
+		final String servicePath, final String... paramValPairs 
+	)
+	{
+		if ( result.isDone () ) return;
+		try {
+			CallScope.checkDeadline ( deadlineNanos, servicePath );
+			checkCircuitBreaker ( servicePath );
+		}
+		catch ( OntologyServiceException ex ) {
+			result.setException ( ex );
+			return;
+		}
+		
+		final KeySlot slot = select ();
+		final AtomicReference<BioportalRequest> requestRef = new AtomicReference<> ();
+		final ListenableFuture<JsonNode> call = 
+			slot.getInvoker ().invokeAsync ( attempt, lane, deadlineNanos, null, requestRef, servicePath, paramValPairs );
+		result.addListener ( new Runnable () 
+		{
+			@Override
+			public void run () {
+				if ( result.isCancelled () ) call.cancel ( false );
+			}
+		}, SAME_THREAD_EXECUTOR );
+		call.addListener ( new Runnable ()
+		{
+			@Override
+			public void run ()
+			{
+				try {
+					result.set ( call.get () );
+					onSuccess ( slot, requestRef );
+				}
+				catch ( ExecutionException ex ) 
+				{
+					Throwable cause = ex.getCause ();
+					onFailure ( slot, cause );
+					if ( !retryPolicy.shouldRetry ( attempt, cause ) ) {
+						result.setException ( cause );
+						return;
+					}
+					
+					long delay;
+					try {
+						delay = getRetryDelayMillis ( attempt, deadlineNanos, servicePath, (RuntimeException) cause );
+					}
+					catch ( OntologyServiceDeadlineException dex ) {
+						result.setException ( dex );
+						return;
+					}
+					
+					RETRY_TIMER.schedule ( new Runnable () 
+					{
+						@Override
+						public void run () {
+							invokeAsync ( result, attempt + 1, lane, deadlineNanos, servicePath, paramValPairs );
+						}
+					}, delay, TimeUnit.MILLISECONDS );
+				}
+				catch ( InterruptedException|CancellationException ex ) {
+					// Its outcome is lost, whatever it was
+					circuitBreaker.release ();
+					result.cancel ( false );
+				}
+			}
+		}, SAME_THREAD_EXECUTOR );
+	}
+
+	/**
+	 * <p>Issues the call and, if it doesn't complete within the hedge delay, issues a duplicate with another
+	 * {@link #select() selected} key (possibly the same), provided that the key has a permit available right now
+	 * and that the {@link HedgingPolicy hedging budget} allows it. The first successful response is returned, the 
+	 * other call is cancelled (if it didn't start yet, it doesn't reach the server).</p>
+	 * 
+	 * <p>Successes and failures of both calls are accounted here, if both fail, a {@link HedgedCallException}
+	 * wrapping the first call's failure is thrown. Calls that are cancelled, including those cancelled because the 
+	 * deadline was exceeded, {@link CircuitBreaker#release() release} the circuit breaker. The hedge is issued only 
+	 * when the breaker is closed, so that it can't take the place of a half-open probe.</p> 
+	 */
+	private JsonNode invokeHedged ( 
+		long hedgeDelayNanos, KeySlot slot, int attempt, PriorityLane lane, long deadlineNanos, 
+		ConditionalGet conditionalGet, String servicePath, String... paramValPairs 
+	)
+	{
+		HedgedCall hcall = new HedgedCall ();
+		ListenableFuture<JsonNode> primary = 
+			startHedgedCall ( hcall, slot, attempt, lane, deadlineNanos, conditionalGet, servicePath, paramValPairs );
+		ListenableFuture<JsonNode> hedge = null;
+		try
+		{
+			JsonNode result = hcall.get ( Math.min ( hedgeDelayNanos, CallScope.getRemainingNanos ( deadlineNanos ) ) );
+			if ( hcall.result.isDone () ) return result;
+			CallScope.checkDeadline ( deadlineNanos, servicePath );
+			
+			KeySlot hedgeSlot = select ();
+			if ( !hcall.result.isDone () 
+					 && circuitBreaker.getState () == CircuitBreaker.State.CLOSED
+					 && hedgeSlot.getInvoker ().getPermitScheduler ().getWaitNanos () == 0 && hedgingPolicy.tryHedge () )
+			{
+				log.trace ( "Hedging the call '{}', after {}ms", servicePath, TimeUnit.NANOSECONDS.toMillis ( hedgeDelayNanos ) );
+				hcall.pendingCalls.incrementAndGet ();
+				hedge = startHedgedCall ( 
+					hcall, hedgeSlot, attempt, lane, deadlineNanos, conditionalGet, servicePath, paramValPairs 
+				);
+			}
+			
+			result = hcall.get ( deadlineNanos == CallScope.NO_DEADLINE 
+				? -1 : Math.max ( 0, CallScope.getRemainingNanos ( deadlineNanos ) ) 
+			);
+			if ( !hcall.result.isDone () ) throw new OntologyServiceDeadlineException ( 
+				"Deadline exceeded for the Bioportal call '" + servicePath + "'" 
+			);
+			if ( hedge != null && hedge.isDone () && !primary.isDone () ) hedgingPolicy.onHedgeWin ();
+			return result;
+		}
+		finally 
+		{
+			// Cancelling a completed call is a no-op, so we can do it with both
+			primary.cancel ( false );
+			if ( hedge != null ) hedge.cancel ( false );
+		}
+	}
+	
+	/**
+	 * Starts a call for {@link #invokeHedged(long, KeySlot, int, PriorityLane, long, ConditionalGet, String, String...)}. 
+	 */
+	private ListenableFuture<JsonNode> startHedgedCall ( 
+		final HedgedCall hcall, final KeySlot slot, int attempt, PriorityLane lane, long deadlineNanos,
+		ConditionalGet conditionalGet, String servicePath, String... paramValPairs 
+	)
+	{
+		final AtomicReference<BioportalRequest> requestRef = new AtomicReference<> ();
+		final ListenableFuture<JsonNode> call = slot.getInvoker ().invokeAsync ( 
+			attempt, lane, deadlineNanos, conditionalGet, requestRef, servicePath, paramValPairs 
+		);
+		call.addListener ( new Runnable ()
+		{
+			@Override
+			public void run ()
+			{
+				if ( call.isCancelled () ) 
+				{
+					// The other call won or the deadline was exceeded, we don't know our latency, but we know it's 
+					// longer than this. If it was still waiting for its permit, the server didn't see it yet.
+					BioportalRequest request = requestRef.get ();
+					long sentAt = request == null ? -1 : request.getStartNanos ();
+					if ( sentAt != -1 ) hedgingPolicy.onCancelledCall ( System.nanoTime () - sentAt );
+					circuitBreaker.release ();
+					return;
+				}
+				try {
+					JsonNode jresult = call.get ();
+					onSuccess ( slot, requestRef );
+					hcall.result.set ( jresult );
+				}
+				catch ( ExecutionException ex ) 
+				{
+					Throwable cause = ex.getCause ();
+					onFailure ( slot, cause );
+					hcall.onFailure ( cause );
+				}
+				catch ( InterruptedException|CancellationException ex ) {
+					circuitBreaker.release ();
+				}
+			}
+		}, SAME_THREAD_EXECUTOR );
+		return call;
+	}
+
+	/**
+	 * The key that can issue a call soonest, ignoring benched keys. If all the keys are benched, the one that
+	 * will be back soonest is used, since we don't want to fail the request.
+	 */
+	KeySlot select ()
+	{
+		int n = slots.size ();
+		if ( n == 1 ) return slots.get ( 0 );
+
+		int offset = Math.abs ( roundRobinIdx.getAndIncrement () % n );
+		KeySlot best = null, bestBenched = null;
+		long bestWait = Long.MAX_VALUE;
+		for ( int i = 0; i < n; i++ )
+		{
+			KeySlot slot = slots.get ( ( offset + i ) % n );
+			if ( slot.isBenched () )
+			{
+				if ( bestBenched == null || slot.getBenchedUntil () < bestBenched.getBenchedUntil () ) bestBenched = slot;
+				continue;
+			}
+			long wait = slot.getInvoker ().getPermitScheduler ().getWaitNanos ();
+			if ( wait < bestWait ) {
+				best = slot; bestWait = wait;
+			}
+		}
+		return best != null ? best : bestBenched;
+	}
+
+	/**
+	 * @throws OntologyServiceUnavailableException if the {@link #getCircuitBreaker() circuit breaker} is open.
+	 */
+	private void checkCircuitBreaker ( String servicePath )
+	{
+		if ( circuitBreaker.allowRequest () ) return;
+		throw new OntologyServiceUnavailableException ( 
+			"Bioportal seems to be down, not invoking '" + servicePath + "', try again later" 
+		);
+	}
+	
+	/**
+	 * @param requestRef the call's request, which latency is what the server took, while the time from the 
+	 * invocation would include the wait for the permit, i.e., our own queueing, which must not drive hedging.
+	 */
+	private void onSuccess ( KeySlot slot, AtomicReference<BioportalRequest> requestRef )
+	{
+		slot.consecutiveFailures.set ( 0 );
+		BioportalRequest request = requestRef.get ();
+		if ( request != null && request.getLatencyNanos () >= 0 ) hedgingPolicy.onCall ( request.getLatencyNanos () );
+		circuitBreaker.onSuccess ();
+	}
+
+	private void onFailure ( KeySlot slot, Throwable failure )
+	{
+		reportToCircuitBreaker ( failure );
+		
+		// The key's limiter is already paused as the server asked, and select() takes it into account
+		if ( failure instanceof OntologyServiceThrottledException ) return;
+		// Not the key's fault
+		if ( failure instanceof OntologyServiceDeadlineException ) return;
+		if ( slots.size () == 1 ) return;
+		if ( slot.consecutiveFailures.incrementAndGet () < maxConsecutiveFailures ) return;
+
+		slot.consecutiveFailures.set ( 0 );
+		slot.benchedUntil = System.currentTimeMillis () + benchTimeMillis;
+		log.warn (
+			"Bioportal API key #{} failed {} times in a row, taking it out of rotation for {}s",
+			slots.indexOf ( slot ), maxConsecutiveFailures, TimeUnit.MILLISECONDS.toSeconds ( benchTimeMillis )
+		);
+	}
+
+	/**
+	 * Only server errors and I/O errors mean the server is down, while throttling and client errors (HTTP 4xx) are 
+	 * answers from a server that is up. Anything else (e.g., an exceeded deadline, a malformed response) doesn't tell
+	 * us about the server and just releases the call.
+	 */
+	private void reportToCircuitBreaker ( Throwable failure )
+	{
+		if ( failure instanceof OntologyServiceDeadlineException ) circuitBreaker.release ();
+		else if ( failure instanceof OntologyServiceThrottledException ) circuitBreaker.onSuccess ();
+		else if ( RetryPolicy.isTransient ( failure ) ) circuitBreaker.onFailure ();
+		else if ( failure instanceof OntologyServiceHttpException ) circuitBreaker.onSuccess ();
+		else circuitBreaker.release ();
+	}
+
+	/**
+	 * One for all the keys, since it's about the server being down. Calls that find it open fail with 
+	 * {@link OntologyServiceUnavailableException}, which isn't retried.
+	 */
+	public CircuitBreaker getCircuitBreaker ()
+	{
+		return circuitBreaker;
+	}
+
+	/**
+	 * Default is {@link RetryPolicy#RetryPolicy() built from system properties}.
+	 */
+	public RetryPolicy getRetryPolicy ()
+	{
+		return retryPolicy;
+	}
+
+	public void setRetryPolicy ( RetryPolicy retryPolicy )
+	{
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Default is {@link HedgingPolicy#HedgingPolicy() built from system properties}. Hedging is applied to
+	 * {@link #invoke(String, String...)} only, asynchronous callers can time out and re-issue by themselves.
+	 */
+	public HedgingPolicy getHedgingPolicy ()
+	{
+		return hedgingPolicy;
+	}
+
+	public void setHedgingPolicy ( HedgingPolicy hedgingPolicy )
+	{
+		this.hedgingPolicy = hedgingPolicy;
+	}
+
+	public List<KeySlot> getSlots ()
+	{
+		return slots;
+	}
+
+	/**
+	 * The key used by the single-key clients, i.e., the first in the pool.
+	 */
+	public String getFirstApiKey ()
+	{
+		return slots.get ( 0 ).getInvoker ().getApiKey ();
+	}
+}
@@ -0,0 +1,63 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * <p>A hook into the HTTP calls to Bioportal, to be registered with
+ * {@link BioportalWebServiceUtils#addInterceptor(BioportalInterceptor)}. This can be used for tracing, custom
+ * metrics, request tagging, fault injection in performance tests and alike.</p>
+ *
+ * <p>Interceptors are invoked for every HTTP call, including retries and hedged calls, in the order they were
+ * registered for {@link #beforeRequest(BioportalRequest)}, in reverse order for the other methods. Exactly one
+ * of {@link #afterResponse(BioportalRequest, JsonNode)} and {@link #onError(BioportalRequest, RuntimeException)}
+ * is invoked for each call, on each interceptor whose {@link #beforeRequest(BioportalRequest) beforeRequest()} 
+ * returned normally.</p>
+ *
+ * <p>An exception thrown by {@link #beforeRequest(BioportalRequest) beforeRequest()} makes the call to fail with 
+ * that exception (which is what fault injection needs), the following interceptors aren't invoked at all, the 
+ * previous ones get {@link #onError(BioportalRequest, RuntimeException) onError()}. Exceptions from the other 
+ * methods are logged and ignored, a successful call stays such. The methods are invoked by the thread doing 
+ * the call, so they should be quick.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public interface BioportalInterceptor
+{
+	/**
+	 * An interceptor that does nothing, extend it to implement only what you need.
+	 */
+	public static abstract class Adapter implements BioportalInterceptor
+	{
+		@Override
+		public void beforeRequest ( BioportalRequest request ) {
+		}
+
+		@Override
+		public void afterResponse ( BioportalRequest request, JsonNode result ) {
+		}
+
+		@Override
+		public void onError ( BioportalRequest request, RuntimeException ex ) {
+		}
+	}
+
+	/**
+	 * Called when the URL is ready, just before connecting to Bioportal.
+	 */
+	public void beforeRequest ( BioportalRequest request );
+
+	/**
+	 * Called after a successful call.
+	 *
+	 * @param result the parsed response, null if Bioportal answered 404 (i.e., the requested thing doesn't exist).
+	 */
+	public void afterResponse ( BioportalRequest request, JsonNode result );
+
+	/**
+	 * Called when the call fails, including failures due to the deadline, throttling or the interceptors that come
+	 * after this.
+	 */
+	public void onError ( BioportalRequest request, RuntimeException ex );
+}
@@ -0,0 +1,394 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceDeadlineException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceThrottledException;
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalEndpoint;
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalMetrics;
+import uk.ac.ebi.utils.runcontrol.StatsExecutor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>Invokes the Bioportal web service on behalf of a single API key, with its own {@link TokenBucketRateLimiter rate limiter}
+ * and {@link StatsExecutor statistics}, so that clients using different keys get the full quota each, instead
+ * of sharing the JVM-wide {@link BioportalWebServiceUtils#RATE_LIMITING_WRAPPER}.</p>
+ *
+ * <p>The rate and the no. of concurrent calls are adapted to the Bioportal performance, based on the
+ * observed latencies and failures, see {@link AdaptiveRateController}.</p>
+ *
+ * <p>If {@link SharedFileRateLimiter#DIR_PROP_NAME} is set, the rate limit is shared with the other JVMs on the 
+ * same host that use the same key.</p>
+ *
+ * <p>Calls waiting for a permit are prioritised according to their {@link PriorityLane lane}, see 
+ * {@link PriorityPermitScheduler}. The time they wait is recorded in {@link BioportalMetrics}.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class BioportalInvoker
+{
+	/**
+	 * The max no. of calls/s that each invoker (i.e., each API key) issues. Default is 15, as advised by Bioportal.
+	 */
+	public static final String MAX_RATE_PROP_NAME = "uk.ac.ebi.bioportal.max_rate";
+
+	/**
+	 * Runs the HTTP calls of {@link #invokeAsync(String, String...)}, once their permit is available. Threads are
+	 * created on demand, so that a slow server doesn't queue up calls that are already allowed to go.
+	 */
+	private static final ExecutorService ASYNC_EXECUTOR = Executors.newCachedThreadPool (
+		new ThreadFactoryBuilder ().setDaemon ( true ).setNameFormat ( "bioportal-async-%d" ).build ()
+	);
+
+	/** Used when the server throttles us without saying for how long */
+	private static final long DEFAULT_THROTTLING_PAUSE_MILLIS = 1000;
+
+	private final String apiKey;
+	private final double maxRate;
+	private final TokenBucketRateLimiter rateLimiter;
+	private final PriorityPermitScheduler permitScheduler;
+	private final StatsExecutor statsExecutor;
+	private final AdaptiveRateController rateController;
+	private final AtomicLong callCount = new AtomicLong ( 0 );
+	private final AtomicLong throttledCount = new AtomicLong ( 0 );
+	private final AtomicLong retryCount = new AtomicLong ( 0 );
+	private final AtomicLong failedRetryCount = new AtomicLong ( 0 );
+
+	private Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+	/**
+	 * Uses {@link #MAX_RATE_PROP_NAME} or its default.
+	 */
+	public BioportalInvoker ( String apiKey )
+	{
+		this ( apiKey, Double.parseDouble ( System.getProperty ( MAX_RATE_PROP_NAME, "" + 15 ) ) );
+	}
+
+	public BioportalInvoker ( String apiKey, double maxRate )
+	{
+		this.apiKey = apiKey;
+		this.maxRate = maxRate;
+		TokenBucketRateLimiter sharedLimiter = SharedFileRateLimiter.forApiKey ( apiKey, maxRate );
+		this.rateLimiter = sharedLimiter != null ? sharedLimiter : new TokenBucketRateLimiter ( maxRate );
+		this.permitScheduler = new PriorityPermitScheduler ( rateLimiter );
+		this.rateController = new AdaptiveRateController ( maxRate );
+		this.statsExecutor = new StatsExecutor (
+			"BioPortal",
+			Long.parseLong ( System.getProperty ( BioportalWebServiceUtils.STATS_SAMPLING_TIME_PROP_NAME, "" + 5 * 60 * 1000 ) )
+		);
+	}
+
+
+	/**
+	 * Like {@link BioportalWebServiceUtils#invokeBioportal(String, String, String...)}, but waits for this
+	 * invoker's rate limiter, in the lane and within the deadline of the current {@link CallScope}.
+	 */
+	public JsonNode invoke ( String servicePath, String... paramValPairs )
+	{
+		return invoke ( 
+			1, CallScope.getCurrentLane (), CallScope.getCurrentDeadlineNanos (), null, null, servicePath, paramValPairs 
+		);
+	}
+	
+	/**
+	 * @param attempt the attempt no., starting from 1, if it's > 1, the call is counted as a 
+	 * {@link #getRetryCount() retry}.
+	 * @param lane where the call waits for its permit, see {@link PriorityPermitScheduler}.
+	 * @param deadlineNanos a {@link System#nanoTime()} value or {@link CallScope#NO_DEADLINE}, if the call can't
+	 * be completed by then, it fails with {@link OntologyServiceDeadlineException}.
+	 * @param conditionalGet the validators for a conditional call, null for a plain call, see {@link ConditionalGet}.
+	 * @param requestRef if not null, receives the {@link BioportalRequest} as soon as the call is about to be sent, 
+	 * so that the caller can see its timing, i.e., the server latency without the wait for the permit.
+	 */
+	JsonNode invoke ( 
+		int attempt, PriorityLane lane, long deadlineNanos, ConditionalGet conditionalGet, 
+		AtomicReference<BioportalRequest> requestRef, String servicePath, String... paramValPairs 
+	)
+	{
+		long queuedSince = System.nanoTime ();
+		try {
+			if ( !permitScheduler.acquire ( lane, deadlineNanos ) ) 
+			{
+				recordPermitWait ( servicePath, queuedSince );
+				throw new OntologyServiceDeadlineException ( 
+					"Deadline exceeded while waiting to invoke Bioportal with '" + servicePath + "'" 
+				);
+			}
+		}
+		catch ( InterruptedException ex ) {
+			Thread.currentThread ().interrupt ();
+			throw new OntologyServiceException ( "Interrupted while waiting to invoke Bioportal with '" + servicePath + "'", ex );
+		}
+		return doInvoke ( attempt, queuedSince, deadlineNanos, conditionalGet, requestRef, servicePath, paramValPairs );
+	}
+
+	/**
+	 * Like {@link #invoke(String, String...)}, but doesn't block the caller: the call is issued in background as
+	 * soon as the rate limiter allows it, and no thread is used while waiting for that.
+	 */
+	public ListenableFuture<JsonNode> invokeAsync ( String servicePath, String... paramValPairs )
+	{
+		return invokeAsync ( 
+			1, CallScope.getCurrentLane (), CallScope.getCurrentDeadlineNanos (), null, null, servicePath, paramValPairs 
+		);
+	}
+	
+	/**
+	 * @param attempt see {@link #invoke(int, PriorityLane, long, ConditionalGet, AtomicReference, String, String...)}
+	 * @param lane see {@link #invoke(int, PriorityLane, long, ConditionalGet, AtomicReference, String, String...)}
+	 * @param deadlineNanos see {@link #invoke(int, PriorityLane, long, ConditionalGet, AtomicReference, String, String...)}
+	 * @param conditionalGet see {@link #invoke(int, PriorityLane, long, ConditionalGet, AtomicReference, String, String...)}
+	 * @param requestRef see {@link #invoke(int, PriorityLane, long, ConditionalGet, AtomicReference, String, String...)}
+	 * 
+	 * Cancelling the result before the permit is available gives up the permit.
+	 */
+	ListenableFuture<JsonNode> invokeAsync ( 
+		final int attempt, PriorityLane lane, final long deadlineNanos, final ConditionalGet conditionalGet, 
+		final AtomicReference<BioportalRequest> requestRef, final String servicePath, final String... paramValPairs 
+	)
+	{
+		final SettableFuture<JsonNode> result = SettableFuture.create ();
+		final long queuedSince = System.nanoTime ();
+		final ListenableFuture<Void> permit = permitScheduler.acquireAsync ( lane, deadlineNanos );
+		result.addListener ( new Runnable () 
+		{
+			@Override
+			public void run () {
+				if ( result.isCancelled () ) permit.cancel ( false );
+			}
+		}, ASYNC_EXECUTOR );
+		permit.addListener ( new Runnable ()
+		{
+			@Override
+			public void run ()
+			{
+				if ( result.isCancelled () || permit.isCancelled () ) return;
+				try {
+					permit.get ();
+					result.set ( doInvoke ( 
+						attempt, queuedSince, deadlineNanos, conditionalGet, requestRef, servicePath, paramValPairs 
+					));
+				}
+				catch ( ExecutionException ex ) {
+					// Deadline exceeded while waiting
+					recordPermitWait ( servicePath, queuedSince );
+					result.setException ( ex.getCause () );
+				}
+				catch ( InterruptedException ex ) {
+					Thread.currentThread ().interrupt ();
+					result.setException ( ex );
+				}
+				catch ( RuntimeException ex ) {
+					result.setException ( ex );
+				}
+			}
+		}, ASYNC_EXECUTOR );
+		return result;
+	}
+
+	/**
+	 * Called upon every response, reacts to what the server says about rate limits, without waiting for the 
+	 * {@link AdaptiveRateController} to figure it out:
+	 * 
+	 * <ul>
+	 *   <li>if the server is {@link RateLimitHeaders#isThrottling(int) throttling us}, no call is issued until 
+	 *   Retry-After (or the window reset) has passed, 1s if the server doesn't say</li>
+	 *   <li>if there are no calls left in the server window, no call is issued until the window reset</li>
+	 *   <li>if there are calls left, the rate is capped, so that they're spread over the rest of the window</li>
+	 * </ul>
+	 */
+	void onRateLimitHeaders ( int status, RateLimitHeaders rateLimits )
+	{
+		long resetMillis = rateLimits.getResetMillis ();
+		long remaining = rateLimits.getRemaining ();
+		
+		if ( rateLimits.isThrottling ( status ) )
+		{
+			long pauseMillis = rateLimits.getRetryAfterMillis ();
+			if ( pauseMillis < 0 ) pauseMillis = resetMillis >= 0 ? resetMillis : DEFAULT_THROTTLING_PAUSE_MILLIS;
+			rateLimiter.pause ( pauseMillis, TimeUnit.MILLISECONDS );
+			log.info ( "Bioportal is throttling us (HTTP {}), pausing calls for {}ms", status, pauseMillis );
+			return;
+		}
+		
+		if ( rateLimits.getRetryAfterMillis () > 0 )
+			rateLimiter.pause ( rateLimits.getRetryAfterMillis (), TimeUnit.MILLISECONDS );
+		
+		if ( remaining < 0 || resetMillis <= 0 ) return;
+		if ( remaining == 0 ) {
+			rateLimiter.pause ( resetMillis, TimeUnit.MILLISECONDS );
+			return;
+		}
+		rateController.capRate ( remaining * 1000d / resetMillis, resetMillis, TimeUnit.MILLISECONDS );
+		rateLimiter.setRate ( rateController.getRate () );
+	}
+	
+	/**
+	 * First attempts go through the {@link #getStatsExecutor() stats executor}, retries are counted separately, 
+	 * so that they don't inflate the failure statistics. They're still reported to the 
+	 * {@link AdaptiveRateController}, since they're real load on the server. Calls failed because of their 
+	 * deadline aren't reported, since that is up to the caller. 
+	 * 
+	 * @param queuedSince when the call started waiting for its permit, used for {@link BioportalMetrics}.
+	 */
+	private JsonNode doInvoke ( 
+		final int attempt, long queuedSince, final long deadlineNanos, final ConditionalGet conditionalGet, 
+		final AtomicReference<BioportalRequest> requestRef, final String servicePath, final String... paramValPairs 
+	)
+	{
+		final long permitWaitNanos;
+		try {
+			boolean isEntered = rateController.enter ( deadlineNanos );
+			permitWaitNanos = recordPermitWait ( servicePath, queuedSince );
+			if ( !isEntered ) throw new OntologyServiceDeadlineException ( 
+				"Deadline exceeded while waiting to invoke Bioportal with '" + servicePath + "'" 
+			);
+		}
+		catch ( InterruptedException ex ) {
+			Thread.currentThread ().interrupt ();
+			throw new OntologyServiceException ( "Interrupted while waiting to invoke Bioportal with '" + servicePath + "'", ex );
+		}
+		
+		callCount.incrementAndGet ();
+		long start = System.nanoTime ();
+		boolean failed = true, isReportable = true;
+		try
+		{
+			final JsonNode[] resultWrapper = new JsonNode [ 1 ];
+			Runnable call = new Runnable() {
+				@Override
+				public void run () {
+					resultWrapper [ 0 ] = BioportalWebServiceUtils.fetchJson ( 
+						servicePath, apiKey, BioportalInvoker.this, deadlineNanos, permitWaitNanos, attempt, conditionalGet, 
+						requestRef, paramValPairs 
+					);
+				}
+			};
+			
+			if ( attempt == 1 ) 
+				statsExecutor.execute ( call );
+			else 
+			{
+				retryCount.incrementAndGet ();
+				try {
+					call.run ();
+				}
+				catch ( RuntimeException ex ) {
+					failedRetryCount.incrementAndGet ();
+					throw ex;
+				}
+			}
+			failed = false;
+			return resultWrapper [ 0 ];
+		}
+		catch ( OntologyServiceThrottledException ex ) {
+			// Already handled by onRateLimitHeaders(), no need to guess from the latency
+			throttledCount.incrementAndGet ();
+			isReportable = false;
+			throw ex;
+		}
+		catch ( OntologyServiceDeadlineException ex ) {
+			isReportable = false;
+			throw ex;
+		}
+		finally 
+		{
+			rateController.exit ();
+			if ( isReportable ) rateController.onCall ( 
+				BioportalEndpoint.fromServicePath ( servicePath ), System.nanoTime () - start, failed 
+			);
+			rateLimiter.setRate ( rateController.getRate () );
+		}
+	}
+
+	/**
+	 * @return the wait.
+	 */
+	private static long recordPermitWait ( String servicePath, long queuedSince )
+	{
+		long result = System.nanoTime () - queuedSince;
+		BioportalMetrics.getInstance ().getEndpointMetrics ( servicePath ).recordPermitWait ( result );
+		return result;
+	}
+
+	public String getApiKey ()
+	{
+		return apiKey;
+	}
+
+	public double getMaxRate ()
+	{
+		return maxRate;
+	}
+
+	public TokenBucketRateLimiter getRateLimiter ()
+	{
+		return rateLimiter;
+	}
+
+	/**
+	 * Gives the {@link #getRateLimiter() limiter}'s permits to the calls waiting in different {@link PriorityLane lanes}.
+	 */
+	public PriorityPermitScheduler getPermitScheduler ()
+	{
+		return permitScheduler;
+	}
+
+	public StatsExecutor getStatsExecutor ()
+	{
+		return statsExecutor;
+	}
+
+	public AdaptiveRateController getRateController ()
+	{
+		return rateController;
+	}
+
+	/**
+	 * The no. of HTTP calls issued to Bioportal, including retries and hedged calls.
+	 */
+	public long getCallCount ()
+	{
+		return callCount.get ();
+	}
+
+	/**
+	 * The no. of calls that Bioportal throttled (HTTP 429, or 503 with Retry-After).
+	 */
+	public long getThrottledCount ()
+	{
+		return throttledCount.get ();
+	}
+
+	/**
+	 * The no. of calls that were retries of failed ones. These aren't counted by the 
+	 * {@link #getStatsExecutor() stats executor}.
+	 */
+	public long getRetryCount ()
+	{
+		return retryCount.get ();
+	}
+
+	/**
+	 * The no. of {@link #getRetryCount() retries} that failed.
+	 */
+	public long getFailedRetryCount ()
+	{
+		return failedRetryCount.get ();
+	}
+}
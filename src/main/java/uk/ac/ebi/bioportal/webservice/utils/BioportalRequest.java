@@ -0,0 +1,249 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalEndpoint;
+
+/**
+ * <p>The context of a single HTTP call to Bioportal, as seen by the {@link BioportalInterceptor interceptors}.</p>
+ *
+ * <p>Interceptors can add HTTP headers (e.g., for tracing or tagging requests) and keep their own data in
+ * {@link #getAttributes() attributes}, e.g., a tracing span started in
+ * {@link BioportalInterceptor#beforeRequest(BioportalRequest)} and closed after the response. The rest is
+ * filled by the client, the response fields (status, bytes, latency) are set by the time the after-response
+ * or error callbacks are invoked.</p>
+ *
+ * <p>Times are {@link System#nanoTime()} values, or ns durations.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class BioportalRequest
+{
+	private final String servicePath;
+	private final BioportalEndpoint endpoint;
+	private final String[] paramValPairs;
+	private final String apiKey;
+	private final int attempt;
+	private final long permitWaitNanos;
+	private final long deadlineNanos;
+	private final Map<String, String> headers = new LinkedHashMap<> ();
+	private final Map<String, Object> attributes = new HashMap<> ();
+
+	private URL url = null;
+	/** Read by {@link ApiKeyPool} while the call is running */
+	private volatile long startNanos = -1;
+	private int status = 0;
+	private long bytes = 0;
+	private long uncompressedBytes = 0;
+	private long latencyNanos = -1;
+	private int enteredInterceptors = 0;
+
+	BioportalRequest (
+		String servicePath, String apiKey, int attempt, long permitWaitNanos, long deadlineNanos, String... paramValPairs
+	)
+	{
+		this.servicePath = servicePath;
+		this.endpoint = BioportalEndpoint.fromServicePath ( servicePath );
+		this.apiKey = apiKey;
+		this.attempt = attempt;
+		this.permitWaitNanos = permitWaitNanos;
+		this.deadlineNanos = deadlineNanos;
+		this.paramValPairs = paramValPairs == null ? new String [ 0 ] : paramValPairs.clone ();
+	}
+
+	/**
+	 * The path appended to {@link BioportalWebServiceUtils#bioportalBaseUrl}, e.g., /annotator.
+	 */
+	public String getServicePath ()
+	{
+		return servicePath;
+	}
+
+	public BioportalEndpoint getEndpoint ()
+	{
+		return endpoint;
+	}
+
+	/**
+	 * The URL parameters, as [ name, value, name, value... ]. This is a copy, changing it doesn't affect the call.
+	 */
+	public String[] getParamValPairs ()
+	{
+		return paramValPairs.clone ();
+	}
+
+	/**
+	 * Only for the Authorization header, interceptors get {@link #getApiKeyId()}.
+	 */
+	String getApiKey ()
+	{
+		return apiKey;
+	}
+
+	/**
+	 * Identifies the API key used for the call, e.g., to tell apart the keys of an {@link ApiKeyPool}, without 
+	 * exposing the key itself. This is the beginning of the key's SHA-1 hash.
+	 */
+	public String getApiKeyId ()
+	{
+		return BioportalWebServiceUtils.hashApiKey ( apiKey ).substring ( 0, 8 );
+	}
+
+	/**
+	 * 1 for the first attempt, more for retries.
+	 */
+	public int getAttempt ()
+	{
+		return attempt;
+	}
+
+	/**
+	 * How long the call waited for its rate limiting permit.
+	 */
+	public long getPermitWaitNanos ()
+	{
+		return permitWaitNanos;
+	}
+
+	/**
+	 * See {@link CallScope}, {@link CallScope#NO_DEADLINE} if there is no deadline.
+	 */
+	public long getDeadlineNanos ()
+	{
+		return deadlineNanos;
+	}
+
+	/**
+	 * The full URL, null if the call failed before building it.
+	 */
+	public URL getUrl ()
+	{
+		return url;
+	}
+
+	void setUrl ( URL url )
+	{
+		this.url = url;
+	}
+
+	/**
+	 * The extra HTTP headers to be sent, a read-only view.
+	 */
+	public Map<String, String> getHeaders ()
+	{
+		return Collections.unmodifiableMap ( headers );
+	}
+
+	/**
+	 * Adds an HTTP header to the request. This has effect only when called before the request is sent, i.e., from
+	 * {@link BioportalInterceptor#beforeRequest(BioportalRequest)}. The headers that the client sets on its own
+	 * (Authorization, Accept) can't be overridden, Accept-Encoding can (the response is decoded according to its 
+	 * Content-Encoding anyway).
+	 */
+	public void setHeader ( String name, String value )
+	{
+		headers.put ( name, value );
+	}
+
+	/**
+	 * Anything the interceptors want to attach to the call. Each call has its own attributes.
+	 */
+	public Map<String, Object> getAttributes ()
+	{
+		return attributes;
+	}
+
+	/**
+	 * When the request was sent, -1 if it wasn't sent.
+	 */
+	public long getStartNanos ()
+	{
+		return startNanos;
+	}
+
+	void setStartNanos ( long startNanos )
+	{
+		this.startNanos = startNanos;
+	}
+
+	/**
+	 * The HTTP status, 0 if there wasn't any response.
+	 */
+	public int getStatus ()
+	{
+		return status;
+	}
+
+	void setStatus ( int status )
+	{
+		this.status = status;
+	}
+
+	/**
+	 * The no. of bytes read from the response body, i.e., compressed, if the server compressed it.
+	 */
+	public long getBytes ()
+	{
+		return bytes;
+	}
+
+	void setBytes ( long bytes )
+	{
+		this.bytes = bytes;
+	}
+
+	/**
+	 * The no. of bytes in the response body, after decompression.
+	 */
+	public long getUncompressedBytes ()
+	{
+		return uncompressedBytes;
+	}
+
+	void setUncompressedBytes ( long uncompressedBytes )
+	{
+		this.uncompressedBytes = uncompressedBytes;
+	}
+
+	/**
+	 * The time from sending the request to having read the response, -1 if the request wasn't sent.
+	 */
+	public long getLatencyNanos ()
+	{
+		return latencyNanos;
+	}
+
+	void setLatencyNanos ( long latencyNanos )
+	{
+		this.latencyNanos = latencyNanos;
+	}
+
+	/**
+	 * How many interceptors got {@link BioportalInterceptor#beforeRequest(BioportalRequest)} without failing, i.e.,
+	 * how many need to know how the call ended.
+	 */
+	int getEnteredInterceptors ()
+	{
+		return enteredInterceptors;
+	}
+
+	void onInterceptorEntered ()
+	{
+		enteredInterceptors++;
+	}
+
+	@Override
+	public String toString ()
+	{
+		return String.format (
+			"%s { servicePath: '%s', attempt: %d, status: %d, latency: %.1f ms }",
+			this.getClass ().getSimpleName (), servicePath, attempt, status, latencyNanos / 1E6
+		);
+	}
+}
@@ -1,20 +1,50 @@
 package uk.ac.ebi.bioportal.webservice.utils;
 
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.apache.http.client.utils.URIBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceDeadlineException;
 import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceHttpException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceThrottledException;
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalEvents;
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalMetrics;
+import uk.ac.ebi.bioportal.webservice.metrics.EndpointMetrics;
+import uk.ac.ebi.bioportal.webservice.model.ClassRef;
 import uk.ac.ebi.bioportal.webservice.model.OntologyClass;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClassMapping;
+import uk.ac.ebi.bioportal.webservice.model.TextAnnotation;
+import uk.ac.ebi.bioportal.webservice.model.TextAnnotation.Annotation;
+import uk.ac.ebi.bioportal.webservice.model.TextAnnotation.HierarchyEntry;
 import uk.ac.ebi.utils.runcontrol.ChainExecutor;
 import uk.ac.ebi.utils.runcontrol.DynamicRateExecutor;
 import uk.ac.ebi.utils.runcontrol.RateLimitedExecutor;
@@ -22,6 +52,7 @@ import uk.ac.ebi.utils.runcontrol.StatsExecutor;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.CountingInputStream;
 
 /**
  * Miscellanea of utilities to access the BioPortal REST web service.
@@ -54,13 +85,23 @@ public class BioportalWebServiceUtils
 		@Override
 		protected synchronized double setNewRate ()
 		{
-			int totCalls = STATS_WRAPPER.getLastTotalCalls (); 
+			return computeRate ( 
+				maxRate, this.getRate (), STATS_WRAPPER.getLastTotalCalls (), STATS_WRAPPER.getLastFailedCalls () 
+			);
+		}
+		
+		/**
+		 * The logics to adapt the call rate to the performance of the last period. The per-client limiters used 
+		 * by {@link BioportalInvoker} use the finer {@link AdaptiveRateController} instead.
+		 */
+		static double computeRate ( double maxRate, double currentRate, int totCalls, int totFailedCalls )
+		{
 			if ( totCalls == 0 ) return maxRate;
 			
-			double failedCalls = STATS_WRAPPER.getLastFailedCalls () / (double) totCalls;			
+			double failedCalls = totFailedCalls / (double) totCalls;			
 			if ( failedCalls <= 0.1 ) 
 			{
-				if ( Math.abs ( this.getRate () / this.maxRate - 1 ) > 1d/1000 )
+				if ( Math.abs ( currentRate / maxRate - 1 ) > 1d/1000 )
 					// was throttling, going back to normal
 					log.info ( "Bioportal back to good performance, throttling ends" );
 				return maxRate;
@@ -74,12 +115,12 @@ public class BioportalWebServiceUtils
 				: failedCalls <= 0.70 ? maxRate * 0.2
 				: 0.5; 
 			
-			if ( Math.abs ( this.getRate () / rate - 1 ) > 1d/1000 )
+			if ( Math.abs ( currentRate / rate - 1 ) > 1d/1000 )
 				// Wasn't throttling, starting now
 				log.info ( "Throttling Bioportal to avoid too many fails, calls are slowed down to {} calls/s", rate );
 		
 			return rate;
-		} // setNewRate
+		} // computeRate
 	}	// BioportalRateLimiter
 	
 	/**
@@ -87,6 +128,21 @@ public class BioportalWebServiceUtils
 	 */
 	public static final String STATS_SAMPLING_TIME_PROP_NAME = "uk.ac.ebi.bioportal.stats_sampling_time";
 
+	/**
+	 * Max time to establish a connection with Bioportal, in ms. Default is 10000.
+	 */
+	public static final String CONNECT_TIMEOUT_PROP_NAME = "uk.ac.ebi.bioportal.connect_timeout";
+
+	/**
+	 * Max time to wait for data from Bioportal, after the connection, in ms. Default is 60000.
+	 */
+	public static final String READ_TIMEOUT_PROP_NAME = "uk.ac.ebi.bioportal.read_timeout";
+
+	/**
+	 * Whether we ask Bioportal for compressed (gzip or deflate) responses. Default is true.
+	 */
+	public static final String COMPRESSION_ENABLED_PROP_NAME = "uk.ac.ebi.bioportal.compression_enabled";
+
 	/**
 	 * Should it happen that the server side changes this, you can reflect that here.
 	 */
@@ -102,6 +158,12 @@ public class BioportalWebServiceUtils
 	);
 		
 	
+	/** See {@link #addInterceptor(BioportalInterceptor)} */
+	private static final List<BioportalInterceptor> INTERCEPTORS = new CopyOnWriteArrayList<> ();
+	
+	/** Used by {@link #invokeBioportal(String, String, String...)}, see {@link SharedFileRateLimiter} */
+	private static final ConcurrentMap<String, TokenBucketRateLimiter> SHARED_RATE_LIMITERS = new ConcurrentHashMap<> ();
+	
 	private static Logger log = LoggerFactory.getLogger ( BioportalWebServiceUtils.class );
 
 	/**
@@ -142,56 +204,166 @@ public class BioportalWebServiceUtils
 
 		return result;		
 	}
-	
+
 	/**
-	 * invokes a service that returns a JSON array of ontology classes and build the corresponding set of
-	 * {@link OntologyClass}. result is created from scratch if it's null.
+	 * Adds the classes in a JSON array returned by Bioportal to result, which is created if it's null.
 	 */
-	public static Set<OntologyClass> collectOntoClasses ( Set<OntologyClass> result, String unpagedServicePath, String ontologyAcronym, String apiKey )
+	public static Set<OntologyClass> buildOntologyClasses ( Set<OntologyClass> result, String ontologyAcronym, JsonNode jterms )
 	{
 		if ( result == null ) result = new HashSet<> ();
-		JsonNode jterms = invokeBioportal ( unpagedServicePath, apiKey );
-		if ( jterms == null ) return result; 
+		if ( jterms == null ) return result;
 		for ( JsonNode jterm: jterms )
 			result.add ( buildOntologyClass ( ontologyAcronym, jterm ) );
-		
 		return result;
 	}
+	
+	/**
+	 * Builds the annotations returned by the 
+	 * <a href = 'http://data.bioontology.org/documentation#nav_annotator'>text annotator</a>.
+	 */
+	public static TextAnnotation[] buildTextAnnotations ( JsonNode jsanns )
+	{
+		TextAnnotation[] result = new TextAnnotation[ jsanns.size () ];
+		
+		int i = 0;
+		for ( JsonNode jsann: jsanns )
+		{
+			result [ i ] = new TextAnnotation ( buildClassRef ( jsann.get ( "annotatedClass" ) ) );
+			
+			JsonNode jshs = jsann.get ( "hierarchy" );
+			HierarchyEntry[] hes = new HierarchyEntry[ jshs.size () ];
+			int ih = 0;
+			for ( JsonNode jsh: jshs )
+				hes [ ih++ ] = new HierarchyEntry ( 
+					buildClassRef ( jsh.get ( "annotatedClass" ) ), jsh.get ( "distance" ).asInt () 
+				);
+			result [ i ].setHierarchy ( hes );
 
+			JsonNode jstanns = jsann.get ( "annotations" );
+			Annotation [] textAnns = new Annotation [ jstanns.size () ];
+			int ia = 0;
+			for ( JsonNode jsa: jstanns )
+			{
+				textAnns [ ia++ ] = new Annotation (
+					jsa.get ( "from" ).asInt (), 
+					jsa.get ( "to" ).asInt (), 
+					jsa.get ( "matchType" ).asText (),
+					jsa.get ( "text" ).asText () 
+				);
+			}
+			result [ i++ ].setAnnotations ( textAnns ); 
+		}
+		
+		return result;
+	}
+	
 	/**
-	 * Wrapper with result = null
+	 * Builds the mappings returned by the <a href = 'http://data.bioontology.org/documentation#Mapping'>mapping 
+	 * service</a> for a class.
 	 */
-	public static Set<OntologyClass> collectOntoClasses ( String unpagedServicePath, String ontologyAcronym, String apiKey )
+	public static List<OntologyClassMapping> buildOntologyClassMappings ( JsonNode jsmaps )
 	{
-		return collectOntoClasses ( null, unpagedServicePath, ontologyAcronym, apiKey );
+		// Every item in the JSON result contains data on the source of mapping, plus two class IRIs, the first is always
+		// the input class (in this case), and the second is the meat we're interested in
+		//
+		List<OntologyClassMapping> result = new ArrayList<OntologyClassMapping> ();
+		
+		for ( JsonNode jsmap: jsmaps )
+		{
+			OntologyClassMapping map = new OntologyClassMapping ();
+			
+			map.setId ( jsmap.get ( "id" ).asText () );
+			map.setSource ( jsmap.get ( "source" ).asText () );
+			map.setProcess ( jsmap.get ( "process" ).asText () );
+			map.setTargetClassRef ( buildClassRef ( jsmap.get ( "classes" ).get ( 1 ) ) );
+			
+			result.add ( map );
+		}
+		return result;
 	}
 	
 	/**
-	 * Like {@link #collectOntoClasses(String, String, String)}, but this is for those service invocations known to 
-	 * return paged results and the /collection array in JSON. 
+	 * A class reference from a JSON class having the '@id' and the 'links/ontology' fields.
 	 */
-	public static Set<OntologyClass> collectOntoClassesFromPagedResult ( Set<OntologyClass> result, String unpagedServicePath, String ontologyAcronym, String apiKey )
+	private static ClassRef buildClassRef ( JsonNode jclass )
+	{
+		String ontoUri = jclass.get ( "links" ).get ( "ontology" ).asText ();
+		String ontoAcronym = ontoUri.substring ( "http://data.bioontology.org/ontologies/".length () );
+		return new ClassRef ( jclass.get ( "@id" ).asText (), ontoAcronym );
+	}
+	
+	/**
+	 * invokes a service that returns a JSON array of ontology classes and build the corresponding set of
+	 * {@link OntologyClass}. result is created from scratch if it's null.
+	 */
+	public static Set<OntologyClass> collectOntoClasses ( Set<OntologyClass> result, String unpagedServicePath, String ontologyAcronym, String apiKey )
+	{
+		return collectOntoClasses ( result, unpagedServicePath, ontologyAcronym, false, null, null, CallScope.NO_DEADLINE, apiKey );
+	}
+
+	/**
+	 * Like {@link #collectOntoClasses(Set, String, String, String)} and 
+	 * {@link #collectOntoClassesFromPagedResult(Set, String, String, String)}, but uses a key pool and its own rate 
+	 * limiting. All the calls (i.e., all the pages, when isPaged is true) are issued in the same lane and must
+	 * complete within the same deadline.
+	 * 
+	 * @param deadlineNanos is a {@link System#nanoTime()} value, or {@link CallScope#NO_DEADLINE}. 
+	 */
+	public static Set<OntologyClass> collectOntoClasses ( 
+		ApiKeyPool keyPool, PriorityLane lane, long deadlineNanos, String unpagedServicePath, String ontologyAcronym, 
+		boolean isPaged 
+	)
+	{
+		return collectOntoClasses ( null, unpagedServicePath, ontologyAcronym, isPaged, keyPool, lane, deadlineNanos, null );
+	}
+
+	/**
+	 * Uses the keyPool (and the lane and the deadline) if it's not null, the apiKey and the JVM-wide rate limiting
+	 * otherwise.
+	 */
+	private static Set<OntologyClass> collectOntoClasses ( 
+		Set<OntologyClass> result, String unpagedServicePath, String ontologyAcronym, boolean isPaged, 
+		ApiKeyPool keyPool, PriorityLane lane, long deadlineNanos, String apiKey 
+	)
 	{
+		if ( !isPaged ) return buildOntologyClasses ( 
+			result, ontologyAcronym, invoke ( keyPool, lane, deadlineNanos, apiKey, unpagedServicePath ) 
+		);
+
 		if ( result == null ) result = new HashSet<> ();
-		JsonNode json = invokeBioportal ( unpagedServicePath, apiKey );
+		JsonNode json = invoke ( keyPool, lane, deadlineNanos, apiKey, unpagedServicePath );
 		if ( json == null ) return result;
 		
 		JsonNode jpageCount = json.get ( "pageCount" );
 		int pageCt = jpageCount == null ? 1 : jpageCount.asInt ( 1 );
 		for ( int page = 1; page <= pageCt; page++ )
 		{
-			if ( page > 1 ) json = invokeBioportal ( unpagedServicePath, apiKey, "page" + page );
+			if ( page > 1 ) json = invoke ( keyPool, lane, deadlineNanos, apiKey, unpagedServicePath, "page", "" + page );
 			if ( json == null ) continue;
 			
-			JsonNode jterms = json.get ( "collection" );
-			if ( jterms != null ) 
-				for ( JsonNode jterm: jterms )
-					result.add ( buildOntologyClass ( ontologyAcronym, jterm ) );
+			buildOntologyClasses ( result, ontologyAcronym, json.get ( "collection" ) );
 		}
 		
 		return result;
 	}
 
+	/**
+	 * Wrapper with result = null
+	 */
+	public static Set<OntologyClass> collectOntoClasses ( String unpagedServicePath, String ontologyAcronym, String apiKey )
+	{
+		return collectOntoClasses ( null, unpagedServicePath, ontologyAcronym, apiKey );
+	}
+	
+	/**
+	 * Like {@link #collectOntoClasses(String, String, String)}, but this is for those service invocations known to 
+	 * return paged results and the /collection array in JSON. 
+	 */
+	public static Set<OntologyClass> collectOntoClassesFromPagedResult ( Set<OntologyClass> result, String unpagedServicePath, String ontologyAcronym, String apiKey )
+	{
+		return collectOntoClasses ( result, unpagedServicePath, ontologyAcronym, true, null, null, CallScope.NO_DEADLINE, apiKey );
+	}
+
 	/**
 	 * Wrapper with result = null 
 	 */
@@ -229,51 +401,409 @@ public class BioportalWebServiceUtils
 
 	/**
 	 * Invokes a Bioportal web service service. Builds the URL via {@link #getBioPortalUrl(String, String...)}, 
-	 * then it appends the apiKey to the HTTP request headers, as well as the JSON 'Accept' header. 
+	 * then it appends the apiKey to the HTTP request headers, as well as the JSON 'Accept' header.
+	 * 
+	 * This uses the JVM-wide {@link #RATE_LIMITING_WRAPPER}, see {@link BioportalInvoker} for a per-client 
+	 * alternative. If {@link SharedFileRateLimiter#DIR_PROP_NAME} is set, calls also wait for the limit shared
+	 * with the other JVMs on the same host.
+	 * 
+	 * The {@link CallScope#getCurrentDeadlineNanos() current deadline} is honoured by the shared limit, which fails
+	 * immediately if its permit would come after the deadline, and by the HTTP call, but not by the wait for the 
+	 * {@link #RATE_LIMITING_WRAPPER}, which can't be bounded. So, when many threads use this method together, that
+	 * wait can go beyond the deadline, after which the call fails without reaching the server. 
+	 * {@link BioportalInvoker} and {@link ApiKeyPool} honour the deadline while waiting too.
 	 */
 	public static JsonNode invokeBioportal ( final String servicePath, final String apiKey, final String... paramValPairs )
 	{
+		final long queuedSince = System.nanoTime ();
+		final long deadlineNanos = CallScope.getCurrentDeadlineNanos ();
+		TokenBucketRateLimiter sharedLimiter = getSharedRateLimiter ( apiKey );
+		if ( sharedLimiter != null ) 
+		{
+			if ( sharedLimiter.getWaitNanos () > CallScope.getRemainingNanos ( deadlineNanos ) ) 
+				throw new OntologyServiceDeadlineException ( 
+					"The shared rate limit doesn't allow to invoke Bioportal with '" + servicePath + "' before the deadline" 
+				);
+			try {
+				sharedLimiter.acquire ();
+			}
+			catch ( InterruptedException ex ) {
+				Thread.currentThread ().interrupt ();
+				throw new OntologyServiceException ( "Interrupted while waiting to invoke Bioportal with '" + servicePath + "'", ex );
+			}
+		}
+		
 		final JsonNode[] resultWrapper = new JsonNode [ 1 ];
 		wrapExecutor.execute ( new Runnable() {
 			@Override
-			public void run ()
+			public void run () {
+				long permitWaitNanos = System.nanoTime () - queuedSince;
+				BioportalMetrics.getInstance ().getEndpointMetrics ( servicePath ).recordPermitWait ( permitWaitNanos );
+				resultWrapper [ 0 ] = fetchJson ( 
+					servicePath, apiKey, null, deadlineNanos, permitWaitNanos, 1, null, null, paramValPairs 
+				);
+			}
+		});
+		
+		return resultWrapper [ 0 ];
+	}
+	
+	/**
+	 * Adds an interceptor to the chain that all the HTTP calls to Bioportal go through, by all the clients 
+	 * in this JVM. See {@link BioportalInterceptor} for details.
+	 */
+	public static void addInterceptor ( BioportalInterceptor interceptor )
+	{
+		if ( interceptor == null ) throw new IllegalArgumentException ( "Can't add a null Bioportal interceptor" );
+		INTERCEPTORS.add ( interceptor );
+	}
+
+	/**
+	 * @return true if the interceptor was registered.
+	 */
+	public static boolean removeInterceptor ( BioportalInterceptor interceptor )
+	{
+		return INTERCEPTORS.remove ( interceptor );
+	}
+
+	/**
+	 * The registered interceptors, in order, a read-only view.
+	 */
+	public static List<BioportalInterceptor> getInterceptors ()
+	{
+		return Collections.unmodifiableList ( INTERCEPTORS );
+	}
+	
+	/**
+	 * The {@link SharedFileRateLimiter} for the key, one per key and JVM, null if 
+	 * {@link SharedFileRateLimiter#DIR_PROP_NAME} isn't set.
+	 */
+	private static TokenBucketRateLimiter getSharedRateLimiter ( String apiKey )
+	{
+		if ( System.getProperty ( SharedFileRateLimiter.DIR_PROP_NAME ) == null ) return null;
+		
+		TokenBucketRateLimiter result = SHARED_RATE_LIMITERS.get ( apiKey );
+		if ( result != null ) return result;
+		
+		result = SharedFileRateLimiter.forApiKey ( 
+			apiKey, Double.parseDouble ( System.getProperty ( BioportalInvoker.MAX_RATE_PROP_NAME, "" + 15 ) ) 
+		);
+		TokenBucketRateLimiter oldResult = SHARED_RATE_LIMITERS.putIfAbsent ( apiKey, result );
+		return oldResult == null ? result : oldResult;
+	}
+	
+	/**
+	 * The SHA-1 hash of an API key, as an hexadecimal string, for when the key must be identified without being
+	 * exposed.
+	 */
+	static String hashApiKey ( String apiKey )
+	{
+		try
+		{
+			byte[] hash = MessageDigest.getInstance ( "SHA-1" ).digest ( apiKey.getBytes ( "UTF-8" ) );
+			StringBuilder result = new StringBuilder ();
+			for ( byte b: hash ) result.append ( String.format ( "%02x", b ) );
+			return result.toString ();
+		}
+		catch ( NoSuchAlgorithmException|UnsupportedEncodingException ex ) {
+			throw new OntologyServiceException ( "Error while hashing the Bioportal API key: " + ex.getMessage (), ex );
+		}
+	}
+	
+	/**
+	 * Does the actual HTTP call for {@link #invokeBioportal(String, String, String...)}, without any rate limiting
+	 * or statistics.
+	 * 
+	 * If the invoker isn't null, it's {@link BioportalInvoker#onRateLimitHeaders(int, RateLimitHeaders) informed} 
+	 * about the rate limits that the server sends back. Responses that are {@link RateLimitHeaders#isThrottling(int) 
+	 * throttling} become {@link OntologyServiceThrottledException}.
+	 * 
+	 * The connection and read timeouts are capped by the time left before the deadline (a {@link System#nanoTime()} 
+	 * value or {@link CallScope#NO_DEADLINE}). Since the read timeout applies to each read, reading the response 
+	 * also fails as soon as a read would start after the deadline, so that a response that keeps coming slowly 
+	 * can't go beyond it by more than one read. Errors after the deadline become 
+	 * {@link OntologyServiceDeadlineException}.
+	 * 
+	 * Unless {@link #COMPRESSION_ENABLED_PROP_NAME} is false, the request accepts gzip and deflate encodings and the 
+	 * response is decompressed as a stream, while it's parsed.
+	 * 
+	 * The latency, HTTP status and bytes of the call are recorded in {@link BioportalMetrics} and sent to 
+	 * {@link BioportalEvents}, together with the permit wait and the attempt no. that the caller passes. Bytes are 
+	 * counted both as received and after decompression. 
+	 * 
+	 * The call goes through the {@link #addInterceptor(BioportalInterceptor) registered interceptors}.
+	 * 
+	 * If conditionalGet isn't null, its validators are sent and the response validators are recorded in it, 
+	 * HTTP 304 makes this to return {@link ConditionalGet#NOT_MODIFIED}.
+	 * 
+	 * If requestRef isn't null, it receives the request before it's sent, so that the caller can see its timing.
+	 */
+	static JsonNode fetchJson ( 
+		String servicePath, String apiKey, BioportalInvoker invoker, long deadlineNanos, long permitWaitNanos, int attempt, 
+		ConditionalGet conditionalGet, AtomicReference<BioportalRequest> requestRef, String... paramValPairs 
+	)
+	{
+		BioportalRequest request = new BioportalRequest ( 
+			servicePath, apiKey, attempt, permitWaitNanos, deadlineNanos, paramValPairs 
+		);
+		if ( requestRef != null ) requestRef.set ( request );
+		// A snapshot, so that the same interceptors see the whole call
+		BioportalInterceptor[] interceptors = INTERCEPTORS.toArray ( new BioportalInterceptor [ 0 ] );
+		JsonNode result;
+		try {
+			result = fetchJson ( request, invoker, conditionalGet, interceptors );
+		}
+		catch ( RuntimeException ex ) 
+		{
+			// Only the interceptors that accepted the request are told about its outcome
+			for ( int i = request.getEnteredInterceptors () - 1; i >= 0; i-- )
 			{
-				URL url = null;
-				try
-				{
-					url = getBioPortalUrl ( servicePath, paramValPairs );
-					log.trace ( "Invoking Bioportal REST with: \"{}\"", url );
-					
-					HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-					conn.setRequestMethod ( "GET" );
-					conn.setRequestProperty ( "Authorization", "apikey token=" + apiKey );
-					conn.setRequestProperty ( "Accept", "application/json" );
-					
-					ObjectMapper mapper = new ObjectMapper ();
-					resultWrapper [ 0 ] = mapper.readTree ( conn.getInputStream () );
+				try {
+					interceptors [ i ].onError ( request, ex );
 				}
-				catch ( FileNotFoundException ex )
-				{
-					// This is tricky, since it's not always a real error, e.g., when we try to see if a given class exists
-					// we'll get a file-not-found error, because the HTTP query will be formed with an ID in the path that
-					// doesn't lead to any path considered valid (the class doesn't exist)
-					//
-					if ( log.isTraceEnabled () )
-						log.trace ( "FileNotFound from '" + servicePath + "', returning null", ex );
-					else
-						log.debug ( "FileNotFound from '" + servicePath + "', returning null" );
-					
-					resultWrapper [ 0 ] = null;
+				catch ( RuntimeException ex1 ) {
+					log.warn ( "Error from the Bioportal interceptor " + interceptors [ i ] + ", ignoring it: " + ex1.getMessage (), ex1 );
 				}
-				catch ( IOException ex )
-				{
-					throw new OntologyServiceException ( 
-						"Error while accessing Bioportal with '" + url + "': " + ex.getMessage (), ex 
-					);
-				} 
 			}
-		});
+			throw ex;
+		}
 		
-		return resultWrapper [ 0 ];
+		// The call went well, an interceptor failing here mustn't change that, nor affect the other interceptors
+		for ( int i = request.getEnteredInterceptors () - 1; i >= 0; i-- ) 
+		{
+			try {
+				interceptors [ i ].afterResponse ( request, result );
+			}
+			catch ( RuntimeException ex ) {
+				log.warn ( "Error from the Bioportal interceptor " + interceptors [ i ] + ", ignoring it: " + ex.getMessage (), ex );
+			}
+		}
+		return result;
+	}
+	
+	private static JsonNode fetchJson ( 
+		BioportalRequest request, BioportalInvoker invoker, ConditionalGet conditionalGet, BioportalInterceptor[] interceptors 
+	)
+	{
+		String servicePath = request.getServicePath ();
+		long deadlineNanos = request.getDeadlineNanos ();
+		URL url = null;
+		EndpointMetrics metrics = BioportalMetrics.getInstance ().getEndpointMetrics ( servicePath );
+		int status = 0;
+		long start = -1, bytes = 0, uncompressedBytes = 0;
+		Object event = null;
+		try
+		{
+			url = getBioPortalUrl ( servicePath, request.getParamValPairs () );
+			request.setUrl ( url );
+			for ( BioportalInterceptor interceptor: interceptors ) 
+			{
+				interceptor.beforeRequest ( request );
+				request.onInterceptorEntered ();
+			}
+			CallScope.checkDeadline ( deadlineNanos, servicePath );
+			log.trace ( "Invoking Bioportal REST with: \"{}\"", url );
+			
+			HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+			conn.setRequestMethod ( "GET" );
+			// Without these, a dead server ties up the caller indefinitely
+			long remainingMillis = Math.max ( 1, TimeUnit.NANOSECONDS.toMillis ( CallScope.getRemainingNanos ( deadlineNanos ) ) );
+			conn.setConnectTimeout ( (int) Math.min ( 
+				remainingMillis, Integer.parseInt ( System.getProperty ( CONNECT_TIMEOUT_PROP_NAME, "" + 10000 ) ) 
+			));
+			conn.setReadTimeout ( (int) Math.min ( 
+				remainingMillis, Integer.parseInt ( System.getProperty ( READ_TIMEOUT_PROP_NAME, "" + 60000 ) ) 
+			));
+			if ( Boolean.parseBoolean ( System.getProperty ( COMPRESSION_ENABLED_PROP_NAME, "true" ) ) )
+				conn.setRequestProperty ( "Accept-Encoding", "gzip, deflate" );
+			for ( Map.Entry<String, String> header: request.getHeaders ().entrySet () )
+				conn.setRequestProperty ( header.getKey (), header.getValue () );
+			conn.setRequestProperty ( "Authorization", "apikey token=" + request.getApiKey () );
+			conn.setRequestProperty ( "Accept", "application/json" );
+			if ( conditionalGet != null ) 
+			{
+				if ( conditionalGet.getETag () != null ) conn.setRequestProperty ( "If-None-Match", conditionalGet.getETag () );
+				if ( conditionalGet.getLastModified () != null ) 
+					conn.setRequestProperty ( "If-Modified-Since", conditionalGet.getLastModified () );
+			}
+			
+			metrics.onCallStart ();
+			event = BioportalEvents.beginInvocation ();
+			start = System.nanoTime ();
+			request.setStartNanos ( start );
+			status = conn.getResponseCode ();
+			RateLimitHeaders rateLimits = RateLimitHeaders.parse ( conn );
+			if ( invoker != null ) invoker.onRateLimitHeaders ( status, rateLimits );
+			
+			if ( rateLimits.isThrottling ( status ) ) throw new OntologyServiceThrottledException (
+				"Bioportal is throttling us, HTTP status " + status + " from '" + url + "'", status, rateLimits.getRetryAfterMillis ()
+			);
+			
+			if ( status == HttpURLConnection.HTTP_NOT_MODIFIED ) 
+			{
+				if ( conditionalGet != null && conditionalGet.isConditional () ) return ConditionalGet.NOT_MODIFIED;
+				throw new OntologyServiceException ( 
+					"Unexpected HTTP status 304 from '" + url + "', without any conditional request" 
+				);
+			}
+			
+			ObjectMapper mapper = new ObjectMapper ();
+			CountingInputStream wireIn = new CountingInputStream ( deadlineNanos == CallScope.NO_DEADLINE 
+				? conn.getInputStream () 
+				: new DeadlineInputStream ( conn.getInputStream (), deadlineNanos ) 
+			);
+			CountingInputStream in = null;
+			try {
+				in = new CountingInputStream ( decodeContent ( wireIn, conn.getContentEncoding () ) );
+				JsonNode result = mapper.readTree ( in );
+				if ( conditionalGet != null ) 
+					conditionalGet.onResponse ( result, conn.getHeaderField ( "ETag" ), conn.getHeaderField ( "Last-Modified" ) );
+				return result;
+			}
+			finally {
+				bytes = wireIn.getCount ();
+				uncompressedBytes = in == null ? 0 : in.getCount ();
+				metrics.addBytesReceived ( bytes, uncompressedBytes );
+			}
+		}
+		catch ( FileNotFoundException ex )
+		{
+			// This is tricky, since it's not always a real error, e.g., when we try to see if a given class exists
+			// we'll get a file-not-found error, because the HTTP query will be formed with an ID in the path that
+			// doesn't lead to any path considered valid (the class doesn't exist)
+			//
+			if ( log.isTraceEnabled () )
+				log.trace ( "FileNotFound from '" + servicePath + "', returning null", ex );
+			else
+				log.debug ( "FileNotFound from '" + servicePath + "', returning null" );
+			
+			return null;
+		}
+		catch ( IOException ex )
+		{
+			// A timeout capped by the deadline, or a read after it
+			if ( CallScope.getRemainingNanos ( deadlineNanos ) <= 0 )
+				throw new OntologyServiceDeadlineException ( 
+					"Deadline exceeded while accessing Bioportal with '" + url + "': " + ex.getMessage (), ex 
+				);
+			// getInputStream() reports error statuses this way, the status tells what kind of error it is
+			if ( status >= 400 ) throw new OntologyServiceHttpException ( 
+				"Error while accessing Bioportal with '" + url + "', HTTP status " + status + ": " + ex.getMessage (), status, ex 
+			);
+			throw new OntologyServiceException ( 
+				"Error while accessing Bioportal with '" + url + "': " + ex.getMessage (), ex 
+			);
+		} 
+		finally 
+		{
+			if ( start != -1 ) 
+			{
+				long latency = System.nanoTime () - start;
+				request.setStatus ( status );
+				request.setBytes ( bytes );
+				request.setUncompressedBytes ( uncompressedBytes );
+				request.setLatencyNanos ( latency );
+				metrics.onCallEnd ( status, latency );
+				BioportalEvents.endInvocation ( 
+					event, metrics.getEndpoint (), status, bytes, request.getPermitWaitNanos (), request.getAttempt () 
+				);
+			}
+		}
+	}
+	
+	/**
+	 * Fails the reads that would start after the deadline, since the read timeout only bounds each read.
+	 */
+	private static class DeadlineInputStream extends FilterInputStream
+	{
+		private final long deadlineNanos;
+
+		DeadlineInputStream ( InputStream in, long deadlineNanos )
+		{
+			super ( in );
+			this.deadlineNanos = deadlineNanos;
+		}
+
+		private void checkDeadline () throws SocketTimeoutException
+		{
+			if ( CallScope.getRemainingNanos ( deadlineNanos ) <= 0 ) 
+				throw new SocketTimeoutException ( "Deadline exceeded while reading the response" );
+		}
+
+		@Override
+		public int read () throws IOException
+		{
+			checkDeadline ();
+			return super.read ();
+		}
+
+		@Override
+		public int read ( byte[] b, int off, int len ) throws IOException
+		{
+			checkDeadline ();
+			return super.read ( b, off, len );
+		}
+
+		@Override
+		public long skip ( long n ) throws IOException
+		{
+			checkDeadline ();
+			return super.skip ( n );
+		}
+	}
+	
+	/**
+	 * Wraps the response stream with the decoder for its Content-Encoding. Deflate is supposed to be zlib-wrapped 
+	 * (RFC 1950), but some servers send raw deflate data, so we check the zlib header.
+	 */
+	static InputStream decodeContent ( InputStream in, String contentEncoding ) throws IOException
+	{
+		if ( contentEncoding == null ) return in;
+		contentEncoding = contentEncoding.trim ().toLowerCase ();
+		
+		if ( "gzip".equals ( contentEncoding ) || "x-gzip".equals ( contentEncoding ) ) return new GZIPInputStream ( in );
+		
+		if ( "deflate".equals ( contentEncoding ) ) 
+		{
+			PushbackInputStream pin = new PushbackInputStream ( in, 2 );
+			int b0 = pin.read (), b1 = b0 == -1 ? -1 : pin.read ();
+			if ( b1 != -1 ) pin.unread ( b1 );
+			if ( b0 != -1 ) pin.unread ( b0 );
+			boolean isZlib = b1 != -1 && ( b0 & 0x0F ) == 8 && ( ( b0 << 8 ) | b1 ) % 31 == 0;
+			if ( isZlib ) return new InflaterInputStream ( pin );
+
+			// The stream doesn't release an inflater it didn't create
+			final Inflater inflater = new Inflater ( true );
+			return new InflaterInputStream ( pin, inflater ) 
+			{
+				@Override
+				public void close () throws IOException 
+				{
+					try {
+						super.close ();
+					}
+					finally {
+						inflater.end ();
+					}
+				}
+			};
+		}
+		
+		if ( !"identity".equals ( contentEncoding ) ) throw new OntologyServiceException ( 
+			"Unsupported Content-Encoding from Bioportal: '" + contentEncoding + "'" 
+		);
+		return in;
+	}
+	
+	/**
+	 * Uses the key pool if it's not null, {@link #invokeBioportal(String, String, String...)} otherwise. 
+	 */
+	private static JsonNode invoke ( 
+		ApiKeyPool keyPool, PriorityLane lane, long deadlineNanos, String apiKey, String servicePath, String... paramValPairs 
+	)
+	{
+		return keyPool == null 
+			? invokeBioportal ( servicePath, apiKey, paramValPairs ) 
+			: keyPool.invoke ( lane, deadlineNanos, null, servicePath, paramValPairs );
 	}
 }
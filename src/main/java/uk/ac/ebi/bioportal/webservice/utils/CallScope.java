@@ -0,0 +1,159 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceDeadlineException;
+
+/**
+ * <p>Sets properties for the Bioportal calls made by the current thread, without having to pass them through all
+ * the methods of {@link uk.ac.ebi.bioportal.webservice.client.BioportalClient}. For instance:</p>
+ *
+ * <pre>
+ *   try ( CallScope scope = CallScope.open ( PriorityLane.BULK ) ) {
+ *     client.getOntologyClass ( "EFO", uri );
+ *   }
+ *
+ *   try ( CallScope scope = CallScope.withTimeout ( 2, TimeUnit.SECONDS ) ) {
+ *     client.getOntologyClass ( "EFO", uri );
+ *   }
+ * </pre>
+ *
+ * <p>The {@link PriorityLane lane} establishes the priority of the calls waiting for a rate limiting permit. The
+ * deadline is respected while waiting for a permit, connecting and reading from Bioportal, and across retries.
+ * Calls that can't complete in time fail with {@link OntologyServiceDeadlineException}.</p>
+ *
+ * <p>Scopes can be nested, closing one restores the enclosing one. A nested scope keeps the properties it
+ * doesn't set, and can't extend the enclosing deadline. Asynchronous calls get the scope's properties when they're
+ * issued.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class CallScope implements AutoCloseable
+{
+	/** The deadline value that means there is no deadline */
+	public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	private static final ThreadLocal<CallScope> CURRENT = new ThreadLocal<> ();
+
+	private final PriorityLane lane;
+	private final long deadlineNanos;
+	private final CallScope parent;
+	private final Thread thread;
+
+	private CallScope ( PriorityLane lane, long deadlineNanos, CallScope parent )
+	{
+		this.lane = lane;
+		this.deadlineNanos = deadlineNanos;
+		this.parent = parent;
+		this.thread = Thread.currentThread ();
+	}
+
+	/**
+	 * Opens a new scope for the current thread, which must be {@link #close() closed} by the same thread.
+	 */
+	public static CallScope open ( PriorityLane lane )
+	{
+		return open ( lane, getCurrentDeadlineNanos () );
+	}
+
+	/**
+	 * Opens a scope where the calls must complete within the timeout.
+	 */
+	public static CallScope withTimeout ( long timeout, TimeUnit timeUnit )
+	{
+		return open ( getCurrentLane (), System.nanoTime () + timeUnit.toNanos ( timeout ) );
+	}
+
+	/**
+	 * Opens a scope with both a lane and a timeout.
+	 */
+	public static CallScope open ( PriorityLane lane, long timeout, TimeUnit timeUnit )
+	{
+		return open ( lane, System.nanoTime () + timeUnit.toNanos ( timeout ) );
+	}
+
+	private static CallScope open ( PriorityLane lane, long deadlineNanos )
+	{
+		if ( lane == null ) throw new IllegalArgumentException ( "Can't open a Bioportal call scope with a null lane" );
+
+		CallScope parent = CURRENT.get ();
+		if ( parent != null && parent.deadlineNanos != NO_DEADLINE
+				 && ( deadlineNanos == NO_DEADLINE || parent.deadlineNanos - deadlineNanos < 0 ) )
+			deadlineNanos = parent.deadlineNanos;
+
+		CallScope result = new CallScope ( lane, deadlineNanos, parent );
+		CURRENT.set ( result );
+		return result;
+	}
+
+	/**
+	 * The scope of the current thread, null if there isn't any.
+	 */
+	public static CallScope current ()
+	{
+		return CURRENT.get ();
+	}
+
+	/**
+	 * The lane of the {@link #current() current scope}, {@link PriorityLane#INTERACTIVE} if there is no scope.
+	 */
+	public static PriorityLane getCurrentLane ()
+	{
+		CallScope scope = CURRENT.get ();
+		return scope == null ? PriorityLane.INTERACTIVE : scope.lane;
+	}
+
+	/**
+	 * The deadline of the {@link #current() current scope}, {@link #NO_DEADLINE} if there is no scope.
+	 */
+	public static long getCurrentDeadlineNanos ()
+	{
+		CallScope scope = CURRENT.get ();
+		return scope == null ? NO_DEADLINE : scope.deadlineNanos;
+	}
+
+	/**
+	 * The time left before the deadline (0 or negative if it's passed), {@link Long#MAX_VALUE} if there is no deadline.
+	 *
+	 * @param deadlineNanos a {@link System#nanoTime()} value or {@link #NO_DEADLINE}.
+	 */
+	public static long getRemainingNanos ( long deadlineNanos )
+	{
+		return deadlineNanos == NO_DEADLINE ? Long.MAX_VALUE : deadlineNanos - System.nanoTime ();
+	}
+
+	/**
+	 * @throws OntologyServiceDeadlineException if the deadline has passed.
+	 */
+	public static void checkDeadline ( long deadlineNanos, String servicePath )
+	{
+		if ( getRemainingNanos ( deadlineNanos ) > 0 ) return;
+		throw new OntologyServiceDeadlineException ( "Deadline exceeded for the Bioportal call '" + servicePath + "'" );
+	}
+
+	/**
+	 * Restores the enclosing scope.
+	 */
+	@Override
+	public void close ()
+	{
+		if ( Thread.currentThread () != thread )
+			throw new IllegalStateException ( "A Bioportal call scope must be closed by the thread that opened it" );
+		if ( parent == null ) CURRENT.remove (); else CURRENT.set ( parent );
+	}
+
+	public PriorityLane getLane ()
+	{
+		return lane;
+	}
+
+	/**
+	 * A {@link System#nanoTime()} value, or {@link #NO_DEADLINE}.
+	 */
+	public long getDeadlineNanos ()
+	{
+		return deadlineNanos;
+	}
+}
@@ -0,0 +1,245 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>A circuit breaker for the Bioportal calls.</p>
+ *
+ * <p>When {@link #FAILURE_THRESHOLD_PROP_NAME too many calls} fail in a row, the breaker opens and calls fail fast,
+ * without trying to reach the server, for {@link #OPEN_TIME_SECS_PROP_NAME a while}. Then, it goes half-open:
+ * a {@link #HALF_OPEN_PROBES_PROP_NAME few probe calls} are let through, if they all succeed, the breaker is
+ * closed again, if one fails, it's opened again. Probes that don't report anything for as long as the open time are
+ * considered lost and new ones are let through, so that a cancelled probe can't wedge the breaker.</p>
+ *
+ * <p>State changes are notified to {@link Listener listeners} and counted.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class CircuitBreaker
+{
+	public static enum State { CLOSED, OPEN, HALF_OPEN }
+
+	/**
+	 * Notified about state changes.
+	 */
+	public static interface Listener
+	{
+		void onStateChange ( CircuitBreaker breaker, State oldState, State newState );
+	}
+
+	/**
+	 * The no. of consecutive failures that opens the breaker. Default is 5.
+	 */
+	public static final String FAILURE_THRESHOLD_PROP_NAME = "uk.ac.ebi.bioportal.breaker_failure_threshold";
+
+	/**
+	 * How long the breaker stays open, before probing the server. Default is 30.
+	 */
+	public static final String OPEN_TIME_SECS_PROP_NAME = "uk.ac.ebi.bioportal.breaker_open_time";
+
+	/**
+	 * The no. of probe calls let through in the half-open state. They all need to succeed to close the breaker.
+	 * Default is 3.
+	 */
+	public static final String HALF_OPEN_PROBES_PROP_NAME = "uk.ac.ebi.bioportal.breaker_half_open_probes";
+
+	private final int failureThreshold;
+	private final long openTimeMillis;
+	private final int halfOpenProbes;
+
+	private State state = State.CLOSED;
+	private long stateSince = System.currentTimeMillis ();
+	private int consecutiveFailures = 0;
+	private int probesIssued = 0;
+	private int probesSucceeded = 0;
+	private long lastProbeAt = 0;
+
+	private final AtomicLong openCount = new AtomicLong ( 0 );
+	private final AtomicLong rejectedCount = new AtomicLong ( 0 );
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<> ();
+
+	private Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+	/**
+	 * Uses {@link #FAILURE_THRESHOLD_PROP_NAME}, {@link #OPEN_TIME_SECS_PROP_NAME}, {@link #HALF_OPEN_PROBES_PROP_NAME},
+	 * or their defaults.
+	 */
+	public CircuitBreaker ()
+	{
+		this (
+			Integer.parseInt ( System.getProperty ( FAILURE_THRESHOLD_PROP_NAME, "" + 5 ) ),
+			Long.parseLong ( System.getProperty ( OPEN_TIME_SECS_PROP_NAME, "" + 30 ) ), TimeUnit.SECONDS,
+			Integer.parseInt ( System.getProperty ( HALF_OPEN_PROBES_PROP_NAME, "" + 3 ) )
+		);
+	}
+
+	public CircuitBreaker ( int failureThreshold, long openTime, TimeUnit timeUnit, int halfOpenProbes )
+	{
+		if ( failureThreshold < 1 ) throw new IllegalArgumentException ( "The circuit breaker failure threshold must be >= 1" );
+		if ( halfOpenProbes < 1 ) throw new IllegalArgumentException ( "The circuit breaker probes must be >= 1" );
+		this.failureThreshold = failureThreshold;
+		this.openTimeMillis = timeUnit.toMillis ( openTime );
+		this.halfOpenProbes = halfOpenProbes;
+	}
+
+
+	/**
+	 * True if a call can go ahead, false if it should fail fast. In the half-open state, this returns true
+	 * for the probe calls only. A call allowed by this method must be followed by one of {@link #onSuccess()}, 
+	 * {@link #onFailure()} or {@link #release()}.
+	 */
+	public boolean allowRequest ()
+	{
+		State oldState;
+		synchronized ( this )
+		{
+			oldState = state;
+			if ( state == State.CLOSED ) return true;
+			if ( state == State.OPEN )
+			{
+				if ( System.currentTimeMillis () - stateSince < openTimeMillis ) {
+					rejectedCount.incrementAndGet ();
+					return false;
+				}
+				setState ( State.HALF_OPEN );
+			}
+			// Half open. If we've just switched, no probe was issued yet, so we don't miss the event
+			if ( probesIssued >= halfOpenProbes ) 
+			{
+				if ( System.currentTimeMillis () - lastProbeAt < openTimeMillis ) {
+					rejectedCount.incrementAndGet ();
+					return false;
+				}
+				log.debug ( "No news from {} Bioportal probe(s), issuing new ones", probesIssued - probesSucceeded );
+				probesIssued = probesSucceeded;
+			}
+			probesIssued++;
+			lastProbeAt = System.currentTimeMillis ();
+		}
+		if ( oldState != State.HALF_OPEN ) fireStateChange ( oldState, State.HALF_OPEN );
+		return true;
+	}
+
+	/**
+	 * Reports that the server answered, even if with an error that isn't about its availability (e.g., HTTP 404).
+	 */
+	public void onSuccess ()
+	{
+		State oldState;
+		synchronized ( this )
+		{
+			oldState = state;
+			consecutiveFailures = 0;
+			if ( state != State.HALF_OPEN || ++probesSucceeded < halfOpenProbes ) return;
+			setState ( State.CLOSED );
+		}
+		fireStateChange ( oldState, State.CLOSED );
+	}
+
+	/**
+	 * Reports that the server couldn't be reached or failed because of its own problems (e.g., HTTP 500).
+	 */
+	public void onFailure ()
+	{
+		State oldState;
+		synchronized ( this )
+		{
+			oldState = state;
+			if ( state == State.OPEN ) return;
+			if ( state == State.CLOSED && ++consecutiveFailures < failureThreshold ) return;
+			setState ( State.OPEN );
+			openCount.incrementAndGet ();
+		}
+		fireStateChange ( oldState, State.OPEN );
+	}
+
+	/**
+	 * Reports that an allowed call ended without telling anything about the server, e.g., it was cancelled, or it ran 
+	 * out of its deadline before the server could answer. This doesn't change the state, but, in the half-open state,
+	 * it frees the probe slot taken by the call.
+	 */
+	public synchronized void release ()
+	{
+		if ( state == State.HALF_OPEN && probesIssued > probesSucceeded ) probesIssued--;
+	}
+
+	/**
+	 * Must be called with the lock held.
+	 */
+	private void setState ( State newState )
+	{
+		state = newState;
+		stateSince = System.currentTimeMillis ();
+		consecutiveFailures = 0;
+		probesIssued = 0;
+		probesSucceeded = 0;
+	}
+
+	private void fireStateChange ( State oldState, State newState )
+	{
+		if ( newState == State.OPEN )
+			log.warn ( "Bioportal seems to be down, failing calls fast for the next {}s", TimeUnit.MILLISECONDS.toSeconds ( openTimeMillis ) );
+		else if ( newState == State.CLOSED )
+			log.info ( "Bioportal is back, resuming normal calls" );
+		else
+			log.debug ( "Probing Bioportal after it was down" );
+
+		for ( Listener listener: listeners )
+		{
+			try {
+				listener.onStateChange ( this, oldState, newState );
+			}
+			catch ( RuntimeException ex ) {
+				log.warn ( "Error from a circuit breaker listener: " + ex.getMessage (), ex );
+			}
+		}
+	}
+
+	public void addListener ( Listener listener )
+	{
+		listeners.add ( listener );
+	}
+
+	public void removeListener ( Listener listener )
+	{
+		listeners.remove ( listener );
+	}
+
+	public synchronized State getState ()
+	{
+		return state;
+	}
+
+	/**
+	 * When the current state started.
+	 */
+	public synchronized long getStateSince ()
+	{
+		return stateSince;
+	}
+
+	/**
+	 * How many times the breaker was opened.
+	 */
+	public long getOpenCount ()
+	{
+		return openCount.get ();
+	}
+
+	/**
+	 * How many calls failed fast.
+	 */
+	public long getRejectedCount ()
+	{
+		return rejectedCount.get ();
+	}
+}
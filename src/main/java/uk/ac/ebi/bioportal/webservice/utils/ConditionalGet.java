@@ -0,0 +1,106 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+/**
+ * <p>The HTTP validators of a Bioportal call, used to revalidate a cached value with a conditional GET.</p>
+ *
+ * <p>The validators that the client already has (the ETag and/or Last-Modified of the cached value) are sent
+ * as If-None-Match and If-Modified-Since. If the server answers 304, the call returns {@link #NOT_MODIFIED},
+ * else the response is returned as usually and its own validators are available from
+ * {@link #getETag(JsonNode)} and {@link #getLastModified(JsonNode)}.</p>
+ *
+ * <p>A call might be issued more times (retries, hedged calls), so the response validators are kept per
+ * response object, i.e., the validators are those of the response that the call actually returned.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class ConditionalGet
+{
+	/**
+	 * Returned by the conditional calls that Bioportal answered with 304, compare it by identity.
+	 */
+	public static final JsonNode NOT_MODIFIED = JsonNodeFactory.instance.textNode ( "304 Not Modified" );
+
+	private final String eTag;
+	private final String lastModified;
+	private final Map<JsonNode, String[]> responseValidators = Collections.synchronizedMap (
+		new IdentityHashMap<JsonNode, String[]> ()
+	);
+
+	/**
+	 * @param eTag and lastModified are the validators of the cached value, as they were received, null if
+	 * not available. If both are null, the call is a plain GET, which collects the response validators.
+	 */
+	public ConditionalGet ( String eTag, String lastModified )
+	{
+		this.eTag = eTag;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * Sent as If-None-Match.
+	 */
+	public String getETag ()
+	{
+		return eTag;
+	}
+
+	/**
+	 * Sent as If-Modified-Since.
+	 */
+	public String getLastModified ()
+	{
+		return lastModified;
+	}
+
+	/**
+	 * True if there is some validator to send.
+	 */
+	public boolean isConditional ()
+	{
+		return eTag != null || lastModified != null;
+	}
+
+	/**
+	 * Used by {@link BioportalWebServiceUtils} when it gets a full response.
+	 */
+	void onResponse ( JsonNode response, String eTag, String lastModified )
+	{
+		if ( response == null || eTag == null && lastModified == null ) return;
+		responseValidators.put ( response, new String[] { eTag, lastModified } );
+	}
+
+	/**
+	 * The ETag that came with this response, null if the server didn't send any.
+	 */
+	public String getETag ( JsonNode response )
+	{
+		String[] validators = responseValidators.get ( response );
+		return validators == null ? null : validators [ 0 ];
+	}
+
+	/**
+	 * The Last-Modified that came with this response, null if the server didn't send any.
+	 */
+	public String getLastModified ( JsonNode response )
+	{
+		String[] validators = responseValidators.get ( response );
+		return validators == null ? null : validators [ 1 ];
+	}
+
+	@Override
+	public String toString ()
+	{
+		return String.format (
+			"%s { eTag: %s, lastModified: %s }", this.getClass ().getSimpleName (), eTag, lastModified
+		);
+	}
+}
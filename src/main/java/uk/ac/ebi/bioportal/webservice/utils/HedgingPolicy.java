@@ -0,0 +1,208 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Establishes when a Bioportal call should be hedged, i.e., when a duplicate of a call that is taking too long
+ * should be sent, so that the first response of the two can be used. This cuts the tail latency caused by
+ * the occasional slow response, at the cost of some extra load on the server.</p>
+ *
+ * <p>A call is hedged when it hasn't completed after the {@link #PERCENTILE_PROP_NAME n-th percentile} of the
+ * recent latencies. The no. of hedges is limited by a {@link #BUDGET_PROP_NAME budget}, a fraction of the
+ * total no. of calls, so that hedging can't double the load when the server is slow for everyone. Calls and 
+ * hedges are counted as integers, so that the budget is exact, no matter how many calls were made.</p>
+ *
+ * <p>This is meant for idempotent calls only, which is the case of all the GET requests we send to Bioportal.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class HedgingPolicy
+{
+	/**
+	 * Enables hedging. Default is false.
+	 */
+	public static final String ENABLED_PROP_NAME = "uk.ac.ebi.bioportal.hedging";
+
+	/**
+	 * A call is hedged when it takes longer than this percentile of the recent latencies. Default is 95.
+	 */
+	public static final String PERCENTILE_PROP_NAME = "uk.ac.ebi.bioportal.hedging_percentile";
+
+	/**
+	 * The max fraction of calls that can be hedged. Default is 0.05.
+	 */
+	public static final String BUDGET_PROP_NAME = "uk.ac.ebi.bioportal.hedging_budget";
+
+	/** No hedging at all */
+	public static final HedgingPolicy NONE = new HedgingPolicy ( false, 95, 0 );
+
+	/** How many latencies we consider */
+	private static final int WINDOW_SIZE = 500;
+	/** We don't hedge before having seen this no. of calls */
+	private static final int MIN_SAMPLES = 20;
+	/** The percentile is recomputed every this no. of samples */
+	private static final int RECOMPUTE_INTERVAL = 50;
+	/** How many unused hedges can be accumulated, so that a burst of slow calls doesn't use up a long time budget */
+	private static final long MAX_BUDGET_TOKENS = 10;
+
+	private final boolean isEnabled;
+	private final double percentile;
+	private final double budget;
+
+	private final long[] latencies = new long [ WINDOW_SIZE ];
+	private long sampleCount = 0;
+	private long callCount = 0;
+	private long hedgeDelayNanos = -1;
+	/** The hedges made, plus the unused ones that exceeded {@link #MAX_BUDGET_TOKENS} */
+	private long spentHedges = 0;
+
+	private final AtomicLong hedgeCount = new AtomicLong ( 0 );
+	private final AtomicLong hedgeWinCount = new AtomicLong ( 0 );
+
+	/**
+	 * Uses {@link #ENABLED_PROP_NAME}, {@link #PERCENTILE_PROP_NAME}, {@link #BUDGET_PROP_NAME}, or their defaults.
+	 */
+	public HedgingPolicy ()
+	{
+		this (
+			Boolean.parseBoolean ( System.getProperty ( ENABLED_PROP_NAME, "false" ) ),
+			Double.parseDouble ( System.getProperty ( PERCENTILE_PROP_NAME, "" + 95 ) ),
+			Double.parseDouble ( System.getProperty ( BUDGET_PROP_NAME, "" + 0.05 ) )
+		);
+	}
+
+	public HedgingPolicy ( boolean isEnabled, double percentile, double budget )
+	{
+		if ( percentile <= 0 || percentile >= 100 )
+			throw new IllegalArgumentException ( "The hedging percentile must be in (0, 100)" );
+		if ( budget < 0 || budget > 1 )
+			throw new IllegalArgumentException ( "The hedging budget must be in [0, 1]" );
+
+		this.isEnabled = isEnabled;
+		this.percentile = percentile;
+		this.budget = budget;
+	}
+
+
+	/**
+	 * Reports the latency of a successful call. This also adds to the hedging budget. Does nothing if hedging
+	 * is disabled.
+	 */
+	public synchronized void onCall ( long latencyNanos )
+	{
+		if ( !isEnabled ) return;
+		callCount++;
+		long earnedHedges = getEarnedHedges ();
+		if ( earnedHedges - spentHedges > MAX_BUDGET_TOKENS ) spentHedges = earnedHedges - MAX_BUDGET_TOKENS;
+		addLatency ( latencyNanos );
+	}
+
+	/**
+	 * Reports how long a call ran before being cancelled, because the other one of a hedged pair returned first.
+	 * This is a lower bound of the call's latency, and without it the percentile would only see the faster calls.
+	 * It doesn't add to the hedging budget. Does nothing if hedging is disabled.
+	 */
+	public synchronized void onCancelledCall ( long elapsedNanos )
+	{
+		if ( !isEnabled ) return;
+		addLatency ( elapsedNanos );
+	}
+
+	private void addLatency ( long latencyNanos )
+	{
+		latencies [ (int) ( sampleCount++ % WINDOW_SIZE ) ] = latencyNanos;
+		if ( sampleCount >= MIN_SAMPLES && ( hedgeDelayNanos < 0 || sampleCount % RECOMPUTE_INTERVAL == 0 ) )
+			hedgeDelayNanos = computePercentile ();
+	}
+
+	/**
+	 * The hedges allowed by the budget since the beginning. The tolerance absorbs the rounding of the 
+	 * multiplication, e.g., 0.29 * 100 = 28.999999999999996.
+	 */
+	private long getEarnedHedges ()
+	{
+		return (long) ( callCount * budget + 1E-9 );
+	}
+
+	private long computePercentile ()
+	{
+		int n = (int) Math.min ( sampleCount, WINDOW_SIZE );
+		long[] sorted = Arrays.copyOf ( latencies, n );
+		Arrays.sort ( sorted );
+		int idx = (int) Math.ceil ( percentile / 100d * n ) - 1;
+		return sorted [ Math.max ( 0, Math.min ( n - 1, idx ) ) ];
+	}
+
+	/**
+	 * How long to wait for a call before hedging it, -1 if hedging is disabled or there aren't enough latencies
+	 * to decide yet.
+	 */
+	public synchronized long getHedgeDelay ( TimeUnit timeUnit )
+	{
+		if ( !isEnabled || hedgeDelayNanos < 0 ) return -1;
+		return timeUnit.convert ( hedgeDelayNanos, TimeUnit.NANOSECONDS );
+	}
+
+	/**
+	 * True if the budget allows for a new hedge, which is then counted.
+	 */
+	public synchronized boolean tryHedge ()
+	{
+		if ( !isEnabled || spentHedges >= getEarnedHedges () ) return false;
+		spentHedges++;
+		hedgeCount.incrementAndGet ();
+		return true;
+	}
+
+	/**
+	 * Reports that a hedge returned before the original call.
+	 */
+	public void onHedgeWin ()
+	{
+		hedgeWinCount.incrementAndGet ();
+	}
+
+	public boolean isEnabled ()
+	{
+		return isEnabled;
+	}
+
+	public double getPercentile ()
+	{
+		return percentile;
+	}
+
+	public double getBudget ()
+	{
+		return budget;
+	}
+
+	/**
+	 * How many calls were hedged.
+	 */
+	public long getHedgeCount ()
+	{
+		return hedgeCount.get ();
+	}
+
+	/**
+	 * How many hedges returned before their original call, i.e., how many times hedging was useful.
+	 */
+	public long getHedgeWinCount ()
+	{
+		return hedgeWinCount.get ();
+	}
+
+	@Override
+	public String toString ()
+	{
+		return String.format (
+			"%s { isEnabled: %s, percentile: %.1f, budget: %.3f }",
+			this.getClass ().getSimpleName (), this.isEnabled (), this.getPercentile (), this.getBudget ()
+		);
+	}
+}
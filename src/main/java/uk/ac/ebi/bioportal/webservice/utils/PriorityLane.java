@@ -0,0 +1,46 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+/**
+ * <p>The lanes in which the Bioportal calls are queued while waiting for a rate limiting permit, see
+ * {@link PriorityPermitScheduler}. A call goes in the lane of the {@link CallScope} it's made in.</p>
+ *
+ * <p>Each lane has a weight, i.e., when both lanes have calls waiting, permits are given to them in
+ * proportion to their weights.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public enum PriorityLane
+{
+	/** Lookups that somebody is waiting for, e.g., from a web UI. This is the default lane. */
+	INTERACTIVE ( "uk.ac.ebi.bioportal.lane_interactive_weight", 9 ),
+
+	/** Background work, e.g., batch annotations, cache prefetching */
+	BULK ( "uk.ac.ebi.bioportal.lane_bulk_weight", 1 );
+
+	private final String weightPropName;
+	private final int defaultWeight;
+
+	private PriorityLane ( String weightPropName, int defaultWeight )
+	{
+		this.weightPropName = weightPropName;
+		this.defaultWeight = defaultWeight;
+	}
+
+	/**
+	 * The system property that sets the lane weight.
+	 */
+	public String getWeightPropName ()
+	{
+		return weightPropName;
+	}
+
+	/**
+	 * The weight set by {@link #getWeightPropName()}, or its default (9 for {@link #INTERACTIVE}, 1 for {@link #BULK}).
+	 */
+	public int getConfiguredWeight ()
+	{
+		return Integer.parseInt ( System.getProperty ( weightPropName, "" + defaultWeight ) );
+	}
+}
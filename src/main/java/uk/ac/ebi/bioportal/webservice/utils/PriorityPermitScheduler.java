@@ -0,0 +1,316 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceDeadlineException;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>Hands out the permits of a {@link TokenBucketRateLimiter} to calls queued in different {@link PriorityLane lanes},
+ * so that, e.g., interactive lookups don't wait behind thousands of batch calls.</p>
+ *
+ * <p>When there are calls waiting in more lanes, permits are given to lanes in proportion to their weights
+ * (smooth weighted round-robin). To avoid starvation, a call that has been waiting longer than
+ * {@link #MAX_WAIT_PROP_NAME a max time} is served first, regardless of its lane. Within a lane, calls are
+ * served first-come-first-served.</p>
+ *
+ * <p>Unlike the limiter, this doesn't reserve permits in advance, since a reservation would be a place in a
+ * queue that can't be jumped: permits are taken from the limiter only when they're available and there is a
+ * call to give them to. Cancelled acquisitions, or acquisitions that reach their deadline, don't waste any permit.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class PriorityPermitScheduler
+{
+	/**
+	 * A call waiting longer than this (ms) for a permit is served before any other. Default is 10000.
+	 */
+	public static final String MAX_WAIT_PROP_NAME = "uk.ac.ebi.bioportal.lane_max_wait";
+
+	/** Dispatches the permits, the work done here is quick */
+	private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor (
+		new ThreadFactoryBuilder ().setDaemon ( true ).setNameFormat ( "bioportal-permit-scheduler-%d" ).build ()
+	);
+
+	private static class Waiter
+	{
+		final SettableFuture<Void> permit = SettableFuture.create ();
+		final long since = System.nanoTime ();
+	}
+
+	private final TokenBucketRateLimiter rateLimiter;
+	private final long maxWaitNanos;
+	private final Map<PriorityLane, Integer> weights;
+	private final Map<PriorityLane, Deque<Waiter>> queues = new EnumMap<> ( PriorityLane.class );
+	/** The smooth weighted round-robin state */
+	private final Map<PriorityLane, Integer> credits = new EnumMap<> ( PriorityLane.class );
+	private int queuedCount = 0;
+	private boolean isDispatchScheduled = false;
+
+	private final Runnable dispatcher = new Runnable ()
+	{
+		@Override
+		public void run () {
+			dispatch ();
+		}
+	};
+
+	/**
+	 * Uses the {@link PriorityLane#getConfiguredWeight() configured lane weights} and {@link #MAX_WAIT_PROP_NAME}, or
+	 * their defaults.
+	 */
+	public PriorityPermitScheduler ( TokenBucketRateLimiter rateLimiter )
+	{
+		this (
+			rateLimiter, getConfiguredWeights (),
+			Long.parseLong ( System.getProperty ( MAX_WAIT_PROP_NAME, "" + 10000 ) ), TimeUnit.MILLISECONDS
+		);
+	}
+
+	public PriorityPermitScheduler (
+		TokenBucketRateLimiter rateLimiter, Map<PriorityLane, Integer> weights, long maxWait, TimeUnit timeUnit
+	)
+	{
+		this.rateLimiter = rateLimiter;
+		this.weights = new EnumMap<> ( PriorityLane.class );
+		for ( PriorityLane lane: PriorityLane.values () )
+		{
+			Integer weight = weights.get ( lane );
+			if ( weight == null || weight < 1 )
+				throw new IllegalArgumentException ( "The weight of the Bioportal lane " + lane + " must be >= 1" );
+			this.weights.put ( lane, weight );
+			this.queues.put ( lane, new ArrayDeque<Waiter> () );
+			this.credits.put ( lane, 0 );
+		}
+		this.maxWaitNanos = timeUnit.toNanos ( maxWait );
+	}
+
+	private static Map<PriorityLane, Integer> getConfiguredWeights ()
+	{
+		Map<PriorityLane, Integer> result = new EnumMap<> ( PriorityLane.class );
+		for ( PriorityLane lane: PriorityLane.values () )
+			result.put ( lane, lane.getConfiguredWeight () );
+		return result;
+	}
+
+
+	/**
+	 * The returned future completes when the call in the given lane can go ahead. Cancelling it gives up the
+	 * place in the queue.
+	 */
+	public ListenableFuture<Void> acquireAsync ( PriorityLane lane )
+	{
+		return acquireAsync ( lane, CallScope.NO_DEADLINE );
+	}
+	
+	/**
+	 * If the permit isn't available before the deadline, the returned future fails with 
+	 * {@link OntologyServiceDeadlineException} and the place in the queue is given up.
+	 * 
+	 * @param deadlineNanos a {@link System#nanoTime()} value or {@link CallScope#NO_DEADLINE}.
+	 */
+	public ListenableFuture<Void> acquireAsync ( PriorityLane lane, long deadlineNanos )
+	{
+		final SettableFuture<Void> permit = enqueue ( lane );
+		if ( permit.isDone () || deadlineNanos == CallScope.NO_DEADLINE ) return permit;
+		
+		TIMER.schedule ( new Runnable () 
+		{
+			@Override
+			public void run () {
+				// No-op if the permit was given meanwhile
+				permit.setException ( new OntologyServiceDeadlineException ( 
+					"Deadline exceeded while waiting for a Bioportal rate limiting permit" 
+				));
+			}
+		}, CallScope.getRemainingNanos ( deadlineNanos ), TimeUnit.NANOSECONDS );
+		
+		return permit;
+	}
+	
+	private SettableFuture<Void> enqueue ( PriorityLane lane )
+	{
+		Waiter waiter = new Waiter ();
+		synchronized ( this )
+		{
+			// Nobody to overtake
+			if ( queuedCount == 0 && rateLimiter.tryAcquire () ) {
+				waiter.permit.set ( null );
+				return waiter.permit;
+			}
+			queues.get ( lane ).add ( waiter );
+			queuedCount++;
+			scheduleDispatch ();
+		}
+		return waiter.permit;
+	}
+
+	/**
+	 * Like {@link #acquireAsync(PriorityLane)}, but waits for the permit.
+	 */
+	public void acquire ( PriorityLane lane ) throws InterruptedException
+	{
+		acquire ( lane, CallScope.NO_DEADLINE );
+	}
+	
+	/**
+	 * Waits for the permit until the deadline.
+	 * 
+	 * @param deadlineNanos a {@link System#nanoTime()} value or {@link CallScope#NO_DEADLINE}.
+	 * @return false if the deadline has passed before the permit was available, in which case no permit is used.
+	 */
+	public boolean acquire ( PriorityLane lane, long deadlineNanos ) throws InterruptedException
+	{
+		ListenableFuture<Void> permit = enqueue ( lane );
+		try 
+		{
+			if ( deadlineNanos == CallScope.NO_DEADLINE ) 
+				permit.get ();
+			else
+				permit.get ( Math.max ( 0, CallScope.getRemainingNanos ( deadlineNanos ) ), TimeUnit.NANOSECONDS );
+			return true;
+		}
+		catch ( TimeoutException ex ) {
+			// If it was given meanwhile, let's use it
+			return !permit.cancel ( false );
+		}
+		catch ( InterruptedException ex ) {
+			permit.cancel ( false );
+			throw ex;
+		}
+		catch ( ExecutionException ex ) {
+			throw new IllegalStateException ( "Internal error: Bioportal permit failed: " + ex.getMessage (), ex );
+		}
+	}
+
+	/**
+	 * Must be called with the lock held.
+	 */
+	private void scheduleDispatch ()
+	{
+		if ( isDispatchScheduled ) return;
+		isDispatchScheduled = true;
+		TIMER.schedule ( dispatcher, rateLimiter.getWaitNanos (), TimeUnit.NANOSECONDS );
+	}
+
+	private synchronized void dispatch ()
+	{
+		isDispatchScheduled = false;
+		while ( purgeCancelled () > 0 )
+		{
+			if ( !rateLimiter.tryAcquire () ) {
+				scheduleDispatch ();
+				return;
+			}
+			// Someone might have cancelled or timed out meanwhile, in which case the permit goes to the next one
+			for ( Waiter waiter; ( waiter = pollNext () ) != null; )
+				if ( waiter.permit.set ( null ) ) break;
+		}
+	}
+
+	/**
+	 * Removes the cancelled (or timed out) waiters at the head of the queues and returns the no. of the remaining waiters.
+	 * Must be called with the lock held.
+	 */
+	private int purgeCancelled ()
+	{
+		for ( Deque<Waiter> queue: queues.values () )
+			while ( !queue.isEmpty () && queue.peek ().permit.isDone () ) {
+				queue.poll ();
+				queuedCount--;
+			}
+		return queuedCount;
+	}
+
+	/**
+	 * Removes the waiter to be served next from its queue and updates the round-robin state, returns null if 
+	 * all the lanes are empty. Must be called with the lock held.
+	 */
+	private Waiter pollNext ()
+	{
+		long now = System.nanoTime ();
+		PriorityLane starvingLane = null;
+		long starvingSince = Long.MAX_VALUE;
+		int totalWeight = 0;
+		PriorityLane bestLane = null;
+		int bestCredit = Integer.MIN_VALUE;
+
+		for ( PriorityLane lane: PriorityLane.values () )
+		{
+			Deque<Waiter> queue = queues.get ( lane );
+			if ( queue.isEmpty () ) continue;
+
+			long since = queue.peek ().since;
+			if ( now - since > maxWaitNanos && since < starvingSince ) {
+				starvingLane = lane; starvingSince = since;
+			}
+
+			int weight = weights.get ( lane );
+			totalWeight += weight;
+			int credit = credits.get ( lane ) + weight;
+			if ( credit > bestCredit ) {
+				bestLane = lane; bestCredit = credit;
+			}
+		}
+
+		PriorityLane result = starvingLane != null ? starvingLane : bestLane;
+		if ( result == null ) return null;
+
+		// Smooth WRR: all the non-empty lanes gain their weight, the served one pays the total
+		for ( PriorityLane lane: PriorityLane.values () )
+		{
+			if ( queues.get ( lane ).isEmpty () ) {
+				credits.put ( lane, 0 );
+				continue;
+			}
+			int credit = credits.get ( lane ) + weights.get ( lane );
+			if ( lane == result ) credit -= totalWeight;
+			credits.put ( lane, credit );
+		}
+		queuedCount--;
+		return queues.get ( result ).poll ();
+	}
+
+	/**
+	 * How long a new call would wait, in ns, assuming it goes behind all the queued calls.
+	 */
+	public long getWaitNanos ()
+	{
+		int queued;
+		synchronized ( this ) {
+			queued = queuedCount;
+		}
+		return rateLimiter.getWaitNanos () + (long) ( queued * TimeUnit.SECONDS.toNanos ( 1 ) / rateLimiter.getRate () );
+	}
+
+	/**
+	 * The no. of calls waiting in a lane (including cancelled calls not purged yet).
+	 */
+	public synchronized int getQueueLength ( PriorityLane lane )
+	{
+		return queues.get ( lane ).size ();
+	}
+
+	public TokenBucketRateLimiter getRateLimiter ()
+	{
+		return rateLimiter;
+	}
+
+	public int getWeight ( PriorityLane lane )
+	{
+		return weights.get ( lane );
+	}
+}
@@ -0,0 +1,133 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.net.HttpURLConnection;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.utils.DateUtils;
+
+/**
+ * <p>The rate limiting information that a server sends with an HTTP response, i.e., the standard
+ * <code>Retry-After</code> header and the common <code>RateLimit-Remaining/Reset</code> headers (with or
+ * without the <code>X-</code> prefix).</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class RateLimitHeaders
+{
+	/** Reset values larger than this are epoch times, not seconds from now */
+	private static final long EPOCH_SECS_THRESHOLD = 1000000000L;
+
+	private final long retryAfterMillis;
+	private final long remaining;
+	private final long resetMillis;
+
+	public RateLimitHeaders ( long retryAfterMillis, long remaining, long resetMillis )
+	{
+		this.retryAfterMillis = retryAfterMillis;
+		this.remaining = remaining;
+		this.resetMillis = resetMillis;
+	}
+
+	/**
+	 * Gets the headers from a connection that has already received the response.
+	 */
+	public static RateLimitHeaders parse ( HttpURLConnection conn )
+	{
+		long now = System.currentTimeMillis ();
+		String remaining = getHeader ( conn, "RateLimit-Remaining" );
+		String reset = getHeader ( conn, "RateLimit-Reset" );
+		return new RateLimitHeaders (
+			parseRetryAfter ( conn.getHeaderField ( "Retry-After" ), now ),
+			parseLong ( remaining ),
+			parseReset ( reset, now )
+		);
+	}
+
+	/**
+	 * Either delay-seconds or an HTTP date, as per RFC-7231.
+	 */
+	static long parseRetryAfter ( String value, long now )
+	{
+		if ( value == null ) return -1;
+		value = value.trim ();
+		long secs = parseLong ( value );
+		if ( secs >= 0 ) return TimeUnit.SECONDS.toMillis ( secs );
+
+		Date date = DateUtils.parseDate ( value );
+		return date == null ? -1 : Math.max ( 0, date.getTime () - now );
+	}
+
+	/**
+	 * Either seconds from now, or epoch seconds, both are used in practice.
+	 */
+	static long parseReset ( String value, long now )
+	{
+		long secs = parseLong ( value );
+		if ( secs < 0 ) return -1;
+		if ( secs < EPOCH_SECS_THRESHOLD ) return TimeUnit.SECONDS.toMillis ( secs );
+		return Math.max ( 0, TimeUnit.SECONDS.toMillis ( secs ) - now );
+	}
+
+	private static String getHeader ( HttpURLConnection conn, String name )
+	{
+		String result = conn.getHeaderField ( name );
+		return result != null ? result : conn.getHeaderField ( "X-" + name );
+	}
+
+	private static long parseLong ( String value )
+	{
+		if ( value == null ) return -1;
+		try {
+			return Long.parseLong ( value.trim () );
+		}
+		catch ( NumberFormatException ex ) {
+			return -1;
+		}
+	}
+
+	/**
+	 * True if the status means that the server is throttling us: HTTP 429, or HTTP 503 with a Retry-After. A 503 
+	 * without Retry-After is more likely to come from a server (or a load balancer) that is down, so it's a server 
+	 * error, not a request to slow down.
+	 */
+	public boolean isThrottling ( int status )
+	{
+		return status == 429 || status == HttpURLConnection.HTTP_UNAVAILABLE && retryAfterMillis >= 0;
+	}
+
+	/**
+	 * How long the server asked to wait before the next call, -1 if it didn't say.
+	 */
+	public long getRetryAfterMillis ()
+	{
+		return retryAfterMillis;
+	}
+
+	/**
+	 * How many calls are left in the current server window, -1 if unknown.
+	 */
+	public long getRemaining ()
+	{
+		return remaining;
+	}
+
+	/**
+	 * How long before the current server window ends, -1 if unknown.
+	 */
+	public long getResetMillis ()
+	{
+		return resetMillis;
+	}
+
+	@Override
+	public String toString ()
+	{
+		return String.format (
+			"%s { retryAfterMillis: %d, remaining: %d, resetMillis: %d }",
+			this.getClass ().getSimpleName (), this.getRetryAfterMillis (), this.getRemaining (), this.getResetMillis ()
+		);
+	}
+}
@@ -0,0 +1,146 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceDeadlineException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceHttpException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceThrottledException;
+
+/**
+ * <p>Establishes if and when a failed Bioportal call should be retried.</p>
+ *
+ * <p>Only transient failures are retried, i.e., network errors, server errors and server throttling. Delays grow exponentially
+ * with the attempt no., up to a cap, and are randomised with full jitter (a uniform random delay between 0 and
+ * the exponential value), so that many clients failing together don't come back together. Retries go through
+ * the rate limiters like any other call, so when the server says how long to wait (see
+ * {@link OntologyServiceThrottledException}), that's honoured by the limiter of the key that was throttled,
+ * while other keys might be used meanwhile.</p>
+ *
+ * <p>This is meant for idempotent calls only, which is the case of all the GET requests we send to Bioportal.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class RetryPolicy
+{
+	/**
+	 * The max no. of attempts for a call, including the first one. Default is 3, 1 means no retry.
+	 */
+	public static final String MAX_ATTEMPTS_PROP_NAME = "uk.ac.ebi.bioportal.retry_max_attempts";
+
+	/**
+	 * The delay before the first retry, before jitter, in ms. Default is 500.
+	 */
+	public static final String BASE_DELAY_PROP_NAME = "uk.ac.ebi.bioportal.retry_base_delay";
+
+	/**
+	 * The max delay between two attempts, before jitter, in ms. Default is 30000.
+	 */
+	public static final String MAX_DELAY_PROP_NAME = "uk.ac.ebi.bioportal.retry_max_delay";
+
+	/** No retries at all */
+	public static final RetryPolicy NONE = new RetryPolicy ( 1, 0, 0, TimeUnit.MILLISECONDS );
+
+	private final int maxAttempts;
+	private final long baseDelayMillis;
+	private final long maxDelayMillis;
+
+	/**
+	 * Uses {@link #MAX_ATTEMPTS_PROP_NAME}, {@link #BASE_DELAY_PROP_NAME}, {@link #MAX_DELAY_PROP_NAME}, or their
+	 * defaults.
+	 */
+	public RetryPolicy ()
+	{
+		this (
+			Integer.parseInt ( System.getProperty ( MAX_ATTEMPTS_PROP_NAME, "" + 3 ) ),
+			Long.parseLong ( System.getProperty ( BASE_DELAY_PROP_NAME, "" + 500 ) ),
+			Long.parseLong ( System.getProperty ( MAX_DELAY_PROP_NAME, "" + 30000 ) ),
+			TimeUnit.MILLISECONDS
+		);
+	}
+
+	public RetryPolicy ( int maxAttempts, long baseDelay, long maxDelay, TimeUnit timeUnit )
+	{
+		if ( maxAttempts < 1 ) throw new IllegalArgumentException ( "The max no. of call attempts must be >= 1" );
+		this.maxAttempts = maxAttempts;
+		this.baseDelayMillis = timeUnit.toMillis ( baseDelay );
+		this.maxDelayMillis = timeUnit.toMillis ( maxDelay );
+	}
+
+
+	/**
+	 * True if the failure is transient, and there are attempts left.
+	 *
+	 * @param attempt the attempt that failed, starting from 1.
+	 */
+	public boolean shouldRetry ( int attempt, Throwable failure )
+	{
+		return attempt < maxAttempts && isTransient ( failure );
+	}
+
+	/**
+	 * Throttling (HTTP 429, 503 with Retry-After), server errors (HTTP 5xx, including a 503 without Retry-After), 
+	 * connect/read timeouts and connection resets. Client errors (HTTP 4xx, e.g., a bad API key) would fail the same 
+	 * way at every attempt, and so would other I/O errors, such as a malformed JSON. Timeouts due to {@link CallScope deadlines} aren't retried either.
+	 */
+	public static boolean isTransient ( Throwable failure )
+	{
+		// The caller doesn't want to wait anymore
+		if ( failure instanceof OntologyServiceDeadlineException ) return false;
+		if ( failure instanceof OntologyServiceThrottledException ) return true;
+		if ( failure instanceof OntologyServiceHttpException ) 
+		{
+			int status = ( (OntologyServiceHttpException) failure ).getStatusCode ();
+			return status == 429 || status >= 500;
+		}
+		if ( !( failure instanceof OntologyServiceException ) ) return false;
+		
+		Throwable cause = failure.getCause ();
+		if ( cause instanceof SocketTimeoutException || cause instanceof ConnectException ) return true;
+		if ( !( cause instanceof SocketException ) ) return false;
+		String msg = cause.getMessage ();
+		return msg != null && msg.toLowerCase ().contains ( "reset" );
+	}
+
+	/**
+	 * How long to wait before the next attempt.
+	 *
+	 * @param attempt the attempt that failed, starting from 1.
+	 */
+	public long getDelayMillis ( int attempt )
+	{
+		// The shift is capped, to avoid overflows
+		long expDelay = Math.min ( maxDelayMillis, baseDelayMillis << Math.min ( attempt - 1, 30 ) );
+		return expDelay <= 0 ? 0 : ThreadLocalRandom.current ().nextLong ( expDelay + 1 );
+	}
+
+	public int getMaxAttempts ()
+	{
+		return maxAttempts;
+	}
+
+	public long getBaseDelayMillis ()
+	{
+		return baseDelayMillis;
+	}
+
+	public long getMaxDelayMillis ()
+	{
+		return maxDelayMillis;
+	}
+
+	@Override
+	public String toString ()
+	{
+		return String.format (
+			"%s { maxAttempts: %d, baseDelayMillis: %d, maxDelayMillis: %d }",
+			this.getClass ().getSimpleName (), this.getMaxAttempts (), this.getBaseDelayMillis (), this.getMaxDelayMillis ()
+		);
+	}
+}
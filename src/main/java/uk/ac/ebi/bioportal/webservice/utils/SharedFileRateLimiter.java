@@ -0,0 +1,222 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
+
+/**
+ * <p>A {@link TokenBucketRateLimiter} that keeps its state in a memory-mapped file, so that all the JVMs on the
+ * same host that use the same file share the same rate limit, e.g., several worker processes using the same
+ * Bioportal API key.</p>
+ *
+ * <p>The file contains the time when the next permit is released, which is updated under an exclusive
+ * {@link FileLock file lock} (plus a JVM lock, since file locks are per process). Each instance can have its own
+ * rate: a permit taken at a given rate pushes the next permit time forward by the corresponding interval, so the
+ * JVMs together never exceed the highest of their rates. Times are wall clock times, with nanosecond
+ * resolution, so that they're comparable between processes.</p>
+ *
+ * <p>The wall clock time is computed from {@link System#nanoTime()}, starting from a base taken with
+ * {@link System#currentTimeMillis()}, which is re-synchronised every minute, so that JVMs that run for a long
+ * time don't drift apart from the others. As a consequence, if the system clock is moved backward, the limiters
+ * wait that much longer for their next permit (within a minute, or when a new JVM starts).</p>
+ *
+ * <p>Only updates take the file lock, reads of the next permit time, e.g., for {@link #getWaitNanos()}, don't,
+ * since they're just snapshots, and every update checks the value it's based on.</p>
+ *
+ * <p>This is used by {@link BioportalInvoker} when {@link #DIR_PROP_NAME} is set.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class SharedFileRateLimiter extends TokenBucketRateLimiter
+{
+	/**
+	 * If set, the Bioportal rate limits are shared with other JVMs via files in this directory, one per API key.
+	 */
+	public static final String DIR_PROP_NAME = "uk.ac.ebi.bioportal.shared_rate_limit_dir";
+
+	/**
+	 * The mapped file. It's one per path within a JVM, since file locks can't overlap within the same process.
+	 */
+	private static class SharedFile
+	{
+		private static final int MAGIC = 0x4250524C; // "BPRL"
+		private static final int VERSION = 1;
+		private static final int MAGIC_POS = 0, VERSION_POS = 4, NEXT_FREE_POS = 8, SIZE = 16;
+
+		private final Path path;
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+
+		SharedFile ( Path path ) throws IOException
+		{
+			this.path = path;
+			// The channel stays open as long as the JVM lives, there are a few of them
+			@SuppressWarnings ( "resource" )
+			FileChannel channel = new RandomAccessFile ( path.toFile (), "rw" ).getChannel ();
+			this.channel = channel;
+			this.buffer = channel.map ( FileChannel.MapMode.READ_WRITE, 0, SIZE );
+
+			synchronized ( this )
+			{
+				try ( FileLock lock = channel.lock ( 0, SIZE, false ) )
+				{
+					int magic = buffer.getInt ( MAGIC_POS );
+					if ( magic == 0 )
+					{
+						// New file, a next time of 0 means a permit is available
+						buffer.putInt ( MAGIC_POS, MAGIC );
+						buffer.putInt ( VERSION_POS, VERSION );
+						buffer.putLong ( NEXT_FREE_POS, 0 );
+					}
+					else if ( magic != MAGIC || buffer.getInt ( VERSION_POS ) != VERSION )
+						throw new IOException ( "'" + path + "' is not a Bioportal rate limit file" );
+				}
+			}
+		}
+
+		/**
+		 * No lock here, an aligned long in the mapped page is read in one go, and an outdated value just makes
+		 * {@link #compareAndSetNextFreeNanos(long, long)} fail.
+		 */
+		long getNextFreeNanos ()
+		{
+			return buffer.getLong ( NEXT_FREE_POS );
+		}
+
+		synchronized boolean compareAndSetNextFreeNanos ( long expect, long update )
+		{
+			try ( FileLock lock = channel.lock ( 0, SIZE, false ) )
+			{
+				if ( buffer.getLong ( NEXT_FREE_POS ) != expect ) return false;
+				buffer.putLong ( NEXT_FREE_POS, update );
+				return true;
+			}
+			catch ( IOException ex ) {
+				throw new OntologyServiceException ( "Error while writing the shared rate limit file '" + path + "': " + ex.getMessage (), ex );
+			}
+		}
+	}
+
+	private static final ConcurrentMap<Path, SharedFile> SHARED_FILES = new ConcurrentHashMap<> ();
+
+	/**
+	 * Wall clock time with the resolution of nanoTime(), see now().
+	 */
+	private static class ClockBase
+	{
+		final long epochNanos = TimeUnit.MILLISECONDS.toNanos ( System.currentTimeMillis () );
+		final long nanoTime = System.nanoTime ();
+	}
+
+	/** How often {@link ClockBase} is taken again */
+	private static final long CLOCK_RESYNC_NANOS = TimeUnit.MINUTES.toNanos ( 1 );
+
+	private static volatile ClockBase clockBase = new ClockBase ();
+
+	private final SharedFile sharedFile;
+
+	public SharedFileRateLimiter ( Path path, double permitsPerSecond )
+	{
+		this ( path, permitsPerSecond, 1 );
+	}
+
+	public SharedFileRateLimiter ( Path path, double permitsPerSecond, int burstSize )
+	{
+		super ( permitsPerSecond, burstSize );
+		this.sharedFile = getSharedFile ( path );
+	}
+
+	/**
+	 * A limiter based on a file in the directory, which is named after the API key's hash, so that the key
+	 * doesn't end up on the file system.
+	 */
+	public static SharedFileRateLimiter forApiKey ( Path dir, String apiKey, double permitsPerSecond )
+	{
+		try
+		{
+			Files.createDirectories ( dir );
+			return new SharedFileRateLimiter ( 
+				dir.resolve ( "bioportal-" + BioportalWebServiceUtils.hashApiKey ( apiKey ) + ".rate" ), permitsPerSecond 
+			);
+		}
+		catch ( IOException ex ) {
+			throw new OntologyServiceException (
+				"Error while setting up the shared rate limit in '" + dir + "': " + ex.getMessage (), ex
+			);
+		}
+	}
+
+	/**
+	 * Uses {@link #forApiKey(Path, String, double)} with {@link #DIR_PROP_NAME}, returns null if it isn't set.
+	 */
+	public static SharedFileRateLimiter forApiKey ( String apiKey, double permitsPerSecond )
+	{
+		String dir = System.getProperty ( DIR_PROP_NAME );
+		if ( dir == null || dir.isEmpty () ) return null;
+		return forApiKey ( Paths.get ( dir ), apiKey, permitsPerSecond );
+	}
+
+	private static SharedFile getSharedFile ( Path path )
+	{
+		try
+		{
+			path = path.toAbsolutePath ().normalize ();
+			SharedFile result = SHARED_FILES.get ( path );
+			if ( result != null ) return result;
+
+			synchronized ( SHARED_FILES )
+			{
+				if ( ( result = SHARED_FILES.get ( path ) ) != null ) return result;
+				result = new SharedFile ( path );
+				SHARED_FILES.put ( path, result );
+				return result;
+			}
+		}
+		catch ( IOException ex ) {
+			throw new OntologyServiceException (
+				"Error while opening the shared rate limit file '" + path + "': " + ex.getMessage (), ex
+			);
+		}
+	}
+
+	@Override
+	protected long now ()
+	{
+		ClockBase base = clockBase;
+		long elapsed = System.nanoTime () - base.nanoTime;
+		if ( elapsed < CLOCK_RESYNC_NANOS ) return base.epochNanos + elapsed;
+		
+		// Concurrent re-syncs are harmless
+		clockBase = base = new ClockBase ();
+		return base.epochNanos;
+	}
+
+	@Override
+	protected long getNextFreeNanos ()
+	{
+		return sharedFile.getNextFreeNanos ();
+	}
+
+	@Override
+	protected boolean compareAndSetNextFreeNanos ( long expect, long update )
+	{
+		return sharedFile.compareAndSetNextFreeNanos ( expect, update );
+	}
+
+	public Path getPath ()
+	{
+		return sharedFile.path;
+	}
+}
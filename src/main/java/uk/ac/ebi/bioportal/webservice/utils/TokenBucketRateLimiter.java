@@ -0,0 +1,195 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <p>A lock-free token bucket, which releases permits at a given rate, allowing for bursts of up to a given
+ * number of permits.</p>
+ *
+ * <p>This is implemented with the Generic Cell Rate Algorithm: the only state is the theoretical time when the
+ * next permit becomes available, which is updated via compare-and-set, so threads never wait for each other,
+ * they only wait for their permit, either {@link #acquire() sleeping} or {@link #acquireAsync() asynchronously}.</p>
+ *
+ * <p>The state is kept in memory by default, subclasses can keep it elsewhere, by overriding 
+ * {@link #getNextFreeNanos()}, {@link #compareAndSetNextFreeNanos(long, long)} and {@link #now()}, see 
+ * {@link SharedFileRateLimiter}.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class TokenBucketRateLimiter
+{
+	/** Used to complete async acquisitions, it's only a timer, no real work is done here. */
+	private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor (
+		new ThreadFactoryBuilder ().setDaemon ( true ).setNameFormat ( "bioportal-rate-limiter-%d" ).build ()
+	);
+
+	/** The time (System.nanoTime()) when the next permit is expected to be released, after the burst is used up */
+	private final AtomicLong nextFreeNanos = new AtomicLong ( System.nanoTime () );
+	private final int burstSize;
+	private volatile long intervalNanos;
+
+	/**
+	 * Uses a burst size of 1, i.e., permits are evenly spaced.
+	 */
+	public TokenBucketRateLimiter ( double permitsPerSecond )
+	{
+		this ( permitsPerSecond, 1 );
+	}
+
+	/**
+	 * @param permitsPerSecond the steady rate
+	 * @param burstSize how many permits can be taken at once, after a period of inactivity
+	 */
+	public TokenBucketRateLimiter ( double permitsPerSecond, int burstSize )
+	{
+		if ( burstSize < 1 ) throw new IllegalArgumentException ( "The token bucket burst size must be >= 1" );
+		this.burstSize = burstSize;
+		setRate ( permitsPerSecond );
+	}
+
+	/**
+	 * Reserves the next permit and returns how long (in ns) the caller has to wait before using it.
+	 */
+	private long reserve ()
+	{
+		long burstNanos = ( burstSize - 1 ) * intervalNanos;
+		while ( true )
+		{
+			long now = now ();
+			long next = getNextFreeNanos ();
+			// If the bucket has been idle, permits don't accumulate beyond the burst size
+			long start = Math.max ( next, now - burstNanos );
+			if ( compareAndSetNextFreeNanos ( next, start + intervalNanos ) )
+				return Math.max ( 0, start - now );
+		}
+	}
+
+	/**
+	 * Waits until a permit is available, sleeping the current thread.
+	 *
+	 * @return the time waited, in ns.
+	 */
+	public long acquire () throws InterruptedException
+	{
+		long waitNanos = reserve ();
+		if ( waitNanos > 0 ) TimeUnit.NANOSECONDS.sleep ( waitNanos );
+		return waitNanos;
+	}
+
+	/**
+	 * Like {@link #acquire()}, but doesn't block the caller: the returned future completes when the permit
+	 * is available, and no thread is parked meanwhile.
+	 */
+	public ListenableFuture<Void> acquireAsync ()
+	{
+		final SettableFuture<Void> result = SettableFuture.create ();
+		long waitNanos = reserve ();
+		if ( waitNanos <= 0 )
+		{
+			result.set ( null );
+			return result;
+		}
+		TIMER.schedule ( new Runnable ()
+		{
+			@Override
+			public void run () {
+				result.set ( null );
+			}
+		}, waitNanos, TimeUnit.NANOSECONDS );
+		return result;
+	}
+
+	/**
+	 * Takes a permit only if it's available immediately.
+	 */
+	public boolean tryAcquire ()
+	{
+		long burstNanos = ( burstSize - 1 ) * intervalNanos;
+		while ( true )
+		{
+			long now = now ();
+			long next = getNextFreeNanos ();
+			long start = Math.max ( next, now - burstNanos );
+			if ( start > now ) return false;
+			if ( compareAndSetNextFreeNanos ( next, start + intervalNanos ) ) return true;
+		}
+	}
+
+	/**
+	 * Stops releasing permits for the given time, e.g., because the server asked so. Permits already reserved 
+	 * are not affected, permits reserved after this call are released after the pause.
+	 */
+	public void pause ( long time, TimeUnit timeUnit )
+	{
+		long until = now () + timeUnit.toNanos ( time );
+		while ( true )
+		{
+			long next = getNextFreeNanos ();
+			if ( next >= until || compareAndSetNextFreeNanos ( next, until ) ) return;
+		}
+	}
+
+	/**
+	 * How long a caller would wait now for a permit, in ns, 0 if a permit is available immediately. This is a 
+	 * snapshot, it doesn't reserve anything.
+	 */
+	public long getWaitNanos ()
+	{
+		long now = now ();
+		long start = Math.max ( getNextFreeNanos (), now - ( burstSize - 1 ) * intervalNanos );
+		return Math.max ( 0, start - now );
+	}
+
+	/**
+	 * The current time, in the same time base of {@link #getNextFreeNanos()}. This is {@link System#nanoTime()} by
+	 * default.
+	 */
+	protected long now ()
+	{
+		return System.nanoTime ();
+	}
+	
+	/**
+	 * The time when the next permit is expected to be released.
+	 */
+	protected long getNextFreeNanos ()
+	{
+		return nextFreeNanos.get ();
+	}
+
+	/**
+	 * Atomically sets the {@link #getNextFreeNanos() next permit time}, if it still has the expected value.
+	 */
+	protected boolean compareAndSetNextFreeNanos ( long expect, long update )
+	{
+		return nextFreeNanos.compareAndSet ( expect, update );
+	}
+
+	/**
+	 * Changes the rate, affecting the permits that aren't reserved yet.
+	 */
+	public void setRate ( double permitsPerSecond )
+	{
+		if ( !( permitsPerSecond > 0 ) ) throw new IllegalArgumentException ( "The token bucket rate must be > 0" );
+		this.intervalNanos = (long) ( TimeUnit.SECONDS.toNanos ( 1 ) / permitsPerSecond );
+	}
+
+	public double getRate ()
+	{
+		return TimeUnit.SECONDS.toNanos ( 1 ) / (double) intervalNanos;
+	}
+
+	public int getBurstSize ()
+	{
+		return burstSize;
+	}
+}
@@ -0,0 +1,31 @@
+package uk.ac.ebi.bioportal.webservice.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The fetching of a value missing from one of the client caches.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+@Name ( "uk.ac.ebi.bioportal.CacheLoad" )
+@Label ( "Bioportal Cache Load" )
+@Category ( "Bioportal Client" )
+@Description ( "A value missing from a Bioportal client cache, fetched from Bioportal" )
+public class CacheLoadEvent extends jdk.jfr.Event
+{
+	@Label ( "Cache" )
+	String cache;
+
+	@Label ( "Load Time" )
+	@Timespan
+	long loadTime;
+
+	@Label ( "Failed" )
+	boolean failed;
+}
@@ -0,0 +1,35 @@
+package uk.ac.ebi.bioportal.webservice.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A lookup in one of the client caches. These are frequent, so they're disabled by default, enable them in the
+ * recording settings (e.g., with <code>&lt;event name="uk.ac.ebi.bioportal.CacheLookup"&gt;</code> in a .jfc file).
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+@Name ( "uk.ac.ebi.bioportal.CacheLookup" )
+@Label ( "Bioportal Cache Lookup" )
+@Category ( "Bioportal Client" )
+@Description ( "A lookup in a Bioportal client cache" )
+@Enabled ( false )
+@StackTrace ( false )
+public class CacheLookupEvent extends jdk.jfr.Event
+{
+	@Label ( "Cache" )
+	String cache;
+
+	@Label ( "Hit" )
+	boolean hit;
+
+	@Label ( "Expired" )
+	@Description ( "The entry was there, but expired" )
+	boolean expired;
+}
@@ -0,0 +1,42 @@
+package uk.ac.ebi.bioportal.webservice.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * An HTTP call to Bioportal. The event duration is the call latency.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+@Name ( "uk.ac.ebi.bioportal.Invocation" )
+@Label ( "Bioportal Invocation" )
+@Category ( "Bioportal Client" )
+@Description ( "An HTTP call to the Bioportal web service" )
+public class InvocationEvent extends jdk.jfr.Event
+{
+	@Label ( "Endpoint" )
+	String endpoint;
+
+	@Label ( "HTTP Status" )
+	@Description ( "0 if the call didn't get any response" )
+	int status;
+
+	@Label ( "Bytes Received" )
+	@DataAmount
+	long bytes;
+
+	@Label ( "Permit Wait" )
+	@Description ( "Time spent waiting for the rate limiter, before the call" )
+	@Timespan
+	long permitWait;
+
+	@Label ( "Attempt" )
+	@Description ( "1 for the first attempt, more for retries" )
+	int attempt;
+}
@@ -0,0 +1,68 @@
+package uk.ac.ebi.bioportal.webservice.metrics.jfr;
+
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalEndpoint;
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalEventSink;
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalEvents;
+
+/**
+ * <p>Sends the client events to Java Flight Recorder. This is loaded by {@link BioportalEvents} only when JFR is
+ * available. When no recording is active, or the events are disabled, the cost is an allocation and a flag check.</p>
+ *
+ * <p>Cache loads are committed when they're over, with their duration as a field, rather than the event duration,
+ * since they're reported after the fact.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class JfrEventSink implements BioportalEventSink
+{
+	@Override
+	public Object beginInvocation ()
+	{
+		InvocationEvent event = new InvocationEvent ();
+		if ( !event.isEnabled () ) return null;
+		event.begin ();
+		return event;
+	}
+
+	@Override
+	public void endInvocation (
+		Object invocation, BioportalEndpoint endpoint, int status, long bytes, long permitWaitNanos, int attempt
+	)
+	{
+		if ( invocation == null ) return;
+		InvocationEvent event = (InvocationEvent) invocation;
+		event.end ();
+		if ( !event.shouldCommit () ) return;
+
+		event.endpoint = endpoint.getId ();
+		event.status = status;
+		event.bytes = bytes;
+		event.permitWait = permitWaitNanos;
+		event.attempt = attempt;
+		event.commit ();
+	}
+
+	@Override
+	public void cacheLookup ( String cacheName, boolean isHit, boolean isExpired )
+	{
+		CacheLookupEvent event = new CacheLookupEvent ();
+		if ( !event.isEnabled () ) return;
+		event.cache = cacheName;
+		event.hit = isHit;
+		event.expired = isExpired;
+		event.commit ();
+	}
+
+	@Override
+	public void cacheLoad ( String cacheName, long loadNanos, boolean isFailed )
+	{
+		CacheLoadEvent event = new CacheLoadEvent ();
+		if ( !event.isEnabled () ) return;
+		event.cache = cacheName;
+		event.loadTime = loadNanos;
+		event.failed = isFailed;
+		event.commit ();
+	}
+}
@@ -0,0 +1,246 @@
+package uk.ac.ebi.bioportal.webservice.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.cache.NegativeResultCache.ResultType;
+import uk.ac.ebi.bioportal.webservice.model.ClassRef;
+import uk.ac.ebi.bioportal.webservice.model.Ontology;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClass;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClassMapping;
+
+/**
+ * Tests {@link CacheSnapshotWriter} and {@link CacheSnapshotReader}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class CacheSnapshotTest
+{
+	@Test
+	public void testRoundTrip () throws IOException
+	{
+		long now = System.currentTimeMillis ();
+
+		OntologyClass cls = new OntologyClass ( "http://www.ebi.ac.uk/efo/EFO_0000270" );
+		cls.setOntologyAcronym ( "EFO" );
+		cls.setPreferredLabel ( "asthma" );
+		cls.setSynonyms ( new HashSet<> ( Arrays.asList ( "Hyperreactive airway disease", "asthma attack" ) ) );
+
+		Ontology onto = new Ontology ( "EFO" );
+		onto.setName ( "Experimental Factor Ontology" );
+		onto.setClassUriPrefix ( "http://www.ebi.ac.uk/efo/" );
+
+		OntologyClassMapping map = new OntologyClassMapping ();
+		map.setId ( "map1" );
+		map.setSource ( "LOOM" );
+		map.setTargetClassRef ( new ClassRef ( "http://purl.bioontology.org/ontology/MESH/D001249", "MESH" ) );
+
+		NegativeResultCache negCache = new NegativeResultCache ( 100, 1, TimeUnit.HOURS, false );
+		negCache.put ( ResultType.ONTOLOGY, "RUBBISH123" );
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream ();
+		try ( CacheSnapshotWriter writer = new CacheSnapshotWriter ( out ) )
+		{
+			writer.writeClass ( 
+				cls.getIri (), new CacheEntry<> ( cls, now - 1000, now + 60000, "\"abc123\"", "Sat, 17 Oct 2026 10:00:00 GMT" ) 
+			);
+			writer.writeOntology ( "EFO", new CacheEntry<> ( onto, now - 1000, now + 60000 ) );
+			writer.writeMappings ( cls.getIri (), new CacheEntry<List<OntologyClassMapping>> ( Arrays.asList ( map ), now, now + 60000 ) );
+			// Already expired, must be skipped on reading
+			writer.writeOntology ( "OLD", new CacheEntry<> ( new Ontology ( "OLD" ), now - 2000, now - 1000 ) );
+			writer.writeClassCollection ( "children EFO x", new CacheEntry<> ( Collections.singleton ( cls ), now, now + 60000 ) );
+			writer.writeNegatives ( negCache );
+			assertEquals ( "Bad write count!", 6, writer.getCount () );
+		}
+
+		final Map<String, CacheEntry<?>> entries = new HashMap<> ();
+		NegativeResultCache negCache1 = new NegativeResultCache ( 100, 1, TimeUnit.HOURS, false );
+
+		try ( CacheSnapshotReader reader = new CacheSnapshotReader ( new ByteArrayInputStream ( out.toByteArray () ) ) )
+		{
+			long count = reader.read (
+				new CacheSnapshotReader.Handler ()
+				{
+					@Override
+					public void onClass ( String key, CacheEntry<OntologyClass> entry ) {
+						entries.put ( "class:" + key, entry );
+					}
+
+					@Override
+					public void onOntology ( String key, CacheEntry<Ontology> entry ) {
+						entries.put ( "onto:" + key, entry );
+					}
+
+					@Override
+					public void onMappings ( String key, CacheEntry<List<OntologyClassMapping>> entry ) {
+						entries.put ( "maps:" + key, entry );
+					}
+
+					@Override
+					public void onClassCollection ( String key, CacheEntry<Set<OntologyClass>> entry ) {
+						entries.put ( "coll:" + key, entry );
+					}
+				},
+				negCache1
+			);
+			assertEquals ( "Bad read count!", 6, count );
+		}
+
+		assertEquals ( "Bad no. of imported entries!", 4, entries.size () );
+		assertNull ( "Expired entry imported!", entries.get ( "onto:OLD" ) );
+
+		CacheEntry<?> clsEntry = entries.get ( "class:" + cls.getIri () );
+		assertNotNull ( "Class not imported!", clsEntry );
+		assertEquals ( "Bad expiration time!", now + 60000, clsEntry.getExpiresAt () );
+		assertEquals ( "Bad ETag!", "\"abc123\"", clsEntry.getETag () );
+		assertEquals ( "Bad Last-Modified!", "Sat, 17 Oct 2026 10:00:00 GMT", clsEntry.getLastModified () );
+		OntologyClass cls1 = (OntologyClass) clsEntry.getValue ();
+		assertEquals ( "Bad label!", "asthma", cls1.getPreferredLabel () );
+		assertTrue ( "Bad synonyms!", cls1.getSynonyms ().contains ( "asthma attack" ) );
+		assertNull ( "Bad definitions!", cls1.getDefinitions () );
+		assertFalse ( "Bad obsolete flag!", cls1.isObsolete () );
+
+		assertFalse ( "Bad validators!", entries.get ( "onto:EFO" ).hasValidators () );
+		Ontology onto1 = (Ontology) entries.get ( "onto:EFO" ).getValue ();
+		assertEquals ( "Bad ontology prefix!", "http://www.ebi.ac.uk/efo/", onto1.getClassUriPrefix () );
+
+		@SuppressWarnings ( "unchecked" )
+		List<OntologyClassMapping> maps1 = (List<OntologyClassMapping>) entries.get ( "maps:" + cls.getIri () ).getValue ();
+		assertEquals ( "Bad mapping target!", "MESH", maps1.get ( 0 ).getTargetClassRef ().getOntologyAcronym () );
+		assertNull ( "Bad mapping process!", maps1.get ( 0 ).getProcess () );
+
+		@SuppressWarnings ( "unchecked" )
+		Set<OntologyClass> coll1 = (Set<OntologyClass>) entries.get ( "coll:children EFO x" ).getValue ();
+		assertEquals ( "Bad class collection!", "asthma", coll1.iterator ().next ().getPreferredLabel () );
+
+		assertTrue ( "Miss not imported!", negCache1.contains ( ResultType.ONTOLOGY, "RUBBISH123" ) );
+	}
+
+	/**
+	 * A snapshot written before v4 has no validators, the current reader must still import it.
+	 */
+	@Test
+	public void testV3Snapshot () throws IOException
+	{
+		long now = System.currentTimeMillis ();
+		ByteArrayOutputStream out = new ByteArrayOutputStream ();
+		try ( DataOutputStream dout = new DataOutputStream ( new GZIPOutputStream ( out ) ) )
+		{
+			dout.writeInt ( CacheSnapshotWriter.MAGIC );
+			dout.writeShort ( 3 );
+			dout.writeLong ( now );
+
+			dout.writeByte ( CacheSnapshotWriter.ONTOLOGY_RECORD );
+			writeV3String ( dout, "EFO" );
+			dout.writeLong ( now - 1000 );
+			dout.writeLong ( now + 60000 );
+			writeV3String ( dout, "EFO" );
+			writeV3String ( dout, "Experimental Factor Ontology" );
+			writeV3String ( dout, null );
+
+			dout.writeByte ( CacheSnapshotWriter.MAPPINGS_RECORD );
+			writeV3String ( dout, "EFO x" );
+			dout.writeLong ( now - 1000 );
+			dout.writeLong ( now + 60000 );
+			dout.writeInt ( 1 );
+			writeV3String ( dout, "map1" );
+			writeV3String ( dout, "LOOM" );
+			writeV3String ( dout, null );
+			dout.writeBoolean ( false );
+
+			dout.writeByte ( CacheSnapshotWriter.END_RECORD );
+		}
+
+		final Map<String, CacheEntry<?>> entries = new HashMap<> ();
+		try ( CacheSnapshotReader reader = new CacheSnapshotReader ( new ByteArrayInputStream ( out.toByteArray () ) ) )
+		{
+			assertEquals ( "Bad format version!", 3, reader.getFormatVersion () );
+			assertEquals ( "Bad write time!", now, reader.getWrittenAt () );
+			long count = reader.read (
+				new CacheSnapshotReader.Handler ()
+				{
+					@Override
+					public void onClass ( String key, CacheEntry<OntologyClass> entry ) {
+						entries.put ( "class:" + key, entry );
+					}
+
+					@Override
+					public void onOntology ( String key, CacheEntry<Ontology> entry ) {
+						entries.put ( "onto:" + key, entry );
+					}
+
+					@Override
+					public void onMappings ( String key, CacheEntry<List<OntologyClassMapping>> entry ) {
+						entries.put ( "maps:" + key, entry );
+					}
+
+					@Override
+					public void onClassCollection ( String key, CacheEntry<Set<OntologyClass>> entry ) {
+						entries.put ( "coll:" + key, entry );
+					}
+				},
+				null
+			);
+			assertEquals ( "Bad read count!", 2, count );
+		}
+
+		CacheEntry<?> ontoEntry = entries.get ( "onto:EFO" );
+		assertNotNull ( "Ontology not imported!", ontoEntry );
+		assertFalse ( "v3 entry with validators!", ontoEntry.hasValidators () );
+		assertEquals ( "Bad expiration time!", now + 60000, ontoEntry.getExpiresAt () );
+		assertEquals ( "Bad ontology name!", "Experimental Factor Ontology", ( (Ontology) ontoEntry.getValue () ).getName () );
+
+		CacheEntry<?> mapsEntry = entries.get ( "maps:EFO x" );
+		assertNotNull ( "Mappings not imported!", mapsEntry );
+		assertFalse ( "v3 entry with validators!", mapsEntry.hasValidators () );
+		@SuppressWarnings ( "unchecked" )
+		List<OntologyClassMapping> maps = (List<OntologyClassMapping>) mapsEntry.getValue ();
+		assertEquals ( "Bad mapping source!", "LOOM", maps.get ( 0 ).getSource () );
+		assertNull ( "Bad mapping target!", maps.get ( 0 ).getTargetClassRef () );
+	}
+
+	/**
+	 * Same format as {@link CacheSnapshotWriter}, which can only write the current version.
+	 */
+	private static void writeV3String ( DataOutputStream out, String s ) throws IOException
+	{
+		if ( s == null ) {
+			out.writeInt ( -1 );
+			return;
+		}
+		byte[] bytes = s.getBytes ( "UTF-8" );
+		out.writeInt ( bytes.length );
+		out.write ( bytes );
+	}
+
+	@Test ( expected = IOException.class )
+	public void testBadInput () throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream ();
+		try ( GZIPOutputStream gzout = new GZIPOutputStream ( out ) ) {
+			gzout.write ( "Hello, World".getBytes ( "UTF-8" ) );
+		}
+		new CacheSnapshotReader ( new ByteArrayInputStream ( out.toByteArray () ) ).close ();
+	}
+}
@@ -0,0 +1,87 @@
+package uk.ac.ebi.bioportal.webservice.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.client.BioportalClient;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubRule;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+
+/**
+ * Tests {@link CacheStatistics}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class CacheStatisticsTest
+{
+	@Rule
+	public BioportalStubRule stub = new BioportalStubRule ();
+
+	@Test
+	public void testRemovals ()
+	{
+		CacheStatistics stats = new CacheStatistics ( "test" );
+		Cache<String, String> cache = stats.buildCache ( CacheBuilder.newBuilder ().maximumSize ( 2 ) );
+
+		cache.put ( "a", "A" );
+		cache.put ( "a", "A1" );
+		cache.put ( "b", "B" );
+		cache.put ( "c", "C" );
+		cache.invalidate ( "c" );
+
+		assertEquals ( "Bad replaced count!", 1, stats.getRemovalCount ( RemovalCause.REPLACED ) );
+		assertEquals ( "Bad size eviction count!", 1, stats.getRemovalCount ( RemovalCause.SIZE ) );
+		assertEquals ( "Bad explicit removal count!", 1, stats.getRemovalCount ( RemovalCause.EXPLICIT ) );
+		assertEquals ( "Bad eviction count!", 1, stats.getEvictionCount () );
+		assertEquals ( "Bad size!", 1, stats.getEstimatedSize () );
+
+		CacheStatistics snapshot = stats.snapshot ();
+		cache.put ( "d", "D" );
+		assertEquals ( "Snapshot affected by later changes!", 1, snapshot.getEstimatedSize () );
+	}
+
+	@Test
+	public void testClientStatistics () throws Exception
+	{
+		BioportalClient client = new BioportalClient ( "stub-key" );
+
+		String asthmaIri = "http://www.ebi.ac.uk/efo/EFO_0000270", noIri = "http://www.ebi.ac.uk/efo/EFO_9999999";
+		for ( int i = 0; i < 3; i++ ) client.getOntologyClass ( "EFO", asthmaIri );
+		for ( int i = 0; i < 2; i++ ) client.getOntologyClass ( "EFO", noIri );
+
+		CacheStatistics classStats = null;
+		for ( CacheStatistics stats: client.getCacheStatistics () )
+			if ( "classes".equals ( stats.getName () ) ) classStats = stats.snapshot ();
+
+		assertEquals ( "Bad hit count!", 2, classStats.getHitCount () );
+		assertEquals ( "Bad miss count!", 3, classStats.getMissCount () );
+		assertEquals ( "Bad negative hit count!", 1, classStats.getNegativeHitCount () );
+		assertEquals ( "Bad load count!", 2, classStats.getLoadCount () );
+		assertEquals ( "Bad load failure count!", 0, classStats.getLoadFailureCount () );
+		assertEquals ( "Bad size!", 1, classStats.getEstimatedSize () );
+		assertEquals ( "Bad client hit count!", 2, client.getCacheHitCount () );
+		assertTrue ( "Bad log line!", classStats.toString ().startsWith ( "classes: 5 lookups, 40.0% hits" ) );
+
+		// JMX
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer ();
+		ObjectName name = new ObjectName ( "uk.ac.ebi.bioportal:type=CacheStatistics,client=\"test\",cache=classes" );
+		client.registerCacheMBeans ( "test" );
+		assertEquals ( "Bad JMX hit count!", 2L, mbeanServer.getAttribute ( name, "HitCount" ) );
+		client.unregisterCacheMBeans ();
+		assertFalse ( "MBean not unregistered!", mbeanServer.isRegistered ( name ) );
+	}
+}
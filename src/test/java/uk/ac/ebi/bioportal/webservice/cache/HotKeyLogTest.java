@@ -0,0 +1,63 @@
+package uk.ac.ebi.bioportal.webservice.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.cache.HotKeyLog.HotKey;
+import uk.ac.ebi.bioportal.webservice.cache.HotKeyLog.KeyType;
+
+/**
+ * Tests for {@link HotKeyLog}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class HotKeyLogTest
+{
+	@Test
+	public void testRecordAndSave () throws IOException
+	{
+		HotKeyLog hkLog = new HotKeyLog ( 1, 100 );
+		for ( int i = 0; i < 3; i++ ) hkLog.record ( KeyType.CLASS, "EFO", "http://www.ebi.ac.uk/efo/EFO_0000270" );
+		hkLog.record ( KeyType.ONTOLOGY, "EFO", null );
+		for ( int i = 0; i < 2; i++ ) hkLog.record ( KeyType.MAPPINGS, "EFO", "http://www.ebi.ac.uk/efo/EFO_0000270" );
+
+		List<HotKey> top = hkLog.getTop ( 2 );
+		assertEquals ( "Bad top size!", 2, top.size () );
+		assertEquals ( "Bad top key!", KeyType.CLASS, top.get ( 0 ).getType () );
+		assertEquals ( "Bad top count!", 3, top.get ( 0 ).getCount () );
+		assertEquals ( "Bad 2nd key!", KeyType.MAPPINGS, top.get ( 1 ).getType () );
+
+		File file = File.createTempFile ( "bioportal-hot-keys", ".tsv" );
+		file.deleteOnExit ();
+		hkLog.save ( file.toPath () );
+
+		HotKeyLog hkLog1 = new HotKeyLog ( 1, 100 );
+		hkLog1.load ( file.toPath () );
+		hkLog1.load ( file.toPath () );
+
+		List<HotKey> top1 = hkLog1.getTop ( 3 );
+		assertEquals ( "Bad reloaded count!", 6, top1.get ( 0 ).getCount () );
+		assertEquals ( "Bad reloaded ontology key!", KeyType.ONTOLOGY, top1.get ( 2 ).getType () );
+		assertNull ( "Bad reloaded ontology IRI!", top1.get ( 2 ).getIri () );
+	}
+
+	@Test
+	public void testTrimming ()
+	{
+		HotKeyLog hkLog = new HotKeyLog ( 1, 10 );
+		for ( int i = 0; i < 5; i++ ) hkLog.record ( KeyType.ONTOLOGY, "EFO", null );
+		for ( int i = 0; i < 50; i++ ) hkLog.record ( KeyType.ONTOLOGY, "RUBBISH" + i, null );
+
+		assertTrue ( "Hot key log not trimmed!", hkLog.size () <= 10 );
+		assertEquals ( "Top key lost after trimming!", "EFO", hkLog.getTop ( 1 ).get ( 0 ).getOntologyAcronym () );
+	}
+}
@@ -0,0 +1,67 @@
+package uk.ac.ebi.bioportal.webservice.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.cache.NegativeResultCache.ResultType;
+
+/**
+ * Tests for {@link NegativeResultCache}. These don't need Bioportal.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class NegativeResultCacheTest
+{
+	@Test
+	public void testBasics ()
+	{
+		NegativeResultCache cache = new NegativeResultCache ( 100, 1, TimeUnit.HOURS, false );
+		cache.put ( ResultType.CLASS, "EFO http://www.ebi.ac.uk/efo/FOO" );
+
+		assertTrue ( "Recorded miss not found!", cache.contains ( ResultType.CLASS, "EFO http://www.ebi.ac.uk/efo/FOO" ) );
+		assertFalse ( "Result types are mixed!", cache.contains ( ResultType.MAPPINGS, "EFO http://www.ebi.ac.uk/efo/FOO" ) );
+		assertFalse ( "Unexpected miss found!", cache.contains ( ResultType.CLASS, "EFO http://www.ebi.ac.uk/efo/BAR" ) );
+
+		assertEquals ( "Bad hit count!", 1, cache.getHitCount () );
+		assertEquals ( "Bad miss count!", 2, cache.getMissCount () );
+
+		cache.invalidate ( ResultType.CLASS, "EFO http://www.ebi.ac.uk/efo/FOO" );
+		assertFalse ( "Invalidation doesn't work!", cache.contains ( ResultType.CLASS, "EFO http://www.ebi.ac.uk/efo/FOO" ) );
+	}
+
+	@Test
+	public void testExpiration () throws InterruptedException
+	{
+		NegativeResultCache cache = new NegativeResultCache ( 100, 200, TimeUnit.MILLISECONDS, false );
+		cache.put ( ResultType.ONTOLOGY, "RUBBISH123" );
+		assertTrue ( "Recorded miss not found!", cache.contains ( ResultType.ONTOLOGY, "RUBBISH123" ) );
+
+		Thread.sleep ( 400 );
+		assertFalse ( "Miss not expired!", cache.contains ( ResultType.ONTOLOGY, "RUBBISH123" ) );
+	}
+
+	@Test
+	public void testBloomFilter ()
+	{
+		NegativeResultCache cache = new NegativeResultCache ( 10, 1, TimeUnit.HOURS, true );
+
+		// Goes beyond the max size, so that the filter is rebuilt at least once
+		for ( int i = 0; i < 25; i++ )
+			cache.put ( ResultType.ONTOLOGY, "RUBBISH" + i );
+
+		assertTrue ( "Recorded miss not found!", cache.contains ( ResultType.ONTOLOGY, "RUBBISH24" ) );
+
+		for ( int i = 0; i < 100; i++ )
+			cache.contains ( ResultType.CLASS, "EFO http://www.ebi.ac.uk/efo/EFO_" + i );
+
+		assertTrue ( "Bloom filter doesn't reject anything!", cache.getBloomFilterRejectionCount () > 0 );
+		assertEquals ( "Bad miss count!", 100, cache.getMissCount () );
+	}
+}
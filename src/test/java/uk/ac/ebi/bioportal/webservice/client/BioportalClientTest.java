@@ -6,24 +6,14 @@ import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 
-import java.io.IOException;
 import java.util.Set;
 
-import org.apache.commons.lang3.RandomUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.junit.Ignore;
-import org.junit.Rule;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
 import uk.ac.ebi.bioportal.webservice.model.Ontology;
 import uk.ac.ebi.bioportal.webservice.model.OntologyClass;
-import uk.ac.ebi.utils.io.IOUtils;
-
-import com.google.code.tempusfugit.concurrency.ConcurrentRule;
-import com.google.code.tempusfugit.concurrency.annotations.Concurrent;
 
 /**
  * Tests the functions in {@link BioportalClient}. Note that this uses our API-Key, please do not reuse it and
@@ -45,9 +35,6 @@ public class BioportalClientTest
 	
 	Logger log = LoggerFactory.getLogger ( this.getClass () );
 	
-	@Rule
-	public ConcurrentRule concurrentRule = new ConcurrentRule ();
-
 	
 	@Test
 	public void testGetOntology ()
@@ -162,28 +149,4 @@ public class BioportalClientTest
 		assertFalse ( "Ancestor found!", unexpectedTargetFound );
 	}
 
-	
-	@Test
-	@Ignore ( "Not a real test, used to manually check performance issues" )
-	@Concurrent ( count = 20 )
-	public void testThroughput () throws IOException
-	{
-		String[] words = StringUtils.split ( IOUtils.readResource ( this.getClass (), "/text_ann_test_terms.txt" ), "\n" );
-		int n = 50, fails = 0;
-		for ( int i = 1; i <= n; i++ )
-		{
-			try
-			{
-				int iw = RandomUtils.nextInt ( 0, words.length );
-				bpcli.getTextAnnotations ( words [ iw ], "longest_only", "true" );
-				if ( i % ( n / 4 ) == 0 ) log.info ( "{} % completed", 100d * i / n );
-			}
-			catch ( OntologyServiceException ex ) 
-			{
-				fails++;
-				log.info ( "Failure: {}", ex.getMessage () );
-			}
-		}
-		log.info ( "The end, fails: {} %", 100d * fails / n );
-	}
 }
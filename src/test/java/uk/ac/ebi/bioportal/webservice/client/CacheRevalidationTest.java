@@ -0,0 +1,132 @@
+package uk.ac.ebi.bioportal.webservice.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.cache.CacheStatistics;
+import uk.ac.ebi.bioportal.webservice.model.Ontology;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClass;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClassMapping;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubRule;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubServer;
+
+/**
+ * Tests the revalidation of expired cache entries with conditional GETs, against the {@link BioportalStubServer}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class CacheRevalidationTest
+{
+	private static final String ASTHMA_IRI = "http://www.ebi.ac.uk/efo/EFO_0000270";
+
+	@Rule
+	public BioportalStubRule stub = new BioportalStubRule ();
+
+	@Before
+	public void setUp () throws Exception
+	{
+		// Entries expire as soon as they're stored
+		System.setProperty ( BioportalClient.CACHE_TIMEOUT_MINS_PROP_NAME, "0" );
+	}
+
+	@After
+	public void tearDown ()
+	{
+		System.clearProperty ( BioportalClient.CACHE_TIMEOUT_MINS_PROP_NAME );
+		System.clearProperty ( BioportalClient.CACHE_MAX_STALE_MINS_PROP_NAME );
+	}
+
+	@Test
+	public void testClassRevalidation ()
+	{
+		BioportalClient client = new BioportalClient ( "stub-key" );
+		CacheStatistics stats = getStatistics ( client, "classes" );
+
+		OntologyClass cls = client.getOntologyClass ( "EFO", ASTHMA_IRI );
+		assertNotNull ( "Class not found!", cls );
+		assertNull ( "Conditional GET on the first lookup!", stub.getServer ().getLastRequestHeader ( "If-None-Match" ) );
+		assertEquals ( "Bad load count!", 1, stats.getLoadCount () );
+
+		// Expired, but Bioportal says it didn't change
+		OntologyClass cls1 = client.getOntologyClass ( "EFO", ASTHMA_IRI );
+		assertNotNull ( "If-None-Match not sent!", stub.getServer ().getLastRequestHeader ( "If-None-Match" ) );
+		assertNotNull ( "If-Modified-Since not sent!", stub.getServer ().getLastRequestHeader ( "If-Modified-Since" ) );
+		assertSame ( "Cached class not returned!", cls, cls1 );
+		assertEquals ( "Bad revalidation count!", 1, stats.getRevalidationCount () );
+		assertEquals ( "Revalidation counted as load!", 1, stats.getLoadCount () );
+		assertEquals ( "Bad request count!", 2, stub.getServer ().getRequestCount () );
+
+		// Now it changes and it's loaded again
+		stub.getServer ().setLastModified ( stub.getServer ().getLastModified () + 60000 );
+		OntologyClass cls2 = client.getOntologyClass ( "EFO", ASTHMA_IRI );
+		assertNotNull ( "Changed class not found!", cls2 );
+		assertEquals ( "Bad label!", cls.getPreferredLabel (), cls2.getPreferredLabel () );
+		assertEquals ( "Bad load count after change!", 2, stats.getLoadCount () );
+		assertEquals ( "Bad revalidation count after change!", 1, stats.getRevalidationCount () );
+	}
+
+	@Test
+	public void testOntologyRevalidation ()
+	{
+		BioportalClient client = new BioportalClient ( "stub-key" );
+		CacheStatistics stats = getStatistics ( client, "ontologies" );
+
+		Ontology onto = client.getOntology ( "EFO" );
+		assertNotNull ( "Ontology not found!", onto );
+		Ontology onto1 = client.getOntology ( "EFO" );
+		assertSame ( "Cached ontology not returned!", onto, onto1 );
+		assertEquals ( "Bad revalidation count!", 1, stats.getRevalidationCount () );
+		assertEquals ( "Bad load count!", 1, stats.getLoadCount () );
+	}
+
+	@Test
+	public void testMappingsRevalidation ()
+	{
+		BioportalClient client = new BioportalClient ( "stub-key" );
+		CacheStatistics stats = getStatistics ( client, "mappings" );
+		OntologyClass cls = client.getOntologyClass ( "EFO", ASTHMA_IRI );
+
+		List<OntologyClassMapping> maps = client.getOntologyClassMappings ( cls );
+		assertNotNull ( "Mappings not found!", maps );
+		assertEquals ( "Bad load count!", 1, stats.getLoadCount () );
+
+		List<OntologyClassMapping> maps1 = client.getOntologyClassMappings ( cls );
+		assertNotNull ( "If-None-Match not sent!", stub.getServer ().getLastRequestHeader ( "If-None-Match" ) );
+		assertSame ( "Cached mappings not returned!", maps, maps1 );
+		assertEquals ( "Bad revalidation count!", 1, stats.getRevalidationCount () );
+		assertEquals ( "Revalidation counted as load!", 1, stats.getLoadCount () );
+	}
+
+	@Test
+	public void testMaxStale ()
+	{
+		// Expired entries aren't kept at all
+		System.setProperty ( BioportalClient.CACHE_MAX_STALE_MINS_PROP_NAME, "0" );
+		BioportalClient client = new BioportalClient ( "stub-key" );
+		CacheStatistics stats = getStatistics ( client, "classes" );
+
+		client.getOntologyClass ( "EFO", ASTHMA_IRI );
+		client.getOntologyClass ( "EFO", ASTHMA_IRI );
+		assertNull ( "Too old entry revalidated!", stub.getServer ().getLastRequestHeader ( "If-None-Match" ) );
+		assertEquals ( "Bad revalidation count!", 0, stats.getRevalidationCount () );
+		assertEquals ( "Bad load count!", 2, stats.getLoadCount () );
+	}
+
+	private static CacheStatistics getStatistics ( BioportalClient client, String cacheName )
+	{
+		for ( CacheStatistics stats: client.getCacheStatistics () )
+			if ( cacheName.equals ( stats.getName () ) ) return stats;
+		throw new IllegalArgumentException ( "No statistics for the cache '" + cacheName + "'" );
+	}
+}
@@ -0,0 +1,65 @@
+package uk.ac.ebi.bioportal.webservice.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.cache.HotKeyLog;
+import uk.ac.ebi.bioportal.webservice.cache.HotKeyLog.HotKey;
+import uk.ac.ebi.bioportal.webservice.cache.HotKeyLog.KeyType;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubRule;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubServer;
+
+/**
+ * Tests {@link BioportalClient#warmUp()}, against the {@link BioportalStubServer}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class HotKeyPrefetchTest
+{
+	private static final String ASTHMA_IRI = "http://www.ebi.ac.uk/efo/EFO_0000270";
+
+	@Rule
+	public BioportalStubRule stub = new BioportalStubRule ();
+
+	@After
+	public void tearDown ()
+	{
+		System.clearProperty ( BioportalClient.HOT_KEYS_FILE_PROP_NAME );
+		System.clearProperty ( HotKeyLog.SAMPLING_RATE_PROP_NAME );
+	}
+
+	@Test
+	public void testWarmUp () throws Exception
+	{
+		HotKeyLog hkLog = new HotKeyLog ( 1, 100 );
+		for ( int i = 0; i < 5; i++ ) hkLog.record ( KeyType.CLASS, "EFO", ASTHMA_IRI );
+		File file = File.createTempFile ( "bioportal-hot-keys", ".tsv" );
+		file.deleteOnExit ();
+		hkLog.save ( file.toPath () );
+
+		System.setProperty ( BioportalClient.HOT_KEYS_FILE_PROP_NAME, file.getAbsolutePath () );
+		System.setProperty ( HotKeyLog.SAMPLING_RATE_PROP_NAME, "1" );
+		BioportalClient client = new BioportalClient ( "stub-key" );
+		assertEquals ( "The constructor started the prefetch!", 0, stub.getServer ().getRequestCount () );
+
+		assertEquals ( "Bad no. of prefetched keys!", 1, (int) client.warmUp ().get () );
+		assertEquals ( "Hot key not fetched!", 1, stub.getServer ().getRequestCount () );
+
+		// The prefetch isn't demand
+		List<HotKey> top = client.getHotKeyLog ().getTop ( 10 );
+		assertEquals ( "Prefetch recorded as hot keys!", 1, top.size () );
+		assertEquals ( "Prefetch counted as hot key usage!", 5, top.get ( 0 ).getCount () );
+
+		client.getOntologyClass ( "EFO", ASTHMA_IRI );
+		assertEquals ( "Prefetched class not cached!", 1, stub.getServer ().getRequestCount () );
+		assertEquals ( "Lookup not recorded!", 6, client.getHotKeyLog ().getTop ( 1 ).get ( 0 ).getCount () );
+	}
+}
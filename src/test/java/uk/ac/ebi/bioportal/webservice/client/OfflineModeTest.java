@@ -0,0 +1,117 @@
+package uk.ac.ebi.bioportal.webservice.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.cache.CacheEntry;
+import uk.ac.ebi.bioportal.webservice.cache.CacheSnapshotWriter;
+import uk.ac.ebi.bioportal.webservice.cache.NegativeResultCache.ResultType;
+import uk.ac.ebi.bioportal.webservice.model.LookupResult;
+import uk.ac.ebi.bioportal.webservice.model.LookupResult.Status;
+import uk.ac.ebi.bioportal.webservice.model.Ontology;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClass;
+
+/**
+ * Tests {@link BioportalClient#setOffline(boolean) the offline mode}, using a cache snapshot. This doesn't need
+ * Bioportal.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class OfflineModeTest
+{
+	@Test
+	public void testOfflineLookups () throws IOException
+	{
+		long now = System.currentTimeMillis ();
+
+		Ontology efo = new Ontology ( "EFO" );
+		efo.setName ( "Experimental Factor Ontology" );
+		efo.setClassUriPrefix ( "http://www.ebi.ac.uk/efo/" );
+
+		OntologyClass asthma = new OntologyClass ( "http://www.ebi.ac.uk/efo/EFO_0000270" );
+		asthma.setOntologyAcronym ( "EFO" );
+		asthma.setPreferredLabel ( "asthma" );
+
+		File snapshot = File.createTempFile ( "bioportal-cache", ".bin" );
+		snapshot.deleteOnExit ();
+		try ( CacheSnapshotWriter writer = new CacheSnapshotWriter ( new FileOutputStream ( snapshot ) ) )
+		{
+			writer.writeOntology ( "EFO", new CacheEntry<> ( efo, now, now + 60000 ) );
+			writer.writeClass ( "EFO " + asthma.getIri (), new CacheEntry<> ( asthma, now, now + 60000 ) );
+		}
+
+		BioportalClient bpcli = new BioportalClient ( BioportalClientTest.API_KEY );
+		bpcli.setOffline ( true );
+
+		assertEquals ( "Bad status for non-cached ontology!",
+			Status.NOT_AVAILABLE_OFFLINE, bpcli.lookupOntology ( "GO" ).getStatus ()
+		);
+		assertNull ( "Non-cached class returned!", bpcli.getOntologyClass ( "EFO", "EFO_0000270" ) );
+
+		bpcli.importCaches ( snapshot.toPath () );
+
+		LookupResult<OntologyClass> clsResult = bpcli.lookupOntologyClass ( "EFO", "EFO_0000270" );
+		assertEquals ( "Cached class not found!", Status.FOUND, clsResult.getStatus () );
+		assertEquals ( "Bad label for the cached class!", "asthma", clsResult.getValue ().getPreferredLabel () );
+
+		assertEquals ( "Bad status for non-cached class!",
+			Status.NOT_AVAILABLE_OFFLINE, bpcli.lookupOntologyClass ( "EFO", "EFO_0000001" ).getStatus ()
+		);
+		assertEquals ( "Bad status for non-cached children!",
+			Status.NOT_AVAILABLE_OFFLINE, bpcli.lookupClassChildren ( "EFO", "EFO_0000270" ).getStatus ()
+		);
+		assertEquals ( "Bad status for non-cached mappings!",
+			Status.NOT_AVAILABLE_OFFLINE, bpcli.lookupOntologyClassMappings ( asthma ).getStatus ()
+		);
+		assertEquals ( "Offline annotator returns something!", 0, bpcli.getTextAnnotations ( "asthma" ).length );
+	}
+	
+	@Test
+	public void testInvalidateOntology () throws IOException
+	{
+		long now = System.currentTimeMillis ();
+		
+		OntologyClass asthma = new OntologyClass ( "http://www.ebi.ac.uk/efo/EFO_0000270" );
+		asthma.setOntologyAcronym ( "EFO" );
+
+		OntologyClass go = new OntologyClass ( "http://purl.obolibrary.org/obo/GO_0008150" );
+		go.setOntologyAcronym ( "GO" );
+
+		File snapshot = File.createTempFile ( "bioportal-cache", ".bin" );
+		snapshot.deleteOnExit ();
+		try ( CacheSnapshotWriter writer = new CacheSnapshotWriter ( new FileOutputStream ( snapshot ) ) )
+		{
+			writer.writeOntology ( "EFO", new CacheEntry<> ( new Ontology ( "EFO" ), now, now + 60000 ) );
+			writer.writeClass ( "EFO " + asthma.getIri (), new CacheEntry<> ( asthma, now, now + 60000 ) );
+			writer.writeClass ( "GO " + go.getIri (), new CacheEntry<> ( go, now, now + 60000 ) );
+		}
+
+		BioportalClient bpcli = new BioportalClient ( BioportalClientTest.API_KEY );
+		bpcli.setOffline ( true );
+		bpcli.importCaches ( snapshot.toPath () );
+		bpcli.getNegativeResultCache ().put ( ResultType.CLASS, "EFO http://www.ebi.ac.uk/efo/EFO_9999999" );
+		
+		assertEquals ( "Bad no. of invalidated entries!", 3, bpcli.invalidateOntology ( "efo" ) );
+		
+		assertEquals ( "Invalidated ontology still there!", 
+			Status.NOT_AVAILABLE_OFFLINE, bpcli.lookupOntology ( "EFO" ).getStatus () 
+		);
+		assertEquals ( "Invalidated class still there!", 
+			Status.NOT_AVAILABLE_OFFLINE, bpcli.lookupOntologyClass ( "EFO", asthma.getIri () ).getStatus () 
+		);
+		assertEquals ( "Invalidated miss still there!", 
+			Status.NOT_AVAILABLE_OFFLINE, bpcli.lookupOntologyClass ( "EFO", "http://www.ebi.ac.uk/efo/EFO_9999999" ).getStatus () 
+		);
+		assertEquals ( "Other ontology's class was invalidated!", 
+			Status.FOUND, bpcli.lookupOntologyClass ( "GO", go.getIri () ).getStatus () 
+		);
+	}
+}
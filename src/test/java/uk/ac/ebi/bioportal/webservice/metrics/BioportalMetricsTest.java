@@ -0,0 +1,76 @@
+package uk.ac.ebi.bioportal.webservice.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.client.BioportalClient;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubRule;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubServer;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubServer.Latency;
+
+/**
+ * Tests {@link BioportalMetrics} against the {@link BioportalStubServer}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class BioportalMetricsTest
+{
+	@Rule
+	public BioportalStubRule stub = new BioportalStubRule ();
+
+	@Test
+	public void testEndpointMetrics () throws Exception
+	{
+		// The metrics are JVM-wide, so let's compare before/after
+		Map<BioportalEndpoint, EndpointMetrics> before = BioportalMetrics.getInstance ().getSnapshot ();
+
+		stub.getServer ().setLatency ( Latency.fixed ( 50 ) );
+		BioportalClient client = new BioportalClient ( "stub-key" );
+		client.getOntology ( "EFO" );
+		client.getOntologyClass ( "EFO", "http://www.ebi.ac.uk/efo/EFO_0000270" );
+		client.getOntologyClass ( "EFO", "http://www.ebi.ac.uk/efo/EFO_9999999" );
+		client.getClassAncestors ( "EFO", "http://www.ebi.ac.uk/efo/EFO_0000270" );
+
+		Map<BioportalEndpoint, EndpointMetrics> after = BioportalMetrics.getInstance ().getSnapshot ();
+
+		EndpointMetrics classBefore = before.get ( BioportalEndpoint.CLASS ), classAfter = after.get ( BioportalEndpoint.CLASS );
+		assertEquals ( "Bad class call count!", 2, classAfter.getCallCount () - classBefore.getCallCount () );
+		assertEquals ( "Bad 200 count!", 1, classAfter.getStatusCount ( 200 ) - classBefore.getStatusCount ( 200 ) );
+		assertEquals ( "Bad 404 count!", 1, classAfter.getStatusCount ( 404 ) - classBefore.getStatusCount ( 404 ) );
+		assertTrue ( "Bytes not counted!", classAfter.getBytesReceived () > classBefore.getBytesReceived () );
+		assertTrue ( "Latency not recorded!", classAfter.getLatencyMaxMillis () >= 50 );
+		assertEquals ( "Bad in-flight count!", 0, classAfter.getInFlightCount () );
+		assertEquals ( "Permit waits not recorded!",
+			2, classAfter.getPermitWait ().getCount () - classBefore.getPermitWait ().getCount ()
+		);
+
+		for ( BioportalEndpoint endpoint: new BioportalEndpoint[] { BioportalEndpoint.ONTOLOGY, BioportalEndpoint.ANCESTORS } )
+			assertEquals ( "Bad call count for " + endpoint + "!",
+				1, after.get ( endpoint ).getCallCount () - before.get ( endpoint ).getCallCount ()
+			);
+		assertEquals ( "Annotator calls recorded!",
+			before.get ( BioportalEndpoint.ANNOTATOR ).getCallCount (), after.get ( BioportalEndpoint.ANNOTATOR ).getCallCount ()
+		);
+
+		// And JMX
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer ();
+		long jmxCount = (Long) mbeanServer.getAttribute (
+			BioportalMetrics.getObjectName ( BioportalEndpoint.CLASS ), "CallCount"
+		);
+		assertTrue ( "Bad JMX call count!", jmxCount >= classAfter.getCallCount () );
+		double jmxP99 = (Double) mbeanServer.getAttribute (
+			BioportalMetrics.getObjectName ( BioportalEndpoint.CLASS ), "LatencyP99Millis"
+		);
+		assertTrue ( "Bad JMX p99!", jmxP99 > 0 );
+	}
+}
@@ -0,0 +1,68 @@
+package uk.ac.ebi.bioportal.webservice.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link LatencyHistogram} and {@link BioportalEndpoint}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class LatencyHistogramTest
+{
+	@Test
+	public void testPercentiles ()
+	{
+		LatencyHistogram hist = new LatencyHistogram ();
+		assertEquals ( "Bad percentile for empty histogram!", 0, hist.getPercentileMillis ( 99 ), 0 );
+
+		// 1..10000 ms
+		for ( int i = 1; i <= 10000; i++ ) hist.record ( i, TimeUnit.MILLISECONDS );
+
+		assertEquals ( "Bad count!", 10000, hist.getCount () );
+		assertEquals ( "Bad mean!", 5000.5, hist.getMeanMillis (), 1e-6 );
+		assertEquals ( "Bad max!", 10000, hist.getMaxMillis (), 0 );
+		assertEquals ( "Bad p50!", 5000, hist.getPercentileMillis ( 50 ), 5000 / 32d );
+		assertEquals ( "Bad p99!", 9900, hist.getPercentileMillis ( 99 ), 9900 / 32d );
+		assertEquals ( "Bad p99.9!", 9990, hist.getPercentileMillis ( 99.9 ), 9990 / 32d );
+		assertEquals ( "Bad p100!", 10000, hist.getPercentileMillis ( 100 ), 0 );
+
+		LatencyHistogram copy = hist.copy ();
+		hist.record ( 1, TimeUnit.HOURS );
+		assertEquals ( "Copy affected by later values!", 10000, copy.getCount () );
+		assertEquals ( "Max not updated!", 3600 * 1000, hist.getMaxMillis (), 0 );
+	}
+
+	@Test
+	public void testSmallValues ()
+	{
+		LatencyHistogram hist = new LatencyHistogram ();
+		hist.record ( 0, TimeUnit.NANOSECONDS );
+		hist.record ( 5, TimeUnit.MICROSECONDS );
+		assertEquals ( "Bad p50!", 0, hist.getPercentileMillis ( 50 ), 0 );
+		assertEquals ( "Bad p100!", 0.005, hist.getPercentileMillis ( 100 ), 0 );
+	}
+
+	@Test
+	public void testEndpoints ()
+	{
+		assertEquals ( "Bad endpoint!", BioportalEndpoint.ANNOTATOR, BioportalEndpoint.fromServicePath ( "/annotator" ) );
+		assertEquals ( "Bad endpoint!", BioportalEndpoint.ONTOLOGY, BioportalEndpoint.fromServicePath ( "/ontologies/EFO" ) );
+		assertEquals ( "Bad endpoint!",
+			BioportalEndpoint.SUBMISSION, BioportalEndpoint.fromServicePath ( "/ontologies/EFO/latest_submission" )
+		);
+		assertEquals ( "Bad endpoint!", BioportalEndpoint.CLASSES, BioportalEndpoint.fromServicePath ( "/ontologies/EFO/classes" ) );
+
+		String classPath = "/ontologies/EFO/classes/http%3A%2F%2Fwww.ebi.ac.uk%2Fefo%2FEFO_0000270";
+		assertEquals ( "Bad endpoint!", BioportalEndpoint.CLASS, BioportalEndpoint.fromServicePath ( classPath ) );
+		assertEquals ( "Bad endpoint!", BioportalEndpoint.MAPPINGS, BioportalEndpoint.fromServicePath ( classPath + "/mappings" ) );
+		assertEquals ( "Bad endpoint!", BioportalEndpoint.ANCESTORS, BioportalEndpoint.fromServicePath ( classPath + "/ancestors" ) );
+		assertEquals ( "Bad endpoint!", BioportalEndpoint.OTHER, BioportalEndpoint.fromServicePath ( "/search" ) );
+		assertEquals ( "Bad endpoint!", BioportalEndpoint.OTHER, BioportalEndpoint.fromServicePath ( classPath + "/tree" ) );
+	}
+}
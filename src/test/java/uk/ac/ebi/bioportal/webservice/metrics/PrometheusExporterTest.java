@@ -0,0 +1,126 @@
+package uk.ac.ebi.bioportal.webservice.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.client.BioportalClient;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubRule;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubServer;
+
+/**
+ * Tests {@link PrometheusExporter}, against the {@link BioportalStubServer}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class PrometheusExporterTest
+{
+	@Rule
+	public BioportalStubRule stub = new BioportalStubRule ();
+
+	private PrometheusExporter exporter;
+
+	@Before
+	public void startExporter () throws Exception
+	{
+		exporter = new PrometheusExporter ( 0 );
+	}
+
+	@After
+	public void stopExporter ()
+	{
+		exporter.close ();
+	}
+
+	@Test
+	public void testScrape () throws Exception
+	{
+		BioportalClient client = new BioportalClient ( "stub-key" );
+		exporter.addClient ( "test \"client\"", client );
+		for ( int i = 0; i < 2; i++ ) client.getOntologyClass ( "EFO", "http://www.ebi.ac.uk/efo/EFO_0000270" );
+		client.getOntologyClass ( "EFO", "http://www.ebi.ac.uk/efo/EFO_9999999" );
+
+		HttpURLConnection conn = (HttpURLConnection) new URL (
+			"http://localhost:" + exporter.getPort () + "/metrics"
+		).openConnection ();
+		assertEquals ( "Bad HTTP status!", 200, conn.getResponseCode () );
+		assertEquals ( "Bad content type!", PrometheusExporter.CONTENT_TYPE, conn.getContentType () );
+		String body = read ( conn.getInputStream () );
+
+		assertTrue ( "No 200 class calls!", getValue ( body, "bioportal_calls_total{endpoint=\"class\",status=\"200\"}" ) >= 1 );
+		assertTrue ( "No 404 class calls!", getValue ( body, "bioportal_calls_total{endpoint=\"class\",status=\"404\"}" ) >= 1 );
+		assertTrue ( "No latency count!", getValue ( body, "bioportal_call_latency_seconds_count{endpoint=\"class\"}" ) >= 2 );
+		assertTrue ( "No latency quantile!",
+			body.contains ( "bioportal_call_latency_seconds{endpoint=\"class\",quantile=\"0.99\"} " )
+		);
+
+		String labels = "{client=\"test \\\"client\\\"\",";
+		assertEquals ( "Bad key call count!", 2, getValue ( body, "bioportal_key_calls_total" + labels + "key=\"0\"}" ), 0 );
+		assertEquals ( "Bad rate limit!",
+			client.getApiKeyPool ().getSlots ().get ( 0 ).getInvoker ().getRateLimiter ().getRate (),
+			getValue ( body, "bioportal_key_rate_limit" + labels + "key=\"0\"}" ), 1E-6
+		);
+		assertEquals ( "Bad throttled count!", 0, getValue ( body, "bioportal_key_throttled_total" + labels + "key=\"0\"}" ), 0 );
+		assertEquals ( "Bad cache hits!", 1, getValue ( body, "bioportal_cache_hits_total" + labels + "cache=\"classes\"}" ), 0 );
+		assertEquals ( "Bad cache misses!", 2, getValue ( body, "bioportal_cache_misses_total" + labels + "cache=\"classes\"}" ), 0 );
+		assertFalse ( "API key exported!", body.contains ( "stub-key" ) );
+
+		// Each metric must be declared once, with its samples following
+		Set<String> types = new HashSet<> ();
+		String currentFamily = null;
+		for ( String line: body.split ( "\n" ) )
+		{
+			if ( line.startsWith ( "# TYPE " ) ) {
+				currentFamily = line.split ( " " ) [ 2 ];
+				assertTrue ( "Metric declared twice: " + currentFamily + "!", types.add ( currentFamily ) );
+				continue;
+			}
+			if ( line.startsWith ( "#" ) ) continue;
+			assertTrue ( "Sample out of its family: " + line + "!", line.startsWith ( currentFamily ) );
+		}
+
+		exporter.removeClient ( "test \"client\"" );
+		assertFalse ( "Client not removed!", exporter.scrape ().contains ( "test \\\"client\\\"" ) );
+	}
+
+	@Test
+	public void testBadMethod () throws Exception
+	{
+		HttpURLConnection conn = (HttpURLConnection) new URL (
+			"http://localhost:" + exporter.getPort () + "/metrics"
+		).openConnection ();
+		conn.setRequestMethod ( "DELETE" );
+		assertEquals ( "Bad HTTP status!", 405, conn.getResponseCode () );
+	}
+
+	private static double getValue ( String body, String sample )
+	{
+		Matcher matcher = Pattern.compile ( "^" + Pattern.quote ( sample ) + " (\\S+)$", Pattern.MULTILINE ).matcher ( body );
+		assertTrue ( "Sample not found: " + sample + "!", matcher.find () );
+		return Double.parseDouble ( matcher.group ( 1 ) );
+	}
+
+	private static String read ( InputStream in ) throws IOException
+	{
+		try ( Scanner scanner = new Scanner ( in, "UTF-8" ) ) {
+			return scanner.useDelimiter ( "\\A" ).next ();
+		}
+	}
+}
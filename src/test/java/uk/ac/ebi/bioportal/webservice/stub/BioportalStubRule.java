@@ -0,0 +1,53 @@
+package uk.ac.ebi.bioportal.webservice.stub;
+
+import org.junit.rules.ExternalResource;
+
+import uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils;
+
+/**
+ * <p>Runs a {@link BioportalStubServer} for each test and points {@link BioportalWebServiceUtils#bioportalBaseUrl}
+ * to it, restoring the previous URL at the end:</p>
+ *
+ * <pre>
+ *   &#64;Rule
+ *   public BioportalStubRule stub = new BioportalStubRule ();
+ *
+ *   &#64;Test
+ *   public void testFoo () {
+ *     stub.getServer ().setLatency ( Latency.fixed ( 50 ) );
+ *     ...
+ *   }
+ * </pre>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class BioportalStubRule extends ExternalResource
+{
+	private BioportalStubServer server;
+	private String baseUrl;
+
+	@Override
+	protected void before () throws Throwable
+	{
+		server = new BioportalStubServer ();
+		baseUrl = BioportalWebServiceUtils.bioportalBaseUrl;
+		BioportalWebServiceUtils.bioportalBaseUrl = server.getBaseUrl ();
+	}
+
+	@Override
+	protected void after ()
+	{
+		BioportalWebServiceUtils.bioportalBaseUrl = baseUrl;
+		server.close ();
+	}
+
+	/**
+	 * The server of the current test.
+	 */
+	public BioportalStubServer getServer ()
+	{
+		return server;
+	}
+}
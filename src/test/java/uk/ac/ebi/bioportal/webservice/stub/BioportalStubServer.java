@@ -0,0 +1,822 @@
+package uk.ac.ebi.bioportal.webservice.stub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.bioportal.webservice.utils.BioportalWebServiceUtils;
+import uk.ac.ebi.bioportal.webservice.utils.TokenBucketRateLimiter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <p>A local stand-in for the Bioportal REST API, to test the client without accessing the real server, e.g., for
+ * load tests, or to reproduce throttling and failures. Point {@link BioportalWebServiceUtils#bioportalBaseUrl}
+ * to {@link #getBaseUrl()}:</p>
+ *
+ * <pre>
+ *   try ( BioportalStubServer stub = new BioportalStubServer () ) {
+ *     stub.setLatency ( Latency.logNormal ( 80, 0.5 ) );
+ *     BioportalWebServiceUtils.bioportalBaseUrl = stub.getBaseUrl ();
+ *     ...
+ *   }
+ * </pre>
+ *
+ * <p>In JUnit tests, {@link BioportalStubRule} does this for each test.</p>
+ *
+ * <p>It serves /ontologies, /ontologies/:acronym, /ontologies/:acronym/latest_submission, /ontologies/:acronym/classes,
+ * a single class, its children, descendants (paged, like Bioportal), parents, ancestors and mappings, plus
+ * /annotator, which matches the labels and synonyms of the known classes in the text. Everything comes from the
+ * JSON files in {@link #DEFAULT_FIXTURES} (or another directory in the classpath), which have the same format
+ * Bioportal uses, plus hierarchy.json, which lists the parents of each class.</p>
+ *
+ * <p>Responses can be delayed according to a {@link Latency latency distribution}, calls can fail at random with
+ * HTTP 500 (or {@link #setErrorStatus(int) another status}) and they can be throttled (HTTP 429, with Retry-After) either at random, or when they exceed a
+ * {@link #setRateLimit(double, int) rate limit}. All of these can be changed while the server is running.</p>
+ *
+ * <p>Like Bioportal, responses are compressed with gzip or deflate when the client accepts them, unless
+ * {@link #setCompressionEnabled(boolean) disabled}.</p>
+ *
+ * <p>Successful responses have an ETag and a {@link #setLastModified(long) Last-Modified} header, and conditional
+ * GETs (If-None-Match, If-Modified-Since) are answered with 304 when the data didn't change.</p>
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class BioportalStubServer implements AutoCloseable
+{
+	/** The fixtures used by default, a directory in the classpath */
+	public static final String DEFAULT_FIXTURES = "/bioportal-stub";
+
+	private static final String ONTOLOGY_URI_PREFIX = "http://data.bioontology.org/ontologies/";
+	private static final int DEFAULT_PAGE_SIZE = 50;
+
+	/**
+	 * The distribution of the delays that the stub adds to its responses.
+	 */
+	public static abstract class Latency
+	{
+		/**
+		 * A new delay, in ms.
+		 */
+		public abstract long nextMillis ( Random random );
+
+		public static Latency none () {
+			return fixed ( 0 );
+		}
+
+		public static Latency fixed ( final long millis )
+		{
+			return new Latency () {
+				@Override
+				public long nextMillis ( Random random ) {
+					return millis;
+				}
+			};
+		}
+
+		public static Latency uniform ( final long minMillis, final long maxMillis )
+		{
+			return new Latency () {
+				@Override
+				public long nextMillis ( Random random ) {
+					return minMillis + (long) ( random.nextDouble () * ( maxMillis - minMillis ) );
+				}
+			};
+		}
+
+		/**
+		 * Typical of network services: most calls are close to the median, a few are much slower. With sigma = 0.5,
+		 * the 99th percentile is about 3 times the median.
+		 */
+		public static Latency logNormal ( final double medianMillis, final double sigma )
+		{
+			return new Latency () {
+				@Override
+				public long nextMillis ( Random random ) {
+					return (long) ( medianMillis * Math.exp ( sigma * random.nextGaussian () ) );
+				}
+			};
+		}
+
+		/**
+		 * A fraction of the calls, slowRate, use the slow distribution, e.g., to simulate a slow replica behind
+		 * a load balancer.
+		 */
+		public static Latency withSlowCalls ( final Latency normal, final double slowRate, final Latency slow )
+		{
+			return new Latency () {
+				@Override
+				public long nextMillis ( Random random ) {
+					return ( random.nextDouble () < slowRate ? slow : normal ).nextMillis ( random );
+				}
+			};
+		}
+	}
+
+
+	private final ObjectMapper mapper = new ObjectMapper ();
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	private final ArrayNode ontologies;
+	private final JsonNode submissions;
+	/** acronym -> IRI -> class */
+	private final Map<String, Map<String, JsonNode>> classes = new LinkedHashMap<> ();
+	/** acronym -> IRI -> parent/child IRIs */
+	private final Map<String, Map<String, List<String>>> parents = new HashMap<> (), children = new HashMap<> ();
+	private final JsonNode mappings;
+
+	private volatile Latency latency = Latency.none ();
+	private volatile double errorRate = 0, throttleRate = 0;
+	private volatile int errorStatus = 500;
+	private volatile TokenBucketRateLimiter rateLimiter = null;
+	private volatile Headers lastRequestHeaders = null;
+	private volatile boolean isCompressionEnabled = true;
+	private volatile long lastModified = System.currentTimeMillis () / 1000 * 1000;
+
+	private final AtomicLong requestCount = new AtomicLong (), errorCount = new AtomicLong (),
+		throttledCount = new AtomicLong ();
+
+	private final Logger log = LoggerFactory.getLogger ( this.getClass () );
+
+	/**
+	 * Uses a random port and the {@link #DEFAULT_FIXTURES}.
+	 */
+	public BioportalStubServer () throws IOException
+	{
+		this ( 0, DEFAULT_FIXTURES );
+	}
+
+	/**
+	 * Starts the server on localhost.
+	 *
+	 * @param port 0 for a random free port.
+	 * @param fixturesPath a directory in the classpath, with the same files as {@link #DEFAULT_FIXTURES}.
+	 */
+	public BioportalStubServer ( int port, String fixturesPath ) throws IOException
+	{
+		ontologies = (ArrayNode) loadFixture ( fixturesPath, "ontologies.json" );
+		submissions = loadFixture ( fixturesPath, "submissions.json" );
+		mappings = loadFixture ( fixturesPath, "mappings.json" );
+
+		for ( JsonNode jclass: loadFixture ( fixturesPath, "classes.json" ) )
+		{
+			String acronym = getOntologyAcronym ( jclass );
+			Map<String, JsonNode> ontoClasses = classes.get ( acronym );
+			if ( ontoClasses == null ) classes.put ( acronym, ontoClasses = new LinkedHashMap<> () );
+			ontoClasses.put ( jclass.get ( "@id" ).asText (), jclass );
+		}
+
+		JsonNode jhierarchy = loadFixture ( fixturesPath, "hierarchy.json" );
+		for ( Iterator<String> acronyms = jhierarchy.fieldNames (); acronyms.hasNext (); )
+		{
+			String acronym = acronyms.next ();
+			Map<String, List<String>> ontoParents = getRelationMap ( parents, acronym );
+			Map<String, List<String>> ontoChildren = getRelationMap ( children, acronym );
+
+			JsonNode jontoHierarchy = jhierarchy.get ( acronym );
+			for ( Iterator<String> iris = jontoHierarchy.fieldNames (); iris.hasNext (); )
+			{
+				String iri = iris.next ();
+				for ( JsonNode jparent: jontoHierarchy.get ( iri ) )
+				{
+					String parentIri = jparent.asText ();
+					getRelations ( ontoParents, iri ).add ( parentIri );
+					getRelations ( ontoChildren, parentIri ).add ( iri );
+				}
+			}
+		}
+
+		executor = Executors.newCachedThreadPool (
+			new ThreadFactoryBuilder ().setDaemon ( true ).setNameFormat ( "bioportal-stub-%d" ).build ()
+		);
+		server = HttpServer.create ( new InetSocketAddress ( "localhost", port ), 0 );
+		server.setExecutor ( executor );
+		server.createContext ( "/", new HttpHandler ()
+		{
+			@Override
+			public void handle ( HttpExchange exchange ) throws IOException {
+				BioportalStubServer.this.handle ( exchange );
+			}
+		});
+		server.start ();
+		log.debug ( "Bioportal stub server started at {}", getBaseUrl () );
+	}
+
+
+	private void handle ( HttpExchange exchange ) throws IOException
+	{
+		try
+		{
+			requestCount.incrementAndGet ();
+			lastRequestHeaders = exchange.getRequestHeaders ();
+			ThreadLocalRandom random = ThreadLocalRandom.current ();
+
+			// Throttling is decided before any work, like a real server would do
+			TokenBucketRateLimiter limiter = this.rateLimiter;
+			if ( limiter != null && !limiter.tryAcquire () ) {
+				sendThrottled ( exchange, limiter.getWaitNanos () );
+				return;
+			}
+			if ( random.nextDouble () < throttleRate ) {
+				sendThrottled ( exchange, TimeUnit.SECONDS.toNanos ( 1 ) );
+				return;
+			}
+
+			long delay = latency.nextMillis ( random );
+			if ( delay > 0 ) Thread.sleep ( delay );
+
+			if ( !"GET".equals ( exchange.getRequestMethod () ) ) {
+				sendError ( exchange, 405, "Method not allowed" );
+				return;
+			}
+			String auth = exchange.getRequestHeaders ().getFirst ( "Authorization" );
+			if ( auth == null || !auth.startsWith ( "apikey token=" ) ) {
+				sendError ( exchange, 401, "You must provide a valid API Key" );
+				return;
+			}
+			if ( random.nextDouble () < errorRate ) {
+				errorCount.incrementAndGet ();
+				sendError ( exchange, errorStatus, "Server error (simulated)" );
+				return;
+			}
+
+			JsonNode result = route ( exchange.getRequestURI () );
+			if ( result == null )
+				sendError ( exchange, 404, "Resource not found" );
+			else
+				sendJson ( exchange, 200, result );
+		}
+		catch ( InterruptedException ex ) {
+			// Stopping
+			Thread.currentThread ().interrupt ();
+		}
+		catch ( RuntimeException ex )
+		{
+			log.error ( "Bioportal stub server, error while serving '" + exchange.getRequestURI () + "': " + ex.getMessage (), ex );
+			sendError ( exchange, 500, ex.getMessage () );
+		}
+		finally {
+			exchange.close ();
+		}
+	}
+
+	/**
+	 * Returns null for the resources that don't exist.
+	 */
+	private JsonNode route ( URI uri )
+	{
+		List<String> path = new ArrayList<> ();
+		for ( String segment: uri.getRawPath ().split ( "/" ) )
+			if ( !segment.isEmpty () ) path.add ( decode ( segment ) );
+		Map<String, String> params = getParams ( uri.getRawQuery () );
+
+		if ( path.size () == 1 && "annotator".equals ( path.get ( 0 ) ) )
+			return annotate ( params.get ( "text" ), params.get ( "ontologies" ) );
+
+		if ( path.isEmpty () || !"ontologies".equals ( path.get ( 0 ) ) ) return null;
+		if ( path.size () == 1 ) return ontologies;
+
+		String acronym = path.get ( 1 ).toUpperCase ();
+		if ( path.size () == 2 )
+		{
+			for ( JsonNode jonto: ontologies )
+				if ( acronym.equals ( jonto.get ( "acronym" ).asText () ) ) return jonto;
+			return null;
+		}
+
+		if ( path.size () == 3 && "latest_submission".equals ( path.get ( 2 ) ) ) return submissions.get ( acronym );
+		if ( !"classes".equals ( path.get ( 2 ) ) ) return null;
+
+		Map<String, JsonNode> ontoClasses = classes.get ( acronym );
+		if ( ontoClasses == null ) return null;
+		if ( path.size () == 3 ) return getPage ( new ArrayList<> ( ontoClasses.values () ), params );
+
+		String iri = path.get ( 3 );
+		JsonNode jclass = ontoClasses.get ( iri );
+		if ( jclass == null ) return null;
+		if ( path.size () == 4 ) return jclass;
+		if ( path.size () > 5 ) return null;
+
+		switch ( path.get ( 4 ) )
+		{
+			case "children":
+				return getPage ( getClasses ( acronym, getRelatives ( acronym, iri, children, 1 ).keySet () ), params );
+			case "descendants":
+				return getPage ( getClasses ( acronym, getRelatives ( acronym, iri, children, -1 ).keySet () ), params );
+			case "parents":
+				return toArray ( getClasses ( acronym, getRelatives ( acronym, iri, parents, 1 ).keySet () ) );
+			case "ancestors":
+				return toArray ( getClasses ( acronym, getRelatives ( acronym, iri, parents, -1 ).keySet () ) );
+			case "mappings":
+				JsonNode jmaps = mappings.get ( iri );
+				return jmaps == null ? mapper.createArrayNode () : jmaps;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * A simple version of the Bioportal annotator: any label or synonym of the known classes that occurs in the text
+	 * as a whole word is an annotation.
+	 */
+	private JsonNode annotate ( String text, String ontologiesParam )
+	{
+		ArrayNode result = mapper.createArrayNode ();
+		if ( text == null ) return result;
+
+		Set<String> selectedOntologies = null;
+		if ( ontologiesParam != null && !ontologiesParam.isEmpty () )
+		{
+			selectedOntologies = new HashSet<> ();
+			for ( String acronym: ontologiesParam.split ( "," ) ) selectedOntologies.add ( acronym.trim ().toUpperCase () );
+		}
+
+		String lcText = text.toLowerCase ();
+		for ( String acronym: classes.keySet () )
+		{
+			if ( selectedOntologies != null && !selectedOntologies.contains ( acronym ) ) continue;
+			for ( JsonNode jclass: classes.get ( acronym ).values () )
+			{
+				ArrayNode janns = mapper.createArrayNode ();
+				addMatches ( janns, text, lcText, jclass.get ( "prefLabel" ).asText (), "PREF" );
+				for ( JsonNode jsyn: jclass.get ( "synonym" ) )
+					addMatches ( janns, text, lcText, jsyn.asText (), "SYN" );
+				if ( janns.size () == 0 ) continue;
+
+				ObjectNode jresult = result.addObject ();
+				jresult.set ( "annotatedClass", getClassRef ( jclass ) );
+				ArrayNode jhierarchy = jresult.putArray ( "hierarchy" );
+				Map<String, Integer> ancestors = getRelatives ( acronym, jclass.get ( "@id" ).asText (), parents, -1 );
+				for ( Map.Entry<String, Integer> ancestor: ancestors.entrySet () )
+				{
+					JsonNode jancestor = classes.get ( acronym ).get ( ancestor.getKey () );
+					if ( jancestor == null ) continue;
+					ObjectNode jentry = jhierarchy.addObject ();
+					jentry.set ( "annotatedClass", getClassRef ( jancestor ) );
+					jentry.put ( "distance", ancestor.getValue () );
+				}
+				jresult.set ( "annotations", janns );
+				jresult.putArray ( "mappings" );
+			}
+		}
+		return result;
+	}
+
+	private void addMatches ( ArrayNode janns, String text, String lcText, String label, String matchType )
+	{
+		String lcLabel = label.toLowerCase ();
+		if ( lcLabel.isEmpty () ) return;
+		for ( int i = lcText.indexOf ( lcLabel ); i != -1; i = lcText.indexOf ( lcLabel, i + 1 ) )
+		{
+			int end = i + lcLabel.length ();
+			if ( i > 0 && Character.isLetterOrDigit ( lcText.charAt ( i - 1 ) ) ) continue;
+			if ( end < lcText.length () && Character.isLetterOrDigit ( lcText.charAt ( end ) ) ) continue;
+
+			ObjectNode jann = janns.addObject ();
+			// Bioportal positions are 1-based and inclusive
+			jann.put ( "from", i + 1 );
+			jann.put ( "to", end );
+			jann.put ( "matchType", matchType );
+			jann.put ( "text", text.substring ( i, end ).toUpperCase () );
+		}
+	}
+
+	/**
+	 * The classes reachable from iri via the relation, with their distance, in breadth-first order.
+	 *
+	 * @param maxDistance -1 means the whole transitive closure.
+	 */
+	private Map<String, Integer> getRelatives (
+		String acronym, String iri, Map<String, Map<String, List<String>>> relations, int maxDistance
+	)
+	{
+		Map<String, Integer> result = new LinkedHashMap<> ();
+		Map<String, List<String>> ontoRelations = relations.get ( acronym );
+		if ( ontoRelations == null ) return result;
+
+		Deque<String> queue = new ArrayDeque<> ();
+		queue.add ( iri );
+		while ( !queue.isEmpty () )
+		{
+			String current = queue.poll ();
+			int distance = current.equals ( iri ) ? 0 : result.get ( current );
+			if ( maxDistance != -1 && distance >= maxDistance ) continue;
+
+			List<String> related = ontoRelations.get ( current );
+			if ( related == null ) continue;
+			for ( String relatedIri: related )
+			{
+				if ( relatedIri.equals ( iri ) || result.containsKey ( relatedIri ) ) continue;
+				result.put ( relatedIri, distance + 1 );
+				queue.add ( relatedIri );
+			}
+		}
+		return result;
+	}
+
+	private List<JsonNode> getClasses ( String acronym, Set<String> iris )
+	{
+		Map<String, JsonNode> ontoClasses = classes.get ( acronym );
+		List<JsonNode> result = new ArrayList<> ();
+		for ( String iri: iris )
+		{
+			JsonNode jclass = ontoClasses.get ( iri );
+			if ( jclass != null ) result.add ( jclass );
+		}
+		return result;
+	}
+
+	/**
+	 * The short class representation used by the annotator.
+	 */
+	private JsonNode getClassRef ( JsonNode jclass )
+	{
+		ObjectNode result = mapper.createObjectNode ();
+		result.set ( "@id", jclass.get ( "@id" ) );
+		result.set ( "@type", jclass.get ( "@type" ) );
+		result.set ( "links", jclass.get ( "links" ) );
+		return result;
+	}
+
+	/**
+	 * Uses the page and pagesize parameters, as Bioportal does.
+	 */
+	private JsonNode getPage ( List<JsonNode> items, Map<String, String> params )
+	{
+		int pageSize = Math.max ( 1, parseInt ( params.get ( "pagesize" ), DEFAULT_PAGE_SIZE ) );
+		int pageCount = Math.max ( 1, ( items.size () + pageSize - 1 ) / pageSize );
+		int page = Math.max ( 1, parseInt ( params.get ( "page" ), 1 ) );
+
+		ObjectNode result = mapper.createObjectNode ();
+		result.put ( "page", page );
+		result.put ( "pageCount", pageCount );
+		if ( page > 1 ) result.put ( "prevPage", page - 1 ); else result.putNull ( "prevPage" );
+		if ( page < pageCount ) result.put ( "nextPage", page + 1 ); else result.putNull ( "nextPage" );
+
+		ArrayNode jcollection = result.putArray ( "collection" );
+		for ( int i = ( page - 1 ) * pageSize; i < Math.min ( items.size (), page * pageSize ); i++ )
+			jcollection.add ( items.get ( i ) );
+		return result;
+	}
+
+	private ArrayNode toArray ( List<JsonNode> items )
+	{
+		ArrayNode result = mapper.createArrayNode ();
+		result.addAll ( items );
+		return result;
+	}
+
+
+	private void sendThrottled ( HttpExchange exchange, long waitNanos ) throws IOException
+	{
+		throttledCount.incrementAndGet ();
+		long waitSecs = Math.max ( 1, ( waitNanos + TimeUnit.SECONDS.toNanos ( 1 ) - 1 ) / TimeUnit.SECONDS.toNanos ( 1 ) );
+		exchange.getResponseHeaders ().set ( "Retry-After", "" + waitSecs );
+		exchange.getResponseHeaders ().set ( "X-RateLimit-Remaining", "0" );
+		exchange.getResponseHeaders ().set ( "X-RateLimit-Reset", "" + waitSecs );
+		sendError ( exchange, 429, "You have made too many requests" );
+	}
+
+	private void sendError ( HttpExchange exchange, int status, String message ) throws IOException
+	{
+		ObjectNode jerror = mapper.createObjectNode ();
+		jerror.putArray ( "errors" ).add ( message );
+		jerror.put ( "status", status );
+		sendJson ( exchange, status, jerror );
+	}
+
+	private void sendJson ( HttpExchange exchange, int status, JsonNode json ) throws IOException
+	{
+		byte[] body = mapper.writeValueAsBytes ( json );
+
+		if ( status == 200 )
+		{
+			long lastModified = this.lastModified;
+			String eTag = String.format ( "\"%08x-%x\"", Arrays.hashCode ( body ), lastModified );
+			exchange.getResponseHeaders ().set ( "ETag", eTag );
+			exchange.getResponseHeaders ().set ( "Last-Modified", newHttpDateFormat ().format ( new Date ( lastModified ) ) );
+			if ( isNotModified ( exchange, eTag, lastModified ) ) 
+			{
+				exchange.sendResponseHeaders ( 304, -1 );
+				exchange.close ();
+				return;
+			}
+		}
+
+		exchange.getResponseHeaders ().set ( "Content-Type", "application/json; charset=utf-8" );
+
+		String encoding = isCompressionEnabled ? getAcceptedEncoding ( exchange ) : null;
+		if ( encoding != null )
+		{
+			ByteArrayOutputStream bout = new ByteArrayOutputStream ();
+			try ( OutputStream zout = "gzip".equals ( encoding ) 
+				? new GZIPOutputStream ( bout ) : new DeflaterOutputStream ( bout ) 
+			) {
+				zout.write ( body );
+			}
+			body = bout.toByteArray ();
+			exchange.getResponseHeaders ().set ( "Content-Encoding", encoding );
+		}
+
+		exchange.sendResponseHeaders ( status, body.length );
+		try ( OutputStream out = exchange.getResponseBody () ) {
+			out.write ( body );
+		}
+	}
+
+
+	/**
+	 * If-None-Match takes precedence over If-Modified-Since, as the HTTP spec says.
+	 */
+	private static boolean isNotModified ( HttpExchange exchange, String eTag, long lastModified )
+	{
+		Headers headers = exchange.getRequestHeaders ();
+		String ifNoneMatch = headers.getFirst ( "If-None-Match" );
+		if ( ifNoneMatch != null )
+		{
+			for ( String tag: ifNoneMatch.split ( "," ) )
+				if ( "*".equals ( tag.trim () ) || eTag.equals ( tag.trim () ) ) return true;
+			return false;
+		}
+
+		String ifModifiedSince = headers.getFirst ( "If-Modified-Since" );
+		if ( ifModifiedSince == null ) return false;
+		try {
+			return lastModified <= newHttpDateFormat ().parse ( ifModifiedSince ).getTime ();
+		}
+		catch ( ParseException ex ) {
+			// Invalid dates are ignored
+			return false;
+		}
+	}
+
+	private static SimpleDateFormat newHttpDateFormat ()
+	{
+		SimpleDateFormat result = new SimpleDateFormat ( "EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US );
+		result.setTimeZone ( TimeZone.getTimeZone ( "GMT" ) );
+		return result;
+	}
+
+	/**
+	 * gzip or deflate, if the client's Accept-Encoding lists them, in this order of preference, null otherwise.
+	 */
+	private static String getAcceptedEncoding ( HttpExchange exchange )
+	{
+		String acceptEncoding = exchange.getRequestHeaders ().getFirst ( "Accept-Encoding" );
+		if ( acceptEncoding == null ) return null;
+
+		Set<String> encodings = new HashSet<> ();
+		for ( String encoding: acceptEncoding.split ( "," ) )
+			encodings.add ( encoding.split ( ";" ) [ 0 ].trim ().toLowerCase () );
+		if ( encodings.contains ( "gzip" ) ) return "gzip";
+		if ( encodings.contains ( "deflate" ) ) return "deflate";
+		return null;
+	}
+
+	private JsonNode loadFixture ( String fixturesPath, String name ) throws IOException
+	{
+		try ( InputStream in = this.getClass ().getResourceAsStream ( fixturesPath + "/" + name ) )
+		{
+			if ( in == null ) throw new IOException ( "Bioportal stub fixture '" + fixturesPath + "/" + name + "' not found" );
+			return mapper.readTree ( in );
+		}
+	}
+
+	private static String getOntologyAcronym ( JsonNode jclass )
+	{
+		String ontoUri = jclass.get ( "links" ).get ( "ontology" ).asText ();
+		return ontoUri.substring ( ONTOLOGY_URI_PREFIX.length () ).toUpperCase ();
+	}
+
+	private static Map<String, List<String>> getRelationMap ( Map<String, Map<String, List<String>>> relations, String acronym )
+	{
+		Map<String, List<String>> result = relations.get ( acronym );
+		if ( result == null ) relations.put ( acronym, result = new HashMap<> () );
+		return result;
+	}
+
+	private static List<String> getRelations ( Map<String, List<String>> relations, String iri )
+	{
+		List<String> result = relations.get ( iri );
+		if ( result == null ) relations.put ( iri, result = new ArrayList<> () );
+		return result;
+	}
+
+	private static Map<String, String> getParams ( String rawQuery )
+	{
+		if ( rawQuery == null || rawQuery.isEmpty () ) return Collections.emptyMap ();
+		Map<String, String> result = new HashMap<> ();
+		for ( String param: rawQuery.split ( "&" ) )
+		{
+			int eqIdx = param.indexOf ( '=' );
+			if ( eqIdx == -1 ) result.put ( decode ( param ), "" );
+			else result.put ( decode ( param.substring ( 0, eqIdx ) ), decode ( param.substring ( eqIdx + 1 ) ) );
+		}
+		return result;
+	}
+
+	private static String decode ( String value )
+	{
+		try {
+			return URLDecoder.decode ( value, "UTF-8" );
+		}
+		catch ( UnsupportedEncodingException ex ) {
+			throw new IllegalStateException ( "Internal error: UTF-8 not supported", ex );
+		}
+	}
+
+	private static int parseInt ( String value, int defaultValue )
+	{
+		if ( value == null ) return defaultValue;
+		try {
+			return Integer.parseInt ( value );
+		}
+		catch ( NumberFormatException ex ) {
+			return defaultValue;
+		}
+	}
+
+
+	/**
+	 * Stops the server, aborting the calls in progress.
+	 */
+	@Override
+	public void close ()
+	{
+		server.stop ( 0 );
+		executor.shutdownNow ();
+	}
+
+	/**
+	 * The URL to be used for {@link BioportalWebServiceUtils#bioportalBaseUrl}.
+	 */
+	public String getBaseUrl ()
+	{
+		return "http://localhost:" + server.getAddress ().getPort ();
+	}
+
+	public Latency getLatency ()
+	{
+		return latency;
+	}
+
+	public void setLatency ( Latency latency )
+	{
+		this.latency = latency == null ? Latency.none () : latency;
+	}
+
+	/**
+	 * The fraction of calls that fail with the {@link #getErrorStatus() error status}.
+	 */
+	public double getErrorRate ()
+	{
+		return errorRate;
+	}
+
+	public void setErrorRate ( double errorRate )
+	{
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * The HTTP status of the simulated errors, default is 500. Use 503 to simulate a server (or load balancer) 
+	 * that is down, these errors never have a Retry-After header.
+	 */
+	public int getErrorStatus ()
+	{
+		return errorStatus;
+	}
+
+	public void setErrorStatus ( int errorStatus )
+	{
+		this.errorStatus = errorStatus;
+	}
+
+	/**
+	 * The fraction of calls that are throttled at random, asking the client to wait 1s.
+	 */
+	public double getThrottleRate ()
+	{
+		return throttleRate;
+	}
+
+	public void setThrottleRate ( double throttleRate )
+	{
+		this.throttleRate = throttleRate;
+	}
+
+	/**
+	 * Throttles the calls that exceed this rate, telling the client when the next call is allowed. A rate &lt;= 0
+	 * removes the limit.
+	 */
+	public void setRateLimit ( double permitsPerSecond, int burstSize )
+	{
+		this.rateLimiter = permitsPerSecond <= 0 ? null : new TokenBucketRateLimiter ( permitsPerSecond, burstSize );
+	}
+
+	public long getRequestCount ()
+	{
+		return requestCount.get ();
+	}
+
+	/**
+	 * The no. of calls that failed because of the {@link #setErrorRate(double) error rate}.
+	 */
+	public long getErrorCount ()
+	{
+		return errorCount.get ();
+	}
+
+	public long getThrottledCount ()
+	{
+		return throttledCount.get ();
+	}
+
+	/**
+	 * A header of the last request received, null if there isn't such header or no request was received yet.
+	 */
+	public String getLastRequestHeader ( String name )
+	{
+		Headers headers = this.lastRequestHeaders;
+		return headers == null ? null : headers.getFirst ( name );
+	}
+
+	public boolean isCompressionEnabled ()
+	{
+		return isCompressionEnabled;
+	}
+
+	/**
+	 * If false, responses are never compressed. Default is true.
+	 */
+	public void setCompressionEnabled ( boolean isCompressionEnabled )
+	{
+		this.isCompressionEnabled = isCompressionEnabled;
+	}
+
+	public long getLastModified ()
+	{
+		return lastModified;
+	}
+
+	/**
+	 * The modification time of the served data, which is reported as Last-Modified and is part of the ETag, so 
+	 * changing it is like changing the data for the conditional GETs. Default is the server start time. HTTP dates
+	 * have second granularity, so milliseconds are dropped.
+	 */
+	public void setLastModified ( long lastModified )
+	{
+		this.lastModified = lastModified / 1000 * 1000;
+	}
+
+	public void resetCounts ()
+	{
+		requestCount.set ( 0 );
+		errorCount.set ( 0 );
+		throttledCount.set ( 0 );
+	}
+}
@@ -0,0 +1,122 @@
+package uk.ac.ebi.bioportal.webservice.stub;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.client.BioportalClient;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClass;
+import uk.ac.ebi.bioportal.webservice.model.OntologyClassMapping;
+import uk.ac.ebi.bioportal.webservice.model.TextAnnotation;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubServer.Latency;
+
+/**
+ * Tests {@link BioportalStubServer}, and the client against it.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class BioportalStubServerTest
+{
+	private static final String EFO = "http://www.ebi.ac.uk/efo/EFO_";
+
+	@Rule
+	public BioportalStubRule stub = new BioportalStubRule ();
+
+	@Test
+	public void testClientLookups ()
+	{
+		BioportalClient client = new BioportalClient ( "stub-key" );
+
+		assertEquals ( "Bad ontology name!", "Experimental Factor Ontology", client.getOntology ( "EFO" ).getName () );
+
+		OntologyClass asthma = client.getOntologyClass ( "EFO", EFO + "0000270" );
+		assertNotNull ( "Class not found!", asthma );
+		assertEquals ( "Bad class label!", "asthma", asthma.getPreferredLabel () );
+		assertNull ( "Non-existing class returned!", client.getOntologyClass ( "EFO", EFO + "9999999" ) );
+
+		assertEquals ( "Bad children!",
+			labels ( "respiratory system disease", "cancer" ), getLabels ( client.getClassChildren ( "EFO", EFO + "0000408" ) )
+		);
+		assertEquals ( "Bad descendants count!", 5, client.getClassDescendants ( "EFO", EFO + "0000408" ).size () );
+		assertEquals ( "Bad ancestors!",
+			labels ( "respiratory system disease", "disease", "experimental factor" ),
+			getLabels ( client.getClassAncestors ( "EFO", EFO + "0000270" ) )
+		);
+
+		List<OntologyClassMapping> maps = client.getOntologyClassMappings ( asthma );
+		assertEquals ( "Bad mappings count!", 2, maps.size () );
+		assertEquals ( "Bad mapping target!", "DOID", maps.get ( 0 ).getTargetClassRef ().getOntologyAcronym () );
+
+		TextAnnotation[] anns = client.getTextAnnotations ( "Asthma cases, lung samples", "ontologies", "EFO,UBERON" );
+		Set<String> annotatedIris = new HashSet<> ();
+		for ( TextAnnotation ann: anns ) annotatedIris.add ( ann.getAnnotatedClass ().getClassIri () );
+		assertEquals ( "Bad annotations!",
+			labels ( EFO + "0000270", "http://purl.obolibrary.org/obo/UBERON_0002048" ), annotatedIris
+		);
+		assertEquals ( "Bad annotation position!", 1, anns [ 0 ].getAnnotations () [ 0 ].getFrom () );
+	}
+
+	@Test
+	public void testFaults () throws IOException
+	{
+		stub.getServer ().setLatency ( Latency.fixed ( 200 ) );
+		long start = System.currentTimeMillis ();
+		assertEquals ( "Bad status!", 200, getStatus ( "/ontologies/EFO" ) );
+		assertTrue ( "Latency not applied!", System.currentTimeMillis () - start >= 200 );
+		stub.getServer ().setLatency ( null );
+
+		stub.getServer ().setErrorRate ( 1 );
+		assertEquals ( "Error not simulated!", 500, getStatus ( "/ontologies/EFO" ) );
+		stub.getServer ().setErrorRate ( 0 );
+
+		stub.getServer ().setRateLimit ( 1, 1 );
+		assertEquals ( "Rate limit too strict!", 200, getStatus ( "/ontologies/EFO" ) );
+		HttpURLConnection conn = connect ( "/ontologies/EFO" );
+		assertEquals ( "Rate limit not honoured!", 429, conn.getResponseCode () );
+		assertEquals ( "Bad Retry-After!", "1", conn.getHeaderField ( "Retry-After" ) );
+		stub.getServer ().setRateLimit ( 0, 1 );
+
+		assertEquals ( "Bad request count!", 4, stub.getServer ().getRequestCount () );
+		assertEquals ( "Bad error count!", 1, stub.getServer ().getErrorCount () );
+		assertEquals ( "Bad throttled count!", 1, stub.getServer ().getThrottledCount () );
+	}
+
+	private int getStatus ( String path ) throws IOException
+	{
+		return connect ( path ).getResponseCode ();
+	}
+
+	private HttpURLConnection connect ( String path ) throws IOException
+	{
+		HttpURLConnection conn = (HttpURLConnection) new URL ( stub.getServer ().getBaseUrl () + path ).openConnection ();
+		conn.setRequestProperty ( "Authorization", "apikey token=stub-key" );
+		return conn;
+	}
+
+	private static Set<String> getLabels ( Set<OntologyClass> classes )
+	{
+		Set<String> result = new HashSet<> ();
+		for ( OntologyClass cls: classes ) result.add ( cls.getPreferredLabel () );
+		return result;
+	}
+
+	private static Set<String> labels ( String... labels )
+	{
+		Set<String> result = new HashSet<> ();
+		for ( String label: labels ) result.add ( label );
+		return result;
+	}
+}
@@ -0,0 +1,134 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalEndpoint;
+
+/**
+ * Tests {@link AdaptiveRateController}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class AdaptiveRateControllerTest
+{
+	private static final long MS = TimeUnit.MILLISECONDS.toNanos ( 1 );
+
+	@Test
+	public void testSteadyLatency ()
+	{
+		AdaptiveRateController ctrl = new AdaptiveRateController ( 15, 16, 0.2, 1.5 );
+		for ( int i = 0; i < 100; i++ ) ctrl.onCall ( 200 * MS, false );
+
+		assertEquals ( "Rate changed with good performance!", 15, ctrl.getRate (), 1E-6 );
+		// 15 calls/s * 0.2s = 3 in flight, + 1
+		assertEquals ( "Bad concurrency limit!", 4, ctrl.getConcurrencyLimit () );
+	}
+
+	@Test
+	public void testFailuresAndRecovery ()
+	{
+		AdaptiveRateController ctrl = new AdaptiveRateController ( 15, 16, 0.2, 1.5 );
+		for ( int i = 0; i < 10; i++ ) ctrl.onCall ( 200 * MS, false );
+
+		ctrl.onCall ( 200 * MS, true );
+		double rate = ctrl.getRate ();
+		assertTrue ( "Rate not decreased after a failure!", rate < 15 );
+		assertTrue ( "Failure decrease too hard!", rate > 5 );
+
+		// One failure per round trip, each cutting the rate further
+		long now = System.nanoTime ();
+		for ( int i = 1; i <= 50; i++ ) ctrl.onCall ( BioportalEndpoint.OTHER, 200 * MS, true, now + i * 250 * MS );
+		assertEquals ( "Rate below the minimum!", AdaptiveRateController.MIN_RATE, ctrl.getRate (), 1E-6 );
+
+		ctrl.onCall ( 200 * MS, false );
+		assertTrue ( "Rate not increasing after recovery!", ctrl.getRate () > AdaptiveRateController.MIN_RATE );
+		assertTrue ( "Rate increasing too fast!", ctrl.getRate () < 2 );
+		for ( int i = 0; i < 100; i++ ) ctrl.onCall ( 200 * MS, false );
+		assertEquals ( "Rate not back to max!", 15, ctrl.getRate (), 1E-6 );
+	}
+
+	@Test
+	public void testConcurrentFailures ()
+	{
+		AdaptiveRateController ctrl = new AdaptiveRateController ( 15, 16, 0.2, 1.5 );
+		for ( int i = 0; i < 10; i++ ) ctrl.onCall ( 200 * MS, false );
+
+		// All the calls in flight fail at once, e.g., a network glitch
+		long now = System.nanoTime ();
+		for ( int i = 0; i < 16; i++ ) ctrl.onCall ( BioportalEndpoint.OTHER, 200 * MS, true, now + i * 5 * MS );
+		assertEquals ( "Concurrent failures not seen as a single one!", 15 * 0.7, ctrl.getRate (), 1E-6 );
+
+		// Slow failures overlap too, even if the round trip is shorter
+		ctrl.onCall ( BioportalEndpoint.OTHER, 2000 * MS, true, now + 1000 * MS );
+		assertEquals ( "Overlapping failure not ignored!", 15 * 0.7, ctrl.getRate (), 1E-6 );
+
+		// A new round trip is a new signal
+		ctrl.onCall ( BioportalEndpoint.OTHER, 200 * MS, true, now + 2500 * MS );
+		assertEquals ( "Failure in a new round trip not seen!", 15 * 0.7 * 0.7, ctrl.getRate (), 1E-6 );
+	}
+
+	@Test
+	public void testCongestion ()
+	{
+		AdaptiveRateController ctrl = new AdaptiveRateController ( 15, 16, 0.2, 1.5 );
+		for ( int i = 0; i < 20; i++ ) ctrl.onCall ( 100 * MS, false );
+		for ( int i = 0; i < 20; i++ ) ctrl.onCall ( 500 * MS, false );
+
+		double rate = ctrl.getRate ();
+		assertTrue ( "Rate not decreased with growing latency!", rate < 15 );
+		assertTrue ( "Rate decreased too much with growing latency (" + rate + ")!", rate > 3 );
+	}
+
+	@Test
+	public void testMixedEndpoints ()
+	{
+		// Fast and slow endpoints mixed aren't congestion
+		AdaptiveRateController ctrl = new AdaptiveRateController ( 15, 16, 0.2, 1.5 );
+		for ( int i = 0; i < 200; i++ )
+		{
+			ctrl.onCall ( BioportalEndpoint.CLASS, 50 * MS, false );
+			if ( i % 3 == 0 ) ctrl.onCall ( BioportalEndpoint.ANNOTATOR, 1000 * MS, false );
+		}
+		assertEquals ( "Rate decreased with mixed endpoints!", 15, ctrl.getRate (), 1E-6 );
+		assertEquals ( "Bad class baseline!", 50 * MS, ctrl.getBaselineLatencyNanos ( BioportalEndpoint.CLASS ), MS );
+
+		// But the slow endpoint getting slower is
+		for ( int i = 0; i < 20; i++ ) ctrl.onCall ( BioportalEndpoint.ANNOTATOR, 5000 * MS, false );
+		assertTrue ( "Rate not decreased with growing latency!", ctrl.getRate () < 15 );
+	}
+
+	@Test
+	public void testConcurrencyLimit () throws InterruptedException
+	{
+		final AdaptiveRateController ctrl = new AdaptiveRateController ( 15, 2, 0.2, 1.5 );
+		ctrl.enter ();
+		ctrl.enter ();
+
+		Thread t = new Thread ()
+		{
+			@Override
+			public void run () {
+				try {
+					ctrl.enter ();
+				}
+				catch ( InterruptedException ex ) {
+					throw new RuntimeException ( ex );
+				}
+			}
+		};
+		t.start ();
+		t.join ( 200 );
+		assertTrue ( "Concurrency limit not enforced!", t.isAlive () );
+
+		ctrl.exit ();
+		t.join ( 1000 );
+		assertEquals ( "Bad in-flight count!", 2, ctrl.getInFlight () );
+	}
+}
@@ -0,0 +1,108 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
+import uk.ac.ebi.bioportal.webservice.utils.ApiKeyPool.KeySlot;
+
+/**
+ * Tests {@link ApiKeyPool}. This doesn't need Bioportal.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class ApiKeyPoolTest
+{
+	@Test
+	public void testHeadroomSelection () throws InterruptedException
+	{
+		ApiKeyPool pool = new ApiKeyPool ( Arrays.asList ( "key1", "key2" ), 3, 1, TimeUnit.MINUTES );
+		KeySlot slot1 = pool.getSlots ().get ( 0 ), slot2 = pool.getSlots ().get ( 1 );
+
+		// Uses up the first key's permits, the next ones should go to the second key
+		slot1.getInvoker ().getRateLimiter ().acquire ();
+		slot1.getInvoker ().getRateLimiter ().acquire ();
+		for ( int i = 0; i < 5; i++ )
+			assertSame ( "Key with less headroom selected!", slot2, pool.select () );
+	}
+
+	@Test
+	public void testBenching ()
+	{
+		ApiKeyPool pool = new ApiKeyPool ( Arrays.asList ( "key1", "key2" ), 2, 1, TimeUnit.MINUTES );
+		pool.setRetryPolicy ( RetryPolicy.NONE );
+
+		String baseUrl = BioportalWebServiceUtils.bioportalBaseUrl;
+		// Nothing listens here, so every call fails
+		BioportalWebServiceUtils.bioportalBaseUrl = "http://localhost:1";
+		try
+		{
+			for ( int i = 0; i < 4; i++ )
+			{
+				try {
+					pool.invoke ( "/ontologies" );
+				}
+				catch ( OntologyServiceException ex ) {
+					// Expected
+				}
+			}
+		}
+		finally {
+			BioportalWebServiceUtils.bioportalBaseUrl = baseUrl;
+		}
+
+		for ( KeySlot slot: pool.getSlots () )
+			assertTrue ( "Failing key not benched!", slot.isBenched () );
+		// Must select something anyway
+		assertNotNull ( "No key selected with all keys benched!", pool.select () );
+	}
+
+	@Test
+	public void testRetries () throws InterruptedException
+	{
+		ApiKeyPool pool = new ApiKeyPool ( Arrays.asList ( "key1" ), 3, 1, TimeUnit.MINUTES );
+		pool.setRetryPolicy ( new RetryPolicy ( 3, 1, 10, TimeUnit.MILLISECONDS ) );
+		BioportalInvoker invoker = pool.getSlots ().get ( 0 ).getInvoker ();
+
+		String baseUrl = BioportalWebServiceUtils.bioportalBaseUrl;
+		BioportalWebServiceUtils.bioportalBaseUrl = "http://localhost:1";
+		try
+		{
+			try {
+				pool.invoke ( "/ontologies" );
+				fail ( "Failing call didn't fail!" );
+			}
+			catch ( OntologyServiceException ex ) {
+				// Expected
+			}
+			assertEquals ( "Bad retry count!", 2, invoker.getRetryCount () );
+			assertEquals ( "Bad failed retry count!", 2, invoker.getFailedRetryCount () );
+
+			// Else, the circuit breaker opens during the next call, after too many failures in a row
+			pool.getCircuitBreaker ().onSuccess ();
+
+			try {
+				pool.invokeAsync ( "/ontologies" ).get ();
+				fail ( "Failing async call didn't fail!" );
+			}
+			catch ( ExecutionException ex ) {
+				assertTrue ( "Bad async failure!", ex.getCause () instanceof OntologyServiceException );
+			}
+			assertEquals ( "Bad retry count after async call!", 4, invoker.getRetryCount () );
+		}
+		finally {
+			BioportalWebServiceUtils.bioportalBaseUrl = baseUrl;
+		}
+	}
+}
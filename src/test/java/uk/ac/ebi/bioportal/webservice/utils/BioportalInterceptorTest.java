@@ -0,0 +1,213 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.client.BioportalClient;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalEndpoint;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubRule;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubServer;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubServer.Latency;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Tests {@link BioportalInterceptor}, against the {@link BioportalStubServer}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class BioportalInterceptorTest
+{
+	/**
+	 * Records the callbacks it receives.
+	 */
+	private static class RecordingInterceptor implements BioportalInterceptor
+	{
+		private final String name;
+		private final List<String> calls;
+		final List<BioportalRequest> requests = Collections.synchronizedList ( new ArrayList<BioportalRequest> () );
+		final List<JsonNode> results = Collections.synchronizedList ( new ArrayList<JsonNode> () );
+		final List<RuntimeException> errors = Collections.synchronizedList ( new ArrayList<RuntimeException> () );
+
+		RecordingInterceptor ( String name, List<String> calls )
+		{
+			this.name = name;
+			this.calls = calls;
+		}
+
+		@Override
+		public void beforeRequest ( BioportalRequest request )
+		{
+			calls.add ( name + ".before" );
+			requests.add ( request );
+		}
+
+		@Override
+		public void afterResponse ( BioportalRequest request, JsonNode result )
+		{
+			calls.add ( name + ".after" );
+			results.add ( result );
+		}
+
+		@Override
+		public void onError ( BioportalRequest request, RuntimeException ex )
+		{
+			calls.add ( name + ".error" );
+			errors.add ( ex );
+		}
+	}
+
+	@Rule
+	public BioportalStubRule stub = new BioportalStubRule ();
+
+	private List<BioportalInterceptor> interceptors = new ArrayList<> ();
+
+	@After
+	public void tearDown ()
+	{
+		for ( BioportalInterceptor interceptor: interceptors ) BioportalWebServiceUtils.removeInterceptor ( interceptor );
+	}
+
+	private <I extends BioportalInterceptor> I addInterceptor ( I interceptor )
+	{
+		BioportalWebServiceUtils.addInterceptor ( interceptor );
+		interceptors.add ( interceptor );
+		return interceptor;
+	}
+
+	@Test
+	public void testCallbacks () throws Exception
+	{
+		List<String> calls = Collections.synchronizedList ( new ArrayList<String> () );
+		RecordingInterceptor first = addInterceptor ( new RecordingInterceptor ( "first", calls ) );
+		addInterceptor ( new RecordingInterceptor ( "second", calls ) );
+
+		stub.getServer ().setLatency ( Latency.fixed ( 50 ) );
+		BioportalClient client = new BioportalClient ( "stub-key" );
+		assertNotNull ( "Class not found!", client.getOntologyClass ( "EFO", "http://www.ebi.ac.uk/efo/EFO_0000270" ) );
+
+		assertEquals ( "Bad callback order!",
+			Arrays.asList ( "first.before", "second.before", "second.after", "first.after" ),
+			new ArrayList<String> ( calls )
+		);
+
+		BioportalRequest request = first.requests.get ( 0 );
+		assertEquals ( "Bad endpoint!", BioportalEndpoint.CLASS, request.getEndpoint () );
+		assertEquals ( "Bad status!", 200, request.getStatus () );
+		assertEquals ( "Bad attempt!", 1, request.getAttempt () );
+		assertNotNull ( "No URL!", request.getUrl () );
+		assertTrue ( "Bytes not recorded!", request.getBytes () > 0 );
+		assertTrue ( "Bad latency!", request.getLatencyNanos () >= 50 * 1000000L );
+		assertTrue ( "Bad start time!", request.getStartNanos () != -1 );
+		assertTrue ( "Bad permit wait!", request.getPermitWaitNanos () >= 0 );
+		assertEquals ( "Bad API key ID!", 8, request.getApiKeyId ().length () );
+		assertFalse ( "API key exposed!", request.getApiKeyId ().contains ( "stub-key" ) );
+		assertNotNull ( "No result!", first.results.get ( 0 ) );
+		assertTrue ( "Unexpected errors!", first.errors.isEmpty () );
+
+		// 404 is a successful call, with a null result
+		calls.clear ();
+		assertNull ( "Non-existing class found!", client.getOntologyClass ( "EFO", "http://www.ebi.ac.uk/efo/EFO_9999999" ) );
+		assertEquals ( "Bad 404 status!", 404, first.requests.get ( 1 ).getStatus () );
+		assertNull ( "Bad 404 result!", first.results.get ( 1 ) );
+		assertTrue ( "Unexpected errors after 404!", first.errors.isEmpty () );
+	}
+
+	@Test
+	public void testHeaders () throws Exception
+	{
+		addInterceptor ( new BioportalInterceptor.Adapter ()
+		{
+			@Override
+			public void beforeRequest ( BioportalRequest request )
+			{
+				request.setHeader ( "X-Request-Tag", "test-" + request.getEndpoint ().getId () );
+				// Not allowed to override this
+				request.setHeader ( "Authorization", "apikey token=foo" );
+			}
+		});
+
+		BioportalClient client = new BioportalClient ( "stub-key" );
+		client.getOntology ( "EFO" );
+
+		assertEquals ( "Tag header not sent!", "test-ontology", stub.getServer ().getLastRequestHeader ( "X-Request-Tag" ) );
+		assertEquals ( "Authorization overridden!", "apikey token=stub-key", stub.getServer ().getLastRequestHeader ( "Authorization" ) );
+	}
+
+	@Test
+	public void testFaultInjection () throws Exception
+	{
+		final OntologyServiceException fault = new OntologyServiceException ( "Injected fault" );
+		List<String> calls = Collections.synchronizedList ( new ArrayList<String> () );
+		RecordingInterceptor recorder = addInterceptor ( new RecordingInterceptor ( "recorder", calls ) );
+		// Errors from onError() are ignored
+		addInterceptor ( new BioportalInterceptor.Adapter ()
+		{
+			@Override
+			public void onError ( BioportalRequest request, RuntimeException ex ) {
+				throw new IllegalStateException ( "Test error from onError()" );
+			}
+		});
+		addInterceptor ( new BioportalInterceptor.Adapter ()
+		{
+			@Override
+			public void beforeRequest ( BioportalRequest request ) {
+				throw fault;
+			}
+		});
+		// Never reached
+		addInterceptor ( new RecordingInterceptor ( "late", calls ) );
+
+		try {
+			BioportalWebServiceUtils.invokeBioportal ( "/ontologies/EFO", "stub-key" );
+			fail ( "Injected fault not thrown!" );
+		}
+		catch ( OntologyServiceException ex ) {
+			assertSame ( "Bad exception!", fault, ex );
+		}
+
+		assertEquals ( "The stub was invoked!", 0, stub.getServer ().getRequestCount () );
+		assertEquals ( "onError() not called!", 1, recorder.errors.size () );
+		assertSame ( "Bad exception in onError()!", fault, recorder.errors.get ( 0 ) );
+		assertEquals ( "Bad status!", 0, recorder.requests.get ( 0 ).getStatus () );
+		assertEquals ( "Bad latency!", -1, recorder.requests.get ( 0 ).getLatencyNanos () );
+		assertTrue ( "afterResponse() called!", recorder.results.isEmpty () );
+		assertEquals ( "Bad callbacks!", Arrays.asList ( "recorder.before", "recorder.error" ), new ArrayList<String> ( calls ) );
+	}
+
+	@Test
+	public void testAfterResponseFailure () throws Exception
+	{
+		List<String> calls = Collections.synchronizedList ( new ArrayList<String> () );
+		RecordingInterceptor recorder = addInterceptor ( new RecordingInterceptor ( "recorder", calls ) );
+		addInterceptor ( new BioportalInterceptor.Adapter ()
+		{
+			@Override
+			public void afterResponse ( BioportalRequest request, JsonNode result ) {
+				throw new IllegalStateException ( "Test error from afterResponse()" );
+			}
+		});
+
+		JsonNode result = BioportalWebServiceUtils.invokeBioportal ( "/ontologies/EFO", "stub-key" );
+		assertNotNull ( "Call failed by afterResponse()!", result );
+		assertEquals ( "Bad callbacks!", Arrays.asList ( "recorder.before", "recorder.after" ), new ArrayList<String> ( calls ) );
+		assertTrue ( "onError() called!", recorder.errors.isEmpty () );
+	}
+}
@@ -0,0 +1,177 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceDeadlineException;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the deadlines set via {@link CallScope}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class CallScopeTest
+{
+	@Test
+	public void testNestedDeadlines ()
+	{
+		assertEquals ( "Bad default deadline!", CallScope.NO_DEADLINE, CallScope.getCurrentDeadlineNanos () );
+		try ( CallScope outer = CallScope.withTimeout ( 1, TimeUnit.SECONDS ) )
+		{
+			long deadline = CallScope.getCurrentDeadlineNanos ();
+			try ( CallScope longer = CallScope.withTimeout ( 1, TimeUnit.HOURS ) ) {
+				assertEquals ( "Nested scope extended the deadline!", deadline, CallScope.getCurrentDeadlineNanos () );
+			}
+			try ( CallScope bulk = CallScope.open ( PriorityLane.BULK ) ) {
+				assertEquals ( "Lane scope didn't inherit the deadline!", deadline, CallScope.getCurrentDeadlineNanos () );
+			}
+			try ( CallScope shorter = CallScope.withTimeout ( 10, TimeUnit.MILLISECONDS ) ) {
+				assertTrue ( "Nested scope didn't shorten the deadline!", CallScope.getCurrentDeadlineNanos () - deadline < 0 );
+			}
+			assertEquals ( "Enclosing deadline not restored!", deadline, CallScope.getCurrentDeadlineNanos () );
+		}
+		assertEquals ( "Deadline not removed!", CallScope.NO_DEADLINE, CallScope.getCurrentDeadlineNanos () );
+	}
+
+	@Test
+	public void testPermitDeadline () throws InterruptedException
+	{
+		// 1 permit per second, the initial one is used up
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter ( 1 );
+		while ( limiter.tryAcquire () );
+		Map<PriorityLane, Integer> weights = new EnumMap<> ( PriorityLane.class );
+		weights.put ( PriorityLane.INTERACTIVE, 1 );
+		weights.put ( PriorityLane.BULK, 1 );
+		PriorityPermitScheduler scheduler = new PriorityPermitScheduler ( limiter, weights, 1, TimeUnit.MINUTES );
+
+		long start = System.nanoTime ();
+		assertFalse ( "Permit given after the deadline!", 
+			scheduler.acquire ( PriorityLane.INTERACTIVE, start + TimeUnit.MILLISECONDS.toNanos ( 100 ) ) 
+		);
+		long wait = TimeUnit.NANOSECONDS.toMillis ( System.nanoTime () - start );
+		assertTrue ( "Deadline not honoured (" + wait + "ms)!", wait < 500 );
+
+		ListenableFuture<Void> permit = scheduler.acquireAsync ( 
+			PriorityLane.INTERACTIVE, System.nanoTime () + TimeUnit.MILLISECONDS.toNanos ( 100 ) 
+		);
+		try {
+			permit.get ();
+			fail ( "Async permit given after the deadline!" );
+		}
+		catch ( ExecutionException ex ) {
+			assertTrue ( "Bad async permit failure!", ex.getCause () instanceof OntologyServiceDeadlineException );
+		}
+	}
+
+	@Test
+	public void testCallDeadline () throws IOException
+	{
+		HttpServer server = HttpServer.create ( new InetSocketAddress ( "localhost", 0 ), 0 );
+		server.setExecutor ( Executors.newCachedThreadPool () );
+		server.createContext ( "/", new HttpHandler ()
+		{
+			@Override
+			public void handle ( HttpExchange exchange ) throws IOException
+			{
+				try {
+					Thread.sleep ( 3000 );
+				}
+				catch ( InterruptedException ex ) {
+					Thread.currentThread ().interrupt ();
+				}
+				byte[] body = "{ \"id\": \"foo\" }".getBytes ( "UTF-8" );
+				exchange.sendResponseHeaders ( 200, body.length );
+				try ( OutputStream out = exchange.getResponseBody () ) {
+					out.write ( body );
+				}
+			}
+		});
+		server.start ();
+
+		String baseUrl = BioportalWebServiceUtils.bioportalBaseUrl;
+		BioportalWebServiceUtils.bioportalBaseUrl = "http://localhost:" + server.getAddress ().getPort ();
+		long start = System.currentTimeMillis ();
+		try ( CallScope scope = CallScope.withTimeout ( 300, TimeUnit.MILLISECONDS ) )
+		{
+			new ApiKeyPool ( "key" ).invoke ( "/ontologies/FOO" );
+			fail ( "No error after the deadline!" );
+		}
+		catch ( OntologyServiceDeadlineException ex ) 
+		{
+			long time = System.currentTimeMillis () - start;
+			assertTrue ( "Deadline not honoured (" + time + "ms)!", time < 1500 );
+		}
+		finally {
+			BioportalWebServiceUtils.bioportalBaseUrl = baseUrl;
+			server.stop ( 0 );
+		}
+	}
+
+	@Test
+	public void testSlowResponseDeadline () throws IOException
+	{
+		// The body comes a byte at a time, each read is much faster than the read timeout, the whole response isn't
+		HttpServer server = HttpServer.create ( new InetSocketAddress ( "localhost", 0 ), 0 );
+		server.setExecutor ( Executors.newCachedThreadPool () );
+		server.createContext ( "/", new HttpHandler ()
+		{
+			@Override
+			public void handle ( HttpExchange exchange ) throws IOException
+			{
+				byte[] body = "{ \"id\": \"foo\" }".getBytes ( "UTF-8" );
+				exchange.sendResponseHeaders ( 200, body.length );
+				try ( OutputStream out = exchange.getResponseBody () ) 
+				{
+					for ( byte b: body ) 
+					{
+						out.write ( b );
+						out.flush ();
+						Thread.sleep ( 200 );
+					}
+				}
+				catch ( InterruptedException ex ) {
+					Thread.currentThread ().interrupt ();
+				}
+			}
+		});
+		server.start ();
+
+		String baseUrl = BioportalWebServiceUtils.bioportalBaseUrl;
+		BioportalWebServiceUtils.bioportalBaseUrl = "http://localhost:" + server.getAddress ().getPort ();
+		long start = System.currentTimeMillis ();
+		try ( CallScope scope = CallScope.withTimeout ( 500, TimeUnit.MILLISECONDS ) )
+		{
+			BioportalWebServiceUtils.invokeBioportal ( "/ontologies/FOO", "key" );
+			fail ( "No error after the deadline!" );
+		}
+		catch ( OntologyServiceDeadlineException ex ) 
+		{
+			long time = System.currentTimeMillis () - start;
+			assertTrue ( "Deadline not honoured (" + time + "ms)!", time < 1500 );
+		}
+		finally {
+			BioportalWebServiceUtils.bioportalBaseUrl = baseUrl;
+			server.stop ( 0 );
+		}
+	}
+}
@@ -0,0 +1,307 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceDeadlineException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceThrottledException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceUnavailableException;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubRule;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubServer.Latency;
+import uk.ac.ebi.bioportal.webservice.utils.CircuitBreaker.State;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Tests {@link CircuitBreaker} and its use in {@link ApiKeyPool}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class CircuitBreakerTest
+{
+	@Rule
+	public BioportalStubRule stub = new BioportalStubRule ();
+
+	@After
+	public void tearDown ()
+	{
+		System.clearProperty ( CircuitBreaker.FAILURE_THRESHOLD_PROP_NAME );
+		System.clearProperty ( CircuitBreaker.OPEN_TIME_SECS_PROP_NAME );
+		System.clearProperty ( CircuitBreaker.HALF_OPEN_PROBES_PROP_NAME );
+	}
+
+	@Test
+	public void testStates () throws InterruptedException
+	{
+		CircuitBreaker breaker = new CircuitBreaker ( 3, 100, TimeUnit.MILLISECONDS, 2 );
+		final List<State> events = new ArrayList<> ();
+		breaker.addListener ( new CircuitBreaker.Listener () {
+			@Override
+			public void onStateChange ( CircuitBreaker breaker, State oldState, State newState ) {
+				events.add ( newState );
+			}
+		});
+
+		breaker.onFailure ();
+		breaker.onFailure ();
+		breaker.onSuccess ();
+		breaker.onFailure ();
+		breaker.onFailure ();
+		assertEquals ( "Breaker opened without consecutive failures!", State.CLOSED, breaker.getState () );
+
+		breaker.onFailure ();
+		assertEquals ( "Breaker not opened!", State.OPEN, breaker.getState () );
+		assertFalse ( "Call not rejected by the open breaker!", breaker.allowRequest () );
+		assertEquals ( "Bad rejected count!", 1, breaker.getRejectedCount () );
+
+		Thread.sleep ( 150 );
+		assertTrue ( "Probe 1 not allowed!", breaker.allowRequest () );
+		assertEquals ( "Breaker not half-open!", State.HALF_OPEN, breaker.getState () );
+		assertTrue ( "Probe 2 not allowed!", breaker.allowRequest () );
+		assertFalse ( "Too many probes allowed!", breaker.allowRequest () );
+
+		// A failed probe re-opens it
+		breaker.onSuccess ();
+		breaker.onFailure ();
+		assertEquals ( "Breaker not re-opened by a failed probe!", State.OPEN, breaker.getState () );
+		assertEquals ( "Bad open count!", 2, breaker.getOpenCount () );
+
+		Thread.sleep ( 150 );
+		assertTrue ( "Probe 1 not allowed!", breaker.allowRequest () );
+		assertTrue ( "Probe 2 not allowed!", breaker.allowRequest () );
+		breaker.onSuccess ();
+		breaker.onSuccess ();
+		assertEquals ( "Breaker not closed by good probes!", State.CLOSED, breaker.getState () );
+		assertTrue ( "Call not allowed by the closed breaker!", breaker.allowRequest () );
+
+		assertEquals ( "Bad state events!",
+			Arrays.asList ( State.OPEN, State.HALF_OPEN, State.OPEN, State.HALF_OPEN, State.CLOSED ), events
+		);
+	}
+
+	@Test
+	public void testCancelledProbe () throws InterruptedException
+	{
+		CircuitBreaker breaker = new CircuitBreaker ( 1, 100, TimeUnit.MILLISECONDS, 2 );
+		breaker.release ();
+		breaker.onFailure ();
+		assertEquals ( "Breaker not opened!", State.OPEN, breaker.getState () );
+
+		Thread.sleep ( 150 );
+		assertTrue ( "Probe 1 not allowed!", breaker.allowRequest () );
+		assertTrue ( "Probe 2 not allowed!", breaker.allowRequest () );
+		assertFalse ( "Too many probes allowed!", breaker.allowRequest () );
+
+		// Probe 2 is cancelled, its slot goes to a new probe
+		breaker.release ();
+		assertEquals ( "State changed by a cancelled probe!", State.HALF_OPEN, breaker.getState () );
+		assertTrue ( "Probe slot not released!", breaker.allowRequest () );
+		assertFalse ( "Too many probes allowed after a release!", breaker.allowRequest () );
+
+		breaker.onSuccess ();
+		breaker.onSuccess ();
+		assertEquals ( "Breaker not closed by good probes!", State.CLOSED, breaker.getState () );
+	}
+
+	@Test
+	public void testLostProbe () throws InterruptedException
+	{
+		CircuitBreaker breaker = new CircuitBreaker ( 1, 100, TimeUnit.MILLISECONDS, 1 );
+		breaker.onFailure ();
+		Thread.sleep ( 150 );
+		assertTrue ( "Probe not allowed!", breaker.allowRequest () );
+		assertFalse ( "Too many probes allowed!", breaker.allowRequest () );
+
+		// The probe never reports back
+		Thread.sleep ( 150 );
+		assertTrue ( "Lost probe not replaced!", breaker.allowRequest () );
+		assertFalse ( "Too many probes allowed after the probe timeout!", breaker.allowRequest () );
+		breaker.onSuccess ();
+		assertEquals ( "Breaker not closed by the new probe!", State.CLOSED, breaker.getState () );
+	}
+
+	/**
+	 * A call that runs out of its deadline doesn't tell whether the server is up.
+	 */
+	@Test
+	public void testDeadlineIsNeutral ()
+	{
+		String stubUrl = BioportalWebServiceUtils.bioportalBaseUrl;
+		ApiKeyPool pool = new ApiKeyPool ( "key" );
+		pool.setRetryPolicy ( RetryPolicy.NONE );
+		CircuitBreaker breaker = pool.getCircuitBreaker ();
+
+		BioportalWebServiceUtils.bioportalBaseUrl = "http://localhost:1";
+		for ( int i = 0; i < 4; i++ ) invokeAndFail ( pool );
+		assertEquals ( "Breaker opened too early!", State.CLOSED, breaker.getState () );
+
+		BioportalWebServiceUtils.bioportalBaseUrl = stubUrl;
+		stub.getServer ().setLatency ( Latency.fixed ( 1000 ) );
+		try ( CallScope scope = CallScope.withTimeout ( 100, TimeUnit.MILLISECONDS ) ) {
+			pool.invoke ( "/ontologies/EFO" );
+			fail ( "No deadline exception!" );
+		}
+		catch ( OntologyServiceDeadlineException ex ) {
+			// Expected
+		}
+
+		BioportalWebServiceUtils.bioportalBaseUrl = "http://localhost:1";
+		invokeAndFail ( pool );
+		assertEquals ( "Deadline counted as a success!", State.OPEN, breaker.getState () );
+	}
+
+	@Test
+	public void testCancelledAsyncProbe () throws InterruptedException
+	{
+		ApiKeyPool pool = newHalfOpenPool ();
+		stub.getServer ().setLatency ( Latency.fixed ( 2000 ) );
+		ListenableFuture<JsonNode> probe = pool.invokeAsync ( "/ontologies/EFO" );
+		Thread.sleep ( 100 );
+		assertEquals ( "Breaker not half-open!", State.HALF_OPEN, pool.getCircuitBreaker ().getState () );
+		probe.cancel ( false );
+
+		stub.getServer ().setLatency ( Latency.none () );
+		assertNotNull ( "No result after a cancelled probe!", pool.invoke ( "/ontologies/EFO" ) );
+		assertEquals ( "Breaker not closed!", State.CLOSED, pool.getCircuitBreaker ().getState () );
+	}
+
+	/**
+	 * The caller gives up on a hedged probe, which is cancelled the same way as when its deadline is exceeded.
+	 */
+	@Test
+	public void testAbandonedHedgedProbe () throws InterruptedException
+	{
+		final ApiKeyPool pool = newHalfOpenPool ();
+		HedgingPolicy hedgingPolicy = new HedgingPolicy ( true, 95, 1 );
+		for ( int i = 0; i < 20; i++ ) hedgingPolicy.onCall ( TimeUnit.MILLISECONDS.toNanos ( 1 ) );
+		pool.setHedgingPolicy ( hedgingPolicy );
+
+		stub.getServer ().setLatency ( Latency.fixed ( 2000 ) );
+		Thread caller = new Thread ( new Runnable () 
+		{
+			@Override
+			public void run () {
+				invokeAndFail ( pool );
+			}
+		});
+		caller.start ();
+		Thread.sleep ( 100 );
+		caller.interrupt ();
+		caller.join ();
+		assertEquals ( "A half-open call was hedged!", 0, hedgingPolicy.getHedgeCount () );
+
+		stub.getServer ().setLatency ( Latency.none () );
+		assertNotNull ( "No result after an abandoned probe!", pool.invoke ( "/ontologies/EFO" ) );
+		assertEquals ( "Breaker not closed!", State.CLOSED, pool.getCircuitBreaker ().getState () );
+	}
+
+	/**
+	 * A pool which breaker is open after a failed call and is ready to go half-open. Its probe timeout is 1s, so
+	 * the tests using this must complete their probes before that.
+	 */
+	private static ApiKeyPool newHalfOpenPool () throws InterruptedException
+	{
+		System.setProperty ( CircuitBreaker.FAILURE_THRESHOLD_PROP_NAME, "1" );
+		System.setProperty ( CircuitBreaker.OPEN_TIME_SECS_PROP_NAME, "1" );
+		System.setProperty ( CircuitBreaker.HALF_OPEN_PROBES_PROP_NAME, "1" );
+		ApiKeyPool pool = new ApiKeyPool ( "key" );
+		pool.setRetryPolicy ( RetryPolicy.NONE );
+
+		String stubUrl = BioportalWebServiceUtils.bioportalBaseUrl;
+		BioportalWebServiceUtils.bioportalBaseUrl = "http://localhost:1";
+		invokeAndFail ( pool );
+		BioportalWebServiceUtils.bioportalBaseUrl = stubUrl;
+		assertEquals ( "Breaker not opened!", State.OPEN, pool.getCircuitBreaker ().getState () );
+
+		Thread.sleep ( 1100 );
+		return pool;
+	}
+
+	private static void invokeAndFail ( ApiKeyPool pool )
+	{
+		try {
+			pool.invoke ( "/ontologies/EFO" );
+			fail ( "No exception from a bad server!" );
+		}
+		catch ( RuntimeException ex ) {
+			// Expected
+		}
+	}
+
+	/**
+	 * A load balancer answering 503 without Retry-After means Bioportal is down, not that it's throttling us.
+	 */
+	@Test
+	public void testUnavailableOpens ()
+	{
+		ApiKeyPool pool = new ApiKeyPool ( "key" );
+		pool.setRetryPolicy ( RetryPolicy.NONE );
+		stub.getServer ().setErrorRate ( 1 );
+		stub.getServer ().setErrorStatus ( 503 );
+
+		for ( int i = 0; i < 5; i++ )
+		{
+			try {
+				pool.invoke ( "/ontologies/EFO" );
+				fail ( "No exception from an unavailable server!" );
+			}
+			catch ( OntologyServiceThrottledException ex ) {
+				fail ( "HTTP 503 without Retry-After reported as throttling!" );
+			}
+			catch ( RuntimeException ex ) {
+				// Expected
+			}
+		}
+		assertEquals ( "Breaker not opened by HTTP 503!", State.OPEN, pool.getCircuitBreaker ().getState () );
+	}
+
+	@Test
+	public void testFailFast ()
+	{
+		String oldUrl = BioportalWebServiceUtils.bioportalBaseUrl;
+		try
+		{
+			BioportalWebServiceUtils.bioportalBaseUrl = "http://localhost:1";
+			ApiKeyPool pool = new ApiKeyPool ( "key" );
+			pool.setRetryPolicy ( RetryPolicy.NONE );
+			CircuitBreaker breaker = pool.getCircuitBreaker ();
+
+			int ioFailures = 0;
+			for ( int i = 0; i < 10; i++ )
+			{
+				try {
+					pool.invoke ( "/ontologies/EFO" );
+					fail ( "No exception from a bad server!" );
+				}
+				catch ( OntologyServiceUnavailableException ex ) {
+					// Expected after the breaker opens
+				}
+				catch ( RuntimeException ex ) {
+					ioFailures++;
+				}
+			}
+
+			assertEquals ( "Breaker not open!", State.OPEN, breaker.getState () );
+			assertEquals ( "Server not skipped by the breaker!", 5, ioFailures );
+			assertEquals ( "Bad rejected count!", 5, breaker.getRejectedCount () );
+		}
+		finally {
+			BioportalWebServiceUtils.bioportalBaseUrl = oldUrl;
+		}
+	}
+}
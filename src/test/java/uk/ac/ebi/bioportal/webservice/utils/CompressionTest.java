@@ -0,0 +1,146 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.client.BioportalClient;
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalEndpoint;
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalMetrics;
+import uk.ac.ebi.bioportal.webservice.metrics.EndpointMetrics;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubRule;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Tests the compression of the Bioportal responses, see {@link BioportalWebServiceUtils#COMPRESSION_ENABLED_PROP_NAME}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class CompressionTest
+{
+	@Rule
+	public BioportalStubRule stub = new BioportalStubRule ();
+
+	private RecordingInterceptor interceptor;
+
+	private static class RecordingInterceptor extends BioportalInterceptor.Adapter
+	{
+		volatile String acceptEncoding = null;
+		volatile BioportalRequest lastRequest = null;
+
+		@Override
+		public void beforeRequest ( BioportalRequest request ) {
+			if ( acceptEncoding != null ) request.setHeader ( "Accept-Encoding", acceptEncoding );
+		}
+
+		@Override
+		public void afterResponse ( BioportalRequest request, JsonNode result ) {
+			lastRequest = request;
+		}
+	}
+
+	@Before
+	public void setUp () throws Exception
+	{
+		BioportalWebServiceUtils.addInterceptor ( interceptor = new RecordingInterceptor () );
+	}
+
+	@After
+	public void tearDown ()
+	{
+		BioportalWebServiceUtils.removeInterceptor ( interceptor );
+		System.clearProperty ( BioportalWebServiceUtils.COMPRESSION_ENABLED_PROP_NAME );
+	}
+
+	@Test
+	public void testGzip ()
+	{
+		EndpointMetrics before = BioportalMetrics.getInstance ().getEndpointMetrics ( BioportalEndpoint.DESCENDANTS ).snapshot ();
+
+		BioportalClient client = new BioportalClient ( "stub-key" );
+		assertTrue ( "No descendants!", !client.getClassDescendants ( "EFO", "http://www.ebi.ac.uk/efo/EFO_0000408" ).isEmpty () );
+
+		assertEquals ( "Bad Accept-Encoding!", "gzip, deflate", stub.getServer ().getLastRequestHeader ( "Accept-Encoding" ) );
+		BioportalRequest request = interceptor.lastRequest;
+		assertTrue ( "Response not compressed!", request.getBytes () < request.getUncompressedBytes () );
+
+		EndpointMetrics after = BioportalMetrics.getInstance ().getEndpointMetrics ( BioportalEndpoint.DESCENDANTS );
+		long bytes = after.getBytesReceived () - before.getBytesReceived ();
+		long uncompressedBytes = after.getUncompressedBytesReceived () - before.getUncompressedBytesReceived ();
+		assertTrue ( "Compressed bytes not counted!", bytes > 0 );
+		assertTrue ( "Uncompressed bytes not counted!", uncompressedBytes > bytes );
+	}
+
+	@Test
+	public void testDeflate ()
+	{
+		interceptor.acceptEncoding = "deflate";
+		BioportalClient client = new BioportalClient ( "stub-key" );
+		assertNotNull ( "Class not found!", client.getOntologyClass ( "EFO", "http://www.ebi.ac.uk/efo/EFO_0000270" ) );
+		assertTrue ( "Response not compressed!", interceptor.lastRequest.getBytes () < interceptor.lastRequest.getUncompressedBytes () );
+	}
+
+	@Test
+	public void testDisabled ()
+	{
+		System.setProperty ( BioportalWebServiceUtils.COMPRESSION_ENABLED_PROP_NAME, "false" );
+		BioportalClient client = new BioportalClient ( "stub-key" );
+		assertNotNull ( "Class not found!", client.getOntologyClass ( "EFO", "http://www.ebi.ac.uk/efo/EFO_0000270" ) );
+
+		assertNull ( "Accept-Encoding sent!", stub.getServer ().getLastRequestHeader ( "Accept-Encoding" ) );
+		assertEquals ( "Bad byte counts!", interceptor.lastRequest.getBytes (), interceptor.lastRequest.getUncompressedBytes () );
+	}
+
+	@Test
+	public void testDecodeContent () throws IOException
+	{
+		byte[] data = "{ \"test\": \"Hello, Bioportal! Hello, Bioportal! Hello, Bioportal!\" }".getBytes ( "UTF-8" );
+
+		ByteArrayOutputStream bout = new ByteArrayOutputStream ();
+		try ( OutputStream out = new GZIPOutputStream ( bout ) ) { out.write ( data ); }
+		assertArrayEquals ( "Bad gzip decoding!", data, decode ( bout.toByteArray (), "gzip" ) );
+
+		bout = new ByteArrayOutputStream ();
+		try ( OutputStream out = new DeflaterOutputStream ( bout ) ) { out.write ( data ); }
+		assertArrayEquals ( "Bad zlib decoding!", data, decode ( bout.toByteArray (), "deflate" ) );
+
+		// Some servers send raw deflate data
+		bout = new ByteArrayOutputStream ();
+		try ( OutputStream out = new DeflaterOutputStream ( bout, new Deflater ( Deflater.DEFAULT_COMPRESSION, true ) ) ) {
+			out.write ( data );
+		}
+		assertArrayEquals ( "Bad raw deflate decoding!", data, decode ( bout.toByteArray (), "deflate" ) );
+
+		assertArrayEquals ( "Bad identity decoding!", data, decode ( data, null ) );
+	}
+
+	private static byte[] decode ( byte[] data, String encoding ) throws IOException
+	{
+		ByteArrayOutputStream result = new ByteArrayOutputStream ();
+		try ( InputStream in = BioportalWebServiceUtils.decodeContent ( new ByteArrayInputStream ( data ), encoding ) )
+		{
+			byte[] buffer = new byte [ 1024 ];
+			for ( int n; ( n = in.read ( buffer ) ) != -1; ) result.write ( buffer, 0, n );
+		}
+		return result.toByteArray ();
+	}
+}
@@ -0,0 +1,167 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubRule;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests {@link HedgingPolicy} and the hedged calls in {@link ApiKeyPool}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class HedgingPolicyTest
+{
+	@Rule
+	public BioportalStubRule stub = new BioportalStubRule ();
+
+	@Test
+	public void testDelayAndBudget ()
+	{
+		HedgingPolicy policy = new HedgingPolicy ( true, 90, 0.1 );
+		assertEquals ( "Hedge delay without latencies!", -1, policy.getHedgeDelay ( TimeUnit.MILLISECONDS ) );
+
+		for ( int i = 1; i <= 100; i++ )
+			policy.onCall ( TimeUnit.MILLISECONDS.toNanos ( i ) );
+		assertEquals ( "Bad hedge delay!", 90, policy.getHedgeDelay ( TimeUnit.MILLISECONDS ) );
+
+		// 100 calls give 10 hedges
+		for ( int i = 0; i < 10; i++ )
+			assertTrue ( "Hedge #" + i + " not allowed!", policy.tryHedge () );
+		assertFalse ( "Hedging budget exceeded!", policy.tryHedge () );
+		assertEquals ( "Bad hedge count!", 10, policy.getHedgeCount () );
+
+		// Cancelled calls give latencies, not budget
+		for ( int i = 0; i < 100; i++ )
+			policy.onCancelledCall ( TimeUnit.MILLISECONDS.toNanos ( 1000 ) );
+		assertFalse ( "Cancelled calls added to the budget!", policy.tryHedge () );
+		assertEquals ( "Cancelled calls not in the hedge delay!", 1000, policy.getHedgeDelay ( TimeUnit.MILLISECONDS ) );
+
+		HedgingPolicy disabled = new HedgingPolicy ( false, 90, 0.1 );
+		for ( int i = 1; i <= 100; i++ )
+			disabled.onCall ( TimeUnit.MILLISECONDS.toNanos ( i ) );
+		assertEquals ( "Hedge delay with hedging disabled!", -1, disabled.getHedgeDelay ( TimeUnit.MILLISECONDS ) );
+		assertFalse ( "Hedge allowed with hedging disabled!", disabled.tryHedge () );
+	}
+
+	@Test
+	public void testBudgetPrecision ()
+	{
+		// Summing up 0.1 ten times gives 0.9999999999999999, the budget must not drift that way
+		HedgingPolicy policy = new HedgingPolicy ( true, 90, 0.1 );
+		for ( int i = 0; i < 1000; i++ )
+		{
+			for ( int j = 0; j < 10; j++ )
+				policy.onCall ( TimeUnit.MILLISECONDS.toNanos ( 10 ) );
+			assertTrue ( "Hedge #" + i + " not allowed!", policy.tryHedge () );
+			assertFalse ( "Hedging budget exceeded at #" + i + "!", policy.tryHedge () );
+		}
+
+		// Unused hedges are capped
+		policy = new HedgingPolicy ( true, 90, 0.29 );
+		for ( int i = 0; i < 100; i++ )
+			policy.onCall ( TimeUnit.MILLISECONDS.toNanos ( 10 ) );
+		for ( int i = 0; i < 10; i++ )
+			assertTrue ( "Capped hedge #" + i + " not allowed!", policy.tryHedge () );
+		assertFalse ( "Hedging budget not capped!", policy.tryHedge () );
+	}
+
+	/**
+	 * The latencies that drive hedging are the server ones, not the time the calls spend waiting for their permits.
+	 */
+	@Test
+	public void testQueueingIgnored () throws Exception
+	{
+		HedgingPolicy policy = new HedgingPolicy ( true, 50, 0.05 );
+		ApiKeyPool pool = new ApiKeyPool ( "key" );
+		// The set-up of the first HTTP calls is slow, we don't want it to spoil the latencies
+		for ( int i = 0; i < 5; i++ ) pool.invoke ( "/ontologies/EFO" );
+		pool.setHedgingPolicy ( policy );
+
+		// At 15 calls/s, the median wait for the permit is about 800ms
+		List<ListenableFuture<JsonNode>> results = new ArrayList<> ();
+		for ( int i = 0; i < 25; i++ ) results.add ( pool.invokeAsync ( "/ontologies/EFO" ) );
+		for ( ListenableFuture<JsonNode> result: results ) result.get ();
+
+		long delay = policy.getHedgeDelay ( TimeUnit.MILLISECONDS );
+		assertTrue ( "No hedge delay!", delay >= 0 );
+		assertTrue ( "The hedge delay includes the permit wait (" + delay + "ms)!", delay < 400 );
+	}
+
+	@Test
+	public void testHedgedCall () throws IOException
+	{
+		// The second call is very slow, the others are immediate
+		final AtomicInteger callCount = new AtomicInteger ( 0 );
+		HttpServer server = HttpServer.create ( new InetSocketAddress ( "localhost", 0 ), 0 );
+		server.setExecutor ( Executors.newCachedThreadPool () );
+		server.createContext ( "/", new HttpHandler ()
+		{
+			@Override
+			public void handle ( HttpExchange exchange ) throws IOException
+			{
+				try {
+					if ( callCount.incrementAndGet () == 2 ) Thread.sleep ( 3000 );
+				}
+				catch ( InterruptedException ex ) {
+					Thread.currentThread ().interrupt ();
+				}
+				byte[] body = "{ \"id\": \"foo\" }".getBytes ( "UTF-8" );
+				exchange.sendResponseHeaders ( 200, body.length );
+				try ( OutputStream out = exchange.getResponseBody () ) {
+					out.write ( body );
+				}
+			}
+		});
+		server.start ();
+
+		String baseUrl = BioportalWebServiceUtils.bioportalBaseUrl;
+		BioportalWebServiceUtils.bioportalBaseUrl = "http://localhost:" + server.getAddress ().getPort ();
+		try
+		{
+			// The hedge needs a permit available immediately, so the delay must be longer than the rate interval
+			HedgingPolicy policy = new HedgingPolicy ( true, 50, 1 );
+			for ( int i = 0; i < 20; i++ )
+				policy.onCall ( TimeUnit.MILLISECONDS.toNanos ( 200 ) );
+
+			ApiKeyPool pool = new ApiKeyPool ( "key" );
+			// Else, the set-up of the first HTTP call might be slower than the hedge delay
+			pool.invoke ( "/ontologies/FOO" );
+			pool.setHedgingPolicy ( policy );
+
+			long start = System.currentTimeMillis ();
+			String id = pool.invoke ( "/ontologies/FOO" ).get ( "id" ).asText ();
+			long time = System.currentTimeMillis () - start;
+
+			assertEquals ( "Bad result from the hedged call!", "foo", id );
+			assertTrue ( "The hedge didn't cut the latency (" + time + "ms)!", time < 2000 );
+			assertEquals ( "Bad hedge count!", 1, policy.getHedgeCount () );
+			assertEquals ( "Bad hedge win count!", 1, policy.getHedgeWinCount () );
+		}
+		finally {
+			BioportalWebServiceUtils.bioportalBaseUrl = baseUrl;
+			server.stop ( 0 );
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Tests {@link PriorityPermitScheduler} and {@link CallScope}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class PriorityPermitSchedulerTest
+{
+	private static final Executor SAME_THREAD_EXECUTOR = new Executor ()
+	{
+		@Override
+		public void execute ( Runnable command ) {
+			command.run ();
+		}
+	};
+
+	@Test
+	public void testWeights () throws InterruptedException, ExecutionException
+	{
+		PriorityPermitScheduler scheduler = createScheduler ( 100, 3, 1, 1, TimeUnit.MINUTES );
+
+		// Bulk calls come first, but interactive ones should get most of the permits anyway
+		List<PriorityLane> grants = Collections.synchronizedList ( new ArrayList<PriorityLane> () );
+		List<ListenableFuture<Void>> permits = new ArrayList<> ();
+		for ( int i = 0; i < 40; i++ ) permits.add ( acquire ( scheduler, PriorityLane.BULK, grants ) );
+		for ( int i = 0; i < 40; i++ ) permits.add ( acquire ( scheduler, PriorityLane.INTERACTIVE, grants ) );
+		for ( ListenableFuture<Void> permit: permits ) permit.get ();
+
+		int interactiveCt = Collections.frequency ( grants.subList ( 0, 20 ), PriorityLane.INTERACTIVE );
+		assertTrue ( "Lane weights not honoured (" + interactiveCt + " interactive calls)!", interactiveCt >= 14 && interactiveCt <= 16 );
+	}
+
+	@Test
+	public void testStarvation () throws InterruptedException, ExecutionException
+	{
+		PriorityPermitScheduler scheduler = createScheduler ( 50, 1000, 1, 100, TimeUnit.MILLISECONDS );
+
+		List<PriorityLane> grants = Collections.synchronizedList ( new ArrayList<PriorityLane> () );
+		List<ListenableFuture<Void>> permits = new ArrayList<> ();
+		permits.add ( acquire ( scheduler, PriorityLane.BULK, grants ) );
+		for ( int i = 0; i < 30; i++ ) permits.add ( acquire ( scheduler, PriorityLane.INTERACTIVE, grants ) );
+		for ( ListenableFuture<Void> permit: permits ) permit.get ();
+
+		int bulkIdx = grants.indexOf ( PriorityLane.BULK );
+		// 100ms is about 5 permits
+		assertTrue ( "Bulk call starved (served as #" + bulkIdx + ")!", bulkIdx > 0 && bulkIdx < 15 );
+	}
+
+	@Test
+	public void testCancel () throws InterruptedException, ExecutionException
+	{
+		PriorityPermitScheduler scheduler = createScheduler ( 20, 1, 1, 1, TimeUnit.MINUTES );
+		ListenableFuture<Void> permit1 = scheduler.acquireAsync ( PriorityLane.INTERACTIVE );
+		ListenableFuture<Void> permit2 = scheduler.acquireAsync ( PriorityLane.INTERACTIVE );
+		permit1.cancel ( false );
+
+		long start = System.nanoTime ();
+		permit2.get ();
+		long wait = TimeUnit.NANOSECONDS.toMillis ( System.nanoTime () - start );
+		// It gets the permit of the cancelled waiter, so it waits one interval only
+		assertTrue ( "Cancelled permit wasted (" + wait + "ms)!", wait < 90 );
+	}
+
+	@Test
+	public void testCallScope ()
+	{
+		assertEquals ( "Bad default lane!", PriorityLane.INTERACTIVE, CallScope.getCurrentLane () );
+		try ( CallScope bulk = CallScope.open ( PriorityLane.BULK ) )
+		{
+			assertEquals ( "Bad scope lane!", PriorityLane.BULK, CallScope.getCurrentLane () );
+			try ( CallScope interactive = CallScope.open ( PriorityLane.INTERACTIVE ) ) {
+				assertEquals ( "Bad nested scope lane!", PriorityLane.INTERACTIVE, CallScope.getCurrentLane () );
+			}
+			assertEquals ( "Enclosing scope not restored!", PriorityLane.BULK, CallScope.getCurrentLane () );
+		}
+		assertNull ( "Scope not removed!", CallScope.current () );
+	}
+
+	/**
+	 * Uses up the limiter's initial permit, so that all the calls in the test are queued.
+	 */
+	private PriorityPermitScheduler createScheduler (
+		double rate, int interactiveWeight, int bulkWeight, long maxWait, TimeUnit timeUnit
+	)
+	{
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter ( rate );
+		while ( limiter.tryAcquire () );
+
+		Map<PriorityLane, Integer> weights = new EnumMap<> ( PriorityLane.class );
+		weights.put ( PriorityLane.INTERACTIVE, interactiveWeight );
+		weights.put ( PriorityLane.BULK, bulkWeight );
+		return new PriorityPermitScheduler ( limiter, weights, maxWait, timeUnit );
+	}
+
+	private ListenableFuture<Void> acquire (
+		PriorityPermitScheduler scheduler, final PriorityLane lane, final List<PriorityLane> grants
+	)
+	{
+		ListenableFuture<Void> result = scheduler.acquireAsync ( lane );
+		result.addListener ( new Runnable ()
+		{
+			@Override
+			public void run () {
+				grants.add ( lane );
+			}
+		}, SAME_THREAD_EXECUTOR );
+		return result;
+	}
+}
@@ -0,0 +1,83 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.utils.DateUtils;
+import org.junit.Test;
+
+/**
+ * Tests {@link RateLimitHeaders} and the way the rate limiting components react to them.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class RateLimitHeadersTest
+{
+	@Test
+	public void testRetryAfter ()
+	{
+		long now = System.currentTimeMillis ();
+		assertEquals ( "Bad Retry-After in seconds!", 120000, RateLimitHeaders.parseRetryAfter ( " 120", now ) );
+		assertEquals ( "Bad missing Retry-After!", -1, RateLimitHeaders.parseRetryAfter ( null, now ) );
+		assertEquals ( "Bad wrong Retry-After!", -1, RateLimitHeaders.parseRetryAfter ( "foo", now ) );
+
+		// HTTP dates have a precision of seconds
+		String date = DateUtils.formatDate ( new Date ( now + 30000 ) );
+		long retryAfter = RateLimitHeaders.parseRetryAfter ( date, now );
+		assertTrue ( "Bad Retry-After date (" + retryAfter + ")!", retryAfter > 28000 && retryAfter <= 30000 );
+	}
+
+	@Test
+	public void testIsThrottling ()
+	{
+		RateLimitHeaders noRetryAfter = new RateLimitHeaders ( -1, -1, -1 );
+		RateLimitHeaders retryAfter = new RateLimitHeaders ( 1000, -1, -1 );
+
+		assertTrue ( "HTTP 429 not throttling!", noRetryAfter.isThrottling ( 429 ) );
+		assertTrue ( "HTTP 503 with Retry-After not throttling!", retryAfter.isThrottling ( 503 ) );
+		assertFalse ( "HTTP 503 without Retry-After is throttling!", noRetryAfter.isThrottling ( 503 ) );
+		assertFalse ( "HTTP 500 is throttling!", retryAfter.isThrottling ( 500 ) );
+		assertFalse ( "HTTP 200 is throttling!", retryAfter.isThrottling ( 200 ) );
+	}
+
+	@Test
+	public void testReset ()
+	{
+		long now = System.currentTimeMillis ();
+		assertEquals ( "Bad reset in seconds!", 60000, RateLimitHeaders.parseReset ( "60", now ) );
+
+		long epochSecs = TimeUnit.MILLISECONDS.toSeconds ( now ) + 60;
+		long reset = RateLimitHeaders.parseReset ( "" + epochSecs, now );
+		assertTrue ( "Bad reset as epoch time (" + reset + ")!", reset > 58000 && reset <= 60000 );
+	}
+
+	@Test
+	public void testThrottlingPause ()
+	{
+		BioportalInvoker invoker = new BioportalInvoker ( "key", 15 );
+		invoker.onRateLimitHeaders ( 429, new RateLimitHeaders ( 2000, -1, -1 ) );
+
+		long wait = TimeUnit.NANOSECONDS.toMillis ( invoker.getRateLimiter ().getWaitNanos () );
+		assertTrue ( "Limiter not paused as requested (" + wait + "ms)!", wait > 1900 && wait <= 2000 );
+	}
+
+	@Test
+	public void testRateCap ()
+	{
+		BioportalInvoker invoker = new BioportalInvoker ( "key", 15 );
+
+		// 20 calls left in 10s
+		invoker.onRateLimitHeaders ( 200, new RateLimitHeaders ( -1, 20, 10000 ) );
+		assertEquals ( "Rate not capped!", 2, invoker.getRateLimiter ().getRate (), 0.01 );
+
+		invoker.onRateLimitHeaders ( 200, new RateLimitHeaders ( -1, 0, 5000 ) );
+		long wait = TimeUnit.NANOSECONDS.toMillis ( invoker.getRateLimiter ().getWaitNanos () );
+		assertTrue ( "Limiter not paused until the window reset (" + wait + "ms)!", wait > 4900 && wait <= 5000 );
+	}
+}
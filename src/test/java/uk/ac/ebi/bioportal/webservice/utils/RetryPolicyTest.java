@@ -0,0 +1,97 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceDeadlineException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceHttpException;
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceThrottledException;
+
+/**
+ * Tests {@link RetryPolicy}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class RetryPolicyTest
+{
+	@Test
+	public void testShouldRetry ()
+	{
+		RetryPolicy policy = new RetryPolicy ( 3, 100, 1000, TimeUnit.MILLISECONDS );
+		OntologyServiceException ioEx = new OntologyServiceException ( "Test", new SocketTimeoutException ( "Test" ) );
+
+		assertTrue ( "Timeout not retried!", policy.shouldRetry ( 1, ioEx ) );
+		assertTrue ( "Throttling not retried!", policy.shouldRetry ( 2, new OntologyServiceThrottledException ( "Test", 429, -1 ) ) );
+		assertFalse ( "Too many attempts!", policy.shouldRetry ( 3, ioEx ) );
+		assertFalse ( "Missing resource retried!",
+			policy.shouldRetry ( 1, new OntologyServiceException ( "Test", new FileNotFoundException ( "Test" ) ) )
+		);
+		assertFalse ( "Non-I/O error retried!", policy.shouldRetry ( 1, new OntologyServiceException ( "Test" ) ) );
+		assertFalse ( "NONE retries!", RetryPolicy.NONE.shouldRetry ( 1, ioEx ) );
+	}
+
+	@Test
+	public void testIsTransient ()
+	{
+		assertTrue ( "Connect error not transient!", 
+			RetryPolicy.isTransient ( new OntologyServiceException ( "Test", new ConnectException ( "Test" ) ) ) 
+		);
+		assertTrue ( "Connection reset not transient!", 
+			RetryPolicy.isTransient ( new OntologyServiceException ( "Test", new SocketException ( "Connection reset" ) ) ) 
+		);
+		assertFalse ( "Other socket error transient!", 
+			RetryPolicy.isTransient ( new OntologyServiceException ( "Test", new SocketException ( "Socket closed" ) ) ) 
+		);
+		assertFalse ( "Generic I/O error transient!", 
+			RetryPolicy.isTransient ( new OntologyServiceException ( "Test", new IOException ( "Test" ) ) ) 
+		);
+
+		IOException httpEx = new IOException ( "Server returned HTTP response code" );
+		for ( int status: new int[] { 500, 502, 504 } )
+			assertTrue ( "HTTP " + status + " not transient!", 
+				RetryPolicy.isTransient ( new OntologyServiceHttpException ( "Test", status, httpEx ) ) 
+			);
+		for ( int status: new int[] { 400, 401, 403, 422 } )
+			assertFalse ( "HTTP " + status + " transient!", 
+				RetryPolicy.isTransient ( new OntologyServiceHttpException ( "Test", status, httpEx ) ) 
+			);
+		assertTrue ( "HTTP 503 not transient!", 
+			RetryPolicy.isTransient ( new OntologyServiceThrottledException ( "Test", 503, 1000 ) ) 
+		);
+		assertTrue ( "HTTP 503 without Retry-After not transient!", 
+			RetryPolicy.isTransient ( new OntologyServiceHttpException ( "Test", 503, httpEx ) ) 
+		);
+		assertFalse ( "Deadline timeout transient!", RetryPolicy.isTransient ( 
+			new OntologyServiceDeadlineException ( "Test", new SocketTimeoutException ( "Test" ) ) 
+		));
+	}
+
+	@Test
+	public void testDelays ()
+	{
+		RetryPolicy policy = new RetryPolicy ( 10, 100, 1000, TimeUnit.MILLISECONDS );
+		for ( int i = 0; i < 1000; i++ )
+		{
+			long delay = policy.getDelayMillis ( 1 );
+			assertTrue ( "Bad first delay (" + delay + ")!", delay >= 0 && delay <= 100 );
+
+			delay = policy.getDelayMillis ( 3 );
+			assertTrue ( "Bad third delay (" + delay + ")!", delay >= 0 && delay <= 400 );
+
+			delay = policy.getDelayMillis ( 60 );
+			assertTrue ( "Delay above the cap (" + delay + ")!", delay >= 0 && delay <= 1000 );
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.exceptions.OntologyServiceException;
+
+/**
+ * Tests {@link SharedFileRateLimiter}, both within the same JVM and with another JVM, which runs 
+ * {@link #main(String...)}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class SharedFileRateLimiterTest
+{
+	@Test
+	public void testSharedRate () throws Exception
+	{
+		Path dir = Files.createTempDirectory ( "bioportal-rate-test" );
+		final SharedFileRateLimiter limiter1 = SharedFileRateLimiter.forApiKey ( dir, "key", 20 );
+		final SharedFileRateLimiter limiter2 = SharedFileRateLimiter.forApiKey ( dir, "key", 20 );
+		assertEquals ( "Limiters for the same key use different files!", limiter1.getPath (), limiter2.getPath () );
+		assertFalse ( "API key in the file name!", limiter1.getPath ().getFileName ().toString ().contains ( "key" ) );
+
+		long start = System.nanoTime ();
+		Thread[] threads = new Thread [ 2 ];
+		for ( int i = 0; i < 2; i++ )
+		{
+			final SharedFileRateLimiter limiter = i == 0 ? limiter1 : limiter2;
+			threads [ i ] = new Thread ( new Runnable ()
+			{
+				@Override
+				public void run ()
+				{
+					try {
+						for ( int j = 0; j < 6; j++ ) limiter.acquire ();
+					}
+					catch ( InterruptedException ex ) {
+						throw new RuntimeException ( ex );
+					}
+				}
+			});
+			threads [ i ].start ();
+		}
+		for ( Thread thread: threads ) thread.join ();
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis ( System.nanoTime () - start );
+
+		// 12 permits in total, i.e., 11 intervals of 50ms, not 5 as with separate limiters
+		assertTrue ( "Shared rate limit not honoured (" + elapsedMs + "ms)!", elapsedMs >= 500 );
+		assertTrue ( "Shared rate limit too slow (" + elapsedMs + "ms)!", elapsedMs < 1500 );
+	}
+
+	@Test
+	public void testForkedJvm () throws Exception
+	{
+		Path file = Files.createTempFile ( "bioportal-rate-test", ".rate" );
+		file.toFile ().deleteOnExit ();
+		SharedFileRateLimiter limiter = new SharedFileRateLimiter ( file, 20 );
+
+		String java = System.getProperty ( "java.home" ) + File.separator + "bin" + File.separator + "java";
+		Process child = new ProcessBuilder ( 
+			java, "-cp", System.getProperty ( "java.class.path" ), this.getClass ().getName (), file.toString (), "20", "10" 
+		)
+		.redirectErrorStream ( true )
+		.start ();
+		try
+		{
+			BufferedReader childOut = new BufferedReader ( new InputStreamReader ( child.getInputStream (), "UTF-8" ) );
+			assertEquals ( "The child JVM didn't start!", "READY", childOut.readLine () );
+
+			// So the JVM start-up time doesn't count
+			long start = System.nanoTime ();
+			OutputStream childIn = child.getOutputStream ();
+			childIn.write ( "GO\n".getBytes ( "UTF-8" ) );
+			childIn.flush ();
+
+			for ( int i = 0; i < 10; i++ ) limiter.acquire ();
+			assertEquals ( "The child JVM failed!", "DONE", childOut.readLine () );
+			long elapsedMs = TimeUnit.NANOSECONDS.toMillis ( System.nanoTime () - start );
+
+			// 20 permits in total, i.e., 19 intervals of 50ms, not 9 as with separate limiters
+			assertTrue ( "Rate limit not shared with the other JVM (" + elapsedMs + "ms)!", elapsedMs >= 900 );
+			assertTrue ( "Shared rate limit too slow (" + elapsedMs + "ms)!", elapsedMs < 3000 );
+		}
+		finally {
+			child.destroy ();
+		}
+	}
+
+	/**
+	 * The other JVM in {@link #testForkedJvm()}, args are: file, rate, no. of permits to acquire. Prints READY,
+	 * waits for a line on the standard input and then prints DONE after having acquired the permits.
+	 */
+	public static void main ( String... args ) throws Exception
+	{
+		SharedFileRateLimiter limiter = new SharedFileRateLimiter ( Paths.get ( args [ 0 ] ), Double.parseDouble ( args [ 1 ] ) );
+		System.out.println ( "READY" );
+		new BufferedReader ( new InputStreamReader ( System.in, "UTF-8" ) ).readLine ();
+		for ( int i = Integer.parseInt ( args [ 2 ] ); i > 0; i-- ) limiter.acquire ();
+		System.out.println ( "DONE" );
+	}
+
+	@Test
+	public void testBadFile () throws IOException
+	{
+		Path file = Files.createTempFile ( "bioportal-rate-test", ".rate" );
+		Files.write ( file, "Not a rate limit file".getBytes ( "UTF-8" ) );
+		try {
+			new SharedFileRateLimiter ( file, 10 );
+			fail ( "No error with a bad file!" );
+		}
+		catch ( OntologyServiceException ex ) {
+			// Expected
+		}
+	}
+}
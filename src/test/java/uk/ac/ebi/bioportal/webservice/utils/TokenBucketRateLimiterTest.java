@@ -0,0 +1,74 @@
+package uk.ac.ebi.bioportal.webservice.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Tests {@link TokenBucketRateLimiter}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class TokenBucketRateLimiterTest
+{
+	@Test
+	public void testBlockingRate () throws InterruptedException
+	{
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter ( 20 );
+
+		long start = System.nanoTime ();
+		for ( int i = 0; i < 11; i++ ) limiter.acquire ();
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis ( System.nanoTime () - start );
+
+		// 10 intervals of 50ms
+		assertTrue ( "Rate limit not honoured (" + elapsedMs + "ms)!", elapsedMs >= 450 );
+		assertTrue ( "Rate limit too slow (" + elapsedMs + "ms)!", elapsedMs < 1500 );
+	}
+
+	@Test
+	public void testBurstAndTryAcquire () throws InterruptedException
+	{
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter ( 10, 3 );
+		// Let the bucket fill up
+		Thread.sleep ( 400 );
+
+		for ( int i = 0; i < 3; i++ )
+			assertTrue ( "Burst permit #" + i + " not available!", limiter.tryAcquire () );
+		assertFalse ( "Permit beyond the burst size granted!", limiter.tryAcquire () );
+	}
+
+	@Test
+	public void testAsync () throws InterruptedException, ExecutionException
+	{
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter ( 20 );
+
+		long start = System.nanoTime ();
+		List<ListenableFuture<Void>> permits = new ArrayList<> ();
+		for ( int i = 0; i < 11; i++ ) permits.add ( limiter.acquireAsync () );
+		long submitMs = TimeUnit.NANOSECONDS.toMillis ( System.nanoTime () - start );
+		assertTrue ( "Async acquisition is blocking (" + submitMs + "ms)!", submitMs < 200 );
+
+		for ( ListenableFuture<Void> permit: permits ) permit.get ();
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis ( System.nanoTime () - start );
+		assertTrue ( "Async rate limit not honoured (" + elapsedMs + "ms)!", elapsedMs >= 450 );
+	}
+
+	@Test
+	public void testSetRate ()
+	{
+		TokenBucketRateLimiter limiter = new TokenBucketRateLimiter ( 15 );
+		limiter.setRate ( 7.5 );
+		assertEquals ( "Bad rate!", 7.5, limiter.getRate (), 1E-6 );
+	}
+}
@@ -0,0 +1,86 @@
+package uk.ac.ebi.bioportal.webservice.metrics.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.bioportal.webservice.client.BioportalClient;
+import uk.ac.ebi.bioportal.webservice.metrics.BioportalEvents;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubRule;
+import uk.ac.ebi.bioportal.webservice.stub.BioportalStubServer;
+
+/**
+ * Tests {@link JfrEventSink}, by recording the client activity against the {@link BioportalStubServer}.
+ *
+ * <dl><dt>date</dt><dd>18 Oct 2026</dd></dl>
+ * @author Marco Brandizi
+ *
+ */
+public class JfrEventSinkTest
+{
+	@Rule
+	public BioportalStubRule stub = new BioportalStubRule ();
+
+	@Test
+	public void testEvents () throws Exception
+	{
+		assertTrue ( "JFR sink not loaded!", BioportalEvents.getSink () instanceof JfrEventSink );
+
+		Path jfrPath = Files.createTempFile ( "bioportal-events-", ".jfr" );
+		try ( Recording recording = new Recording () )
+		{
+			recording.enable ( "uk.ac.ebi.bioportal.Invocation" );
+			recording.enable ( "uk.ac.ebi.bioportal.CacheLookup" );
+			recording.enable ( "uk.ac.ebi.bioportal.CacheLoad" );
+			recording.start ();
+
+			BioportalClient client = new BioportalClient ( "stub-key" );
+			for ( int i = 0; i < 2; i++ ) client.getOntologyClass ( "EFO", "http://www.ebi.ac.uk/efo/EFO_0000270" );
+
+			recording.stop ();
+			recording.dump ( jfrPath );
+
+			List<RecordedEvent> events = RecordingFile.readAllEvents ( jfrPath );
+			int invocations = 0, lookups = 0, hits = 0, loads = 0;
+			for ( RecordedEvent event: events )
+			{
+				switch ( event.getEventType ().getName () )
+				{
+					case "uk.ac.ebi.bioportal.Invocation":
+						invocations++;
+						assertEquals ( "Bad endpoint!", "class", event.getString ( "endpoint" ) );
+						assertEquals ( "Bad status!", 200, event.getInt ( "status" ) );
+						assertTrue ( "Bytes not recorded!", event.getLong ( "bytes" ) > 0 );
+						assertEquals ( "Bad attempt!", 1, event.getInt ( "attempt" ) );
+						break;
+					case "uk.ac.ebi.bioportal.CacheLookup":
+						lookups++;
+						if ( event.getBoolean ( "hit" ) ) hits++;
+						assertEquals ( "Bad cache name!", "classes", event.getString ( "cache" ) );
+						break;
+					case "uk.ac.ebi.bioportal.CacheLoad":
+						loads++;
+						assertTrue ( "Load time not recorded!", event.getLong ( "loadTime" ) > 0 );
+						break;
+				}
+			}
+			assertEquals ( "Bad no. of invocation events!", 1, invocations );
+			assertEquals ( "Bad no. of lookup events!", 2, lookups );
+			assertEquals ( "Bad no. of hit events!", 1, hits );
+			assertEquals ( "Bad no. of load events!", 1, loads );
+		}
+		finally {
+			Files.deleteIfExists ( jfrPath );
+		}
+	}
+}